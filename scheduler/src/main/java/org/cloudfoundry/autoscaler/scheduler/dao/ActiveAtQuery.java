@@ -0,0 +1,83 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudfoundry.autoscaler.scheduler.util.DateHelper;
+
+/**
+ * Conditions on the schedule tables selecting the schedules of all the applications active at an instant.
+ * The dates and times of a schedule are the wall clock of its time zone, so the supported time zones are
+ * grouped by their wall clock at the instant and each group compares the columns with its wall clock. The
+ * indexes on the time zone and the start and end columns serve the conditions, the days of the recurring
+ * schedules are checked on the bitsets of the rows within the time range.
+ *
+ * A specific date schedule is active from its start date time up to its end date time, a recurring schedule
+ * from its start time up to its end time on its days between its start and end dates.
+ */
+final class ActiveAtQuery {
+
+	private final StringBuilder specificDateScheduleCondition = new StringBuilder();
+
+	private final List<Object> specificDateScheduleArgs = new ArrayList<>();
+
+	private final StringBuilder recurringScheduleCondition = new StringBuilder();
+
+	private final List<Object> recurringScheduleArgs = new ArrayList<>();
+
+	ActiveAtQuery(Date time) {
+		for (Map.Entry<LocalDateTime, List<String>> entry : DateHelper.getSupportedTimezonesByLocalDateTime(time)
+				.entrySet()) {
+			LocalDateTime localDateTime = entry.getKey();
+			List<String> timeZoneIds = entry.getValue();
+			String timeZoneCondition = "timezone IN ("
+					+ String.join(", ", Collections.nCopies(timeZoneIds.size(), "?")) + ")";
+
+			Timestamp localTimestamp = Timestamp.valueOf(localDateTime);
+			appendCondition(specificDateScheduleCondition,
+					timeZoneCondition + " AND start_date_time<=? AND end_date_time>?");
+			specificDateScheduleArgs.addAll(timeZoneIds);
+			Collections.addAll(specificDateScheduleArgs, localTimestamp, localTimestamp);
+
+			Time localTime = Time.valueOf(localDateTime.toLocalTime());
+			java.sql.Date localDate = java.sql.Date.valueOf(localDateTime.toLocalDate());
+			// The bit of the day is set when the integer division of the bitset by it is odd
+			appendCondition(recurringScheduleCondition, timeZoneCondition
+					+ " AND start_time<=? AND end_time>? AND (start_date IS NULL OR start_date<=?)"
+					+ " AND (end_date IS NULL OR end_date>=?)"
+					+ " AND (MOD(days_of_week/?, 2)=1 OR MOD(days_of_month/?, 2)=1)");
+			recurringScheduleArgs.addAll(timeZoneIds);
+			Collections.addAll(recurringScheduleArgs, localTime, localTime, localDate, localDate,
+					1 << (localDateTime.getDayOfWeek().getValue() - 1), 1 << (localDateTime.getDayOfMonth() - 1));
+		}
+	}
+
+	private static void appendCondition(StringBuilder condition, String groupCondition) {
+		if (condition.length() > 0) {
+			condition.append(" OR ");
+		}
+		condition.append("(").append(groupCondition).append(")");
+	}
+
+	String getSpecificDateScheduleCondition() {
+		return specificDateScheduleCondition.toString();
+	}
+
+	Object[] getSpecificDateScheduleArgs() {
+		return specificDateScheduleArgs.toArray();
+	}
+
+	String getRecurringScheduleCondition() {
+		return recurringScheduleCondition.toString();
+	}
+
+	Object[] getRecurringScheduleArgs() {
+		return recurringScheduleArgs.toArray();
+	}
+}
@@ -8,9 +8,38 @@ public interface ActiveScheduleDao {
 
 	ActiveScheduleEntity find(Long id);
 
+	/**
+	 * Creates the active schedule, or overwrites the active schedule with the same id, so that a retried
+	 * or duplicate start succeeds.
+	 * 
+	 * @param activeScheduleEntity
+	 */
 	void create(ActiveScheduleEntity activeScheduleEntity);
 
 	int delete(Long id);
 
 	void deleteAllActiveSchedulesByAppId(String appId);
+
+	List<ActiveScheduleEntity> findAllActiveSchedules();
+
+	void createActiveSchedules(List<ActiveScheduleEntity> activeScheduleEntities);
+
+	void deleteActiveSchedules(List<Long> ids);
+
+	/**
+	 * Replaces the active schedules with the specified ids by the new active schedule in one transaction.
+	 * 
+	 * @param replacedIds
+	 * @param activeScheduleEntity
+	 */
+	void replaceActiveSchedules(List<Long> replacedIds, ActiveScheduleEntity activeScheduleEntity);
+
+	/**
+	 * Deletes the active schedules with the specified ids, then creates or overwrites the active schedules,
+	 * with one statement each. The active schedules must have distinct ids.
+	 * 
+	 * @param deletedIds
+	 * @param activeScheduleEntities
+	 */
+	void writeActiveSchedules(List<Long> deletedIds, List<ActiveScheduleEntity> activeScheduleEntities);
 }
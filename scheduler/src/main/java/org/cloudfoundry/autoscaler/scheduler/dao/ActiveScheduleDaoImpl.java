@@ -1,5 +1,8 @@
 package org.cloudfoundry.autoscaler.scheduler.dao;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import javax.sql.DataSource;
@@ -10,7 +13,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.support.JdbcDaoSupport;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Repository("activeScheduleDao")
 public class ActiveScheduleDaoImpl extends JdbcDaoSupport implements ActiveScheduleDao {
@@ -19,19 +27,56 @@ public class ActiveScheduleDaoImpl extends JdbcDaoSupport implements ActiveSched
 
 	private static final String SELECT_SQL = "SELECT * FROM " + TABLE_NAME + " WHERE id=?";
 
-	private static final String INSERT_SQL = "INSERT INTO " + TABLE_NAME
-			+ "(id, app_id, instance_min_count, instance_max_count, initial_min_instance_count) "
-			+ "VALUES (?, ?, ?, ?, ?)";
+	private static final String SELECT_ALL_SQL = "SELECT * FROM " + TABLE_NAME;
+
+	private static final String INSERT_SQL_PREFIX = "INSERT INTO " + TABLE_NAME
+			+ "(id, app_id, instance_min_count, instance_max_count, initial_min_instance_count) VALUES ";
+
+	private static final String INSERT_VALUES = "(?, ?, ?, ?, ?)";
+
+	// A retried or duplicate start overwrites the active schedule it created before
+	private static final String ON_CONFLICT_SQL = " ON CONFLICT (id) DO UPDATE SET app_id=EXCLUDED.app_id, "
+			+ "instance_min_count=EXCLUDED.instance_min_count, instance_max_count=EXCLUDED.instance_max_count, "
+			+ "initial_min_instance_count=EXCLUDED.initial_min_instance_count";
+
+	// The embedded database of the embedded profile has no ON CONFLICT, it merges on the key instead
+	private static final String MERGE_SQL_PREFIX = "MERGE INTO " + TABLE_NAME
+			+ "(id, app_id, instance_min_count, instance_max_count, initial_min_instance_count) KEY (id) VALUES ";
 
 	private static final String DELETE_SQL = "DELETE FROM " + TABLE_NAME + " WHERE id=?";
 
 	private static final String DELETE_ALL_FOR_APPID_SQL = "DELETE FROM " + TABLE_NAME + " WHERE app_id=?";
 
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private String upsertSqlPrefix = INSERT_SQL_PREFIX;
+
+	private String upsertSqlSuffix = ON_CONFLICT_SQL;
+
 	@Autowired
 	private void setupDataSource(DataSource dataSource) {
 		setDataSource(dataSource);
 	}
 
+	@Override
+	protected void initDao() {
+		try {
+			String databaseProductName = JdbcUtils.commonDatabaseName(
+					(String) JdbcUtils.extractDatabaseMetaData(getDataSource(), "getDatabaseProductName"));
+			if ("H2".equals(databaseProductName)) {
+				upsertSqlPrefix = MERGE_SQL_PREFIX;
+				upsertSqlSuffix = "";
+			}
+		} catch (MetaDataAccessException e) {
+			// Not known before the database is reachable, the scheduler database is postgres
+		}
+	}
+
+	private String getUpsertSql(int rowCount) {
+		return upsertSqlPrefix + String.join(", ", Collections.nCopies(rowCount, INSERT_VALUES)) + upsertSqlSuffix;
+	}
+
 	@Override
 	public ActiveScheduleEntity find(Long id) {
 		try {
@@ -45,16 +90,97 @@ public class ActiveScheduleDaoImpl extends JdbcDaoSupport implements ActiveSched
 
 	@Override
 	public void create(ActiveScheduleEntity activeScheduleEntity) {
-		Object[] objects = new Object[] { activeScheduleEntity.getId(), activeScheduleEntity.getAppId(),
-				activeScheduleEntity.getInstanceMinCount(), activeScheduleEntity.getInstanceMaxCount(),
-				activeScheduleEntity.getInitialMinInstanceCount()};
 		try {
-			getJdbcTemplate().update(INSERT_SQL, objects);
+			getJdbcTemplate().update(getUpsertSql(1), toInsertArgs(activeScheduleEntity));
 		} catch (DataAccessException e) {
 			throw new DatabaseValidationException("Create failed", e);
 		}
 	}
 
+	@Override
+	public List<ActiveScheduleEntity> findAllActiveSchedules() {
+		try {
+			return getJdbcTemplate().query(SELECT_ALL_SQL, new ActiveScheduleEntity());
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find All active schedules failed", e);
+		}
+	}
+
+	@Override
+	public void createActiveSchedules(List<ActiveScheduleEntity> activeScheduleEntities) {
+		if (activeScheduleEntities.isEmpty()) {
+			return;
+		}
+		List<Object[]> batchArgs = new ArrayList<>();
+		for (ActiveScheduleEntity activeScheduleEntity : activeScheduleEntities) {
+			batchArgs.add(toInsertArgs(activeScheduleEntity));
+		}
+		try {
+			getJdbcTemplate().batchUpdate(getUpsertSql(1), batchArgs);
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Create active schedules failed", e);
+		}
+	}
+
+	@Override
+	public void deleteActiveSchedules(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		List<Object[]> batchArgs = new ArrayList<>();
+		for (Long id : ids) {
+			batchArgs.add(new Object[] { id });
+		}
+		try {
+			getJdbcTemplate().batchUpdate(DELETE_SQL, batchArgs);
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Delete active schedules failed", e);
+		}
+	}
+
+	@Override
+	public void replaceActiveSchedules(List<Long> replacedIds, ActiveScheduleEntity activeScheduleEntity) {
+		List<Object[]> batchArgs = new ArrayList<>();
+		for (Long id : replacedIds) {
+			batchArgs.add(new Object[] { id });
+		}
+		try {
+			new TransactionTemplate(transactionManager).execute(status -> {
+				if (!batchArgs.isEmpty()) {
+					getJdbcTemplate().batchUpdate(DELETE_SQL, batchArgs);
+				}
+				return getJdbcTemplate().update(getUpsertSql(1), toInsertArgs(activeScheduleEntity));
+			});
+		} catch (DataAccessException | TransactionException e) {
+			throw new DatabaseValidationException("Replace active schedules failed", e);
+		}
+	}
+
+	@Override
+	public void writeActiveSchedules(List<Long> deletedIds, List<ActiveScheduleEntity> activeScheduleEntities) {
+		try {
+			if (!deletedIds.isEmpty()) {
+				getJdbcTemplate().update("DELETE FROM " + TABLE_NAME + " WHERE id IN ("
+						+ String.join(", ", Collections.nCopies(deletedIds.size(), "?")) + ")", deletedIds.toArray());
+			}
+			if (!activeScheduleEntities.isEmpty()) {
+				List<Object> args = new ArrayList<>();
+				for (ActiveScheduleEntity activeScheduleEntity : activeScheduleEntities) {
+					args.addAll(Arrays.asList(toInsertArgs(activeScheduleEntity)));
+				}
+				getJdbcTemplate().update(getUpsertSql(activeScheduleEntities.size()), args.toArray());
+			}
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Write active schedules failed", e);
+		}
+	}
+
+	private Object[] toInsertArgs(ActiveScheduleEntity activeScheduleEntity) {
+		return new Object[] { activeScheduleEntity.getId(), activeScheduleEntity.getAppId(),
+				activeScheduleEntity.getInstanceMinCount(), activeScheduleEntity.getInstanceMaxCount(),
+				activeScheduleEntity.getInitialMinInstanceCount() };
+	}
+
 	@Override
 	public int delete(Long id) {
 		try {
@@ -1,5 +1,7 @@
 package org.cloudfoundry.autoscaler.scheduler.dao;
 
+import java.util.List;
+
 /**
  * 
  *
@@ -9,10 +11,20 @@ public interface GenericDao<T> {
 
 	public T create(T entity);
 
+	/**
+	 * Persists the entities with a single flush, the inserts are sent in JDBC batches.
+	 */
+	public List<T> createAll(List<T> entities);
+
 	public T update(T entity);
 
 	public void delete(T entity);
 
+	/**
+	 * Removes the entities with a single flush, the deletes are sent in JDBC batches.
+	 */
+	public void deleteAll(List<T> entities);
+
 	public T find(Long id);
 
 }
\ No newline at end of file
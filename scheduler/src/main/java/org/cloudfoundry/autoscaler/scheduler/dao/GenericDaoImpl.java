@@ -1,7 +1,10 @@
 package org.cloudfoundry.autoscaler.scheduler.dao;
 
+import java.util.List;
+
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 
 import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
 
@@ -36,6 +39,19 @@ class GenericDaoImpl<T> implements GenericDao<T> {
 		}
 	}
 
+	@Override
+	public List<T> createAll(List<T> entities) {
+		try {
+			for (T entity : entities) {
+				entityManager.persist(entity);
+			}
+			entityManager.flush();
+			return entities;
+		} catch (Exception exception) {
+			throw new DatabaseValidationException("Create failed", exception);
+		}
+	}
+
 	@Override
 	public T update(T entity) {
 		try {
@@ -55,6 +71,18 @@ class GenericDaoImpl<T> implements GenericDao<T> {
 		}
 	}
 
+	@Override
+	public void deleteAll(List<T> entities) {
+		try {
+			for (T entity : entities) {
+				entityManager.remove(entity);
+			}
+			entityManager.flush();
+		} catch (Exception exception) {
+			throw new DatabaseValidationException("Delete failed", exception);
+		}
+	}
+
 	@Override
 	public T find(Long id) {
 		try {
@@ -65,4 +93,17 @@ class GenericDaoImpl<T> implements GenericDao<T> {
 		}
 	}
 
+	/**
+	 * Finds the rows of the table matching the SQL condition with the positional arguments.
+	 */
+	@SuppressWarnings("unchecked")
+	List<T> findAllWhere(String tableName, String condition, Object[] args) {
+		Query query = entityManager.createNativeQuery("SELECT * FROM " + tableName + " WHERE " + condition,
+				entityClass);
+		for (int i = 0; i < args.length; i++) {
+			query.setParameter(i + 1, args[i]);
+		}
+		return query.getResultList();
+	}
+
 }
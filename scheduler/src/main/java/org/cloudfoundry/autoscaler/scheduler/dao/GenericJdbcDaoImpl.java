@@ -0,0 +1,191 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.support.JdbcDaoSupport;
+
+/**
+ * JDBC implementation of the schedule DAOs. The rows are mapped straight to the schedule entities, which
+ * are the REST model as well, without the entity hydration and the persistence context of JPA. The inserts
+ * and deletes of several schedules are sent as JDBC batches.
+ *
+ * The ids are allocated from schedule_id_sequence in blocks of its increment, as the pooled-lo optimizer
+ * of JPA does, so both implementations can write to the same tables.
+ *
+ * @param <T>
+ */
+abstract class GenericJdbcDaoImpl<T extends ScheduleEntity> extends JdbcDaoSupport implements GenericDao<T> {
+
+	private static final String SCHEDULE_COLUMNS = "app_id, timezone, default_instance_min_count, "
+			+ "default_instance_max_count, instance_min_count, instance_max_count, initial_min_instance_count";
+
+	private static final String NEXT_ID_SQL = "SELECT nextval('schedule_id_sequence')";
+
+	private final RowMapper<T> rowMapper;
+
+	private final String selectSql;
+
+	private final String selectByIdSql;
+
+	private final String selectByAppIdSql;
+
+	private final String insertSql;
+
+	private final String updateSql;
+
+	private final String deleteSql;
+
+	private long nextId;
+
+	private long idLimit;
+
+	/**
+	 * @param tableName
+	 * @param columns - the columns specific to the type of schedule, in the order of getColumnValues
+	 * @param rowMapper
+	 */
+	GenericJdbcDaoImpl(String tableName, String[] columns, RowMapper<T> rowMapper) {
+		this.rowMapper = rowMapper;
+
+		String allColumns = SCHEDULE_COLUMNS + ", " + String.join(", ", columns);
+		int columnCount = allColumns.split(",").length;
+		selectSql = "SELECT schedule_id, " + allColumns + " FROM " + tableName;
+		selectByIdSql = selectSql + " WHERE schedule_id=?";
+		selectByAppIdSql = selectSql + " WHERE app_id=?";
+		insertSql = "INSERT INTO " + tableName + "(" + allColumns + ", schedule_id) VALUES ("
+				+ String.join(", ", Collections.nCopies(columnCount + 1, "?")) + ")";
+		updateSql = "UPDATE " + tableName + " SET " + String.join("=?, ", allColumns.split(", ")) + "=? "
+				+ "WHERE schedule_id=?";
+		deleteSql = "DELETE FROM " + tableName + " WHERE schedule_id=?";
+	}
+
+	@Autowired
+	private void setupDataSource(DataSource dataSource) {
+		setDataSource(dataSource);
+	}
+
+	/**
+	 * @param entity
+	 * @return the values of the columns specific to the type of schedule
+	 */
+	abstract Object[] getColumnValues(T entity);
+
+	@Override
+	public T create(T entity) {
+		return createAll(Arrays.asList(entity)).get(0);
+	}
+
+	@Override
+	public List<T> createAll(List<T> entities) {
+		if (entities.isEmpty()) {
+			return entities;
+		}
+		try {
+			List<Object[]> batchArgs = new ArrayList<>();
+			for (T entity : entities) {
+				entity.setId(allocateId());
+				batchArgs.add(toArgs(entity));
+			}
+			getJdbcTemplate().batchUpdate(insertSql, batchArgs);
+			return entities;
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Create failed", e);
+		}
+	}
+
+	@Override
+	public T update(T entity) {
+		try {
+			getJdbcTemplate().update(updateSql, toArgs(entity));
+			return entity;
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Update failed", e);
+		}
+	}
+
+	@Override
+	public void delete(T entity) {
+		try {
+			getJdbcTemplate().update(deleteSql, entity.getId());
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Delete failed", e);
+		}
+	}
+
+	@Override
+	public void deleteAll(List<T> entities) {
+		if (entities.isEmpty()) {
+			return;
+		}
+		List<Object[]> batchArgs = new ArrayList<>();
+		for (T entity : entities) {
+			batchArgs.add(new Object[] { entity.getId() });
+		}
+		try {
+			getJdbcTemplate().batchUpdate(deleteSql, batchArgs);
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Delete failed", e);
+		}
+	}
+
+	@Override
+	public T find(Long id) {
+		try {
+			return getJdbcTemplate().queryForObject(selectByIdSql, new Object[] { id }, rowMapper);
+		} catch (EmptyResultDataAccessException e) {
+			return null;
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find failed", e);
+		}
+	}
+
+	List<T> findAllByAppId(String appId) {
+		return getJdbcTemplate().query(selectByAppIdSql, new Object[] { appId }, rowMapper);
+	}
+
+	List<T> findAll() {
+		return getJdbcTemplate().query(selectSql, rowMapper);
+	}
+
+	List<T> findAllWhere(String condition, Object[] args) {
+		return getJdbcTemplate().query(selectSql + " WHERE " + condition, args, rowMapper);
+	}
+
+	/**
+	 * Hands out the ids of the block taken last from the sequence, and takes the next block once they are
+	 * used up.
+	 */
+	private synchronized long allocateId() {
+		if (nextId >= idLimit) {
+			nextId = getJdbcTemplate().queryForObject(NEXT_ID_SQL, Long.class);
+			idLimit = nextId + ScheduleEntity.ID_ALLOCATION_SIZE;
+		}
+		return nextId++;
+	}
+
+	private Object[] toArgs(T entity) {
+		Object[] columnValues = getColumnValues(entity);
+		Object[] args = new Object[columnValues.length + 8];
+		args[0] = entity.getAppId();
+		args[1] = entity.getTimeZone();
+		args[2] = entity.getDefaultInstanceMinCount();
+		args[3] = entity.getDefaultInstanceMaxCount();
+		args[4] = entity.getInstanceMinCount();
+		args[5] = entity.getInstanceMaxCount();
+		args[6] = entity.getInitialMinInstanceCount();
+		System.arraycopy(columnValues, 0, args, 7, columnValues.length);
+		args[args.length - 1] = entity.getId();
+		return args;
+	}
+}
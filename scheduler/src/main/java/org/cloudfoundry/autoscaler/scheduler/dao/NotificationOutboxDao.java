@@ -0,0 +1,30 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+
+public interface NotificationOutboxDao {
+
+	void create(NotificationOutboxEntity notificationOutboxEntity);
+
+	void createAll(List<NotificationOutboxEntity> notificationOutboxEntities);
+
+	/**
+	 * Finds the notifications due to be sent, in the order they were written. A notification is left out
+	 * while an earlier notification of the same app is waiting for its retry, so that the notifications of
+	 * an app are never sent out of order.
+	 *
+	 * @param now
+	 * @param maxCount
+	 * @return
+	 */
+	List<NotificationOutboxEntity> findDueNotifications(Date now, int maxCount);
+
+	int delete(Long id);
+
+	void reschedule(Long id, int attempt, Date nextAttemptTime);
+
+	int count();
+}
@@ -0,0 +1,119 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.support.JdbcDaoSupport;
+import org.springframework.stereotype.Repository;
+
+@Repository("notificationOutboxDao")
+public class NotificationOutboxDaoImpl extends JdbcDaoSupport implements NotificationOutboxDao {
+
+	private static final String TABLE_NAME = "app_scaling_notification_outbox";
+
+	private static final String INSERT_SQL = "INSERT INTO " + TABLE_NAME
+			+ "(app_id, schedule_id, action, instance_min_count, instance_max_count, initial_min_instance_count, "
+			+ "transition_time, scheduled_fire_time, fire_time, attempt, next_attempt_time) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String SELECT_DUE_SQL = "SELECT * FROM " + TABLE_NAME + " o WHERE o.next_attempt_time<=? "
+			+ "AND NOT EXISTS (SELECT 1 FROM " + TABLE_NAME + " p WHERE p.app_id=o.app_id AND p.id<o.id "
+			+ "AND p.next_attempt_time>?) ORDER BY o.id LIMIT ?";
+
+	private static final String DELETE_SQL = "DELETE FROM " + TABLE_NAME + " WHERE id=?";
+
+	private static final String RESCHEDULE_SQL = "UPDATE " + TABLE_NAME
+			+ " SET attempt=?, next_attempt_time=? WHERE id=?";
+
+	private static final String COUNT_SQL = "SELECT COUNT(*) FROM " + TABLE_NAME;
+
+	@Autowired
+	private void setupDataSource(DataSource dataSource) {
+		setDataSource(dataSource);
+	}
+
+	@Override
+	public void create(NotificationOutboxEntity notificationOutboxEntity) {
+		try {
+			getJdbcTemplate().update(INSERT_SQL, toInsertArgs(notificationOutboxEntity));
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Create notification failed", e);
+		}
+	}
+
+	@Override
+	public void createAll(List<NotificationOutboxEntity> notificationOutboxEntities) {
+		if (notificationOutboxEntities.isEmpty()) {
+			return;
+		}
+		List<Object[]> batchArgs = new ArrayList<>();
+		for (NotificationOutboxEntity notificationOutboxEntity : notificationOutboxEntities) {
+			batchArgs.add(toInsertArgs(notificationOutboxEntity));
+		}
+		try {
+			getJdbcTemplate().batchUpdate(INSERT_SQL, batchArgs);
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Create notifications failed", e);
+		}
+	}
+
+	private Object[] toInsertArgs(NotificationOutboxEntity notificationOutboxEntity) {
+		return new Object[] { notificationOutboxEntity.getAppId(), notificationOutboxEntity.getScheduleId(),
+				notificationOutboxEntity.getScalingAction().name(), notificationOutboxEntity.getInstanceMinCount(),
+				notificationOutboxEntity.getInstanceMaxCount(), notificationOutboxEntity.getInitialMinInstanceCount(),
+				toTimestamp(notificationOutboxEntity.getTransitionTime()),
+				toTimestamp(notificationOutboxEntity.getScheduledFireTime()),
+				toTimestamp(notificationOutboxEntity.getFireTime()), notificationOutboxEntity.getAttempt(),
+				toTimestamp(notificationOutboxEntity.getNextAttemptTime()) };
+	}
+
+	@Override
+	public List<NotificationOutboxEntity> findDueNotifications(Date now, int maxCount) {
+		try {
+			Timestamp nowTimestamp = toTimestamp(now);
+			return getJdbcTemplate().query(SELECT_DUE_SQL, new Object[] { nowTimestamp, nowTimestamp, maxCount },
+					new NotificationOutboxEntity());
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find due notifications failed", e);
+		}
+	}
+
+	@Override
+	public int delete(Long id) {
+		try {
+			return getJdbcTemplate().update(DELETE_SQL, id);
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Delete notification failed", e);
+		}
+	}
+
+	@Override
+	public void reschedule(Long id, int attempt, Date nextAttemptTime) {
+		try {
+			getJdbcTemplate().update(RESCHEDULE_SQL, attempt, toTimestamp(nextAttemptTime), id);
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Reschedule notification failed", e);
+		}
+	}
+
+	@Override
+	public int count() {
+		try {
+			return getJdbcTemplate().queryForObject(COUNT_SQL, Integer.class);
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Count notifications failed", e);
+		}
+	}
+
+	private Timestamp toTimestamp(Date date) {
+		return date == null ? null : new Timestamp(date.getTime());
+	}
+}
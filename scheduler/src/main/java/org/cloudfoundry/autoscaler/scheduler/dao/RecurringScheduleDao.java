@@ -1,5 +1,6 @@
 package org.cloudfoundry.autoscaler.scheduler.dao;
 
+import java.util.Date;
 import java.util.List;
 
 import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
@@ -8,4 +9,14 @@ public interface RecurringScheduleDao extends GenericDao<RecurringScheduleEntity
 
 	public List<RecurringScheduleEntity> findAllRecurringSchedulesByAppId(String appId);
 
+	public List<RecurringScheduleEntity> findAllRecurringSchedules();
+
+	/**
+	 * Finds the recurring schedules of all the applications active at the time, in the time zone of each.
+	 *
+	 * @param time
+	 * @return
+	 */
+	public List<RecurringScheduleEntity> findAllRecurringSchedulesActiveAt(Date time);
+
 }
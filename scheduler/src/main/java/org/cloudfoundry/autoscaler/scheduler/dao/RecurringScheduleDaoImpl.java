@@ -1,14 +1,23 @@
 package org.cloudfoundry.autoscaler.scheduler.dao;
 
+import java.util.Date;
 import java.util.List;
 
 import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 @Repository("recurringScheduleDao")
+@ConditionalOnProperty(name = "scheduler.dao.implementation", havingValue = "jpa", matchIfMissing = true)
 public class RecurringScheduleDaoImpl extends GenericDaoImpl<RecurringScheduleEntity> implements RecurringScheduleDao {
 
+	private static final String TABLE_NAME = "app_scaling_recurring_schedule";
+
+	public RecurringScheduleDaoImpl() {
+		super(RecurringScheduleEntity.class);
+	}
+
 	@Override
 	public List<RecurringScheduleEntity> findAllRecurringSchedulesByAppId(String appId) {
 		try {
@@ -22,4 +31,30 @@ public class RecurringScheduleDaoImpl extends GenericDaoImpl<RecurringScheduleEn
 		}
 	}
 
+	@Override
+	public List<RecurringScheduleEntity> findAllRecurringSchedules() {
+		try {
+			return entityManager
+					.createNamedQuery(RecurringScheduleEntity.query_recurringSchedules, RecurringScheduleEntity.class)
+					.getResultList();
+
+		} catch (Exception exception) {
+
+			throw new DatabaseValidationException("Find All recurring schedules failed", exception);
+		}
+	}
+
+	@Override
+	public List<RecurringScheduleEntity> findAllRecurringSchedulesActiveAt(Date time) {
+		try {
+			ActiveAtQuery activeAtQuery = new ActiveAtQuery(time);
+			return findAllWhere(TABLE_NAME, activeAtQuery.getRecurringScheduleCondition(),
+					activeAtQuery.getRecurringScheduleArgs());
+
+		} catch (Exception exception) {
+
+			throw new DatabaseValidationException("Find active recurring schedules failed", exception);
+		}
+	}
+
 }
@@ -0,0 +1,64 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.BitsetUserType;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Repository;
+
+@Repository("recurringScheduleDao")
+@ConditionalOnProperty(name = "scheduler.dao.implementation", havingValue = "jdbc")
+public class RecurringScheduleJdbcDaoImpl extends GenericJdbcDaoImpl<RecurringScheduleEntity>
+		implements RecurringScheduleDao {
+
+	private static final String TABLE_NAME = "app_scaling_recurring_schedule";
+
+	private static final String[] COLUMNS = { "start_time", "end_time", "start_date", "end_date", "days_of_week",
+			"days_of_month" };
+
+	public RecurringScheduleJdbcDaoImpl() {
+		super(TABLE_NAME, COLUMNS, new RecurringScheduleEntity());
+	}
+
+	@Override
+	Object[] getColumnValues(RecurringScheduleEntity entity) {
+		return new Object[] { entity.getStartTime(), entity.getEndTime(), entity.getStartDate(),
+				entity.getEndDate(), toBitset(entity.getDaysOfWeek()), toBitset(entity.getDaysOfMonth()) };
+	}
+
+	private Integer toBitset(int[] days) {
+		return days == null ? null : BitsetUserType.toBitset(days);
+	}
+
+	@Override
+	public List<RecurringScheduleEntity> findAllRecurringSchedulesByAppId(String appId) {
+		try {
+			return findAllByAppId(appId);
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find All recurring schedules failed", e);
+		}
+	}
+
+	@Override
+	public List<RecurringScheduleEntity> findAllRecurringSchedules() {
+		try {
+			return findAll();
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find All recurring schedules failed", e);
+		}
+	}
+
+	@Override
+	public List<RecurringScheduleEntity> findAllRecurringSchedulesActiveAt(Date time) {
+		try {
+			ActiveAtQuery activeAtQuery = new ActiveAtQuery(time);
+			return findAllWhere(activeAtQuery.getRecurringScheduleCondition(), activeAtQuery.getRecurringScheduleArgs());
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find active recurring schedules failed", e);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleHistoryEntity;
+
+/**
+ * The schedule history is append only and partitioned by the day of the transition time, a partition is
+ * created with its first entry.
+ */
+public interface ScheduleHistoryDao {
+
+	void createAll(List<ScheduleHistoryEntity> scheduleHistoryEntities);
+
+	/**
+	 * Finds the history entries with a transition time in the range, in transition time order.
+	 *
+	 * @param appId - null for the entries of all the apps
+	 * @param startTime - inclusive
+	 * @param endTime - exclusive
+	 * @param maxCount
+	 * @return
+	 */
+	List<ScheduleHistoryEntity> findHistory(String appId, Date startTime, Date endTime, int maxCount);
+
+	/**
+	 * Drops the partitions of the days before the day of the time.
+	 *
+	 * @param time
+	 * @return the number of dropped partitions
+	 */
+	int dropPartitionsBefore(Date time);
+}
@@ -0,0 +1,208 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleHistoryEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.support.JdbcDaoSupport;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The partitions are child tables of the history table, one per day of the transition time, with a check
+ * constraint on the day so that the queries on the history table only scan the partitions of their time
+ * range. The entries are inserted into their partition directly. The times are stored and the days are
+ * computed in UTC, so that a day is the same on every scheduler and has no daylight saving shift.
+ */
+@Repository("scheduleHistoryDao")
+public class ScheduleHistoryDaoImpl extends JdbcDaoSupport implements ScheduleHistoryDao {
+
+	private static final String TABLE_NAME = "app_scaling_schedule_history";
+
+	private static final String PARTITION_PREFIX = TABLE_NAME + "_";
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	private static final String PARTITION_DAY_FORMAT = "yyyyMMdd";
+
+	private static final String PARTITION_BOUND_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+	private static final String INSERT_SQL = "INSERT INTO %s (app_id, schedule_id, action, instance_min_count, "
+			+ "instance_max_count, initial_min_instance_count, transition_time, fire_time, fire_lag_millisecond, "
+			+ "acknowledged, attempt, round_trip_millisecond, recorded_time) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String CREATE_PARTITION_SQL = "CREATE TABLE IF NOT EXISTS %s (CHECK (transition_time>='%s' "
+			+ "AND transition_time<'%s')) INHERITS (" + TABLE_NAME + ")";
+
+	private static final String CREATE_PARTITION_INDEX_SQL = "CREATE INDEX IF NOT EXISTS idx_%s ON %s "
+			+ "(app_id, transition_time)";
+
+	private static final String PARTITION_EXISTS_SQL = "SELECT COUNT(*) FROM pg_class WHERE relname=?";
+
+	private static final String SELECT_PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i "
+			+ "JOIN pg_class c ON c.oid=i.inhrelid JOIN pg_class p ON p.oid=i.inhparent WHERE p.relname=?";
+
+	private static final String DROP_PARTITION_SQL = "DROP TABLE IF EXISTS %s";
+
+	private static final String SELECT_SQL = "SELECT * FROM " + TABLE_NAME
+			+ " WHERE transition_time>=? AND transition_time<? ORDER BY transition_time LIMIT ?";
+
+	private static final String SELECT_BY_APP_ID_SQL = "SELECT * FROM " + TABLE_NAME
+			+ " WHERE app_id=? AND transition_time>=? AND transition_time<? ORDER BY transition_time LIMIT ?";
+
+	private Set<String> createdPartitions = ConcurrentHashMap.newKeySet();
+
+	@Autowired
+	private void setupDataSource(DataSource dataSource) {
+		setDataSource(dataSource);
+	}
+
+	@Override
+	public void createAll(List<ScheduleHistoryEntity> scheduleHistoryEntities) {
+		Map<Date, List<Object[]>> partitionBatchArgs = new LinkedHashMap<>();
+		for (ScheduleHistoryEntity scheduleHistoryEntity : scheduleHistoryEntities) {
+			Date day = getDay(scheduleHistoryEntity.getTransitionTime());
+			partitionBatchArgs.computeIfAbsent(day, key -> new ArrayList<>()).add(toInsertArgs(scheduleHistoryEntity));
+		}
+		try {
+			for (Map.Entry<Date, List<Object[]>> entry : partitionBatchArgs.entrySet()) {
+				String partition = createPartition(entry.getKey());
+				getJdbcTemplate().batchUpdate(String.format(INSERT_SQL, partition), entry.getValue());
+			}
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Create schedule history failed", e);
+		}
+	}
+
+	private Object[] toInsertArgs(ScheduleHistoryEntity scheduleHistoryEntity) {
+		return new Object[] { scheduleHistoryEntity.getAppId(), scheduleHistoryEntity.getScheduleId(),
+				scheduleHistoryEntity.getScalingAction().name(), scheduleHistoryEntity.getInstanceMinCount(),
+				scheduleHistoryEntity.getInstanceMaxCount(), scheduleHistoryEntity.getInitialMinInstanceCount(),
+				toUtcCalendar(scheduleHistoryEntity.getTransitionTime()),
+				toUtcCalendar(scheduleHistoryEntity.getFireTime()), scheduleHistoryEntity.getFireLagMilliSecond(),
+				scheduleHistoryEntity.isAcknowledged(), scheduleHistoryEntity.getAttempt(),
+				scheduleHistoryEntity.getRoundTripMilliSecond(),
+				toUtcCalendar(scheduleHistoryEntity.getRecordedTime()) };
+	}
+
+	/**
+	 * Creates the partition of the day unless this scheduler already did, another scheduler may be creating
+	 * it at the same time.
+	 */
+	private String createPartition(Date day) {
+		String partition = PARTITION_PREFIX + utcFormat(PARTITION_DAY_FORMAT).format(day);
+		if (createdPartitions.contains(partition)) {
+			return partition;
+		}
+		SimpleDateFormat boundFormat = utcFormat(PARTITION_BOUND_FORMAT);
+		try {
+			getJdbcTemplate().execute(String.format(CREATE_PARTITION_SQL, partition, boundFormat.format(day),
+					boundFormat.format(nextDay(day))));
+			getJdbcTemplate().execute(String.format(CREATE_PARTITION_INDEX_SQL, partition, partition));
+		} catch (DataAccessException e) {
+			if (getJdbcTemplate().queryForObject(PARTITION_EXISTS_SQL, Integer.class, "idx_" + partition) == 0) {
+				throw e;
+			}
+		}
+		createdPartitions.add(partition);
+		return partition;
+	}
+
+	@Override
+	public List<ScheduleHistoryEntity> findHistory(String appId, Date startTime, Date endTime, int maxCount) {
+		try {
+			if (appId == null) {
+				return getJdbcTemplate().query(SELECT_SQL,
+						new Object[] { toUtcCalendar(startTime), toUtcCalendar(endTime), maxCount },
+						new ScheduleHistoryEntity());
+			}
+			return getJdbcTemplate().query(SELECT_BY_APP_ID_SQL,
+					new Object[] { appId, toUtcCalendar(startTime), toUtcCalendar(endTime), maxCount },
+					new ScheduleHistoryEntity());
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find schedule history failed", e);
+		}
+	}
+
+	@Override
+	public int dropPartitionsBefore(Date time) {
+		Date day = getDay(time);
+		int droppedCount = 0;
+		try {
+			List<String> partitions = getJdbcTemplate().queryForList(SELECT_PARTITIONS_SQL, String.class, TABLE_NAME);
+			for (String partition : partitions) {
+				Date partitionDay = parsePartitionDay(partition);
+				if (partitionDay != null && partitionDay.before(day)) {
+					getJdbcTemplate().execute(String.format(DROP_PARTITION_SQL, partition));
+					createdPartitions.remove(partition);
+					droppedCount++;
+				}
+			}
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Drop schedule history partitions failed", e);
+		}
+		return droppedCount;
+	}
+
+	private Date parsePartitionDay(String partition) {
+		if (!partition.startsWith(PARTITION_PREFIX)) {
+			return null;
+		}
+		SimpleDateFormat dayFormat = utcFormat(PARTITION_DAY_FORMAT);
+		dayFormat.setLenient(false);
+		try {
+			return dayFormat.parse(partition.substring(PARTITION_PREFIX.length()));
+		} catch (ParseException e) {
+			return null;
+		}
+	}
+
+	private Date getDay(Date time) {
+		Calendar calendar = Calendar.getInstance(UTC);
+		calendar.setTime(time);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		return calendar.getTime();
+	}
+
+	private Date nextDay(Date day) {
+		Calendar calendar = Calendar.getInstance(UTC);
+		calendar.setTime(day);
+		calendar.add(Calendar.DAY_OF_MONTH, 1);
+		return calendar.getTime();
+	}
+
+	private SimpleDateFormat utcFormat(String pattern) {
+		SimpleDateFormat simpleDateFormat = new SimpleDateFormat(pattern);
+		simpleDateFormat.setTimeZone(UTC);
+		return simpleDateFormat;
+	}
+
+	/**
+	 * The JdbcTemplate binds a calendar as a timestamp in the time zone of the calendar.
+	 */
+	private Calendar toUtcCalendar(Date date) {
+		if (date == null) {
+			return null;
+		}
+		Calendar calendar = Calendar.getInstance(UTC);
+		calendar.setTime(date);
+		return calendar;
+	}
+}
@@ -1,5 +1,6 @@
 package org.cloudfoundry.autoscaler.scheduler.dao;
 
+import java.util.Date;
 import java.util.List;
 
 import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
@@ -12,4 +13,14 @@ public interface SpecificDateScheduleDao extends GenericDao<SpecificDateSchedule
 
 	public List<SpecificDateScheduleEntity> findAllSpecificDateSchedulesByAppId(String appId);
 
+	public List<SpecificDateScheduleEntity> findAllSpecificDateSchedules();
+
+	/**
+	 * Finds the specific date schedules of all the applications active at the time, in the time zone of each.
+	 *
+	 * @param time
+	 * @return
+	 */
+	public List<SpecificDateScheduleEntity> findAllSpecificDateSchedulesActiveAt(Date time);
+
 }
@@ -1,9 +1,11 @@
 package org.cloudfoundry.autoscaler.scheduler.dao;
 
+import java.util.Date;
 import java.util.List;
 
 import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -12,9 +14,12 @@ import org.springframework.stereotype.Repository;
  *
  */
 @Repository("specificDateScheduleDao")
+@ConditionalOnProperty(name = "scheduler.dao.implementation", havingValue = "jpa", matchIfMissing = true)
 public class SpecificDateScheduleDaoImpl extends GenericDaoImpl<SpecificDateScheduleEntity>
 		implements SpecificDateScheduleDao {
 
+	private static final String TABLE_NAME = "app_scaling_specific_date_schedule";
+
 	public SpecificDateScheduleDaoImpl() {
 		super(SpecificDateScheduleEntity.class);
 	}
@@ -38,4 +43,37 @@ public class SpecificDateScheduleDaoImpl extends GenericDaoImpl<SpecificDateSche
 		}
 	}
 
+	/* 
+	 * Gets the specific date schedules of all the applications
+	 * @see org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao#findAllSpecificDateSchedules()
+	 */
+	@Override
+	public List<SpecificDateScheduleEntity> findAllSpecificDateSchedules() {
+		try {
+			return entityManager.createNamedQuery(SpecificDateScheduleEntity.query_specificDateSchedules,
+					SpecificDateScheduleEntity.class).getResultList();
+
+		} catch (Exception exception) {
+
+			throw new DatabaseValidationException("Find All specific date schedules failed", exception);
+		}
+	}
+
+	/* 
+	 * Gets the specific date schedules of all the applications active at the time
+	 * @see org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao#findAllSpecificDateSchedulesActiveAt(java.util.Date)
+	 */
+	@Override
+	public List<SpecificDateScheduleEntity> findAllSpecificDateSchedulesActiveAt(Date time) {
+		try {
+			ActiveAtQuery activeAtQuery = new ActiveAtQuery(time);
+			return findAllWhere(TABLE_NAME, activeAtQuery.getSpecificDateScheduleCondition(),
+					activeAtQuery.getSpecificDateScheduleArgs());
+
+		} catch (Exception exception) {
+
+			throw new DatabaseValidationException("Find active specific date schedules failed", exception);
+		}
+	}
+
 }
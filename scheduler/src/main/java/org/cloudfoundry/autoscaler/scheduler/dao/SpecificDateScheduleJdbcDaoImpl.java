@@ -0,0 +1,58 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Repository;
+
+@Repository("specificDateScheduleDao")
+@ConditionalOnProperty(name = "scheduler.dao.implementation", havingValue = "jdbc")
+public class SpecificDateScheduleJdbcDaoImpl extends GenericJdbcDaoImpl<SpecificDateScheduleEntity>
+		implements SpecificDateScheduleDao {
+
+	private static final String TABLE_NAME = "app_scaling_specific_date_schedule";
+
+	private static final String[] COLUMNS = { "start_date_time", "end_date_time" };
+
+	public SpecificDateScheduleJdbcDaoImpl() {
+		super(TABLE_NAME, COLUMNS, new SpecificDateScheduleEntity());
+	}
+
+	@Override
+	Object[] getColumnValues(SpecificDateScheduleEntity entity) {
+		return new Object[] { entity.getStartDateTime(), entity.getEndDateTime() };
+	}
+
+	@Override
+	public List<SpecificDateScheduleEntity> findAllSpecificDateSchedulesByAppId(String appId) {
+		try {
+			return findAllByAppId(appId);
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find All specific date schedules failed", e);
+		}
+	}
+
+	@Override
+	public List<SpecificDateScheduleEntity> findAllSpecificDateSchedules() {
+		try {
+			return findAll();
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find All specific date schedules failed", e);
+		}
+	}
+
+	@Override
+	public List<SpecificDateScheduleEntity> findAllSpecificDateSchedulesActiveAt(Date time) {
+		try {
+			ActiveAtQuery activeAtQuery = new ActiveAtQuery(time);
+			return findAllWhere(activeAtQuery.getSpecificDateScheduleCondition(),
+					activeAtQuery.getSpecificDateScheduleArgs());
+		} catch (DataAccessException e) {
+			throw new DatabaseValidationException("Find active specific date schedules failed", e);
+		}
+	}
+}
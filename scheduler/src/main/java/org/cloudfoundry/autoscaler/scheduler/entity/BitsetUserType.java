@@ -23,20 +23,7 @@ public class BitsetUserType implements UserType {
 	public Object nullSafeGet(final ResultSet rs, final String[] names, final SessionImplementor sessionImplementor,
 			final Object owner) throws HibernateException, SQLException {
 		String columnName = names[0];
-		int value = rs.getInt(columnName);
-
-		List<Integer> javaArray = new ArrayList<>();
-		if (value == 0) {
-			return null;
-		} else {
-			for (int i = 0; (1L << i) < value; i++) {
-				if ((value & (1L << i)) != 0) {
-					javaArray.add(i + 1);
-				}
-			}
-		}
-
-		return javaArray.stream().mapToInt(i -> i).toArray();
+		return toDays(rs.getInt(columnName));
 	}
 
 	@Override
@@ -45,16 +32,45 @@ public class BitsetUserType implements UserType {
 		if (value == null) {
 			statement.setNull(index, SQLTYPE);
 		} else {
-			int[] castObject = (int[]) value;
+			statement.setInt(index, toBitset((int[]) value));
+		}
+	}
 
-			int bitset = 0;
+	/**
+	 * Converts the days (1 based) to the bitset stored in the database.
+	 *
+	 * @param days
+	 * @return
+	 */
+	public static int toBitset(int[] days) {
+		int bitset = 0;
+
+		for (int i = 0; i < days.length; i++) {
+			bitset |= 1 << (days[i] - 1);
+		}
 
-			for (int i = 0; i < castObject.length; i++) {
-				bitset |= 1 << (castObject[i] - 1);
-			}
+		return bitset;
+	}
+
+	/**
+	 * Converts the bitset stored in the database back to the days (1 based).
+	 *
+	 * @param bitset
+	 * @return null if no day is set
+	 */
+	public static int[] toDays(int bitset) {
+		if (bitset == 0) {
+			return null;
+		}
 
-			statement.setInt(index, bitset);
+		List<Integer> javaArray = new ArrayList<>();
+		for (int i = 0; i < Integer.SIZE; i++) {
+			if ((bitset & (1 << i)) != 0) {
+				javaArray.add(i + 1);
+			}
 		}
+
+		return javaArray.stream().mapToInt(i -> i).toArray();
 	}
 
 	@Override
@@ -101,4 +117,4 @@ public class BitsetUserType implements UserType {
 	public int[] sqlTypes() {
 		return new int[] { SQLTYPE };
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+package org.cloudfoundry.autoscaler.scheduler.entity;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Notification to the scaling engine waiting in the outbox, written in the same transaction as the change
+ * of the active schedule it notifies about.
+ */
+public class NotificationOutboxEntity implements RowMapper<NotificationOutboxEntity> {
+
+	private Long id;
+
+	private String appId;
+
+	private Long scheduleId;
+
+	private JobActionEnum scalingAction;
+
+	private Integer instanceMinCount;
+
+	private Integer instanceMaxCount;
+
+	private Integer initialMinInstanceCount;
+
+	private Date transitionTime;
+
+	private Date scheduledFireTime;
+
+	private Date fireTime;
+
+	private int attempt;
+
+	private Date nextAttemptTime;
+
+	public NotificationOutboxEntity() {
+	}
+
+	/**
+	 * @param activeScheduleEntity - the active schedule notified about
+	 * @param scalingAction
+	 * @param transitionTime - the time of the transition the notification is for
+	 * @param scheduledFireTime - the scheduled fire time of the job, null for a job rescheduled after a
+	 *            failure
+	 */
+	public NotificationOutboxEntity(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction,
+			Date transitionTime, Date scheduledFireTime) {
+		this.appId = activeScheduleEntity.getAppId();
+		this.scheduleId = activeScheduleEntity.getId();
+		this.scalingAction = scalingAction;
+		this.instanceMinCount = activeScheduleEntity.getInstanceMinCount();
+		this.instanceMaxCount = activeScheduleEntity.getInstanceMaxCount();
+		this.initialMinInstanceCount = activeScheduleEntity.getInitialMinInstanceCount();
+		this.transitionTime = transitionTime;
+		this.scheduledFireTime = scheduledFireTime;
+		this.attempt = 1;
+		this.nextAttemptTime = new Date();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public void setAppId(String appId) {
+		this.appId = appId;
+	}
+
+	public Long getScheduleId() {
+		return scheduleId;
+	}
+
+	public void setScheduleId(Long scheduleId) {
+		this.scheduleId = scheduleId;
+	}
+
+	public JobActionEnum getScalingAction() {
+		return scalingAction;
+	}
+
+	public void setScalingAction(JobActionEnum scalingAction) {
+		this.scalingAction = scalingAction;
+	}
+
+	public Integer getInstanceMinCount() {
+		return instanceMinCount;
+	}
+
+	public void setInstanceMinCount(Integer instanceMinCount) {
+		this.instanceMinCount = instanceMinCount;
+	}
+
+	public Integer getInstanceMaxCount() {
+		return instanceMaxCount;
+	}
+
+	public void setInstanceMaxCount(Integer instanceMaxCount) {
+		this.instanceMaxCount = instanceMaxCount;
+	}
+
+	public Integer getInitialMinInstanceCount() {
+		return initialMinInstanceCount;
+	}
+
+	public void setInitialMinInstanceCount(Integer initialMinInstanceCount) {
+		this.initialMinInstanceCount = initialMinInstanceCount;
+	}
+
+	public Date getTransitionTime() {
+		return transitionTime;
+	}
+
+	public void setTransitionTime(Date transitionTime) {
+		this.transitionTime = transitionTime;
+	}
+
+	public Date getScheduledFireTime() {
+		return scheduledFireTime;
+	}
+
+	public void setScheduledFireTime(Date scheduledFireTime) {
+		this.scheduledFireTime = scheduledFireTime;
+	}
+
+	public Date getFireTime() {
+		return fireTime;
+	}
+
+	/**
+	 * @param fireTime - the time the job actually fired, for the schedule history
+	 */
+	public void setFireTime(Date fireTime) {
+		this.fireTime = fireTime;
+	}
+
+	public int getAttempt() {
+		return attempt;
+	}
+
+	public void setAttempt(int attempt) {
+		this.attempt = attempt;
+	}
+
+	public Date getNextAttemptTime() {
+		return nextAttemptTime;
+	}
+
+	public void setNextAttemptTime(Date nextAttemptTime) {
+		this.nextAttemptTime = nextAttemptTime;
+	}
+
+	public ActiveScheduleEntity toActiveScheduleEntity() {
+		ActiveScheduleEntity activeScheduleEntity = new ActiveScheduleEntity();
+		activeScheduleEntity.setId(scheduleId);
+		activeScheduleEntity.setAppId(appId);
+		activeScheduleEntity.setInstanceMinCount(instanceMinCount);
+		activeScheduleEntity.setInstanceMaxCount(instanceMaxCount);
+		activeScheduleEntity.setInitialMinInstanceCount(initialMinInstanceCount);
+		return activeScheduleEntity;
+	}
+
+	@Override
+	public NotificationOutboxEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+		NotificationOutboxEntity notificationOutboxEntity = new NotificationOutboxEntity();
+		notificationOutboxEntity.setId(rs.getLong("id"));
+		notificationOutboxEntity.setAppId(rs.getString("app_id"));
+		notificationOutboxEntity.setScheduleId(rs.getLong("schedule_id"));
+		notificationOutboxEntity.setScalingAction(JobActionEnum.valueOf(rs.getString("action")));
+		notificationOutboxEntity.setInstanceMinCount(getInteger(rs, "instance_min_count"));
+		notificationOutboxEntity.setInstanceMaxCount(getInteger(rs, "instance_max_count"));
+		notificationOutboxEntity.setInitialMinInstanceCount(getInteger(rs, "initial_min_instance_count"));
+		notificationOutboxEntity.setTransitionTime(rs.getTimestamp("transition_time"));
+		notificationOutboxEntity.setScheduledFireTime(rs.getTimestamp("scheduled_fire_time"));
+		notificationOutboxEntity.setFireTime(rs.getTimestamp("fire_time"));
+		notificationOutboxEntity.setAttempt(rs.getInt("attempt"));
+		notificationOutboxEntity.setNextAttemptTime(rs.getTimestamp("next_attempt_time"));
+		return notificationOutboxEntity;
+	}
+
+	private Integer getInteger(ResultSet rs, String column) throws SQLException {
+		int value = rs.getInt(column);
+		return rs.wasNull() ? null : value;
+	}
+
+	@Override
+	public String toString() {
+		return "NotificationOutboxEntity{" + "id=" + id + ", appId='" + appId + '\'' + ", scheduleId=" + scheduleId
+				+ ", scalingAction=" + scalingAction + ", attempt=" + attempt + ", nextAttemptTime="
+				+ nextAttemptTime + '}';
+	}
+}
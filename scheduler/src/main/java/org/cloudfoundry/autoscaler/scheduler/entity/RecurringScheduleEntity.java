@@ -1,5 +1,7 @@
 package org.cloudfoundry.autoscaler.scheduler.entity;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Time;
 import java.util.Arrays;
 import java.util.Date;
@@ -17,6 +19,7 @@ import org.cloudfoundry.autoscaler.scheduler.util.DateSerializer;
 import org.cloudfoundry.autoscaler.scheduler.util.SqlTimeDeserializer;
 import org.cloudfoundry.autoscaler.scheduler.util.SqlTimeSerializer;
 import org.hibernate.annotations.Type;
+import org.springframework.jdbc.core.RowMapper;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -29,8 +32,9 @@ import io.swagger.annotations.ApiModelProperty;
 @Entity
 @Table(name = "app_scaling_recurring_schedule")
 @NamedQueries({
-		@NamedQuery(name = RecurringScheduleEntity.query_recurringSchedulesByAppId, query = RecurringScheduleEntity.jpql_recurringSchedulesByAppId) })
-public class RecurringScheduleEntity extends ScheduleEntity {
+		@NamedQuery(name = RecurringScheduleEntity.query_recurringSchedulesByAppId, query = RecurringScheduleEntity.jpql_recurringSchedulesByAppId),
+		@NamedQuery(name = RecurringScheduleEntity.query_recurringSchedules, query = RecurringScheduleEntity.jpql_recurringSchedules) })
+public class RecurringScheduleEntity extends ScheduleEntity implements RowMapper<RecurringScheduleEntity> {
 
 	@ApiModelProperty(example = DateHelper.TIME_FORMAT, dataType = "java.lang.String", required = true, position = 3)
 	@JsonDeserialize(using = SqlTimeDeserializer.class)
@@ -128,6 +132,37 @@ public class RecurringScheduleEntity extends ScheduleEntity {
 	static final String jpql_recurringSchedulesByAppId = " FROM RecurringScheduleEntity"
 			+ " WHERE app_id = :appId";
 
+	public static final String query_recurringSchedules = "RecurringScheduleEntity.schedules";
+	static final String jpql_recurringSchedules = " FROM RecurringScheduleEntity";
+
+	@Override
+	public RecurringScheduleEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+		RecurringScheduleEntity recurringScheduleEntity = new RecurringScheduleEntity();
+		recurringScheduleEntity.mapScheduleColumns(rs);
+		recurringScheduleEntity.setStartTime(rs.getTime("start_time"));
+		recurringScheduleEntity.setEndTime(rs.getTime("end_time"));
+		recurringScheduleEntity.setStartDate(rs.getTimestamp("start_date"));
+		recurringScheduleEntity.setEndDate(rs.getTimestamp("end_date"));
+		recurringScheduleEntity.setDaysOfWeek(BitsetUserType.toDays(rs.getInt("days_of_week")));
+		recurringScheduleEntity.setDaysOfMonth(BitsetUserType.toDays(rs.getInt("days_of_month")));
+		return recurringScheduleEntity;
+	}
+
+	/**
+	 * @return a copy of the schedule, sharing none of its mutable fields
+	 */
+	public RecurringScheduleEntity copy() {
+		RecurringScheduleEntity recurringScheduleEntity = new RecurringScheduleEntity();
+		recurringScheduleEntity.copyScheduleFields(this);
+		recurringScheduleEntity.setStartTime(startTime == null ? null : (Time) startTime.clone());
+		recurringScheduleEntity.setEndTime(endTime == null ? null : (Time) endTime.clone());
+		recurringScheduleEntity.setStartDate(startDate == null ? null : (Date) startDate.clone());
+		recurringScheduleEntity.setEndDate(endDate == null ? null : (Date) endDate.clone());
+		recurringScheduleEntity.setDaysOfWeek(daysOfWeek == null ? null : daysOfWeek.clone());
+		recurringScheduleEntity.setDaysOfMonth(daysOfMonth == null ? null : daysOfMonth.clone());
+		return recurringScheduleEntity;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o)
@@ -1,5 +1,8 @@
 package org.cloudfoundry.autoscaler.scheduler.entity;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
 import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
@@ -17,10 +20,15 @@ import io.swagger.annotations.ApiModelProperty;
 @MappedSuperclass
 public class ScheduleEntity {
 
+	// The ids are allocated in blocks of the sequence increment by the pooled-lo optimizer, the allocation
+	// size has to match the increment of schedule_id_sequence
+	public static final int ID_ALLOCATION_SIZE = 50;
+
 	@ApiModelProperty(hidden = true)
 	@Id
 	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "schedule_id_generator")
-	@SequenceGenerator(name = "schedule_id_generator", sequenceName = "schedule_id_sequence", allocationSize = 1)
+	@SequenceGenerator(name = "schedule_id_generator", sequenceName = "schedule_id_sequence",
+			allocationSize = ID_ALLOCATION_SIZE)
 	@Column(name = "schedule_id")
 	private Long id;
 
@@ -129,6 +137,41 @@ public class ScheduleEntity {
 		this.initialMinInstanceCount = initialMinInstanceCount;
 	}
 
+	/**
+	 * Sets the columns common to all the schedules from the current row of the result set.
+	 *
+	 * @param rs
+	 * @throws SQLException
+	 */
+	protected void mapScheduleColumns(ResultSet rs) throws SQLException {
+		setId(rs.getLong("schedule_id"));
+		setAppId(rs.getString("app_id"));
+		setTimeZone(rs.getString("timezone"));
+		setDefaultInstanceMinCount(rs.getInt("default_instance_min_count"));
+		setDefaultInstanceMaxCount(rs.getInt("default_instance_max_count"));
+		setInstanceMinCount(rs.getInt("instance_min_count"));
+		setInstanceMaxCount(rs.getInt("instance_max_count"));
+
+		int initialMinInstanceCount = rs.getInt("initial_min_instance_count");
+		setInitialMinInstanceCount(rs.wasNull() ? null : initialMinInstanceCount);
+	}
+
+	/**
+	 * Sets the fields common to all the schedules from the other schedule.
+	 *
+	 * @param scheduleEntity
+	 */
+	protected void copyScheduleFields(ScheduleEntity scheduleEntity) {
+		setId(scheduleEntity.getId());
+		setAppId(scheduleEntity.getAppId());
+		setTimeZone(scheduleEntity.getTimeZone());
+		setDefaultInstanceMinCount(scheduleEntity.getDefaultInstanceMinCount());
+		setDefaultInstanceMaxCount(scheduleEntity.getDefaultInstanceMaxCount());
+		setInstanceMinCount(scheduleEntity.getInstanceMinCount());
+		setInstanceMaxCount(scheduleEntity.getInstanceMaxCount());
+		setInitialMinInstanceCount(scheduleEntity.getInitialMinInstanceCount());
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o)
@@ -0,0 +1,241 @@
+package org.cloudfoundry.autoscaler.scheduler.entity;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Activation or deactivation of an active schedule in the schedule history, with the lag of the job firing
+ * and the response of the scaling engine. The times are in milliseconds since the epoch.
+ */
+@ApiModel
+public class ScheduleHistoryEntity implements RowMapper<ScheduleHistoryEntity> {
+
+	@ApiModelProperty(required = true, position = 1)
+	@JsonProperty(value = "app_id")
+	private String appId;
+
+	@ApiModelProperty(required = true, position = 2)
+	@JsonProperty(value = "schedule_id")
+	private Long scheduleId;
+
+	@ApiModelProperty(required = true, position = 3)
+	@JsonProperty(value = "action")
+	private JobActionEnum scalingAction;
+
+	@ApiModelProperty(position = 4)
+	@JsonProperty(value = "instance_min_count")
+	private Integer instanceMinCount;
+
+	@ApiModelProperty(position = 5)
+	@JsonProperty(value = "instance_max_count")
+	private Integer instanceMaxCount;
+
+	@ApiModelProperty(position = 6)
+	@JsonProperty(value = "initial_min_instance_count")
+	private Integer initialMinInstanceCount;
+
+	@ApiModelProperty(required = true, position = 7)
+	@JsonProperty(value = "transition_time")
+	private Date transitionTime;
+
+	@ApiModelProperty(position = 8)
+	@JsonProperty(value = "fire_time")
+	private Date fireTime;
+
+	@ApiModelProperty(position = 9)
+	@JsonProperty(value = "fire_lag_millisecond")
+	private Long fireLagMilliSecond;
+
+	@ApiModelProperty(required = true, position = 10)
+	@JsonProperty(value = "acknowledged")
+	private boolean acknowledged;
+
+	@ApiModelProperty(required = true, position = 11)
+	@JsonProperty(value = "attempt")
+	private int attempt;
+
+	@ApiModelProperty(position = 12)
+	@JsonProperty(value = "round_trip_millisecond")
+	private Long roundTripMilliSecond;
+
+	@ApiModelProperty(required = true, position = 13)
+	@JsonProperty(value = "recorded_time")
+	private Date recordedTime;
+
+	public ScheduleHistoryEntity() {
+	}
+
+	/**
+	 * @param activeScheduleEntity - the active schedule activated or deactivated
+	 * @param scalingAction
+	 * @param transitionTime - the time of the transition
+	 * @param fireTime - the time the job fired, null when not known
+	 */
+	public ScheduleHistoryEntity(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction,
+			Date transitionTime, Date fireTime) {
+		this.appId = activeScheduleEntity.getAppId();
+		this.scheduleId = activeScheduleEntity.getId();
+		this.scalingAction = scalingAction;
+		this.instanceMinCount = activeScheduleEntity.getInstanceMinCount();
+		this.instanceMaxCount = activeScheduleEntity.getInstanceMaxCount();
+		this.initialMinInstanceCount = activeScheduleEntity.getInitialMinInstanceCount();
+		this.transitionTime = transitionTime;
+		this.fireTime = fireTime;
+		// Negative for an advanced START trigger firing ahead of the transition
+		this.fireLagMilliSecond = fireTime == null ? null : fireTime.getTime() - transitionTime.getTime();
+		this.recordedTime = new Date();
+	}
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public void setAppId(String appId) {
+		this.appId = appId;
+	}
+
+	public Long getScheduleId() {
+		return scheduleId;
+	}
+
+	public void setScheduleId(Long scheduleId) {
+		this.scheduleId = scheduleId;
+	}
+
+	public JobActionEnum getScalingAction() {
+		return scalingAction;
+	}
+
+	public void setScalingAction(JobActionEnum scalingAction) {
+		this.scalingAction = scalingAction;
+	}
+
+	public Integer getInstanceMinCount() {
+		return instanceMinCount;
+	}
+
+	public void setInstanceMinCount(Integer instanceMinCount) {
+		this.instanceMinCount = instanceMinCount;
+	}
+
+	public Integer getInstanceMaxCount() {
+		return instanceMaxCount;
+	}
+
+	public void setInstanceMaxCount(Integer instanceMaxCount) {
+		this.instanceMaxCount = instanceMaxCount;
+	}
+
+	public Integer getInitialMinInstanceCount() {
+		return initialMinInstanceCount;
+	}
+
+	public void setInitialMinInstanceCount(Integer initialMinInstanceCount) {
+		this.initialMinInstanceCount = initialMinInstanceCount;
+	}
+
+	public Date getTransitionTime() {
+		return transitionTime;
+	}
+
+	public void setTransitionTime(Date transitionTime) {
+		this.transitionTime = transitionTime;
+	}
+
+	public Date getFireTime() {
+		return fireTime;
+	}
+
+	public void setFireTime(Date fireTime) {
+		this.fireTime = fireTime;
+	}
+
+	public Long getFireLagMilliSecond() {
+		return fireLagMilliSecond;
+	}
+
+	public void setFireLagMilliSecond(Long fireLagMilliSecond) {
+		this.fireLagMilliSecond = fireLagMilliSecond;
+	}
+
+	public boolean isAcknowledged() {
+		return acknowledged;
+	}
+
+	public void setAcknowledged(boolean acknowledged) {
+		this.acknowledged = acknowledged;
+	}
+
+	public int getAttempt() {
+		return attempt;
+	}
+
+	public void setAttempt(int attempt) {
+		this.attempt = attempt;
+	}
+
+	public Long getRoundTripMilliSecond() {
+		return roundTripMilliSecond;
+	}
+
+	public void setRoundTripMilliSecond(Long roundTripMilliSecond) {
+		this.roundTripMilliSecond = roundTripMilliSecond;
+	}
+
+	public Date getRecordedTime() {
+		return recordedTime;
+	}
+
+	public void setRecordedTime(Date recordedTime) {
+		this.recordedTime = recordedTime;
+	}
+
+	@Override
+	public ScheduleHistoryEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+		// The times are stored in UTC
+		Calendar utcCalendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		ScheduleHistoryEntity scheduleHistoryEntity = new ScheduleHistoryEntity();
+		scheduleHistoryEntity.setAppId(rs.getString("app_id"));
+		scheduleHistoryEntity.setScheduleId(rs.getLong("schedule_id"));
+		scheduleHistoryEntity.setScalingAction(JobActionEnum.valueOf(rs.getString("action")));
+		scheduleHistoryEntity.setInstanceMinCount(getInteger(rs, "instance_min_count"));
+		scheduleHistoryEntity.setInstanceMaxCount(getInteger(rs, "instance_max_count"));
+		scheduleHistoryEntity.setInitialMinInstanceCount(getInteger(rs, "initial_min_instance_count"));
+		scheduleHistoryEntity.setTransitionTime(rs.getTimestamp("transition_time", utcCalendar));
+		scheduleHistoryEntity.setFireTime(rs.getTimestamp("fire_time", utcCalendar));
+		scheduleHistoryEntity.setFireLagMilliSecond(getLong(rs, "fire_lag_millisecond"));
+		scheduleHistoryEntity.setAcknowledged(rs.getBoolean("acknowledged"));
+		scheduleHistoryEntity.setAttempt(rs.getInt("attempt"));
+		scheduleHistoryEntity.setRoundTripMilliSecond(getLong(rs, "round_trip_millisecond"));
+		scheduleHistoryEntity.setRecordedTime(rs.getTimestamp("recorded_time", utcCalendar));
+		return scheduleHistoryEntity;
+	}
+
+	private Integer getInteger(ResultSet rs, String column) throws SQLException {
+		int value = rs.getInt(column);
+		return rs.wasNull() ? null : value;
+	}
+
+	private Long getLong(ResultSet rs, String column) throws SQLException {
+		long value = rs.getLong(column);
+		return rs.wasNull() ? null : value;
+	}
+
+	@Override
+	public String toString() {
+		return "ScheduleHistoryEntity{" + "appId='" + appId + '\'' + ", scheduleId=" + scheduleId
+				+ ", scalingAction=" + scalingAction + ", transitionTime=" + transitionTime + ", acknowledged="
+				+ acknowledged + ", attempt=" + attempt + '}';
+	}
+}
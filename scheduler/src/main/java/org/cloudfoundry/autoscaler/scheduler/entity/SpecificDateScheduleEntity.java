@@ -1,5 +1,7 @@
 package org.cloudfoundry.autoscaler.scheduler.entity;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Date;
 
 import javax.persistence.Column;
@@ -12,6 +14,7 @@ import javax.validation.constraints.NotNull;
 import org.cloudfoundry.autoscaler.scheduler.util.DateHelper;
 import org.cloudfoundry.autoscaler.scheduler.util.DateTimeDeserializer;
 import org.cloudfoundry.autoscaler.scheduler.util.DateTimeSerializer;
+import org.springframework.jdbc.core.RowMapper;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -25,8 +28,9 @@ import io.swagger.annotations.ApiModelProperty;
 @Entity
 @Table(name = "app_scaling_specific_date_schedule")
 @NamedQueries({
-		@NamedQuery(name = SpecificDateScheduleEntity.query_specificDateSchedulesByAppId, query = SpecificDateScheduleEntity.jpql_specificDateSchedulesByAppId) })
-public class SpecificDateScheduleEntity extends ScheduleEntity {
+		@NamedQuery(name = SpecificDateScheduleEntity.query_specificDateSchedulesByAppId, query = SpecificDateScheduleEntity.jpql_specificDateSchedulesByAppId),
+		@NamedQuery(name = SpecificDateScheduleEntity.query_specificDateSchedules, query = SpecificDateScheduleEntity.jpql_specificDateSchedules) })
+public class SpecificDateScheduleEntity extends ScheduleEntity implements RowMapper<SpecificDateScheduleEntity> {
 
 	@ApiModelProperty(example = DateHelper.DATE_TIME_FORMAT, required = true, position = 1)
 	@JsonFormat(pattern = DateHelper.DATE_TIME_FORMAT)
@@ -66,6 +70,29 @@ public class SpecificDateScheduleEntity extends ScheduleEntity {
 	static final String jpql_specificDateSchedulesByAppId = " FROM SpecificDateScheduleEntity"
 			+ " WHERE app_id = :appId";
 
+	public static final String query_specificDateSchedules = "SpecificDateScheduleEntity.schedules";
+	static final String jpql_specificDateSchedules = " FROM SpecificDateScheduleEntity";
+
+	@Override
+	public SpecificDateScheduleEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+		SpecificDateScheduleEntity specificDateScheduleEntity = new SpecificDateScheduleEntity();
+		specificDateScheduleEntity.mapScheduleColumns(rs);
+		specificDateScheduleEntity.setStartDateTime(rs.getTimestamp("start_date_time"));
+		specificDateScheduleEntity.setEndDateTime(rs.getTimestamp("end_date_time"));
+		return specificDateScheduleEntity;
+	}
+
+	/**
+	 * @return a copy of the schedule, sharing none of its mutable fields
+	 */
+	public SpecificDateScheduleEntity copy() {
+		SpecificDateScheduleEntity specificDateScheduleEntity = new SpecificDateScheduleEntity();
+		specificDateScheduleEntity.copyScheduleFields(this);
+		specificDateScheduleEntity.setStartDateTime(startDateTime == null ? null : (Date) startDateTime.clone());
+		specificDateScheduleEntity.setEndDateTime(endDateTime == null ? null : (Date) endDateTime.clone());
+		return specificDateScheduleEntity;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o)
@@ -1,14 +1,22 @@
 package org.cloudfoundry.autoscaler.scheduler.quartz;
 
+import java.util.Collections;
+import java.util.Date;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
 import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
 import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
 import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
 import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,12 +24,24 @@ import org.springframework.transaction.annotation.Transactional;
 public class AppScalingScheduleEndJob extends AppScalingScheduleJob {
 	private Logger logger = LogManager.getLogger(this.getClass());
 
+	private static final String COALESCED_END_TRIGGER_SUFFIX = "_coalesced";
+
+	@Autowired
+	ActiveScheduleDao activeScheduleDao;
+
 	@Override
-	public void executeInternal(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+	JobExecutionLanes.Lane getExecutionLane() {
+		return JobExecutionLanes.Lane.END;
+	}
+
+	@Override
+	void executeScalingAction(JobExecutionContext jobExecutionContext) {
 		JobActionEnum jobEnd = JobActionEnum.END;
 
-		JobDataMap jobDataMap = jobExecutionContext.getJobDetail().getJobDataMap();
-		ActiveScheduleEntity activeScheduleEntity = ScheduleJobHelper.setupActiveSchedule(jobDataMap);
+		ActiveScheduleEntity activeScheduleEntity = setupActiveSchedule(jobExecutionContext, jobEnd);
+		if (activeScheduleEntity == null) {
+			return;
+		}
 
 		String executingMessage = messageBundleResourceHelper.lookupMessage("scheduler.job.start",
 				jobExecutionContext.getJobDetail().getKey(), activeScheduleEntity.getAppId(),
@@ -29,22 +49,107 @@ public class AppScalingScheduleEndJob extends AppScalingScheduleJob {
 				activeScheduleEntity.getInstanceMaxCount(), activeScheduleEntity.getInitialMinInstanceCount());
 		logger.info(executingMessage);
 
+		executeInOrder(jobExecutionContext, activeScheduleEntity, jobEnd,
+				() -> endActiveSchedule(jobExecutionContext, activeScheduleEntity));
+	}
+
+	private void endActiveSchedule(JobExecutionContext jobExecutionContext,
+			ActiveScheduleEntity activeScheduleEntity) {
+		JobActionEnum jobEnd = JobActionEnum.END;
+
+		JobDataMap triggerDataMap = jobExecutionContext.getTrigger().getJobDataMap();
+		if (triggerDataMap.containsKey(ScheduleJobHelper.COALESCED_END)) {
+			if (!isLeftActive(jobExecutionContext, activeScheduleEntity)) {
+				return;
+			}
+		} else if (!triggerDataMap.containsKey(ScheduleJobHelper.TRANSITION_TIME)
+				&& scheduleTransitionCoalescer.isReplacedAt(activeScheduleEntity.getAppId(),
+						activeScheduleEntity.getId(), getTransitionTime(jobExecutionContext))) {
+			// Another schedule of the app starting right now replaces the active schedule, in the table and
+			// in the scaling engine. The end is only checked again once the start had all its retries.
+			if (scheduleCoalescedEndCheck(jobExecutionContext, activeScheduleEntity)) {
+				return;
+			}
+		}
+
 		// Delete the active schedule
 		deleteActiveSchedule(activeScheduleEntity, jobExecutionContext);
 
-		notifyScalingEngine(activeScheduleEntity, jobEnd, jobExecutionContext);
+		notifyScalingEngine(jobExecutionContext, activeScheduleEntity, jobEnd);
+
+	}
+
+	/**
+	 * Schedules the check of the coalesced end, after the retries of the start replacing the active
+	 * schedule.
+	 * 
+	 * @return false when the check could not be scheduled, the active schedule is ended right away then
+	 */
+	private boolean scheduleCoalescedEndCheck(JobExecutionContext jobExecutionContext,
+			ActiveScheduleEntity activeScheduleEntity) {
+		JobDetail jobDetail = jobExecutionContext.getJobDetail();
+		TriggerKey triggerKey = jobExecutionContext.getTrigger().getKey();
+		Date checkTime = new Date(
+				System.currentTimeMillis() + (maxJobRescheduleCount + 1) * jobRescheduleIntervalMilliSecond);
+		Trigger checkTrigger = ScheduleJobHelper.buildTrigger(
+				new TriggerKey(triggerKey.getName() + COALESCED_END_TRIGGER_SUFFIX, triggerKey.getGroup()),
+				jobDetail.getKey(), checkTime, ScheduleJobHelper.RETRY_TRIGGER_PRIORITY);
+		checkTrigger.getJobDataMap().put(ScheduleJobHelper.TRANSITION_TIME,
+				getTransitionTime(jobExecutionContext).getTime());
+		checkTrigger.getJobDataMap().put(ScheduleJobHelper.COALESCED_END, true);
+
+		try {
+			jobExecutionContext.getScheduler().scheduleJob(jobDetail, Collections.singleton(checkTrigger), true);
+		} catch (SchedulerException se) {
+			String errorMessage = messageBundleResourceHelper.lookupMessage("scheduler.job.end.check.failed",
+					se.getMessage(), jobDetail.getKey(), activeScheduleEntity.getAppId(),
+					activeScheduleEntity.getId());
+			logger.error(errorMessage, se);
+			return false;
+		}
 
+		String coalescedMessage = messageBundleResourceHelper.lookupMessage("scheduler.job.end.coalesced",
+				jobDetail.getKey(), activeScheduleEntity.getAppId(), activeScheduleEntity.getId(), checkTime);
+		logger.info(coalescedMessage);
+		return true;
+	}
+
+	/**
+	 * Checks whether the active schedule of a coalesced end is still there, as the start replacing it failed
+	 * or was skipped.
+	 */
+	private boolean isLeftActive(JobExecutionContext jobExecutionContext, ActiveScheduleEntity activeScheduleEntity) {
+		try {
+			if (activeScheduleDao.find(activeScheduleEntity.getId()) == null) {
+				return false;
+			}
+		} catch (DatabaseValidationException dve) {
+			// Without knowing, the active schedule is ended rather than left orphaned
+			String errorMessage = messageBundleResourceHelper.lookupMessage("database.error.get.activeschedule.failed",
+					dve.getMessage(), activeScheduleEntity.getAppId(), activeScheduleEntity.getId());
+			logger.error(errorMessage, dve);
+			return true;
+		}
+
+		String message = messageBundleResourceHelper.lookupMessage("scheduler.job.end.not.replaced",
+				jobExecutionContext.getJobDetail().getKey(), activeScheduleEntity.getAppId(),
+				activeScheduleEntity.getId());
+		logger.warn(message);
+		return true;
 	}
 
 	@Transactional
 	private void deleteActiveSchedule(ActiveScheduleEntity activeScheduleEntity,
 			JobExecutionContext jobExecutionContext) {
 		JobDataMap jobDataMap = jobExecutionContext.getJobDetail().getJobDataMap();
-		boolean activeScheduleTableTaskDone = jobDataMap.getBoolean(ScheduleJobHelper.ACTIVE_SCHEDULE_TABLE_TASK_DONE);
-		if (!activeScheduleTableTaskDone) {
+		if (!isActiveScheduleTableTaskDone(jobDataMap)) {
+			long writeStartTime = System.currentTimeMillis();
 			try {
-				activeScheduleDao.delete(activeScheduleEntity.getId());
+				writeActiveSchedule(jobExecutionContext, activeScheduleEntity, JobActionEnum.END,
+						Collections.emptyList());
 				jobDataMap.put(ScheduleJobHelper.ACTIVE_SCHEDULE_TABLE_TASK_DONE, true);
+				scheduleTimingMetrics.record(JobActionEnum.END, ScheduleTimingMetrics.Timing.DATABASE_WRITE,
+						System.currentTimeMillis() - writeStartTime);
 			} catch (DatabaseValidationException dve) {
 				String errorMessage = messageBundleResourceHelper.lookupMessage(
 						"database.error.delete.activeschedule.failed", dve.getMessage(),
@@ -52,8 +157,8 @@ public class AppScalingScheduleEndJob extends AppScalingScheduleJob {
 				logger.error(errorMessage, dve);
 
 				//Reschedule Job
-				handleJobRescheduling(jobExecutionContext, ScheduleJobHelper.RescheduleCount.ACTIVE_SCHEDULE,
-						maxJobRescheduleCount);
+				handleJobRescheduling(jobExecutionContext, activeScheduleEntity,
+						ScheduleJobHelper.RescheduleCount.ACTIVE_SCHEDULE, maxJobRescheduleCount);
 			}
 
 		}
@@ -1,29 +1,39 @@
 package org.cloudfoundry.autoscaler.scheduler.quartz;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
 import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.scalingengine.NotificationOutboxDispatcher;
+import org.cloudfoundry.autoscaler.scheduler.scalingengine.ScalingEngineNotifier;
+import org.cloudfoundry.autoscaler.scheduler.service.ActiveScheduleWriter;
+import org.cloudfoundry.autoscaler.scheduler.service.ScheduleCache;
+import org.cloudfoundry.autoscaler.scheduler.service.ScheduleHistoryRecorder;
+import org.cloudfoundry.autoscaler.scheduler.service.ScheduleTransitionCoalescer;
 import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.ReplicaRoutingDataSource;
 import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
 import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
 import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
 import org.quartz.TriggerKey;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.quartz.QuartzJobBean;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
 
 /**
  * QuartzJobBean class that executes the job
@@ -32,8 +42,9 @@ import org.springframework.web.client.RestTemplate;
 abstract class AppScalingScheduleJob extends QuartzJobBean {
 	private Logger logger = LogManager.getLogger(this.getClass());
 
-	@Value("${autoscaler.scalingengine.url}")
-	private String scalingEngineUrl;
+	private static final String REQUEUED_TRIGGER_SUFFIX = "_requeued";
+
+	private static final String RETRY_TRIGGER_SUFFIX = "_retry";
 
 	@Value("${scalingenginejob.reschedule.interval.millisecond}")
 	long jobRescheduleIntervalMilliSecond;
@@ -41,83 +52,279 @@ abstract class AppScalingScheduleJob extends QuartzJobBean {
 	@Value("${scalingenginejob.reschedule.maxcount}")
 	int maxJobRescheduleCount;
 
-	@Value("${scalingengine.notification.reschedule.maxcount}")
-	int maxScalingEngineNotificationRescheduleCount;
+	@Autowired
+	ScalingEngineNotifier scalingEngineNotifier;
+
+	@Autowired
+	ActiveScheduleWriter activeScheduleWriter;
+
+	@Autowired
+	NotificationOutboxDispatcher notificationOutboxDispatcher;
+
+	@Autowired
+	ScheduleCache scheduleCache;
+
+	@Autowired
+	ScheduleTransitionCoalescer scheduleTransitionCoalescer;
+
+	@Autowired
+	FireTimeCompensator fireTimeCompensator;
+
+	@Autowired
+	AppTransitionSequencer appTransitionSequencer;
 
 	@Autowired
-	ActiveScheduleDao activeScheduleDao;
+	ScheduleTimingMetrics scheduleTimingMetrics;
 
 	@Autowired
-	private RestTemplate restTemplate;
+	ScheduleHistoryRecorder scheduleHistoryRecorder;
 
 	@Autowired
 	MessageBundleResourceHelper messageBundleResourceHelper;
 
-	void notifyScalingEngine(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction,
-			JobExecutionContext jobExecutionContext) {
-		String appId = activeScheduleEntity.getAppId();
-		Long scheduleId = activeScheduleEntity.getId();
-		HttpEntity<ActiveScheduleEntity> requestEntity = new HttpEntity<>(activeScheduleEntity);
+	/**
+	 * Sets up the scaling action on the quartz thread and queues its transition, the quartz thread does not
+	 * wait for the transition to be applied. The jobs request recovery, so a firing interrupted by a crash
+	 * before its transition is queued is fired again when the scheduler runs again. The START triggers have
+	 * a higher priority than the END triggers, and the rescheduled firings a lower one, for the triggers due
+	 * at the same time. The job uses the connections of the pool of the quartz job store.
+	 */
+	@Override
+	protected void executeInternal(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+		ReplicaRoutingDataSource.useQuartzPool(() -> executeScalingAction(jobExecutionContext));
+	}
+
+	abstract void executeScalingAction(JobExecutionContext jobExecutionContext);
+
+	abstract JobExecutionLanes.Lane getExecutionLane();
+
+	/**
+	 * A job fired again with the transition time of an earlier firing is applied in the retry lane.
+	 */
+	private JobExecutionLanes.Lane getLane(JobExecutionContext jobExecutionContext) {
+		return jobExecutionContext.getTrigger().getJobDataMap().containsKey(ScheduleJobHelper.TRANSITION_TIME)
+				? JobExecutionLanes.Lane.RETRY : getExecutionLane();
+	}
+
+	/**
+	 * Queues the transition of the job to be applied in its execution lane after the transitions of the app
+	 * with an earlier transition time, never at the same time as another transition of the app. The
+	 * transition is cancelled when a later transition was already applied to its schedule. The time the
+	 * transition waited for its turn is recorded as the queue wait, apart from the fire lag of the trigger.
+	 * 
+	 * @param jobExecutionContext
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @param transition - applies the transition
+	 */
+	void executeInOrder(JobExecutionContext jobExecutionContext, ActiveScheduleEntity activeScheduleEntity,
+			JobActionEnum scalingAction, Runnable transition) {
+		long enqueueTime = System.currentTimeMillis();
+		appTransitionSequencer.execute(getLane(jobExecutionContext), activeScheduleEntity.getAppId(),
+				activeScheduleEntity.getId(), jobExecutionContext.getJobDetail().getKey(),
+				getTransitionTime(jobExecutionContext).getTime(), () -> {
+					scheduleTimingMetrics.record(scalingAction, ScheduleTimingMetrics.Timing.QUEUE_WAIT,
+							System.currentTimeMillis() - enqueueTime);
+					transition.run();
+				}, () -> requeueTransition(jobExecutionContext, activeScheduleEntity));
+	}
+
+	/**
+	 * Hands the transition still queued on shutdown back to quartz, its job fires again with the same
+	 * transition time as soon as the scheduler runs again.
+	 */
+	void requeueTransition(JobExecutionContext jobExecutionContext, ActiveScheduleEntity activeScheduleEntity) {
+		JobDetail jobDetail = jobExecutionContext.getJobDetail();
+		Trigger trigger = jobExecutionContext.getTrigger();
+		TriggerKey triggerKey = trigger.getKey();
+		if (!triggerKey.getName().endsWith(REQUEUED_TRIGGER_SUFFIX)) {
+			triggerKey = new TriggerKey(triggerKey.getName() + REQUEUED_TRIGGER_SUFFIX, triggerKey.getGroup());
+		}
+		Trigger requeuedTrigger = ScheduleJobHelper.buildTrigger(triggerKey, jobDetail.getKey(), new Date(),
+				ScheduleJobHelper.RETRY_TRIGGER_PRIORITY);
+		requeuedTrigger.getJobDataMap().putAll(trigger.getJobDataMap());
+		requeuedTrigger.getJobDataMap().put(ScheduleJobHelper.TRANSITION_TIME,
+				getTransitionTime(jobExecutionContext).getTime());
 
 		try {
-			String scalingEnginePathActiveSchedule = scalingEngineUrl + "/v1/apps/" + appId + "/active_schedules/" + scheduleId;
-
-			if (scalingAction == JobActionEnum.START) {
-				String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.activeschedule.start", appId,
-						scheduleId, scalingAction);
-				logger.info(message);
-				restTemplate.put(scalingEnginePathActiveSchedule, requestEntity);
-			} else {
-				String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.activeschedule.remove", appId,
-						scheduleId, scalingAction);
-				logger.info(message);
-				restTemplate.delete(scalingEnginePathActiveSchedule, requestEntity);
-			}
-		} catch (HttpStatusCodeException hce) {
-			handleResponse(activeScheduleEntity, scalingAction, hce);
-		} catch (ResourceAccessException rae) {
-			String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.error",
-					rae.getMessage(), appId, scheduleId, scalingAction);
-			logger.error(message, rae);
-			handleJobRescheduling(jobExecutionContext, ScheduleJobHelper.RescheduleCount.SCALING_ENGINE_NOTIFICATION,
-					maxScalingEngineNotificationRescheduleCount);
+			jobExecutionContext.getScheduler().scheduleJob(jobDetail, Collections.singleton(requeuedTrigger), true);
+		} catch (SchedulerException se) {
+			String errorMessage = messageBundleResourceHelper.lookupMessage("scheduler.job.requeue.failed",
+					se.getMessage(), jobDetail.getKey(), activeScheduleEntity.getAppId(),
+					activeScheduleEntity.getId());
+			logger.error(errorMessage, se);
 		}
 	}
 
-	private void handleResponse(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction,
-			HttpStatusCodeException hsce) {
-		String appId = activeScheduleEntity.getAppId();
-		Long scheduleId = activeScheduleEntity.getId();
-		HttpStatus errorResponseCode = hsce.getStatusCode();
-		if (errorResponseCode.is4xxClientError()) {
-			String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.client.error",
-					errorResponseCode, hsce.getResponseBodyAsString(), appId, scheduleId, scalingAction);
-			logger.error(message, hsce);
+	/**
+	 * Sets up the active schedule for the scaling action of the job. The job data only holds the schedule
+	 * id, the schedule is resolved from the schedule cache. Jobs created before the job data was reduced
+	 * still hold the whole active schedule in their job data.
+	 * 
+	 * @param jobExecutionContext
+	 * @param scalingAction
+	 * @return the active schedule, null if the schedule no longer exists
+	 */
+	ActiveScheduleEntity setupActiveSchedule(JobExecutionContext jobExecutionContext, JobActionEnum scalingAction) {
+		JobDataMap jobDataMap = jobExecutionContext.getJobDetail().getJobDataMap();
+		if (jobDataMap.containsKey(ScheduleJobHelper.APP_ID)
+				|| jobDataMap.containsKey(ScheduleJobHelper.APP_ID_MOST_SIGNIFICANT_BITS)) {
+			return ScheduleJobHelper.setupActiveSchedule(jobDataMap);
+		}
+
+		JobKey jobKey = jobExecutionContext.getJobDetail().getKey();
+		Long scheduleId = jobDataMap.getLong(ScheduleJobHelper.SCHEDULE_ID);
+		ScheduleTypeEnum scheduleType = ScheduleTypeEnum.getEnumByScheduleIdentifier(jobKey.getGroup());
+
+		ScheduleEntity scheduleEntity;
+		try {
+			scheduleEntity = scheduleCache.getSchedule(scheduleId, scheduleType);
+		} catch (DatabaseValidationException dve) {
+			String errorMessage = messageBundleResourceHelper.lookupMessage("database.error.get.schedule.failed",
+					dve.getMessage(), jobKey, scheduleId);
+			logger.error(errorMessage, dve);
+			return null;
+		}
+
+		if (scheduleEntity == null) {
+			String message = messageBundleResourceHelper.lookupMessage("scheduler.job.schedule.not.found", jobKey,
+					scheduleId);
+			logger.warn(message);
+			return null;
+		}
+		return ScheduleJobHelper.setupActiveSchedule(scheduleEntity, scalingAction);
+	}
+
+	/**
+	 * Gets the time of the transition the job fired for. A job rescheduled after a failure carries the
+	 * transition time of its first firing in the data of its trigger, an advanced START trigger carries
+	 * its advance.
+	 * 
+	 * @param jobExecutionContext
+	 * @return
+	 */
+	Date getTransitionTime(JobExecutionContext jobExecutionContext) {
+		JobDataMap triggerDataMap = jobExecutionContext.getTrigger().getJobDataMap();
+		if (triggerDataMap.containsKey(ScheduleJobHelper.TRANSITION_TIME)) {
+			return new Date(triggerDataMap.getLong(ScheduleJobHelper.TRANSITION_TIME));
+		}
+		return new Date(jobExecutionContext.getScheduledFireTime().getTime() + getStartAdvance(triggerDataMap));
+	}
+
+	long getStartAdvance(JobDataMap triggerDataMap) {
+		return triggerDataMap.containsKey(ScheduleJobHelper.START_ADVANCE)
+				? triggerDataMap.getLong(ScheduleJobHelper.START_ADVANCE) : 0;
+	}
+
+	boolean isActiveScheduleTableTaskDone(JobDataMap jobDataMap) {
+		return jobDataMap.containsKey(ScheduleJobHelper.ACTIVE_SCHEDULE_TABLE_TASK_DONE)
+				&& jobDataMap.getBoolean(ScheduleJobHelper.ACTIVE_SCHEDULE_TABLE_TASK_DONE);
+	}
+
+	/**
+	 * Writes the change of the active schedule, a START creates it and replaces the active schedules of the
+	 * replaced ids, an END deletes it. With the outbox enabled, the notification of the scaling engine
+	 * about the change is written to the outbox in the same transaction.
+	 * 
+	 * @param jobExecutionContext
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @param replacedIds - the ids of the active schedules replaced by a START
+	 * @throws DatabaseValidationException - when the transaction failed, nothing is written then
+	 */
+	void writeActiveSchedule(JobExecutionContext jobExecutionContext, ActiveScheduleEntity activeScheduleEntity,
+			JobActionEnum scalingAction, List<Long> replacedIds) {
+		NotificationOutboxEntity notificationOutboxEntity = null;
+		if (notificationOutboxDispatcher.isOutboxEnabled()) {
+			// The jobs rescheduled after a failure do not tell the latency to compensate
+			Date scheduledFireTime = jobExecutionContext.getTrigger().getJobDataMap()
+					.containsKey(ScheduleJobHelper.TRANSITION_TIME) ? null : jobExecutionContext.getScheduledFireTime();
+			notificationOutboxEntity = new NotificationOutboxEntity(activeScheduleEntity, scalingAction,
+					getTransitionTime(jobExecutionContext), scheduledFireTime);
+			notificationOutboxEntity.setFireTime(jobExecutionContext.getFireTime());
+		}
+
+		if (scalingAction == JobActionEnum.START) {
+			activeScheduleWriter.write(replacedIds, activeScheduleEntity, notificationOutboxEntity);
 		} else {
-			String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.failed",
-					errorResponseCode, hsce.getResponseBodyAsString(), appId, scheduleId, scalingAction);
-			logger.error(message, hsce);
+			activeScheduleWriter.write(Collections.singletonList(activeScheduleEntity.getId()), null,
+					notificationOutboxEntity);
+		}
+	}
+
+	/**
+	 * Notifies the scaling engine without waiting for it, the job is done once the active schedule is
+	 * persisted. With the outbox enabled, the notification written with the active schedule is left to the
+	 * outbox dispatcher. Otherwise the failed notifications are retried in memory by the notifier and do
+	 * not reschedule the job. The latency from the scheduled firing of the trigger to the acknowledgement is
+	 * recorded to advance the START triggers, except for the jobs rescheduled after a failure. The schedule
+	 * history records the answer to the first attempt.
+	 */
+	void notifyScalingEngine(JobExecutionContext jobExecutionContext, ActiveScheduleEntity activeScheduleEntity,
+			JobActionEnum scalingAction) {
+		if (notificationOutboxDispatcher.isOutboxEnabled()) {
+			notificationOutboxDispatcher.wakeUp();
+			return;
 		}
+
+		long notificationStartTime = System.currentTimeMillis();
+		scalingEngineNotifier.submitNotification(activeScheduleEntity, scalingAction)
+				.thenAccept(acknowledged -> recordNotification(jobExecutionContext, activeScheduleEntity,
+						scalingAction, notificationStartTime, acknowledged));
 	}
 
-	void handleJobRescheduling(JobExecutionContext jobExecutionContext, ScheduleJobHelper.RescheduleCount retryCounter,
-			int maxCount) {
+	private void recordNotification(JobExecutionContext jobExecutionContext,
+			ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction, long notificationStartTime,
+			boolean acknowledged) {
+		long acknowledgementTime = System.currentTimeMillis();
+		scheduleHistoryRecorder.record(activeScheduleEntity, scalingAction, getTransitionTime(jobExecutionContext),
+				jobExecutionContext.getFireTime(), acknowledged, 1, acknowledgementTime - notificationStartTime);
+
+		scheduleTimingMetrics.record(scalingAction, ScheduleTimingMetrics.Timing.SCALING_ENGINE_ROUND_TRIP,
+				acknowledgementTime - notificationStartTime);
+		if (acknowledged) {
+			scheduleTimingMetrics.record(scalingAction, ScheduleTimingMetrics.Timing.DELIVERY,
+					acknowledgementTime - getTransitionTime(jobExecutionContext).getTime());
+		}
+
+		JobDataMap triggerDataMap = jobExecutionContext.getTrigger().getJobDataMap();
+		if (acknowledged && !triggerDataMap.containsKey(ScheduleJobHelper.TRANSITION_TIME)) {
+			fireTimeCompensator
+					.recordLatency(acknowledgementTime - jobExecutionContext.getScheduledFireTime().getTime());
+		}
+	}
+
+	void handleJobRescheduling(JobExecutionContext jobExecutionContext, ActiveScheduleEntity activeScheduleEntity,
+			ScheduleJobHelper.RescheduleCount retryCounter, int maxCount) {
 		JobDataMap jobDataMap = jobExecutionContext.getJobDetail().getJobDataMap();
-		String retryCounterTask = retryCounter.name();// ACTIVE_SCHEDULE, SCALING_ENGINE_NOTIFICATION
-		int jobFireCount = jobDataMap.getInt(retryCounterTask);
-		String appId = jobDataMap.getString(ScheduleJobHelper.APP_ID);
-		Long scheduleId = jobDataMap.getLong(ScheduleJobHelper.SCHEDULE_ID);
+		String retryCounterTask = retryCounter.name();
+		// The retry counters are only added to the job data once the job is rescheduled
+		int jobFireCount = jobDataMap.containsKey(retryCounterTask) ? jobDataMap.getInt(retryCounterTask) : 1;
+		String appId = activeScheduleEntity.getAppId();
+		Long scheduleId = activeScheduleEntity.getId();
 		TriggerKey triggerKey = jobExecutionContext.getTrigger().getKey();
+		int retrySuffixIndex = triggerKey.getName().lastIndexOf(RETRY_TRIGGER_SUFFIX);
+		if (retrySuffixIndex > 0) {
+			triggerKey = new TriggerKey(triggerKey.getName().substring(0, retrySuffixIndex), triggerKey.getGroup());
+		}
 
 		if (jobFireCount < maxCount) {
 			Date newTriggerTime = new Date(System.currentTimeMillis() + jobRescheduleIntervalMilliSecond);
-			Trigger newTrigger = ScheduleJobHelper.buildTrigger(triggerKey, null, newTriggerTime);
+			JobDetail jobDetail = jobExecutionContext.getJobDetail();
+			// The job is rescheduled from its lane while quartz may still complete the trigger that fired, a
+			// new trigger under the same key could be removed along with it
+			TriggerKey newTriggerKey = new TriggerKey(
+					triggerKey.getName() + RETRY_TRIGGER_SUFFIX + (jobFireCount + 1), triggerKey.getGroup());
+			Trigger newTrigger = ScheduleJobHelper.buildTrigger(newTriggerKey, jobDetail.getKey(), newTriggerTime,
+					ScheduleJobHelper.RETRY_TRIGGER_PRIORITY);
+			newTrigger.getJobDataMap().put(ScheduleJobHelper.TRANSITION_TIME,
+					getTransitionTime(jobExecutionContext).getTime());
 
 			try {
 				Scheduler scheduler = jobExecutionContext.getScheduler();
 				jobDataMap.put(retryCounterTask, ++jobFireCount);
-				scheduler.addJob(jobExecutionContext.getJobDetail(), true);
-				scheduler.rescheduleJob(triggerKey, newTrigger);
+				// The job is stored with its retry counter together with the new trigger
+				scheduler.scheduleJob(jobDetail, Collections.singleton(newTrigger), true);
 			} catch (SchedulerException se) {
 				String errorMessage = messageBundleResourceHelper.lookupMessage("scheduler.job.reschedule.failed",
 						se.getMessage(), triggerKey, appId, scheduleId, jobFireCount - 1);
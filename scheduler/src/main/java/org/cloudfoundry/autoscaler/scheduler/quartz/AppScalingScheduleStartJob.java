@@ -1,15 +1,26 @@
 package org.cloudfoundry.autoscaler.scheduler.quartz;
 
+import java.util.Date;
+import java.util.List;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
 import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
 import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.quartz.CronTrigger;
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
 import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,11 +33,18 @@ public class AppScalingScheduleStartJob extends AppScalingScheduleJob {
 	Scheduler scheduler;
 
 	@Override
-	public void executeInternal(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+	JobExecutionLanes.Lane getExecutionLane() {
+		return JobExecutionLanes.Lane.START;
+	}
+
+	@Override
+	void executeScalingAction(JobExecutionContext jobExecutionContext) {
 		JobActionEnum jobStart = JobActionEnum.START;
 
-		JobDataMap jobDataMap = jobExecutionContext.getJobDetail().getJobDataMap();
-		ActiveScheduleEntity activeScheduleEntity = ScheduleJobHelper.setupActiveSchedule(jobDataMap);
+		ActiveScheduleEntity activeScheduleEntity = setupActiveSchedule(jobExecutionContext, jobStart);
+		if (activeScheduleEntity == null) {
+			return;
+		}
 
 		String executingMessage = messageBundleResourceHelper.lookupMessage("scheduler.job.start",
 				jobExecutionContext.getJobDetail().getKey(), activeScheduleEntity.getAppId(),
@@ -34,33 +52,151 @@ public class AppScalingScheduleStartJob extends AppScalingScheduleJob {
 				activeScheduleEntity.getInstanceMaxCount(), activeScheduleEntity.getInitialMinInstanceCount());
 		logger.info(executingMessage);
 
+		executeInOrder(jobExecutionContext, activeScheduleEntity, jobStart,
+				() -> startActiveSchedule(jobExecutionContext, activeScheduleEntity));
+	}
+
+	private void startActiveSchedule(JobExecutionContext jobExecutionContext,
+			ActiveScheduleEntity activeScheduleEntity) {
+		JobActionEnum jobStart = JobActionEnum.START;
+
+		// A misfired start fires late, skip it when the end of the schedule has already passed
+		if (!isScheduleWindowOpen(jobExecutionContext, activeScheduleEntity.getId())) {
+			String skippedMessage = messageBundleResourceHelper.lookupMessage("scheduler.job.start.skipped",
+					jobExecutionContext.getJobDetail().getKey(), activeScheduleEntity.getAppId(),
+					activeScheduleEntity.getId());
+			logger.warn(skippedMessage);
+			return;
+		}
+
 		// Persist the active schedule
 		saveActiveSchedule(activeScheduleEntity, jobExecutionContext);
 
-		notifyScalingEngine(activeScheduleEntity, jobStart, jobExecutionContext);
+		notifyScalingEngine(jobExecutionContext, activeScheduleEntity, jobStart);
+
+		updateStartAdvance(jobExecutionContext, activeScheduleEntity.getId());
+
+	}
+
+	/**
+	 * Checks whether the end job of the schedule is still due to fire for the current start. When the end
+	 * trigger is gone but the end job still exists, the end has already fired for good. When neither exists,
+	 * the schedule window cannot be determined and the start proceeds.
+	 * 
+	 * @param jobExecutionContext
+	 * @param scheduleId
+	 * @return
+	 */
+	private boolean isScheduleWindowOpen(JobExecutionContext jobExecutionContext, Long scheduleId) {
+		String group = jobExecutionContext.getJobDetail().getKey().getGroup();
+		String endName = scheduleId + JobActionEnum.END.getJobIdSuffix();
+		Scheduler jobScheduler = jobExecutionContext.getScheduler();
+
+		try {
+			Trigger endTrigger = jobScheduler.getTrigger(new TriggerKey(endName, group));
+			if (endTrigger == null) {
+				return !jobScheduler.checkExists(new JobKey(endName, group));
+			}
+			return ScheduleJobHelper.isScheduleWindowOpen(jobExecutionContext.getTrigger(), endTrigger, new Date());
+		} catch (SchedulerException se) {
+			logger.error(se.getMessage(), se);
+			return true;
+		}
+	}
+
+	/**
+	 * Moves a recurring START trigger to the advance currently worked out from the observed latencies, the
+	 * trigger is only rebuilt when its advance changes by the update threshold. The rebuilt trigger starts after the current
+	 * transition, so that a smaller advance does not fire it again for the same transition.
+	 * 
+	 * @param jobExecutionContext
+	 * @param scheduleId
+	 */
+	private void updateStartAdvance(JobExecutionContext jobExecutionContext, Long scheduleId) {
+		Trigger trigger = jobExecutionContext.getTrigger();
+		JobDataMap triggerDataMap = trigger.getJobDataMap();
+		if (ScheduleTypeEnum.getEnumByScheduleIdentifier(trigger.getKey().getGroup()) != ScheduleTypeEnum.RECURRING
+				|| !(trigger instanceof CronTrigger) || triggerDataMap.containsKey(ScheduleJobHelper.TRANSITION_TIME)) {
+			return;
+		}
 
+		long currentAdvance = getStartAdvance(triggerDataMap);
+		if (!fireTimeCompensator.isAdvanceUpdateDue(currentAdvance)) {
+			return;
+		}
+
+		try {
+			ScheduleEntity scheduleEntity = scheduleCache.getSchedule(scheduleId, ScheduleTypeEnum.RECURRING);
+			if (!(scheduleEntity instanceof RecurringScheduleEntity)) {
+				return;
+			}
+			RecurringScheduleEntity recurringScheduleEntity = (RecurringScheduleEntity) scheduleEntity;
+			Trigger newTrigger = ScheduleJobHelper.buildCronTrigger(trigger.getKey(), trigger.getJobKey(),
+					recurringScheduleEntity, recurringScheduleEntity.getStartTime(),
+					fireTimeCompensator.getStartAdvanceMilliSecond());
+			long newAdvance = getStartAdvance(newTrigger.getJobDataMap());
+			if (newAdvance == currentAdvance) {
+				return;
+			}
+
+			Date startTime = new Date(getTransitionTime(jobExecutionContext).getTime() + 1000);
+			TriggerBuilder<? extends Trigger> triggerBuilder = newTrigger.getTriggerBuilder()
+					.withPriority(trigger.getPriority());
+			if (newTrigger.getStartTime().before(startTime)) {
+				triggerBuilder.startAt(startTime);
+			}
+			newTrigger = triggerBuilder.build();
+			jobExecutionContext.getScheduler().rescheduleJob(trigger.getKey(), newTrigger);
+
+			String message = messageBundleResourceHelper.lookupMessage("scheduler.job.start.advance.updated",
+					newAdvance, currentAdvance, trigger.getKey(), scheduleId);
+			logger.info(message);
+		} catch (DatabaseValidationException | SchedulerException e) {
+			String errorMessage = messageBundleResourceHelper.lookupMessage(
+					"scheduler.job.start.advance.update.failed", e.getMessage(), trigger.getKey(), scheduleId);
+			logger.error(errorMessage, e);
+		}
 	}
 
 	@Transactional
 	private void saveActiveSchedule(ActiveScheduleEntity activeScheduleEntity,
 			JobExecutionContext jobExecutionContext) {
 		JobDataMap jobDataMap = jobExecutionContext.getJobDetail().getJobDataMap();
-		boolean activeScheduleTableTaskDone = jobDataMap.getBoolean(ScheduleJobHelper.ACTIVE_SCHEDULE_TABLE_TASK_DONE);
-		if (!activeScheduleTableTaskDone) {
+		if (!isActiveScheduleTableTaskDone(jobDataMap)) {
 
+			// The schedules of the app ending right now are replaced, their end jobs leave it to this job
+			List<Long> endingScheduleIds = scheduleTransitionCoalescer.findEndingScheduleIds(
+					activeScheduleEntity.getAppId(), activeScheduleEntity.getId(),
+					getTransitionTime(jobExecutionContext));
+			long writeStartTime = System.currentTimeMillis();
 			try {
-				activeScheduleDao.create(activeScheduleEntity);
+				if (!endingScheduleIds.isEmpty()) {
+					String coalescedMessage = messageBundleResourceHelper.lookupMessage(
+							"scheduler.job.start.coalesced", jobExecutionContext.getJobDetail().getKey(),
+							activeScheduleEntity.getAppId(), activeScheduleEntity.getId(), endingScheduleIds.toString());
+					logger.info(coalescedMessage);
+				}
+				writeActiveSchedule(jobExecutionContext, activeScheduleEntity, JobActionEnum.START, endingScheduleIds);
 				jobDataMap.put(ScheduleJobHelper.ACTIVE_SCHEDULE_TABLE_TASK_DONE, true);
+				scheduleTimingMetrics.record(JobActionEnum.START, ScheduleTimingMetrics.Timing.DATABASE_WRITE,
+						System.currentTimeMillis() - writeStartTime);
 			} catch (DatabaseValidationException dve) {
 
-				String errorMessage = messageBundleResourceHelper.lookupMessage(
-						"database.error.create.activeschedule.failed", dve.getMessage(),
-						activeScheduleEntity.getAppId(), activeScheduleEntity.getId());
+				String errorMessage;
+				if (endingScheduleIds.isEmpty()) {
+					errorMessage = messageBundleResourceHelper.lookupMessage(
+							"database.error.create.activeschedule.failed", dve.getMessage(),
+							activeScheduleEntity.getAppId(), activeScheduleEntity.getId());
+				} else {
+					errorMessage = messageBundleResourceHelper.lookupMessage(
+							"database.error.replace.activeschedule.failed", dve.getMessage(),
+							activeScheduleEntity.getAppId(), activeScheduleEntity.getId(), endingScheduleIds.toString());
+				}
 				logger.error(errorMessage, dve);
 
 				//Reschedule Job
-				handleJobRescheduling(jobExecutionContext, ScheduleJobHelper.RescheduleCount.ACTIVE_SCHEDULE,
-						maxJobRescheduleCount);
+				handleJobRescheduling(jobExecutionContext, activeScheduleEntity,
+						ScheduleJobHelper.RescheduleCount.ACTIVE_SCHEDULE, maxJobRescheduleCount);
 			}
 		}
 
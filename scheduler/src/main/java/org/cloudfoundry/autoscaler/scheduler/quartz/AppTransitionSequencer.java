@@ -0,0 +1,272 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.util.AppId;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.quartz.JobKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the start and end transitions of an app one at a time, in the order of their transition times,
+ * while the transitions of different apps run in parallel. The quartz threads only queue the transition of
+ * their job under its app and return, the transitions are applied in the execution lane of the START, END
+ * or retry transitions. The next transition of an app is handed to the lane of that transition.
+ *
+ * A transition queued while another transition of its app is applied waits in the queue of the app, and
+ * is applied once the transitions of the app with an earlier transition time are done. A transition older
+ * than one already applied to its schedule is superseded, for example the retry of a START after the END
+ * of the same schedule, and is cancelled. The last transition applied to each schedule of an app is
+ * remembered for the retention time.
+ *
+ * The transitions still queued on shutdown are handed back to quartz to fire again when the scheduler runs
+ * again. The transitions lost in a crash are made up by the reconciliation of the active schedules.
+ */
+@Component
+@DependsOn("quartzScheduler")
+public class AppTransitionSequencer implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	private static final int PRUNE_INTERVAL = 1024;
+
+	@Value("${scalingenginejob.ordering.retention.millisecond:3600000}")
+	private long retentionMilliSecond;
+
+	@Autowired
+	private JobExecutionLanes jobExecutionLanes;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private Map<AppId, AppTransitions> appTransitions = new ConcurrentHashMap<>();
+
+	private AtomicInteger pendingCount = new AtomicInteger();
+
+	private AtomicLong submittedCount = new AtomicLong();
+
+	private AtomicLong waitedCount = new AtomicLong();
+
+	private AtomicLong cancelledCount = new AtomicLong();
+
+	private static class Transition {
+		private final JobExecutionLanes.Lane lane;
+		private final Long scheduleId;
+		private final JobKey jobKey;
+		private final long transitionTime;
+		private final long sequence;
+		private final Runnable work;
+		private final Runnable requeue;
+
+		Transition(JobExecutionLanes.Lane lane, Long scheduleId, JobKey jobKey, long transitionTime, long sequence,
+				Runnable work, Runnable requeue) {
+			this.lane = lane;
+			this.scheduleId = scheduleId;
+			this.jobKey = jobKey;
+			this.transitionTime = transitionTime;
+			this.sequence = sequence;
+			this.work = work;
+			this.requeue = requeue;
+		}
+	}
+
+	private static class AppTransitions {
+		private final PriorityQueue<Transition> waiting = new PriorityQueue<>(
+				Comparator.<Transition> comparingLong(transition -> transition.transitionTime)
+						.thenComparingLong(transition -> transition.sequence));
+		private final Map<Long, Long> lastTransitionTimes = new HashMap<>();
+		private boolean applying;
+		private boolean pruned;
+		private long lastActivityTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Queues the transition without waiting for it, it is applied in its lane once the transitions of the
+	 * app queued before with an earlier transition time are applied.
+	 *
+	 * @param lane - the execution lane the transition is applied in
+	 * @param appId
+	 * @param scheduleId
+	 * @param jobKey
+	 * @param transitionTime
+	 * @param work - applies the transition
+	 * @param requeue - hands the transition back to quartz when it is still queued on shutdown
+	 */
+	public void execute(JobExecutionLanes.Lane lane, String appId, Long scheduleId, JobKey jobKey,
+			long transitionTime, Runnable work, Runnable requeue) {
+		long sequence = submittedCount.incrementAndGet();
+		if (sequence % PRUNE_INTERVAL == 0) {
+			prune();
+		}
+
+		Transition transition = new Transition(lane, scheduleId, jobKey, transitionTime, sequence, work,
+				requeue);
+		AppId appKey = AppId.of(appId);
+		AppTransitions transitions;
+		boolean dispatch;
+		while (true) {
+			transitions = appTransitions.computeIfAbsent(appKey, key -> new AppTransitions());
+			synchronized (transitions) {
+				// Pruned in the meantime, the app starts over
+				if (transitions.pruned) {
+					continue;
+				}
+				transitions.lastActivityTime = System.currentTimeMillis();
+				if (isSuperseded(appId, transitions, transition)) {
+					return;
+				}
+				transitions.waiting.add(transition);
+				pendingCount.incrementAndGet();
+				dispatch = !transitions.applying;
+				if (dispatch) {
+					transitions.applying = true;
+				} else {
+					waitedCount.incrementAndGet();
+				}
+				break;
+			}
+		}
+		if (dispatch) {
+			dispatch(appId, transitions, lane);
+		}
+	}
+
+	private void dispatch(String appId, AppTransitions transitions, JobExecutionLanes.Lane lane) {
+		// Dropped when shutting down, the transitions left in the queue are requeued
+		jobExecutionLanes.execute(lane, () -> applyNext(appId, transitions));
+	}
+
+	/**
+	 * Applies the next transition of the app, and hands the app over to the lane of its next transition
+	 * while transitions are queued, so that the apps take turns on the threads of the lanes.
+	 */
+	private void applyNext(String appId, AppTransitions transitions) {
+		Transition transition;
+		synchronized (transitions) {
+			transition = transitions.waiting.poll();
+			while (transition != null && isSuperseded(appId, transitions, transition)) {
+				pendingCount.decrementAndGet();
+				transition = transitions.waiting.poll();
+			}
+			if (transition == null) {
+				transitions.applying = false;
+				return;
+			}
+		}
+
+		JobExecutionLanes.Lane nextLane = null;
+		try {
+			transition.work.run();
+		} catch (RuntimeException e) {
+			// An exception would leave the app applying for good
+			logger.error(e.getMessage(), e);
+		} finally {
+			synchronized (transitions) {
+				transitions.lastTransitionTimes.merge(transition.scheduleId, transition.transitionTime, Math::max);
+				transitions.lastActivityTime = System.currentTimeMillis();
+				Transition next = transitions.waiting.peek();
+				transitions.applying = next != null;
+				if (next != null) {
+					nextLane = next.lane;
+				}
+			}
+			pendingCount.decrementAndGet();
+		}
+		if (nextLane != null) {
+			dispatch(appId, transitions, nextLane);
+		}
+	}
+
+	private boolean isSuperseded(String appId, AppTransitions transitions, Transition transition) {
+		Long lastTransitionTime = transitions.lastTransitionTimes.get(transition.scheduleId);
+		if (lastTransitionTime == null || transition.transitionTime >= lastTransitionTime) {
+			return false;
+		}
+		cancelledCount.incrementAndGet();
+		String message = messageBundleResourceHelper.lookupMessage("scheduler.job.transition.superseded",
+				transition.jobKey, appId, new Date(transition.transitionTime), new Date(lastTransitionTime));
+		logger.warn(message);
+		return true;
+	}
+
+	/**
+	 * Forgets the apps without transitions for the retention time.
+	 */
+	void prune() {
+		long expiryTime = System.currentTimeMillis() - retentionMilliSecond;
+		Iterator<AppTransitions> iterator = appTransitions.values().iterator();
+		while (iterator.hasNext()) {
+			AppTransitions transitions = iterator.next();
+			synchronized (transitions) {
+				if (!transitions.applying && transitions.lastActivityTime < expiryTime) {
+					transitions.pruned = true;
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lets the transitions under way in the lanes finish, and hands the queued ones back to quartz.
+	 */
+	@PreDestroy
+	void shutdown() throws InterruptedException {
+		jobExecutionLanes.shutdown();
+
+		int requeuedCount = 0;
+		for (AppTransitions transitions : appTransitions.values()) {
+			synchronized (transitions) {
+				Transition transition;
+				while ((transition = transitions.waiting.poll()) != null) {
+					pendingCount.decrementAndGet();
+					transition.requeue.run();
+					requeuedCount++;
+				}
+			}
+		}
+		if (requeuedCount > 0) {
+			logger.info(messageBundleResourceHelper.lookupMessage("scheduler.job.transition.requeued",
+					requeuedCount));
+		}
+	}
+
+	int getAppCount() {
+		return appTransitions.size();
+	}
+
+	/**
+	 * @return the number of transitions queued or being applied
+	 */
+	public int getPendingTransitionCount() {
+		return pendingCount.get();
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Integer>("scheduler.transition.apps", appTransitions.size()));
+		metrics.add(new Metric<Integer>("scheduler.transition.pending", pendingCount.get()));
+		metrics.add(new Metric<Long>("scheduler.transition.submitted", submittedCount.get()));
+		metrics.add(new Metric<Long>("scheduler.transition.waited", waitedCount.get()));
+		metrics.add(new Metric<Long>("scheduler.transition.cancelled", cancelledCount.get()));
+		return metrics;
+	}
+}
@@ -0,0 +1,104 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the latencies observed from the firing of the scaling jobs to the acknowledgement of the scaling
+ * engine, and works out by how much the START triggers are advanced so that the instance bounds of a
+ * schedule are in effect at the scheduled time. The advance is a percentile of the latest latencies,
+ * rounded up to whole seconds as the cron triggers fire on whole seconds, and capped by the configured
+ * maximum. A maximum of 0 turns the advance off, which is the default.
+ *
+ * The START triggers are only moved to a new advance once it differs from theirs by the update threshold,
+ * so that the triggers are not rewritten on every firing.
+ */
+@Component
+public class FireTimeCompensator {
+
+	private static final int LATENCY_WINDOW_SIZE = 200;
+
+	private static final int MIN_LATENCY_COUNT = 20;
+
+	@Value("${scalingenginejob.start.advance.max.millisecond:0}")
+	private long maxAdvanceMilliSecond;
+
+	@Value("${scalingenginejob.start.advance.percentile:95}")
+	private int advancePercentile;
+
+	@Value("${scalingenginejob.start.advance.update.threshold.millisecond:2000}")
+	private long updateThresholdMilliSecond;
+
+	private final long[] latencies = new long[LATENCY_WINDOW_SIZE];
+
+	private int latencyCount = 0;
+
+	private int nextLatencyIndex = 0;
+
+	/**
+	 * Records the latency from the scheduled fire time of a scaling job to the acknowledgement of the
+	 * scaling engine, the oldest latency is dropped once the window is full.
+	 *
+	 * @param latencyMilliSecond
+	 */
+	public synchronized void recordLatency(long latencyMilliSecond) {
+		if (latencyMilliSecond < 0) {
+			return;
+		}
+		latencies[nextLatencyIndex] = latencyMilliSecond;
+		nextLatencyIndex = (nextLatencyIndex + 1) % LATENCY_WINDOW_SIZE;
+		latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW_SIZE);
+	}
+
+	/**
+	 * Gets the advance of the START triggers.
+	 *
+	 * @return the advance in milliseconds, a multiple of a second, 0 until enough latencies are recorded
+	 */
+	public long getStartAdvanceMilliSecond() {
+		if (maxAdvanceMilliSecond < 1000) {
+			return 0;
+		}
+
+		long[] sortedLatencies;
+		synchronized (this) {
+			if (latencyCount < MIN_LATENCY_COUNT) {
+				return 0;
+			}
+			sortedLatencies = Arrays.copyOf(latencies, latencyCount);
+		}
+		Arrays.sort(sortedLatencies);
+
+		int index = (int) Math.ceil(advancePercentile / 100.0 * sortedLatencies.length) - 1;
+		long latency = sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+
+		long advance = (latency + 999) / 1000 * 1000;
+		return Math.min(advance, maxAdvanceMilliSecond / 1000 * 1000);
+	}
+
+	/**
+	 * Checks whether a START trigger is to be moved from its advance to the advance worked out now. A trigger
+	 * keeps its advance until enough latencies are recorded, and is moved back once the advance is turned off.
+	 *
+	 * @param currentAdvanceMilliSecond - the advance of the trigger
+	 * @return
+	 */
+	public boolean isAdvanceUpdateDue(long currentAdvanceMilliSecond) {
+		if (maxAdvanceMilliSecond < 1000) {
+			return currentAdvanceMilliSecond != 0;
+		}
+		synchronized (this) {
+			if (latencyCount < MIN_LATENCY_COUNT) {
+				return false;
+			}
+		}
+		return Math.abs(getStartAdvanceMilliSecond() - currentAdvanceMilliSecond) >= updateThresholdMilliSecond;
+	}
+
+	synchronized void clear() {
+		latencyCount = 0;
+		nextLatencyIndex = 0;
+	}
+}
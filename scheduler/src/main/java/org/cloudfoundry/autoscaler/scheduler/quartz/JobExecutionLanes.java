@@ -0,0 +1,228 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.util.ReplicaRoutingDataSource;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the transitions of the scaling jobs in separate execution lanes, one for the START transitions,
+ * one for the END transitions and one for the retries, each with its own threads and bounded queue. A
+ * burst of END transitions or of retries cannot hold up the START transitions due at the same time.
+ *
+ * When the queue of a lane is full, the work is parked in the lane and handed to it again as soon as one
+ * of its threads is free, it never runs on the thread handing it over. The sequencer of the transitions
+ * hands over at most one work per app, the transitions behind it wait in the queue of their app. The work
+ * still parked on shutdown is dropped, its transitions are handed back to quartz by the sequencer. The
+ * state of the lanes is published as metrics of the actuator.
+ */
+@Component
+public class JobExecutionLanes implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	private static final long SHUTDOWN_TIMEOUT_MILLISECOND = TimeUnit.SECONDS.toMillis(30);
+
+	public enum Lane {
+		START, END, RETRY;
+
+		String getName() {
+			return name().toLowerCase();
+		}
+	}
+
+	@Value("${scalingenginejob.lane.start.threadcount:10}")
+	private int startThreadCount;
+
+	@Value("${scalingenginejob.lane.start.queue.capacity:1000}")
+	private int startQueueCapacity;
+
+	@Value("${scalingenginejob.lane.end.threadcount:5}")
+	private int endThreadCount;
+
+	@Value("${scalingenginejob.lane.end.queue.capacity:1000}")
+	private int endQueueCapacity;
+
+	@Value("${scalingenginejob.lane.retry.threadcount:2}")
+	private int retryThreadCount;
+
+	@Value("${scalingenginejob.lane.retry.queue.capacity:1000}")
+	private int retryQueueCapacity;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private Map<Lane, ExecutionLane> lanes = new EnumMap<>(Lane.class);
+
+	@PostConstruct
+	void init() {
+		lanes.put(Lane.START, new ExecutionLane(Lane.START, startThreadCount, startQueueCapacity));
+		lanes.put(Lane.END, new ExecutionLane(Lane.END, endThreadCount, endQueueCapacity));
+		lanes.put(Lane.RETRY, new ExecutionLane(Lane.RETRY, retryThreadCount, retryQueueCapacity));
+	}
+
+	/**
+	 * Hands the work over to the lane, it is parked until the lane has room when the lane is saturated.
+	 *
+	 * @param lane
+	 * @param work
+	 * @return false if the lanes are shut down and the work is dropped
+	 */
+	public boolean execute(Lane lane, Runnable work) {
+		return lanes.get(lane).execute(work);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		for (ExecutionLane executionLane : lanes.values()) {
+			executionLane.addMetrics(metrics);
+		}
+		return metrics;
+	}
+
+	/**
+	 * Waits until all the work handed over to the lanes is done.
+	 *
+	 * @param timeoutMillis
+	 * @return true if the lanes are idle
+	 * @throws InterruptedException
+	 */
+	boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		for (ExecutionLane executionLane : lanes.values()) {
+			while (!executionLane.isIdle()) {
+				if (System.currentTimeMillis() >= deadline) {
+					return false;
+				}
+				Thread.sleep(10);
+			}
+		}
+		return true;
+	}
+
+	long getSaturatedCount(Lane lane) {
+		return lanes.get(lane).saturatedCount.get();
+	}
+
+	/**
+	 * Lets the work under way and queued finish, and drops the parked work.
+	 */
+	@PreDestroy
+	void shutdown() throws InterruptedException {
+		for (ExecutionLane executionLane : lanes.values()) {
+			executionLane.executor.shutdown();
+		}
+		long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLISECOND;
+		for (ExecutionLane executionLane : lanes.values()) {
+			executionLane.executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()),
+					TimeUnit.MILLISECONDS);
+			executionLane.parkedWork.clear();
+		}
+	}
+
+	private class ExecutionLane {
+		private Lane lane;
+		private ThreadPoolExecutor executor;
+		private Deque<Runnable> parkedWork = new ConcurrentLinkedDeque<>();
+		private AtomicLong submittedCount = new AtomicLong();
+		private AtomicLong completedCount = new AtomicLong();
+		private AtomicLong saturatedCount = new AtomicLong();
+
+		ExecutionLane(Lane lane, int threadCount, int queueCapacity) {
+			this.lane = lane;
+			AtomicInteger threadNumber = new AtomicInteger();
+			ThreadFactory threadFactory = runnable -> {
+				Thread thread = new Thread(() -> ReplicaRoutingDataSource.useQuartzPool(runnable),
+						"scalingenginejob-" + lane.getName() + "-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			};
+			executor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+		}
+
+		boolean execute(Runnable work) {
+			submittedCount.incrementAndGet();
+			// The parked work goes first
+			if (parkedWork.isEmpty() && submit(work)) {
+				return true;
+			}
+			if (executor.isShutdown()) {
+				return false;
+			}
+			saturatedCount.incrementAndGet();
+			logger.warn(messageBundleResourceHelper.lookupMessage("scheduler.job.lane.saturated", lane,
+					executor.getQueue().size(), parkedWork.size() + 1));
+			parkedWork.offer(work);
+			// The lane may have drained in the meantime
+			submitParkedWork();
+			return true;
+		}
+
+		private boolean submit(Runnable work) {
+			try {
+				executor.execute(() -> {
+					try {
+						work.run();
+					} catch (RuntimeException re) {
+						logger.error(re.getMessage(), re);
+					} finally {
+						completedCount.incrementAndGet();
+						submitParkedWork();
+					}
+				});
+				return true;
+			} catch (RejectedExecutionException ree) {
+				return false;
+			}
+		}
+
+		private void submitParkedWork() {
+			Runnable work;
+			while ((work = parkedWork.poll()) != null) {
+				if (!submit(work)) {
+					parkedWork.offerFirst(work);
+					return;
+				}
+			}
+		}
+
+		boolean isIdle() {
+			return parkedWork.isEmpty() && completedCount.get() == submittedCount.get();
+		}
+
+		void addMetrics(Collection<Metric<?>> metrics) {
+			String prefix = "scheduler.lane." + lane.getName() + ".";
+			metrics.add(new Metric<Integer>(prefix + "threads", executor.getMaximumPoolSize()));
+			metrics.add(new Metric<Integer>(prefix + "active", executor.getActiveCount()));
+			metrics.add(new Metric<Integer>(prefix + "queue.size", executor.getQueue().size()));
+			metrics.add(new Metric<Integer>(prefix + "queue.remaining", executor.getQueue().remainingCapacity()));
+			metrics.add(new Metric<Integer>(prefix + "parked", parkedWork.size()));
+			metrics.add(new Metric<Long>(prefix + "submitted", submittedCount.get()));
+			metrics.add(new Metric<Long>(prefix + "completed", completedCount.get()));
+			metrics.add(new Metric<Long>(prefix + "saturated", saturatedCount.get()));
+		}
+	}
+}
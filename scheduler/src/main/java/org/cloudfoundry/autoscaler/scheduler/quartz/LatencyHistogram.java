@@ -0,0 +1,77 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Histogram of latencies in milliseconds with fixed buckets, from 10 ms up to a minute. The percentiles
+ * are estimated as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+	static final long[] BUCKET_BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000 };
+
+	private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long latencyMilliSecond) {
+		long latency = Math.max(0, latencyMilliSecond);
+		int bucket = 0;
+		while (bucket < BUCKET_BOUNDS.length && latency > BUCKET_BOUNDS[bucket]) {
+			bucket++;
+		}
+		bucketCounts.incrementAndGet(bucket);
+		count.incrementAndGet();
+		sum.addAndGet(latency);
+		max.accumulateAndGet(latency, Math::max);
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Estimates the percentile of the recorded latencies.
+	 *
+	 * @param percentile
+	 * @return the upper bound of the bucket of the percentile, the max when it falls in the last bucket
+	 */
+	public long getPercentile(double percentile) {
+		long total = count.get();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile / 100 * total);
+		long cumulativeCount = 0;
+		for (int bucket = 0; bucket < BUCKET_BOUNDS.length; bucket++) {
+			cumulativeCount += bucketCounts.get(bucket);
+			if (cumulativeCount >= rank) {
+				return Math.min(BUCKET_BOUNDS[bucket], max.get());
+			}
+		}
+		return max.get();
+	}
+
+	public void addMetrics(String prefix, Collection<Metric<?>> metrics) {
+		long total = count.get();
+		metrics.add(new Metric<Long>(prefix + ".count", total));
+		metrics.add(new Metric<Long>(prefix + ".mean", total == 0 ? 0 : sum.get() / total));
+		metrics.add(new Metric<Long>(prefix + ".max", max.get()));
+		metrics.add(new Metric<Long>(prefix + ".p50", getPercentile(50)));
+		metrics.add(new Metric<Long>(prefix + ".p95", getPercentile(95)));
+		metrics.add(new Metric<Long>(prefix + ".p99", getPercentile(99)));
+		long cumulativeCount = 0;
+		for (int bucket = 0; bucket < BUCKET_BOUNDS.length; bucket++) {
+			cumulativeCount += bucketCounts.get(bucket);
+			metrics.add(new Metric<Long>(prefix + ".le." + BUCKET_BOUNDS[bucket], cumulativeCount));
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.scalingengine.ScalingEngineNotifier;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * One time job holding a scaling engine notification retry that was still pending when the scheduler
+ * was shut down. When it fires the retry is handed back to the in-memory retries of the notifier.
+ */
+@Component
+public class ScalingEngineNotificationRetryJob extends QuartzJobBean {
+
+	public static final String JOB_GROUP = "Notification_Retry";
+
+	static final String SCALING_ACTION = "scalingAction";
+	static final String RETRY_ATTEMPT = "retryAttempt";
+
+	@Autowired
+	private ScalingEngineNotifier scalingEngineNotifier;
+
+	@Override
+	protected void executeInternal(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+		JobDataMap jobDataMap = jobExecutionContext.getJobDetail().getJobDataMap();
+
+		ActiveScheduleEntity activeScheduleEntity = ScheduleJobHelper.setupActiveSchedule(jobDataMap);
+		JobActionEnum scalingAction = JobActionEnum.valueOf(jobDataMap.getString(SCALING_ACTION));
+
+		scalingEngineNotifier.resumeRetry(activeScheduleEntity, scalingAction, jobDataMap.getInt(RETRY_ATTEMPT));
+	}
+
+	public static JobDetail buildJob(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction,
+			int attempt) {
+		String name = activeScheduleEntity.getId() + scalingAction.getJobIdSuffix() + "_" + UUID.randomUUID();
+		JobDetail jobDetail = JobBuilder.newJob(ScalingEngineNotificationRetryJob.class)
+				.withIdentity(new JobKey(name, JOB_GROUP)).build();
+
+		JobDataMap jobDataMap = jobDetail.getJobDataMap();
+		ScheduleJobHelper.putAppId(jobDataMap, activeScheduleEntity.getAppId());
+		jobDataMap.put(ScheduleJobHelper.SCHEDULE_ID, activeScheduleEntity.getId());
+		jobDataMap.put(ScheduleJobHelper.INSTANCE_MIN_COUNT, activeScheduleEntity.getInstanceMinCount());
+		jobDataMap.put(ScheduleJobHelper.INSTANCE_MAX_COUNT, activeScheduleEntity.getInstanceMaxCount());
+		jobDataMap.put(ScheduleJobHelper.INITIAL_MIN_INSTANCE_COUNT, activeScheduleEntity.getInitialMinInstanceCount());
+		jobDataMap.put(SCALING_ACTION, scalingAction.name());
+		jobDataMap.put(RETRY_ATTEMPT, attempt);
+
+		return jobDetail;
+	}
+
+	public static Trigger buildTrigger(JobDetail jobDetail, Date retryTime) {
+		TriggerKey triggerKey = new TriggerKey(jobDetail.getKey().getName(), JOB_GROUP);
+		return ScheduleJobHelper.buildTrigger(triggerKey, null, retryTime);
+	}
+}
@@ -0,0 +1,104 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the timings of the scaling jobs per scaling action, published as histograms through the metrics
+ * of the actuator:
+ * <ul>
+ * <li>fire lag, from the scheduled fire time of the trigger to its actual firing, recorded as a global
+ * trigger listener of quartz</li>
+ * <li>queue wait, from the firing to the turn of the transition, while the transitions of the app arrived
+ * before it are applied</li>
+ * <li>database write, the time taken to create, replace or delete the active schedule</li>
+ * <li>scaling engine round trip, the time taken by a notification of the scaling engine</li>
+ * <li>delivery, from the scheduled transition to the acknowledgement of the scaling engine, 0 when the
+ * acknowledgement came ahead of the transition</li>
+ * </ul>
+ */
+@Component
+public class ScheduleTimingMetrics extends TriggerListenerSupport implements PublicMetrics {
+
+	public enum Timing {
+		FIRE_LAG("fire.lag"), QUEUE_WAIT("queue.wait"), DATABASE_WRITE("database.write"), SCALING_ENGINE_ROUND_TRIP(
+				"scalingengine.roundtrip"), DELIVERY("delivery");
+
+		private String metricName;
+
+		Timing(String metricName) {
+			this.metricName = metricName;
+		}
+
+		String getMetricName() {
+			return metricName;
+		}
+	}
+
+	private Map<JobActionEnum, Map<Timing, LatencyHistogram>> histograms = new EnumMap<>(JobActionEnum.class);
+
+	public ScheduleTimingMetrics() {
+		for (JobActionEnum jobAction : JobActionEnum.values()) {
+			Map<Timing, LatencyHistogram> actionHistograms = new EnumMap<>(Timing.class);
+			for (Timing timing : Timing.values()) {
+				actionHistograms.put(timing, new LatencyHistogram());
+			}
+			histograms.put(jobAction, actionHistograms);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "scheduleTimingMetrics";
+	}
+
+	@Override
+	public void triggerFired(Trigger trigger, JobExecutionContext jobExecutionContext) {
+		JobActionEnum jobAction = getJobAction(jobExecutionContext);
+		if (jobAction != null && jobExecutionContext.getScheduledFireTime() != null) {
+			record(jobAction, Timing.FIRE_LAG, jobExecutionContext.getFireTime().getTime()
+					- jobExecutionContext.getScheduledFireTime().getTime());
+		}
+	}
+
+	public void record(JobActionEnum jobAction, Timing timing, long milliSecond) {
+		histograms.get(jobAction).get(timing).record(milliSecond);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		for (Map.Entry<JobActionEnum, Map<Timing, LatencyHistogram>> actionHistograms : histograms.entrySet()) {
+			String actionName = actionHistograms.getKey().name().toLowerCase();
+			for (Map.Entry<Timing, LatencyHistogram> histogram : actionHistograms.getValue().entrySet()) {
+				histogram.getValue().addMetrics(
+						"scheduler.job." + actionName + "." + histogram.getKey().getMetricName(), metrics);
+			}
+		}
+		return metrics;
+	}
+
+	LatencyHistogram getHistogram(JobActionEnum jobAction, Timing timing) {
+		return histograms.get(jobAction).get(timing);
+	}
+
+	private JobActionEnum getJobAction(JobExecutionContext jobExecutionContext) {
+		Class<?> jobClass = jobExecutionContext.getJobDetail().getJobClass();
+		if (AppScalingScheduleStartJob.class.isAssignableFrom(jobClass)) {
+			return JobActionEnum.START;
+		} else if (AppScalingScheduleEndJob.class.isAssignableFrom(jobClass)) {
+			return JobActionEnum.END;
+		}
+		return null;
+	}
+}
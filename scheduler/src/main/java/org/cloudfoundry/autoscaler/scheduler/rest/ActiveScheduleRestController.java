@@ -0,0 +1,45 @@
+package org.cloudfoundry.autoscaler.scheduler.rest;
+
+import java.util.Date;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.rest.model.ActiveSchedules;
+import org.cloudfoundry.autoscaler.scheduler.service.ScheduleManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+/**
+ * Controller class for the queries of the schedules of all the applications active at a time.
+ *
+ */
+@RestController
+@RequestMapping(value = "/v2/active/schedules")
+public class ActiveScheduleRestController {
+
+	@Autowired
+	ScheduleManager scheduleManager;
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@RequestMapping(method = RequestMethod.GET)
+	@ApiOperation(value = "Get the schedules (specific dates and recurring) of all the applications active at the time.", produces = "application/json")
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Schedules active at the time.", response = ActiveSchedules.class) })
+	public ResponseEntity<ActiveSchedules> getSchedulesActiveAt(
+			@ApiParam(name = "time", value = "The time in milliseconds since the epoch, now when not specified") @RequestParam(value = "time", required = false) Long time) {
+		Date activeAt = time == null ? new Date() : new Date(time);
+		logger.info("Get schedules active at " + activeAt.getTime());
+
+		return new ResponseEntity<>(scheduleManager.getSchedulesActiveAt(activeAt), null, HttpStatus.OK);
+	}
+}
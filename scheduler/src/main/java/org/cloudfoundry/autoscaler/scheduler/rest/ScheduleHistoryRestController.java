@@ -0,0 +1,60 @@
+package org.cloudfoundry.autoscaler.scheduler.rest;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleHistoryEntity;
+import org.cloudfoundry.autoscaler.scheduler.service.ScheduleManager;
+import org.cloudfoundry.autoscaler.scheduler.util.error.InvalidDataException;
+import org.cloudfoundry.autoscaler.scheduler.util.error.ValidationErrorResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+/**
+ * Controller class for the queries of the schedule history.
+ *
+ */
+@RestController
+@RequestMapping(value = "/v2/history/schedules")
+public class ScheduleHistoryRestController {
+
+	@Autowired
+	private ValidationErrorResult validationErrorResult;
+	@Autowired
+	ScheduleManager scheduleManager;
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@RequestMapping(method = RequestMethod.GET)
+	@ApiOperation(value = "Get the activations and deactivations of the active schedules with a transition time in the time range.", produces = "application/json")
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Schedule history found for the time range.", response = ScheduleHistoryEntity.class, responseContainer = "List"),
+			@ApiResponse(code = 400, message = "Validation error encountered.") })
+	public ResponseEntity<List<ScheduleHistoryEntity>> getScheduleHistory(
+			@ApiParam(name = "app_id", value = "The application id, all the applications when not specified") @RequestParam(value = "app_id", required = false) String appId,
+			@ApiParam(name = "start_time", value = "The start of the time range in milliseconds since the epoch, inclusive", required = true) @RequestParam(value = "start_time", required = false) Long startTime,
+			@ApiParam(name = "end_time", value = "The end of the time range in milliseconds since the epoch, exclusive", required = true) @RequestParam(value = "end_time", required = false) Long endTime,
+			@ApiParam(name = "max_count", value = "The maximum number of entries") @RequestParam(value = "max_count", required = false) Integer maxCount) {
+		logger.info("Validate schedule history query for application: " + appId);
+		scheduleManager.validateScheduleHistoryQuery(startTime, endTime, maxCount);
+		if (validationErrorResult.hasErrors()) {
+			throw new InvalidDataException();
+		}
+
+		logger.info("Get schedule history for application: " + appId + " from " + startTime + " to " + endTime);
+		List<ScheduleHistoryEntity> scheduleHistory = scheduleManager.getScheduleHistory(appId, new Date(startTime),
+				new Date(endTime), maxCount);
+		return new ResponseEntity<>(scheduleHistory, null, HttpStatus.OK);
+	}
+}
@@ -0,0 +1,62 @@
+package org.cloudfoundry.autoscaler.scheduler.rest.model;
+
+import java.util.List;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * The schedules of all the applications active at a time, with the application id, the time zone and the
+ * instance counts of each.
+ *
+ */
+@ApiModel
+public class ActiveSchedules {
+	@ApiModelProperty(required = true, position = 1)
+	@JsonProperty(value = "time")
+	private Long time;
+
+	@ApiModelProperty(position = 3)
+	@JsonProperty(value = "specific_date")
+	private List<SpecificDateScheduleEntity> specificDate;
+
+	@ApiModelProperty(position = 2)
+	@JsonProperty(value = "recurring_schedule")
+	private List<RecurringScheduleEntity> recurringSchedule;
+
+	public Long getTime() {
+		return time;
+	}
+
+	public void setTime(Long time) {
+		this.time = time;
+	}
+
+	public List<SpecificDateScheduleEntity> getSpecificDate() {
+		return specificDate;
+	}
+
+	public void setSpecificDate(List<SpecificDateScheduleEntity> specificDate) {
+		this.specificDate = specificDate;
+	}
+
+	public List<RecurringScheduleEntity> getRecurringSchedule() {
+		return recurringSchedule;
+	}
+
+	public void setRecurringSchedule(List<RecurringScheduleEntity> recurringSchedule) {
+		this.recurringSchedule = recurringSchedule;
+	}
+
+	@Override
+	public String toString() {
+		return "ActiveSchedules [time=" + time + ", specificDate=" + specificDate + ", recurringSchedule="
+				+ recurringSchedule + "]";
+	}
+
+}
@@ -0,0 +1,65 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One notification of a bulk request to the scaling engine, to start (with the instance counts of the
+ * active schedule) or to remove an active schedule.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ActiveScheduleNotification {
+	public static final String ACTION_START = "start";
+	public static final String ACTION_END = "end";
+
+	@JsonProperty(value = "app_id")
+	private String appId;
+
+	@JsonProperty(value = "schedule_id")
+	private Long scheduleId;
+
+	private String action;
+
+	@JsonProperty(value = "active_schedule")
+	private ActiveScheduleEntity activeSchedule;
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public void setAppId(String appId) {
+		this.appId = appId;
+	}
+
+	public Long getScheduleId() {
+		return scheduleId;
+	}
+
+	public void setScheduleId(Long scheduleId) {
+		this.scheduleId = scheduleId;
+	}
+
+	public String getAction() {
+		return action;
+	}
+
+	public void setAction(String action) {
+		this.action = action;
+	}
+
+	public ActiveScheduleEntity getActiveSchedule() {
+		return activeSchedule;
+	}
+
+	public void setActiveSchedule(ActiveScheduleEntity activeSchedule) {
+		this.activeSchedule = activeSchedule;
+	}
+
+	@Override
+	public String toString() {
+		return "ActiveScheduleNotification [appId=" + appId + ", scheduleId=" + scheduleId + ", action=" + action
+				+ "]";
+	}
+}
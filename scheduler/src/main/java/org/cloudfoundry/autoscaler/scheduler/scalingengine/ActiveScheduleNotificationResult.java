@@ -0,0 +1,70 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result of one notification of a bulk request, the HTTP status the scaling engine would have answered
+ * to the notification on its own.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ActiveScheduleNotificationResult {
+	@JsonProperty(value = "app_id")
+	private String appId;
+
+	@JsonProperty(value = "schedule_id")
+	private Long scheduleId;
+
+	private int status;
+
+	private String message;
+
+	@JsonProperty(value = "retry_after")
+	private Long retryAfterSecond;
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public void setAppId(String appId) {
+		this.appId = appId;
+	}
+
+	public Long getScheduleId() {
+		return scheduleId;
+	}
+
+	public void setScheduleId(Long scheduleId) {
+		this.scheduleId = scheduleId;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public Long getRetryAfterSecond() {
+		return retryAfterSecond;
+	}
+
+	public void setRetryAfterSecond(Long retryAfterSecond) {
+		this.retryAfterSecond = retryAfterSecond;
+	}
+
+	@Override
+	public String toString() {
+		return "ActiveScheduleNotificationResult [appId=" + appId + ", scheduleId=" + scheduleId + ", status="
+				+ status + ", message=" + message + "]";
+	}
+}
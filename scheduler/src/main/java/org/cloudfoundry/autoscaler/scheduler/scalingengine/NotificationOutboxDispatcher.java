@@ -0,0 +1,302 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.dao.NotificationOutboxDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+import org.cloudfoundry.autoscaler.scheduler.quartz.FireTimeCompensator;
+import org.cloudfoundry.autoscaler.scheduler.quartz.ScheduleTimingMetrics;
+import org.cloudfoundry.autoscaler.scheduler.service.ScheduleHistoryRecorder;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.ReplicaRoutingDataSource;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends the notifications of the outbox to the scaling engine. The scaling jobs write their notification
+ * to the outbox in the same transaction as the active schedule, so the notification is not lost when the
+ * scheduler stops in between, and the quartz threads do no HTTP work at all.
+ *
+ * The outbox is polled at the poll interval, and right away once a job wrote to it. The due notifications
+ * are sent in the order they were written, the notifications of different apps in parallel on the
+ * dispatch threads. With batching enabled they are gathered into the bulk requests of the batcher.
+ *
+ * A notification stays in the outbox until the scaling engine acknowledged it or it failed for good. A
+ * failed notification is retried as the notifier would retry it, and holds back the later notifications
+ * of its app until then. Nothing is sent while the circuit breaker is open.
+ *
+ * The outbox is on by default, with it off the notifier sends the notifications of the jobs.
+ */
+@Component
+public class NotificationOutboxDispatcher implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Value("${autoscaler.scalingengine.notification.outbox.enabled:true}")
+	private boolean outboxEnabled;
+
+	@Value("${autoscaler.scalingengine.notification.outbox.poll.interval.millisecond:1000}")
+	private long pollIntervalMilliSecond;
+
+	@Value("${autoscaler.scalingengine.notification.outbox.batch.size:500}")
+	private int batchSize;
+
+	@Value("${autoscaler.scalingengine.notification.outbox.threadcount:10}")
+	private int dispatchThreadCount;
+
+	@Autowired
+	private NotificationOutboxDao notificationOutboxDao;
+
+	@Autowired
+	private ScalingEngineClient scalingEngineClient;
+
+	@Autowired
+	private ScalingEngineNotificationBatcher scalingEngineNotificationBatcher;
+
+	@Autowired
+	private ScalingEngineNotifier scalingEngineNotifier;
+
+	@Autowired
+	private ScalingEngineCircuitBreaker scalingEngineCircuitBreaker;
+
+	@Autowired
+	private ScheduleTimingMetrics scheduleTimingMetrics;
+
+	@Autowired
+	private FireTimeCompensator fireTimeCompensator;
+
+	@Autowired
+	private ScheduleHistoryRecorder scheduleHistoryRecorder;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private ScheduledExecutorService pollExecutor;
+
+	private ExecutorService dispatchExecutor;
+
+	private AtomicBoolean pollRequested = new AtomicBoolean();
+
+	private AtomicLong sentCount = new AtomicLong();
+
+	private AtomicLong retriedCount = new AtomicLong();
+
+	private AtomicLong failedCount = new AtomicLong();
+
+	@PostConstruct
+	void init() {
+		if (!outboxEnabled) {
+			return;
+		}
+		pollExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(() -> ReplicaRoutingDataSource.useQuartzPool(runnable),
+					"scalingengine-notification-outbox");
+			thread.setDaemon(true);
+			return thread;
+		});
+		AtomicInteger threadNumber = new AtomicInteger();
+		dispatchExecutor = Executors.newFixedThreadPool(dispatchThreadCount, runnable -> {
+			Thread thread = new Thread(() -> ReplicaRoutingDataSource.useQuartzPool(runnable),
+					"scalingengine-notification-outbox-dispatch-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		pollExecutor.scheduleWithFixedDelay(this::poll, pollIntervalMilliSecond, pollIntervalMilliSecond,
+				TimeUnit.MILLISECONDS);
+	}
+
+	public boolean isOutboxEnabled() {
+		return outboxEnabled;
+	}
+
+	/**
+	 * Polls the outbox right away, without waiting for the poll interval.
+	 */
+	public void wakeUp() {
+		if (pollExecutor == null || !pollRequested.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			pollExecutor.execute(this::poll);
+		} catch (RejectedExecutionException ree) {
+			// Shutting down, the notifications stay in the outbox until the scheduler runs again
+			pollRequested.set(false);
+		}
+	}
+
+	void poll() {
+		pollRequested.set(false);
+		try {
+			while (dispatchDueNotifications()) {
+				// A full batch was sent, there may be more due notifications
+			}
+		} catch (RuntimeException e) {
+			String errorMessage = messageBundleResourceHelper
+					.lookupMessage("scalingengine.notification.outbox.dispatch.failed", e.getMessage());
+			logger.error(errorMessage, e);
+		}
+	}
+
+	/**
+	 * Sends a batch of due notifications, each app on a dispatch thread, and waits for all of them.
+	 *
+	 * @return true if the batch was full and every notification in it left the due ones
+	 */
+	private boolean dispatchDueNotifications() {
+		List<NotificationOutboxEntity> notifications = notificationOutboxDao.findDueNotifications(new Date(),
+				batchSize);
+		Map<String, List<NotificationOutboxEntity>> appNotifications = new LinkedHashMap<>();
+		for (NotificationOutboxEntity notification : notifications) {
+			appNotifications.computeIfAbsent(notification.getAppId(), appId -> new ArrayList<>()).add(notification);
+		}
+
+		AtomicInteger dispatchedCount = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+		for (List<NotificationOutboxEntity> notificationsOfApp : appNotifications.values()) {
+			futures.add(dispatchExecutor.submit(() -> dispatchInOrder(notificationsOfApp, dispatchedCount)));
+		}
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException ee) {
+				String errorMessage = messageBundleResourceHelper.lookupMessage(
+						"scalingengine.notification.outbox.dispatch.failed", ee.getCause().getMessage());
+				logger.error(errorMessage, ee.getCause());
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return notifications.size() >= batchSize && dispatchedCount.get() == notifications.size();
+	}
+
+	private void dispatchInOrder(List<NotificationOutboxEntity> notificationsOfApp, AtomicInteger dispatchedCount) {
+		for (NotificationOutboxEntity notification : notificationsOfApp) {
+			if (!scalingEngineCircuitBreaker.tryAcquirePermission()) {
+				return;
+			}
+			boolean done = dispatch(notification);
+			dispatchedCount.incrementAndGet();
+			if (!done) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Sends the notification and removes it from the outbox, unless it is to be retried.
+	 *
+	 * @param notification
+	 * @return false if the notification waits for its retry in the outbox
+	 */
+	private boolean dispatch(NotificationOutboxEntity notification) {
+		ActiveScheduleEntity activeScheduleEntity = notification.toActiveScheduleEntity();
+		JobActionEnum scalingAction = notification.getScalingAction();
+		long sendTime = System.currentTimeMillis();
+		try {
+			if (scalingEngineNotificationBatcher.isBatchEnabled()) {
+				scalingEngineNotificationBatcher.notifyActiveSchedule(activeScheduleEntity, scalingAction);
+			} else {
+				scalingEngineClient.notifyActiveSchedule(activeScheduleEntity, scalingAction);
+			}
+		} catch (RuntimeException e) {
+			scalingEngineCircuitBreaker.onResult(e);
+			long delay = scalingEngineNotifier.handleFailure(activeScheduleEntity, scalingAction,
+					notification.getAttempt(), e);
+			if (delay >= 0) {
+				notificationOutboxDao.reschedule(notification.getId(), notification.getAttempt() + 1,
+						new Date(System.currentTimeMillis() + delay));
+				retriedCount.incrementAndGet();
+				return false;
+			}
+			notificationOutboxDao.delete(notification.getId());
+			failedCount.incrementAndGet();
+			recordHistory(notification, false, System.currentTimeMillis() - sendTime);
+			return true;
+		}
+
+		scalingEngineCircuitBreaker.onResult(null);
+		notificationOutboxDao.delete(notification.getId());
+		sentCount.incrementAndGet();
+		recordDelivery(notification, sendTime);
+		return true;
+	}
+
+	private void recordDelivery(NotificationOutboxEntity notification, long sendTime) {
+		long acknowledgementTime = System.currentTimeMillis();
+		JobActionEnum scalingAction = notification.getScalingAction();
+		recordHistory(notification, true, acknowledgementTime - sendTime);
+		scheduleTimingMetrics.record(scalingAction, ScheduleTimingMetrics.Timing.SCALING_ENGINE_ROUND_TRIP,
+				acknowledgementTime - sendTime);
+		scheduleTimingMetrics.record(scalingAction, ScheduleTimingMetrics.Timing.DELIVERY,
+				acknowledgementTime - notification.getTransitionTime().getTime());
+		// Only the first attempt of a job fired on time tells the latency to compensate
+		if (notification.getScheduledFireTime() != null && notification.getAttempt() == 1) {
+			fireTimeCompensator
+					.recordLatency(acknowledgementTime - notification.getScheduledFireTime().getTime());
+		}
+	}
+
+	private void recordHistory(NotificationOutboxEntity notification, boolean acknowledged,
+			long roundTripMilliSecond) {
+		scheduleHistoryRecorder.record(notification.toActiveScheduleEntity(), notification.getScalingAction(),
+				notification.getTransitionTime(), notification.getFireTime(), acknowledged, notification.getAttempt(),
+				roundTripMilliSecond);
+	}
+
+	/**
+	 * Lets the dispatches under way finish, the notifications not sent yet stay in the outbox.
+	 */
+	@PreDestroy
+	void shutdown() throws InterruptedException {
+		if (pollExecutor == null) {
+			return;
+		}
+		pollExecutor.shutdown();
+		pollExecutor.awaitTermination(30, TimeUnit.SECONDS);
+		dispatchExecutor.shutdown();
+		dispatchExecutor.awaitTermination(30, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		if (!outboxEnabled) {
+			return metrics;
+		}
+		try {
+			metrics.add(new Metric<Integer>("scalingengine.notification.outbox.size", notificationOutboxDao.count()));
+		} catch (DatabaseValidationException dve) {
+			logger.error(dve.getMessage(), dve);
+		}
+		metrics.add(new Metric<Long>("scalingengine.notification.outbox.sent", sentCount.get()));
+		metrics.add(new Metric<Long>("scalingengine.notification.outbox.retried", retriedCount.get()));
+		metrics.add(new Metric<Long>("scalingengine.notification.outbox.failed", failedCount.get()));
+		return metrics;
+	}
+}
@@ -0,0 +1,133 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads the PEM certificates and keys, laid out as for the other autoscaler components: a certificate
+ * file, a key file either in PKCS#1 (RSA PRIVATE KEY) or PKCS#8 (PRIVATE KEY), and a CA certificate file.
+ */
+class PemFiles {
+
+	private static final Pattern PEM_BLOCK = Pattern
+			.compile("-----BEGIN ([A-Z ]+)-----([A-Za-z0-9+/=\\s]+)-----END \\1-----");
+
+	// AlgorithmIdentifier of rsaEncryption, with NULL parameters
+	private static final byte[] RSA_ALGORITHM_IDENTIFIER = { 0x30, 0x0d, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48,
+			(byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01, 0x05, 0x00 };
+
+	private PemFiles() {
+	}
+
+	static KeyStore loadKeyStore(String certFile, String keyFile, char[] password)
+			throws IOException, GeneralSecurityException {
+		List<Certificate> certificates = readCertificates(certFile);
+		PrivateKey privateKey = readPrivateKey(keyFile);
+
+		KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+		keyStore.load(null, null);
+		keyStore.setKeyEntry("key", privateKey, password, certificates.toArray(new Certificate[0]));
+		return keyStore;
+	}
+
+	static KeyStore loadTrustStore(String caCertFile) throws IOException, GeneralSecurityException {
+		KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+		trustStore.load(null, null);
+		int index = 0;
+		for (Certificate certificate : readCertificates(caCertFile)) {
+			trustStore.setCertificateEntry("ca-" + index++, certificate);
+		}
+		return trustStore;
+	}
+
+	static List<Certificate> readCertificates(String certFile) throws IOException, GeneralSecurityException {
+		CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+		List<Certificate> certificates = new ArrayList<>();
+		for (PemBlock pemBlock : readBlocks(certFile)) {
+			if (pemBlock.type.equals("CERTIFICATE")) {
+				certificates.add(certificateFactory.generateCertificate(new ByteArrayInputStream(pemBlock.content)));
+			}
+		}
+		if (certificates.isEmpty()) {
+			throw new GeneralSecurityException("No certificate found in " + certFile);
+		}
+		return certificates;
+	}
+
+	static PrivateKey readPrivateKey(String keyFile) throws IOException, GeneralSecurityException {
+		for (PemBlock pemBlock : readBlocks(keyFile)) {
+			if (pemBlock.type.equals("PRIVATE KEY")) {
+				return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(pemBlock.content));
+			} else if (pemBlock.type.equals("RSA PRIVATE KEY")) {
+				return KeyFactory.getInstance("RSA")
+						.generatePrivate(new PKCS8EncodedKeySpec(toPkcs8(pemBlock.content)));
+			}
+		}
+		throw new GeneralSecurityException("No RSA private key found in " + keyFile);
+	}
+
+	/**
+	 * Wraps a PKCS#1 RSA private key into a PKCS#8 PrivateKeyInfo, the only encoding the JDK reads.
+	 */
+	private static byte[] toPkcs8(byte[] pkcs1Key) throws IOException {
+		ByteArrayOutputStream privateKeyInfo = new ByteArrayOutputStream();
+		privateKeyInfo.write(new byte[] { 0x02, 0x01, 0x00 });
+		privateKeyInfo.write(RSA_ALGORITHM_IDENTIFIER);
+		privateKeyInfo.write(derElement(0x04, pkcs1Key));
+		return derElement(0x30, privateKeyInfo.toByteArray());
+	}
+
+	private static byte[] derElement(int tag, byte[] content) throws IOException {
+		ByteArrayOutputStream element = new ByteArrayOutputStream();
+		element.write(tag);
+		int length = content.length;
+		if (length < 0x80) {
+			element.write(length);
+		} else {
+			int lengthBytes = length > 0xffffff ? 4 : length > 0xffff ? 3 : length > 0xff ? 2 : 1;
+			element.write(0x80 | lengthBytes);
+			for (int i = lengthBytes - 1; i >= 0; i--) {
+				element.write((length >> (8 * i)) & 0xff);
+			}
+		}
+		element.write(content);
+		return element.toByteArray();
+	}
+
+	private static List<PemBlock> readBlocks(String file) throws IOException {
+		String pem = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.US_ASCII);
+		List<PemBlock> pemBlocks = new ArrayList<>();
+		Matcher matcher = PEM_BLOCK.matcher(pem);
+		while (matcher.find()) {
+			pemBlocks.add(new PemBlock(matcher.group(1),
+					Base64.getMimeDecoder().decode(matcher.group(2).replaceAll("\\s", ""))));
+		}
+		return pemBlocks;
+	}
+
+	private static class PemBlock {
+		private String type;
+		private byte[] content;
+
+		PemBlock(String type, byte[] content) {
+			this.type = type;
+			this.content = content;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Circuit breaker of the notifications to the scaling engine. It opens after a number of consecutive
+ * failures, and no notification is sent while it is open. Once the open duration has passed it turns half
+ * open and lets a few trial notifications through: it closes when they all succeed, and opens again as
+ * soon as one fails.
+ *
+ * Only the failures telling that the scaling engine is unavailable are counted, it could not be reached
+ * or it answered with a server error. Any other answer shows the scaling engine is up.
+ */
+@Component
+public class ScalingEngineCircuitBreaker implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	@Value("${autoscaler.scalingengine.circuitbreaker.enabled:true}")
+	private boolean enabled;
+
+	@Value("${autoscaler.scalingengine.circuitbreaker.failure.threshold:5}")
+	private int failureThreshold;
+
+	@Value("${autoscaler.scalingengine.circuitbreaker.open.duration.millisecond:30000}")
+	private long openDurationMilliSecond;
+
+	@Value("${autoscaler.scalingengine.circuitbreaker.halfopen.trial.count:1}")
+	private int halfOpenTrialCount;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private State state = State.CLOSED;
+
+	private int consecutiveFailures;
+
+	private int trialsInFlight;
+
+	private int trialSuccesses;
+
+	private long openedTime;
+
+	private long openedCount;
+
+	private long rejectedCount;
+
+	/**
+	 * Asks whether a notification may be sent. A notification let through must be followed by a call to
+	 * onSuccess, onFailure or releasePermission.
+	 *
+	 * @return false while the breaker is open, or half open with all its trials handed out
+	 */
+	public synchronized boolean tryAcquirePermission() {
+		if (!enabled) {
+			return true;
+		}
+		if (state == State.OPEN) {
+			if (System.currentTimeMillis() - openedTime < openDurationMilliSecond) {
+				rejectedCount++;
+				return false;
+			}
+			transitionTo(State.HALF_OPEN);
+		}
+		if (state == State.HALF_OPEN) {
+			if (trialsInFlight + trialSuccesses >= halfOpenTrialCount) {
+				rejectedCount++;
+				return false;
+			}
+			trialsInFlight++;
+		}
+		return true;
+	}
+
+	/**
+	 * Gives back a permission that was not used to send a notification.
+	 */
+	public synchronized void releasePermission() {
+		if (state == State.HALF_OPEN && trialsInFlight > 0) {
+			trialsInFlight--;
+		}
+	}
+
+	public synchronized void onSuccess() {
+		if (!enabled) {
+			return;
+		}
+		consecutiveFailures = 0;
+		if (state == State.HALF_OPEN) {
+			releasePermission();
+			if (++trialSuccesses >= halfOpenTrialCount) {
+				transitionTo(State.CLOSED);
+			}
+		}
+	}
+
+	public synchronized void onFailure() {
+		if (!enabled) {
+			return;
+		}
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+			transitionTo(State.OPEN);
+		}
+	}
+
+	/**
+	 * Records the outcome of a notification.
+	 *
+	 * @param throwable - the failure of the notification, null if it succeeded
+	 */
+	public void onResult(Throwable throwable) {
+		if (throwable instanceof ResourceAccessException || throwable instanceof HttpServerErrorException) {
+			onFailure();
+		} else {
+			onSuccess();
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	private void transitionTo(State newState) {
+		String message = messageBundleResourceHelper.lookupMessage("scalingengine.circuitbreaker.state.changed",
+				state, newState, consecutiveFailures);
+		if (newState == State.OPEN) {
+			logger.warn(message);
+			openedTime = System.currentTimeMillis();
+			openedCount++;
+		} else {
+			logger.info(message);
+		}
+		if (newState == State.CLOSED) {
+			consecutiveFailures = 0;
+		}
+		state = newState;
+		trialsInFlight = 0;
+		trialSuccesses = 0;
+	}
+
+	@Override
+	public synchronized Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Integer>("scalingengine.circuitbreaker.state", state.ordinal()));
+		metrics.add(new Metric<Integer>("scalingengine.circuitbreaker.open", state == State.OPEN ? 1 : 0));
+		metrics.add(new Metric<Integer>("scalingengine.circuitbreaker.consecutive.failures", consecutiveFailures));
+		metrics.add(new Metric<Long>("scalingengine.circuitbreaker.opened", openedCount));
+		metrics.add(new Metric<Long>("scalingengine.circuitbreaker.rejected", rejectedCount));
+		return metrics;
+	}
+}
@@ -0,0 +1,180 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Client to notify the scaling engine about the start and the end of the active schedules, one by one or
+ * in bulk. Each request goes to the scaling engine instance picked by the load balancer. The notifications
+ * can also be sent without blocking the calling thread, on the non-blocking HTTP client.
+ */
+@Component
+public class ScalingEngineClient {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Autowired
+	private RestTemplate restTemplate;
+
+	@Autowired
+	private AsyncRestTemplate asyncRestTemplate;
+
+	@Autowired
+	private ScalingEngineLoadBalancer scalingEngineLoadBalancer;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	/**
+	 * Notifies the scaling engine to start (PUT) or to remove (DELETE) the specified active schedule.
+	 * 
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @throws HttpStatusCodeException - when the scaling engine responds with an error status code
+	 * @throws ResourceAccessException - when the scaling engine could not be reached
+	 */
+	public void notifyActiveSchedule(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction) {
+		String appId = activeScheduleEntity.getAppId();
+		Long scheduleId = activeScheduleEntity.getId();
+		HttpEntity<ActiveScheduleEntity> requestEntity = new HttpEntity<>(activeScheduleEntity);
+
+		ScalingEngineLoadBalancer.Endpoint endpoint = scalingEngineLoadBalancer.acquire();
+		RuntimeException failure = null;
+		try {
+			String scalingEnginePathActiveSchedule = getActiveSchedulePath(endpoint.getUrl(), appId, scheduleId);
+
+			if (scalingAction == JobActionEnum.START) {
+				String message = messageBundleResourceHelper.lookupMessage(
+						"scalingengine.notification.activeschedule.start", appId, scheduleId, scalingAction);
+				logger.info(message);
+				restTemplate.put(scalingEnginePathActiveSchedule, requestEntity);
+			} else {
+				String message = messageBundleResourceHelper.lookupMessage(
+						"scalingengine.notification.activeschedule.remove", appId, scheduleId, scalingAction);
+				logger.info(message);
+				restTemplate.delete(scalingEnginePathActiveSchedule, requestEntity);
+			}
+		} catch (RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			scalingEngineLoadBalancer.release(endpoint, failure);
+		}
+	}
+
+	/**
+	 * Notifies the scaling engine to start (PUT) or to remove (DELETE) the specified active schedule without
+	 * waiting for its answer.
+	 * 
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @return completed once the scaling engine answered, exceptionally with an HttpStatusCodeException when
+	 *         it responds with an error status code, or with a ResourceAccessException when it could not be
+	 *         reached
+	 */
+	public CompletableFuture<Void> notifyActiveScheduleAsync(ActiveScheduleEntity activeScheduleEntity,
+			JobActionEnum scalingAction) {
+		String appId = activeScheduleEntity.getAppId();
+		Long scheduleId = activeScheduleEntity.getId();
+		HttpEntity<ActiveScheduleEntity> requestEntity = new HttpEntity<>(activeScheduleEntity);
+
+		ScalingEngineLoadBalancer.Endpoint endpoint = scalingEngineLoadBalancer.acquire();
+		CompletableFuture<Void> completion = new CompletableFuture<>();
+		ListenableFuture<?> response;
+		try {
+			String scalingEnginePathActiveSchedule = getActiveSchedulePath(endpoint.getUrl(), appId, scheduleId);
+
+			if (scalingAction == JobActionEnum.START) {
+				String message = messageBundleResourceHelper.lookupMessage(
+						"scalingengine.notification.activeschedule.start", appId, scheduleId, scalingAction);
+				logger.info(message);
+				response = asyncRestTemplate.put(scalingEnginePathActiveSchedule, requestEntity);
+			} else {
+				String message = messageBundleResourceHelper.lookupMessage(
+						"scalingengine.notification.activeschedule.remove", appId, scheduleId, scalingAction);
+				logger.info(message);
+				response = asyncRestTemplate.delete(scalingEnginePathActiveSchedule);
+			}
+		} catch (RuntimeException e) {
+			scalingEngineLoadBalancer.release(endpoint, e);
+			completion.completeExceptionally(e);
+			return completion;
+		}
+
+		response.addCallback(result -> {
+			scalingEngineLoadBalancer.release(endpoint, null);
+			completion.complete(null);
+		}, throwable -> {
+			RuntimeException failure = toRuntimeException(throwable);
+			scalingEngineLoadBalancer.release(endpoint, failure);
+			completion.completeExceptionally(failure);
+		});
+		return completion;
+	}
+
+	/**
+	 * The non-blocking client fails with the I/O error itself, where the blocking one throws a
+	 * ResourceAccessException.
+	 */
+	private RuntimeException toRuntimeException(Throwable throwable) {
+		if (throwable instanceof RuntimeException) {
+			return (RuntimeException) throwable;
+		}
+		IOException ioe = throwable instanceof IOException ? (IOException) throwable : new IOException(throwable);
+		return new ResourceAccessException("I/O error on the scaling engine notification: " + ioe.getMessage(), ioe);
+	}
+
+	/**
+	 * Notifies the scaling engine about several active schedules in one request to its bulk endpoint.
+	 * 
+	 * @param notifications
+	 * @return the result of each notification, in the order of the notifications
+	 * @throws HttpStatusCodeException - when the scaling engine responds to the bulk request with an error
+	 *             status code
+	 * @throws ResourceAccessException - when the scaling engine could not be reached
+	 */
+	public List<ActiveScheduleNotificationResult> notifyActiveSchedules(
+			List<ActiveScheduleNotification> notifications) {
+		String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.bulk",
+				notifications.size());
+		logger.info(message);
+
+		ScalingEngineLoadBalancer.Endpoint endpoint = scalingEngineLoadBalancer.acquire();
+		RuntimeException failure = null;
+		try {
+			ActiveScheduleNotificationResult[] results = restTemplate.postForObject(
+					getBulkActiveSchedulesPath(endpoint.getUrl()), notifications,
+					ActiveScheduleNotificationResult[].class);
+			return results == null ? Collections.emptyList() : Arrays.asList(results);
+		} catch (RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			scalingEngineLoadBalancer.release(endpoint, failure);
+		}
+	}
+
+	String getBulkActiveSchedulesPath(String scalingEngineUrl) {
+		return scalingEngineUrl + "/v1/active_schedules/bulk";
+	}
+
+	String getActiveSchedulePath(String scalingEngineUrl, String appId, Long scheduleId) {
+		return scalingEngineUrl + "/v1/apps/" + appId + "/active_schedules/" + scheduleId;
+	}
+}
@@ -0,0 +1,234 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * HTTP clients of the scaling engine, with bounded pools of keep-alive connections and timeouts on
+ * connecting, on reading and on waiting for a pooled connection, so that a hung scaling engine cannot
+ * hold up the scaling jobs. The non-blocking client sends the notifications of the notifier on its I/O
+ * reactor threads and completes them in callbacks, the blocking one is left to the other callers.
+ *
+ * When the certificate, the key and the CA certificate are configured, the client authenticates with
+ * mutual TLS. All the connections share one SSL context, whose session cache lets new connections resume
+ * the TLS session instead of doing a full handshake. The pool usage is published as metrics of the
+ * actuator.
+ */
+@Component
+public class ScalingEngineHttpClient implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	private static final char[] KEY_STORE_PASSWORD = new char[0];
+
+	@Value("${autoscaler.scalingengine.http.connect.timeout.millisecond:5000}")
+	private int connectTimeoutMilliSecond;
+
+	@Value("${autoscaler.scalingengine.http.read.timeout.millisecond:10000}")
+	private int readTimeoutMilliSecond;
+
+	@Value("${autoscaler.scalingengine.http.pool.wait.timeout.millisecond:5000}")
+	private int poolWaitTimeoutMilliSecond;
+
+	@Value("${autoscaler.scalingengine.http.pool.max.total:50}")
+	private int maxTotalConnections;
+
+	@Value("${autoscaler.scalingengine.http.pool.max.per.route:20}")
+	private int maxConnectionsPerRoute;
+
+	@Value("${autoscaler.scalingengine.http.keepalive.millisecond:60000}")
+	private long keepAliveMilliSecond;
+
+	@Value("${autoscaler.scalingengine.tls.certfile:}")
+	private String certFile;
+
+	@Value("${autoscaler.scalingengine.tls.keyfile:}")
+	private String keyFile;
+
+	@Value("${autoscaler.scalingengine.tls.cacertfile:}")
+	private String caCertFile;
+
+	@Value("${autoscaler.scalingengine.tls.session.timeout.second:3600}")
+	private int tlsSessionTimeoutSecond;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private PoolingHttpClientConnectionManager connectionManager;
+
+	private CloseableHttpClient httpClient;
+
+	private PoolingNHttpClientConnectionManager asyncConnectionManager;
+
+	private CloseableHttpAsyncClient httpAsyncClient;
+
+	@PostConstruct
+	void init() {
+		SSLContext sslContext = isTlsConfigured() ? buildSslContext() : null;
+
+		RegistryBuilder<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory> create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory());
+		if (sslContext != null) {
+			socketFactories.register("https", new SSLConnectionSocketFactory(sslContext,
+					SSLConnectionSocketFactory.getDefaultHostnameVerifier()));
+		} else {
+			socketFactories.register("https", SSLConnectionSocketFactory.getSocketFactory());
+		}
+
+		connectionManager = new PoolingHttpClientConnectionManager(socketFactories.build(), null, null, null,
+				keepAliveMilliSecond, TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(maxTotalConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		connectionManager.setValidateAfterInactivity(2000);
+
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeoutMilliSecond)
+				.setSocketTimeout(readTimeoutMilliSecond).setConnectionRequestTimeout(poolWaitTimeoutMilliSecond)
+				.build();
+
+		// The client certificate would otherwise become the state of the connection, and a connection with
+		// a state is not handed out again to a request without one, which defeats the pool.
+		// The notifier retries the failed notifications, the client does not.
+		httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig).setKeepAliveStrategy(this::getKeepAliveDuration)
+				.evictExpiredConnections().evictIdleConnections(keepAliveMilliSecond, TimeUnit.MILLISECONDS)
+				.disableConnectionState().disableAutomaticRetries().build();
+
+		initAsyncClient(sslContext, requestConfig);
+	}
+
+	private void initAsyncClient(SSLContext sslContext, RequestConfig requestConfig) {
+		RegistryBuilder<SchemeIOSessionStrategy> sessionStrategies = RegistryBuilder
+				.<SchemeIOSessionStrategy> create().register("http", NoopIOSessionStrategy.INSTANCE);
+		if (sslContext != null) {
+			sessionStrategies.register("https",
+					new SSLIOSessionStrategy(sslContext, SSLIOSessionStrategy.getDefaultHostnameVerifier()));
+		} else {
+			sessionStrategies.register("https", SSLIOSessionStrategy.getDefaultStrategy());
+		}
+
+		IOReactorConfig ioReactorConfig = IOReactorConfig.custom().setConnectTimeout(connectTimeoutMilliSecond)
+				.setSoTimeout(readTimeoutMilliSecond).build();
+		try {
+			asyncConnectionManager = new PoolingNHttpClientConnectionManager(
+					new DefaultConnectingIOReactor(ioReactorConfig), null, sessionStrategies.build(), null, null,
+					keepAliveMilliSecond, TimeUnit.MILLISECONDS);
+		} catch (IOReactorException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		asyncConnectionManager.setMaxTotal(maxTotalConnections);
+		asyncConnectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+		httpAsyncClient = HttpAsyncClients.custom().setConnectionManager(asyncConnectionManager)
+				.setDefaultRequestConfig(requestConfig).setKeepAliveStrategy(this::getKeepAliveDuration)
+				.disableConnectionState().build();
+		httpAsyncClient.start();
+	}
+
+	private long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+		long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+		return keepAlive > 0 ? Math.min(keepAlive, keepAliveMilliSecond) : keepAliveMilliSecond;
+	}
+
+	public CloseableHttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	public CloseableHttpAsyncClient getHttpAsyncClient() {
+		return httpAsyncClient;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		addPoolMetrics("scalingengine.http.pool", connectionManager.getTotalStats(), metrics);
+		for (HttpRoute route : connectionManager.getRoutes()) {
+			addPoolMetrics("scalingengine.http.pool.route." + route.getTargetHost().toHostString(),
+					connectionManager.getStats(route), metrics);
+		}
+		addPoolMetrics("scalingengine.http.async.pool", asyncConnectionManager.getTotalStats(), metrics);
+		return metrics;
+	}
+
+	@PreDestroy
+	void close() throws IOException {
+		try {
+			httpClient.close();
+		} finally {
+			httpAsyncClient.close();
+		}
+	}
+
+	boolean isTlsConfigured() {
+		return !certFile.isEmpty() && !keyFile.isEmpty() && !caCertFile.isEmpty();
+	}
+
+	SSLContext buildSslContext() {
+		try {
+			KeyStore keyStore = PemFiles.loadKeyStore(certFile, keyFile, KEY_STORE_PASSWORD);
+			KeyManagerFactory keyManagerFactory = KeyManagerFactory
+					.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+			keyManagerFactory.init(keyStore, KEY_STORE_PASSWORD);
+
+			TrustManagerFactory trustManagerFactory = TrustManagerFactory
+					.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+			trustManagerFactory.init(PemFiles.loadTrustStore(caCertFile));
+
+			SSLContext sslContext = SSLContext.getInstance("TLS");
+			sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+			sslContext.getClientSessionContext().setSessionTimeout(tlsSessionTimeoutSecond);
+			return sslContext;
+		} catch (IOException | GeneralSecurityException e) {
+			String errorMessage = messageBundleResourceHelper.lookupMessage("scalingengine.tls.config.failed",
+					e.getMessage(), certFile, keyFile, caCertFile);
+			logger.error(errorMessage, e);
+			throw new IllegalStateException(errorMessage, e);
+		}
+	}
+
+	private void addPoolMetrics(String prefix, PoolStats poolStats, Collection<Metric<?>> metrics) {
+		metrics.add(new Metric<Integer>(prefix + ".leased", poolStats.getLeased()));
+		metrics.add(new Metric<Integer>(prefix + ".available", poolStats.getAvailable()));
+		metrics.add(new Metric<Integer>(prefix + ".pending", poolStats.getPending()));
+		metrics.add(new Metric<Integer>(prefix + ".max", poolStats.getMax()));
+	}
+}
@@ -0,0 +1,195 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Spreads the requests to the scaling engine across its instances, the comma separated urls of
+ * autoscaler.scalingengine.url. Each request goes to the healthy instance with the least outstanding
+ * requests, the ties are taken in turn.
+ *
+ * An instance is unhealthy for the unhealthy duration after a number of consecutive failures, it could
+ * not be reached or it answered with a server error. Once the duration has passed it gets requests again,
+ * and a single failure makes it unhealthy again until a request succeeds. When no instance is healthy the
+ * one that turns healthy first is used.
+ *
+ * The metrics of an instance are named by its index in the urls, as instances may share their host and
+ * port and differ in their path only.
+ */
+@Component
+public class ScalingEngineLoadBalancer implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Value("${autoscaler.scalingengine.url}")
+	private String[] scalingEngineUrls;
+
+	@Value("${autoscaler.scalingengine.endpoint.failure.threshold:3}")
+	private int failureThreshold;
+
+	@Value("${autoscaler.scalingengine.endpoint.unhealthy.duration.millisecond:10000}")
+	private long unhealthyDurationMilliSecond;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private List<Endpoint> endpoints;
+
+	private AtomicInteger nextIndex = new AtomicInteger();
+
+	/**
+	 * Instance of the scaling engine.
+	 */
+	public class Endpoint {
+		private final String url;
+
+		private final int index;
+
+		private final AtomicInteger outstandingRequests = new AtomicInteger();
+
+		private final AtomicLong requestCount = new AtomicLong();
+
+		private final AtomicLong failureCount = new AtomicLong();
+
+		private int consecutiveFailures;
+
+		private long unhealthyUntil;
+
+		Endpoint(String url, int index) {
+			this.url = url;
+			this.index = index;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public int getOutstandingRequests() {
+			return outstandingRequests.get();
+		}
+
+		public synchronized boolean isHealthy(long now) {
+			return now >= unhealthyUntil;
+		}
+
+		private synchronized long getUnhealthyUntil() {
+			return unhealthyUntil;
+		}
+
+		private synchronized void onSuccess() {
+			if (consecutiveFailures >= failureThreshold) {
+				logger.info(messageBundleResourceHelper.lookupMessage("scalingengine.endpoint.healthy", url));
+			}
+			consecutiveFailures = 0;
+			unhealthyUntil = 0;
+		}
+
+		private synchronized void onFailure() {
+			failureCount.incrementAndGet();
+			if (++consecutiveFailures >= failureThreshold) {
+				unhealthyUntil = System.currentTimeMillis() + unhealthyDurationMilliSecond;
+				logger.warn(messageBundleResourceHelper.lookupMessage("scalingengine.endpoint.unhealthy", url,
+						unhealthyDurationMilliSecond, consecutiveFailures));
+			}
+		}
+	}
+
+	@PostConstruct
+	void init() {
+		List<Endpoint> urlEndpoints = new ArrayList<>();
+		for (String url : scalingEngineUrls) {
+			if (!url.trim().isEmpty()) {
+				urlEndpoints.add(new Endpoint(url.trim(), urlEndpoints.size()));
+			}
+		}
+		if (urlEndpoints.isEmpty()) {
+			throw new IllegalStateException("No scaling engine url configured in autoscaler.scalingengine.url");
+		}
+		endpoints = Collections.unmodifiableList(urlEndpoints);
+	}
+
+	/**
+	 * Picks the instance for a request. Every instance acquired must be released once the request is done.
+	 *
+	 * @return the healthy instance with the least outstanding requests
+	 */
+	public Endpoint acquire() {
+		long now = System.currentTimeMillis();
+		int size = endpoints.size();
+		int start = Math.floorMod(nextIndex.getAndIncrement(), size);
+		Endpoint selected = null;
+		for (int i = 0; i < size; i++) {
+			Endpoint endpoint = endpoints.get((start + i) % size);
+			if (endpoint.isHealthy(now)
+					&& (selected == null || endpoint.getOutstandingRequests() < selected.getOutstandingRequests())) {
+				selected = endpoint;
+			}
+		}
+		if (selected == null) {
+			for (Endpoint endpoint : endpoints) {
+				if (selected == null || endpoint.getUnhealthyUntil() < selected.getUnhealthyUntil()) {
+					selected = endpoint;
+				}
+			}
+		}
+		selected.outstandingRequests.incrementAndGet();
+		selected.requestCount.incrementAndGet();
+		return selected;
+	}
+
+	/**
+	 * Records the outcome of a request to the instance.
+	 *
+	 * @param endpoint
+	 * @param throwable - the failure of the request, null if it succeeded
+	 */
+	public void release(Endpoint endpoint, Throwable throwable) {
+		endpoint.outstandingRequests.decrementAndGet();
+		if (throwable instanceof ResourceAccessException || throwable instanceof HttpServerErrorException) {
+			endpoint.onFailure();
+		} else {
+			endpoint.onSuccess();
+		}
+	}
+
+	public List<Endpoint> getEndpoints() {
+		return endpoints;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		long now = System.currentTimeMillis();
+		int healthyCount = 0;
+		for (Endpoint endpoint : endpoints) {
+			boolean healthy = endpoint.isHealthy(now);
+			if (healthy) {
+				healthyCount++;
+			}
+			String prefix = "scalingengine.endpoint." + endpoint.index;
+			metrics.add(new Metric<Integer>(prefix + ".healthy", healthy ? 1 : 0));
+			metrics.add(new Metric<Integer>(prefix + ".outstanding", endpoint.getOutstandingRequests()));
+			metrics.add(new Metric<Long>(prefix + ".requests", endpoint.requestCount.get()));
+			metrics.add(new Metric<Long>(prefix + ".failures", endpoint.failureCount.get()));
+		}
+		metrics.add(new Metric<Integer>("scalingengine.endpoint.healthy", healthyCount));
+		metrics.add(new Metric<Integer>("scalingengine.endpoint.total", endpoints.size()));
+		return metrics;
+	}
+}
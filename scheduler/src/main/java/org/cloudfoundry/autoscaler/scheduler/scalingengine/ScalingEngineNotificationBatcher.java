@@ -0,0 +1,218 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Collects the notifications to the scaling engine into batches sent to its bulk endpoint. A batch is
+ * sent once it holds the max number of notifications, or once the batch window has passed since its
+ * first notification.
+ *
+ * The result of each notification is handed back to its caller the same way as for a notification sent
+ * on its own: nothing on success, otherwise an HttpStatusCodeException with the status of the item, or
+ * the exception of the whole bulk request. So the notifier handles the retries per notification.
+ */
+@Component
+public class ScalingEngineNotificationBatcher {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Value("${autoscaler.scalingengine.notification.batch.enabled:false}")
+	private boolean batchEnabled;
+
+	@Value("${autoscaler.scalingengine.notification.batch.max.size:100}")
+	private int maxBatchSize;
+
+	@Value("${autoscaler.scalingengine.notification.batch.window.millisecond:50}")
+	private long batchWindowMilliSecond;
+
+	@Autowired
+	private ScalingEngineClient scalingEngineClient;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private ScheduledExecutorService batchExecutor;
+
+	private List<PendingNotification> batch = new ArrayList<>();
+
+	@PostConstruct
+	void init() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		batchExecutor = Executors.newScheduledThreadPool(2, runnable -> {
+			Thread thread = new Thread(runnable, "scalingengine-notification-batch-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public boolean isBatchEnabled() {
+		return batchEnabled;
+	}
+
+	/**
+	 * Adds the notification to the current batch and waits for its result.
+	 *
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @throws HttpStatusCodeException - when the scaling engine rejected the notification or the bulk request
+	 * @throws ResourceAccessException - when the scaling engine could not be reached
+	 */
+	public void notifyActiveSchedule(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction) {
+		try {
+			submit(activeScheduleEntity, scalingAction).get();
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ee.getCause();
+			}
+			throw new ResourceAccessException(ee.getCause().getMessage());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new ResourceAccessException(ie.getMessage());
+		}
+	}
+
+	CompletableFuture<Void> submit(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction) {
+		PendingNotification pendingNotification = new PendingNotification(activeScheduleEntity, scalingAction);
+		List<PendingNotification> fullBatch = null;
+		synchronized (this) {
+			batch.add(pendingNotification);
+			if (batch.size() >= maxBatchSize) {
+				fullBatch = batch;
+				batch = new ArrayList<>();
+			} else if (batch.size() == 1) {
+				List<PendingNotification> openBatch = batch;
+				batchExecutor.schedule(() -> flush(openBatch), batchWindowMilliSecond, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (fullBatch != null) {
+			List<PendingNotification> notifications = fullBatch;
+			batchExecutor.execute(() -> send(notifications));
+		}
+		return pendingNotification.future;
+	}
+
+	private void flush(List<PendingNotification> openBatch) {
+		synchronized (this) {
+			// The batch may have been sent already as it filled up
+			if (batch != openBatch) {
+				return;
+			}
+			batch = new ArrayList<>();
+		}
+		send(openBatch);
+	}
+
+	private void send(List<PendingNotification> pendingNotifications) {
+		List<ActiveScheduleNotification> notifications = new ArrayList<>();
+		for (PendingNotification pendingNotification : pendingNotifications) {
+			notifications.add(pendingNotification.toNotification());
+		}
+
+		try {
+			List<ActiveScheduleNotificationResult> results = scalingEngineClient.notifyActiveSchedules(notifications);
+			if (results.size() != pendingNotifications.size()) {
+				throw new ResourceAccessException(messageBundleResourceHelper.lookupMessage(
+						"scalingengine.notification.bulk.invalid.response", results.size(),
+						pendingNotifications.size()));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				complete(pendingNotifications.get(i).future, results.get(i));
+			}
+		} catch (RuntimeException e) {
+			for (PendingNotification pendingNotification : pendingNotifications) {
+				pendingNotification.future.completeExceptionally(e);
+			}
+		}
+	}
+
+	private void complete(CompletableFuture<Void> future, ActiveScheduleNotificationResult result) {
+		HttpStatus status;
+		try {
+			status = HttpStatus.valueOf(result.getStatus());
+		} catch (IllegalArgumentException iae) {
+			status = HttpStatus.BAD_GATEWAY;
+		}
+		if (status.is2xxSuccessful()) {
+			future.complete(null);
+			return;
+		}
+
+		HttpHeaders headers = new HttpHeaders();
+		if (result.getRetryAfterSecond() != null) {
+			headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(result.getRetryAfterSecond()));
+		}
+		byte[] body = result.getMessage() == null ? null : result.getMessage().getBytes(StandardCharsets.UTF_8);
+		if (status.is4xxClientError()) {
+			future.completeExceptionally(new HttpClientErrorException(status, status.getReasonPhrase(), headers,
+					body, StandardCharsets.UTF_8));
+		} else {
+			future.completeExceptionally(new HttpServerErrorException(status, status.getReasonPhrase(), headers,
+					body, StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Sends the notifications still collected, then stops.
+	 */
+	@PreDestroy
+	void shutdown() {
+		List<PendingNotification> openBatch;
+		synchronized (this) {
+			openBatch = batch;
+			batch = new ArrayList<>();
+		}
+		if (!openBatch.isEmpty()) {
+			send(openBatch);
+		}
+		batchExecutor.shutdown();
+	}
+
+	private static class PendingNotification {
+		private ActiveScheduleEntity activeScheduleEntity;
+		private JobActionEnum scalingAction;
+		private CompletableFuture<Void> future = new CompletableFuture<>();
+
+		PendingNotification(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction) {
+			this.activeScheduleEntity = activeScheduleEntity;
+			this.scalingAction = scalingAction;
+		}
+
+		ActiveScheduleNotification toNotification() {
+			ActiveScheduleNotification notification = new ActiveScheduleNotification();
+			notification.setAppId(activeScheduleEntity.getAppId());
+			notification.setScheduleId(activeScheduleEntity.getId());
+			if (scalingAction == JobActionEnum.START) {
+				notification.setAction(ActiveScheduleNotification.ACTION_START);
+				notification.setActiveSchedule(activeScheduleEntity);
+			} else {
+				notification.setAction(ActiveScheduleNotification.ACTION_END);
+			}
+			return notification;
+		}
+	}
+}
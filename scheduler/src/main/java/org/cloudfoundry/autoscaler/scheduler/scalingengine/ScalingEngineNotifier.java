@@ -0,0 +1,546 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.dao.NotificationOutboxDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+import org.cloudfoundry.autoscaler.scheduler.quartz.ScalingEngineNotificationRetryJob;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.quartz.JobDetail;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Notifies the scaling engine about the active schedules and retries the notifications that failed
+ * for a transient reason: the scaling engine could not be reached, or it answered 429 or 503.
+ *
+ * The notifications are sent on the non-blocking HTTP client of the scaling engine, or with batching
+ * enabled in the batches of the batcher. Their outcome is handled in a completion callback, so no thread
+ * waits for the scaling engine. At most the max in-flight notifications are sent at a time, a notification
+ * submitted beyond that is parked like while the circuit breaker is open, it is never sent on the
+ * submitting thread.
+ *
+ * The retries are kept in memory and scheduled with exponential backoff and jitter, a Retry-After
+ * header sent by the scaling engine takes precedence. The retries still pending on shutdown are persisted
+ * as one time quartz jobs, which hand them back when the scheduler runs again.
+ *
+ * While the circuit breaker of the scaling engine is open, the notifications are parked instead of sent.
+ * The parked notifications are drained in order at the drain rate while the breaker is half open, the
+ * first ones as its trials, and all at once as soon as it is closed again and notifications in flight
+ * are answered. The new notifications queue up behind them until they are all sent.
+ *
+ * With the outbox enabled, the notifier keeps neither retries nor parked notifications in memory: a
+ * notification to retry, or held back by the circuit breaker, is handed over to the outbox, whose
+ * dispatcher retries it from there.
+ */
+@Component
+public class ScalingEngineNotifier implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Value("${scalingengine.notification.reschedule.maxcount}")
+	private int maxNotificationAttempts;
+
+	@Value("${scalingengine.notification.retry.initial.interval.millisecond:1000}")
+	private long initialRetryIntervalMilliSecond;
+
+	@Value("${scalingengine.notification.retry.max.interval.millisecond:60000}")
+	private long maxRetryIntervalMilliSecond;
+
+	@Autowired
+	private ScalingEngineClient scalingEngineClient;
+
+	@Autowired
+	private ScalingEngineNotificationBatcher scalingEngineNotificationBatcher;
+
+	@Autowired
+	private Scheduler scheduler;
+
+	@Autowired
+	private ScalingEngineCircuitBreaker scalingEngineCircuitBreaker;
+
+	@Autowired
+	private NotificationOutboxDao notificationOutboxDao;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	@Value("${autoscaler.scalingengine.notification.outbox.enabled:true}")
+	private boolean outboxEnabled;
+
+	@Value("${scalingengine.notification.max.inflight:200}")
+	private int maxInFlightNotifications;
+
+	@Value("${autoscaler.scalingengine.circuitbreaker.parked.max.size:10000}")
+	private int maxParkedNotifications;
+
+	@Value("${autoscaler.scalingengine.circuitbreaker.drain.rate.per.second:10}")
+	private int drainRatePerSecond;
+
+	private Semaphore inFlightPermits;
+
+	private AtomicInteger inFlightNotifications = new AtomicInteger();
+
+	private AtomicLong saturatedCount = new AtomicLong();
+
+	private ScheduledExecutorService retryExecutor;
+
+	private Set<NotificationRetry> pendingRetries = ConcurrentHashMap.newKeySet();
+
+	private BlockingQueue<NotificationRetry> parkedNotifications;
+
+	private volatile boolean shutdown = false;
+
+	@PostConstruct
+	void init() {
+		inFlightPermits = new Semaphore(maxInFlightNotifications);
+		retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "scalingengine-notification-retry");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		parkedNotifications = new LinkedBlockingQueue<>(maxParkedNotifications);
+		if (outboxEnabled) {
+			return;
+		}
+		long drainIntervalMilliSecond = Math.max(1, TimeUnit.SECONDS.toMillis(1) / Math.max(1, drainRatePerSecond));
+		retryExecutor.scheduleAtFixedRate(this::drainParkedNotification, drainIntervalMilliSecond,
+				drainIntervalMilliSecond, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Notifies the scaling engine and waits for the first attempt, a failed notification is retried in the
+	 * background.
+	 *
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @return true if the scaling engine acknowledged the first attempt
+	 */
+	public boolean notifyScalingEngine(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction) {
+		return submitNotification(activeScheduleEntity, scalingAction).join();
+	}
+
+	/**
+	 * Sends the notification without waiting for the scaling engine, a failed notification is retried in
+	 * the background.
+	 *
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @return completed with true if the scaling engine acknowledged the first attempt, once the failure of
+	 *         the attempt is handled or the notification is parked otherwise
+	 */
+	public CompletableFuture<Boolean> submitNotification(ActiveScheduleEntity activeScheduleEntity,
+			JobActionEnum scalingAction) {
+		return attempt(new NotificationRetry(activeScheduleEntity, scalingAction, 1));
+	}
+
+	/**
+	 * Hands back a retry persisted on shutdown, it is attempted again right away in the background.
+	 *
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @param attempt - the number of the attempt to make
+	 */
+	public void resumeRetry(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction, int attempt) {
+		scheduleRetry(new NotificationRetry(activeScheduleEntity, scalingAction, attempt), 0);
+	}
+
+	private CompletableFuture<Boolean> attempt(NotificationRetry notification) {
+		// The notifications already parked go first, to keep the notifications of an app in order
+		if (!parkedNotifications.isEmpty() || !tryAcquirePermits()) {
+			park(notification);
+			return CompletableFuture.completedFuture(false);
+		}
+		return attemptPermitted(notification);
+	}
+
+	/**
+	 * Acquires an in-flight permit and the permission of the circuit breaker, both or none.
+	 */
+	private boolean tryAcquirePermits() {
+		if (!inFlightPermits.tryAcquire()) {
+			saturatedCount.incrementAndGet();
+			return false;
+		}
+		if (!scalingEngineCircuitBreaker.tryAcquirePermission()) {
+			inFlightPermits.release();
+			return false;
+		}
+		return true;
+	}
+
+	private CompletableFuture<Boolean> attemptPermitted(NotificationRetry notification) {
+		inFlightNotifications.incrementAndGet();
+		return send(notification).handle((result, throwable) -> {
+			try {
+				Throwable failure = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+				scalingEngineCircuitBreaker.onResult(failure);
+				if (failure == null) {
+					return true;
+				}
+				long delay = handleFailure(notification.getActiveScheduleEntity(), notification.getScalingAction(),
+						notification.getAttempt(), failure);
+				if (delay >= 0) {
+					scheduleRetry(new NotificationRetry(notification.getActiveScheduleEntity(),
+							notification.getScalingAction(), notification.getAttempt() + 1), delay);
+				}
+				return false;
+			} finally {
+				inFlightNotifications.decrementAndGet();
+				inFlightPermits.release();
+				drainOnceClosed();
+			}
+		});
+	}
+
+	private void park(NotificationRetry notification) {
+		ActiveScheduleEntity activeScheduleEntity = notification.getActiveScheduleEntity();
+		if (outboxEnabled) {
+			notification.setRetryTime(System.currentTimeMillis());
+			handOverToOutbox(notification);
+		} else if (shutdown) {
+			notification.setRetryTime(System.currentTimeMillis());
+			persistRetry(notification);
+		} else if (parkedNotifications.offer(notification)) {
+			logger.debug(messageBundleResourceHelper.lookupMessage("scalingengine.notification.parked",
+					activeScheduleEntity.getAppId(), activeScheduleEntity.getId(), notification.getScalingAction(),
+					parkedNotifications.size()));
+		} else {
+			long delay = getBackoffDelay(notification.getAttempt());
+			logger.warn(messageBundleResourceHelper.lookupMessage("scalingengine.notification.parked.full",
+					maxParkedNotifications, delay, activeScheduleEntity.getAppId(), activeScheduleEntity.getId(),
+					notification.getScalingAction()));
+			scheduleRetry(notification, delay);
+		}
+	}
+
+	/**
+	 * Drains the parked notifications right away when an answered notification frees its in-flight permit
+	 * or a successful trial closed the circuit breaker, rather than at the next run of the draining.
+	 */
+	private void drainOnceClosed() {
+		if (!outboxEnabled && !shutdown && !parkedNotifications.isEmpty()
+				&& scalingEngineCircuitBreaker.getState() == ScalingEngineCircuitBreaker.State.CLOSED) {
+			try {
+				retryExecutor.execute(this::drainParkedNotification);
+			} catch (RejectedExecutionException ree) {
+				// Shutting down, the parked notifications are persisted
+			}
+		}
+	}
+
+	/**
+	 * Sends the oldest parked notification, if the circuit breaker and the in-flight notifications let it
+	 * through, and the other ones as well while the breaker is closed. Runs at the drain rate.
+	 */
+	private void drainParkedNotification() {
+		try {
+			do {
+				if (parkedNotifications.isEmpty() || !tryAcquirePermits()) {
+					return;
+				}
+				NotificationRetry notification = parkedNotifications.poll();
+				if (notification == null) {
+					scalingEngineCircuitBreaker.releasePermission();
+					inFlightPermits.release();
+					return;
+				}
+				attemptPermitted(notification);
+			} while (scalingEngineCircuitBreaker.getState() == ScalingEngineCircuitBreaker.State.CLOSED);
+		} catch (RuntimeException e) {
+			// An exception would cancel the draining
+			logger.error(e.getMessage(), e);
+		}
+	}
+
+	private CompletableFuture<Void> send(NotificationRetry notification) {
+		ActiveScheduleEntity activeScheduleEntity = notification.getActiveScheduleEntity();
+		JobActionEnum scalingAction = notification.getScalingAction();
+		if (scalingEngineNotificationBatcher.isBatchEnabled()) {
+			return scalingEngineNotificationBatcher.submit(activeScheduleEntity, scalingAction);
+		}
+		return scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, scalingAction);
+	}
+
+	/**
+	 * Logs the failure of a notification and works out whether and when to retry it.
+	 *
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @param attempt - the number of the failed attempt
+	 * @param throwable
+	 * @return the delay before the next attempt, -1 if the notification is not retried
+	 */
+	long handleFailure(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction, int attempt,
+			Throwable throwable) {
+		String appId = activeScheduleEntity.getAppId();
+		Long scheduleId = activeScheduleEntity.getId();
+
+		if (throwable instanceof HttpStatusCodeException) {
+			HttpStatusCodeException hsce = (HttpStatusCodeException) throwable;
+			HttpStatus errorResponseCode = hsce.getStatusCode();
+			if (errorResponseCode.is4xxClientError() && errorResponseCode != HttpStatus.TOO_MANY_REQUESTS) {
+				String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.client.error",
+						errorResponseCode, hsce.getResponseBodyAsString(), appId, scheduleId, scalingAction);
+				logger.error(message, hsce);
+			} else {
+				String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.failed",
+						errorResponseCode, hsce.getResponseBodyAsString(), appId, scheduleId, scalingAction);
+				logger.error(message, hsce);
+
+				if (errorResponseCode == HttpStatus.TOO_MANY_REQUESTS
+						|| errorResponseCode == HttpStatus.SERVICE_UNAVAILABLE) {
+					return getRetryDelay(activeScheduleEntity, scalingAction, attempt,
+							getRetryAfterMilliSecond(hsce));
+				}
+			}
+		} else {
+			String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.error",
+					throwable.getMessage(), appId, scheduleId, scalingAction);
+			logger.error(message, throwable);
+			// Only the scaling engine could not be reached, any other error would happen again
+			if (throwable instanceof ResourceAccessException) {
+				return getRetryDelay(activeScheduleEntity, scalingAction, attempt, -1);
+			}
+		}
+		return -1;
+	}
+
+	private long getRetryDelay(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction, int attempt,
+			long retryAfterMilliSecond) {
+		if (attempt < maxNotificationAttempts) {
+			long delay = retryAfterMilliSecond >= 0 ? retryAfterMilliSecond : getBackoffDelay(attempt);
+			String message = messageBundleResourceHelper.lookupMessage("scalingengine.notification.retry", delay,
+					attempt + 1, activeScheduleEntity.getAppId(), activeScheduleEntity.getId(), scalingAction);
+			logger.info(message);
+			return delay;
+		}
+		String errorMessage = messageBundleResourceHelper.lookupMessage("scalingengine.notification.retry.max.reached",
+				maxNotificationAttempts, activeScheduleEntity.getAppId(), activeScheduleEntity.getId(), scalingAction);
+		logger.error(errorMessage);
+		return -1;
+	}
+
+	private void scheduleRetry(NotificationRetry notification, long delay) {
+		notification.setRetryTime(System.currentTimeMillis() + delay);
+		if (outboxEnabled) {
+			// Called back on the thread of the HTTP client, the database is written on the retry thread
+			try {
+				retryExecutor.execute(() -> handOverToOutbox(notification));
+			} catch (RejectedExecutionException ree) {
+				handOverToOutbox(notification);
+			}
+			return;
+		}
+		if (shutdown) {
+			persistRetry(notification);
+			return;
+		}
+
+		pendingRetries.add(notification);
+		retryExecutor.schedule(() -> {
+			if (pendingRetries.remove(notification)) {
+				attempt(notification);
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Exponential backoff with equal jitter: half of the backoff is kept, the other half is random so that
+	 * the notifications failed together are not retried together.
+	 *
+	 * @param failedAttempts
+	 * @return
+	 */
+	long getBackoffDelay(int failedAttempts) {
+		long backoff = initialRetryIntervalMilliSecond << Math.min(failedAttempts - 1, 30);
+		if (backoff <= 0 || backoff > maxRetryIntervalMilliSecond) {
+			backoff = maxRetryIntervalMilliSecond;
+		}
+		long half = backoff / 2;
+		return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+	}
+
+	/**
+	 * Gets the Retry-After header sent with the response, either in seconds or as a date, capped by the max
+	 * retry interval.
+	 *
+	 * @param hsce
+	 * @return the milliseconds to wait, -1 if there is no valid Retry-After header
+	 */
+	long getRetryAfterMilliSecond(HttpStatusCodeException hsce) {
+		HttpHeaders headers = hsce.getResponseHeaders();
+		String retryAfter = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+		if (retryAfter == null || retryAfter.trim().isEmpty()) {
+			return -1;
+		}
+
+		long retryAfterMilliSecond;
+		try {
+			retryAfterMilliSecond = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+		} catch (NumberFormatException nfe) {
+			try {
+				retryAfterMilliSecond = headers.getFirstDate(HttpHeaders.RETRY_AFTER) - System.currentTimeMillis();
+			} catch (IllegalArgumentException iae) {
+				return -1;
+			}
+		}
+		return Math.min(Math.max(0, retryAfterMilliSecond), maxRetryIntervalMilliSecond);
+	}
+
+	/**
+	 * Persists the retries still pending in memory, they are resumed when the scheduler runs again.
+	 */
+	@PreDestroy
+	void shutdown() {
+		shutdown = true;
+		retryExecutor.shutdownNow();
+
+		int spilledRetries = 0;
+		for (NotificationRetry notification : pendingRetries) {
+			if (pendingRetries.remove(notification)) {
+				persistRetry(notification);
+				spilledRetries++;
+			}
+		}
+		NotificationRetry parkedNotification;
+		while ((parkedNotification = parkedNotifications.poll()) != null) {
+			parkedNotification.setRetryTime(System.currentTimeMillis());
+			persistRetry(parkedNotification);
+			spilledRetries++;
+		}
+		if (spilledRetries > 0) {
+			logger.info(messageBundleResourceHelper.lookupMessage("scalingengine.notification.retry.persisted",
+					spilledRetries));
+		}
+	}
+
+	private void persistRetry(NotificationRetry notification) {
+		ActiveScheduleEntity activeScheduleEntity = notification.getActiveScheduleEntity();
+		JobDetail jobDetail = ScalingEngineNotificationRetryJob.buildJob(activeScheduleEntity,
+				notification.getScalingAction(), notification.getAttempt());
+		Trigger trigger = ScalingEngineNotificationRetryJob.buildTrigger(jobDetail,
+				new Date(notification.getRetryTime()));
+		try {
+			scheduler.scheduleJob(jobDetail, trigger);
+		} catch (SchedulerException se) {
+			String errorMessage = messageBundleResourceHelper.lookupMessage(
+					"scalingengine.notification.retry.persist.failed", se.getMessage(),
+					activeScheduleEntity.getAppId(), activeScheduleEntity.getId(), notification.getScalingAction());
+			logger.error(errorMessage, se);
+		}
+	}
+
+	/**
+	 * Writes the notification to the outbox to be sent by its dispatcher at the retry time. The time of the
+	 * transition is not known anymore, the notification is recorded as of now.
+	 */
+	private void handOverToOutbox(NotificationRetry notification) {
+		ActiveScheduleEntity activeScheduleEntity = notification.getActiveScheduleEntity();
+		NotificationOutboxEntity notificationOutboxEntity = new NotificationOutboxEntity(activeScheduleEntity,
+				notification.getScalingAction(), new Date(), null);
+		notificationOutboxEntity.setAttempt(notification.getAttempt());
+		notificationOutboxEntity.setNextAttemptTime(new Date(notification.getRetryTime()));
+		try {
+			notificationOutboxDao.create(notificationOutboxEntity);
+		} catch (DatabaseValidationException dve) {
+			String errorMessage = messageBundleResourceHelper.lookupMessage(
+					"scalingengine.notification.outbox.handover.failed", dve.getMessage(),
+					activeScheduleEntity.getAppId(), activeScheduleEntity.getId(), notification.getScalingAction());
+			logger.error(errorMessage, dve);
+		}
+	}
+
+	int getPendingRetryCount() {
+		return pendingRetries.size();
+	}
+
+	int getParkedNotificationCount() {
+		return parkedNotifications.size();
+	}
+
+	/**
+	 * @return the number of notifications sent and not yet answered or failed
+	 */
+	public int getInFlightNotificationCount() {
+		return inFlightNotifications.get();
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Integer>("scalingengine.notification.inflight", inFlightNotifications.get()));
+		metrics.add(new Metric<Integer>("scalingengine.notification.inflight.max", maxInFlightNotifications));
+		metrics.add(new Metric<Long>("scalingengine.notification.saturated", saturatedCount.get()));
+		metrics.add(new Metric<Integer>("scalingengine.notification.retry.pending", pendingRetries.size()));
+		metrics.add(new Metric<Integer>("scalingengine.notification.parked", parkedNotifications.size()));
+		return metrics;
+	}
+
+	private static class NotificationRetry {
+		private ActiveScheduleEntity activeScheduleEntity;
+		private JobActionEnum scalingAction;
+		private int attempt;
+		private long retryTime;
+
+		NotificationRetry(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction, int attempt) {
+			this.activeScheduleEntity = activeScheduleEntity;
+			this.scalingAction = scalingAction;
+			this.attempt = attempt;
+		}
+
+		ActiveScheduleEntity getActiveScheduleEntity() {
+			return activeScheduleEntity;
+		}
+
+		JobActionEnum getScalingAction() {
+			return scalingAction;
+		}
+
+		int getAttempt() {
+			return attempt;
+		}
+
+		long getRetryTime() {
+			return retryTime;
+		}
+
+		void setRetryTime(long retryTime) {
+			this.retryTime = retryTime;
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.NotificationOutboxDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.ReplicaRoutingDataSource;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes the changes of the active schedules made by the scaling jobs, with their outbox notifications.
+ *
+ * With the group commit enabled, the writes of the concurrently firing jobs are gathered for the window
+ * after the first of them, up to the max size, and committed together in one transaction, with one
+ * statement for the deletes and one for the creates. Each job waits until its write is committed. When
+ * the group fails, its writes are done one by one, so that a single failing write does not fail the
+ * others. A job waits for the timeout at most, its write is done on its own when the group commit did
+ * not take it by then. The transitions of an app are applied one at a time, so a group never holds two
+ * writes of the same active schedule.
+ */
+@Component
+public class ActiveScheduleWriter implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Value("${scheduler.activeschedule.groupcommit.enabled:true}")
+	private boolean groupCommitEnabled;
+
+	@Value("${scheduler.activeschedule.groupcommit.window.millisecond:5}")
+	private long windowMilliSecond;
+
+	@Value("${scheduler.activeschedule.groupcommit.max.size:500}")
+	private int maxSize;
+
+	@Value("${scheduler.activeschedule.groupcommit.timeout.millisecond:30000}")
+	private long timeoutMilliSecond;
+
+	@Autowired
+	private ActiveScheduleDao activeScheduleDao;
+
+	@Autowired
+	private NotificationOutboxDao notificationOutboxDao;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private BlockingQueue<PendingWrite> pendingWrites = new LinkedBlockingQueue<>();
+
+	private ExecutorService groupCommitExecutor;
+
+	private volatile boolean running;
+
+	private AtomicLong groupCount = new AtomicLong();
+
+	private AtomicLong writeCount = new AtomicLong();
+
+	private AtomicLong failedGroupCount = new AtomicLong();
+
+	private static class PendingWrite {
+		private final List<Long> deletedIds;
+		private final ActiveScheduleEntity activeScheduleEntity;
+		private final NotificationOutboxEntity notificationOutboxEntity;
+		private final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+		PendingWrite(List<Long> deletedIds, ActiveScheduleEntity activeScheduleEntity,
+				NotificationOutboxEntity notificationOutboxEntity) {
+			this.deletedIds = deletedIds;
+			this.activeScheduleEntity = activeScheduleEntity;
+			this.notificationOutboxEntity = notificationOutboxEntity;
+		}
+	}
+
+	@PostConstruct
+	void init() {
+		if (!groupCommitEnabled) {
+			return;
+		}
+		running = true;
+		groupCommitExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(() -> ReplicaRoutingDataSource.useQuartzPool(runnable),
+					"activeschedule-groupcommit");
+			thread.setDaemon(true);
+			return thread;
+		});
+		groupCommitExecutor.execute(this::commitGroups);
+	}
+
+	/**
+	 * Deletes the active schedules with the specified ids and creates or overwrites the active schedule,
+	 * together with the notification of the scaling engine.
+	 *
+	 * @param deletedIds
+	 * @param activeScheduleEntity - null when no active schedule is created
+	 * @param notificationOutboxEntity - null when the notification is not written to the outbox
+	 * @throws DatabaseValidationException - when the write failed, nothing of it is written then
+	 */
+	public void write(List<Long> deletedIds, ActiveScheduleEntity activeScheduleEntity,
+			NotificationOutboxEntity notificationOutboxEntity) {
+		if (!running) {
+			writeOne(deletedIds, activeScheduleEntity, notificationOutboxEntity);
+			return;
+		}
+
+		PendingWrite pendingWrite = new PendingWrite(deletedIds, activeScheduleEntity, notificationOutboxEntity);
+		pendingWrites.add(pendingWrite);
+		// Shutting down, a write no longer taken by the group commit is written on its own
+		if (!running && pendingWrites.remove(pendingWrite)) {
+			writeOne(deletedIds, activeScheduleEntity, notificationOutboxEntity);
+			return;
+		}
+		try {
+			pendingWrite.committed.get(timeoutMilliSecond, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException te) {
+			// Not taken by the group commit yet, the write is done on its own. Taken, it may still be committed,
+			// the job retries it then, deleting or overwriting the same active schedule again
+			if (pendingWrites.remove(pendingWrite)) {
+				writeOne(deletedIds, activeScheduleEntity, notificationOutboxEntity);
+				return;
+			}
+			throw new DatabaseValidationException("Write active schedule timed out", te);
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof DatabaseValidationException) {
+				throw (DatabaseValidationException) ee.getCause();
+			}
+			throw new DatabaseValidationException("Write active schedule failed", ee.getCause());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new DatabaseValidationException("Write active schedule interrupted", ie);
+		}
+	}
+
+	/**
+	 * Writes on its own, the same way as before the group commit.
+	 */
+	private void writeOne(List<Long> deletedIds, ActiveScheduleEntity activeScheduleEntity,
+			NotificationOutboxEntity notificationOutboxEntity) {
+		if (notificationOutboxEntity == null) {
+			writeActiveSchedule(deletedIds, activeScheduleEntity);
+			return;
+		}
+		try {
+			new TransactionTemplate(transactionManager).execute(status -> {
+				writeActiveSchedule(deletedIds, activeScheduleEntity);
+				notificationOutboxDao.create(notificationOutboxEntity);
+				return null;
+			});
+		} catch (TransactionException te) {
+			throw new DatabaseValidationException("Write active schedule failed", te);
+		}
+	}
+
+	private void writeActiveSchedule(List<Long> deletedIds, ActiveScheduleEntity activeScheduleEntity) {
+		if (activeScheduleEntity == null) {
+			for (Long deletedId : deletedIds) {
+				activeScheduleDao.delete(deletedId);
+			}
+		} else if (deletedIds.isEmpty()) {
+			activeScheduleDao.create(activeScheduleEntity);
+		} else {
+			activeScheduleDao.replaceActiveSchedules(deletedIds, activeScheduleEntity);
+		}
+	}
+
+	private void commitGroups() {
+		while (running || !pendingWrites.isEmpty()) {
+			List<PendingWrite> group = new ArrayList<>();
+			try {
+				PendingWrite first = pendingWrites.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				group.add(first);
+				long windowEnd = System.currentTimeMillis() + windowMilliSecond;
+				while (group.size() < maxSize) {
+					PendingWrite next = pendingWrites.poll(Math.max(0, windowEnd - System.currentTimeMillis()),
+							TimeUnit.MILLISECONDS);
+					if (next == null) {
+						break;
+					}
+					group.add(next);
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				pendingWrites.drainTo(group);
+				running = false;
+			}
+			try {
+				commitGroup(group);
+			} catch (Throwable t) {
+				// The group commit keeps running, the jobs of the group fail and retry their writes
+				failGroup(group, t);
+			}
+		}
+	}
+
+	private void failGroup(List<PendingWrite> group, Throwable t) {
+		failedGroupCount.incrementAndGet();
+		String errorMessage = messageBundleResourceHelper
+				.lookupMessage("scheduler.activeschedule.groupcommit.error", t.getMessage(), group.size());
+		logger.error(errorMessage, t);
+		for (PendingWrite pendingWrite : group) {
+			pendingWrite.committed.completeExceptionally(
+					new DatabaseValidationException("Write active schedule failed", t));
+		}
+	}
+
+	private void commitGroup(List<PendingWrite> group) {
+		if (group.isEmpty()) {
+			return;
+		}
+		List<Long> deletedIds = new ArrayList<>();
+		List<ActiveScheduleEntity> activeScheduleEntities = new ArrayList<>();
+		List<NotificationOutboxEntity> notificationOutboxEntities = new ArrayList<>();
+		for (PendingWrite pendingWrite : group) {
+			deletedIds.addAll(pendingWrite.deletedIds);
+			if (pendingWrite.activeScheduleEntity != null) {
+				activeScheduleEntities.add(pendingWrite.activeScheduleEntity);
+			}
+			if (pendingWrite.notificationOutboxEntity != null) {
+				notificationOutboxEntities.add(pendingWrite.notificationOutboxEntity);
+			}
+		}
+
+		try {
+			new TransactionTemplate(transactionManager).execute(status -> {
+				activeScheduleDao.writeActiveSchedules(deletedIds, activeScheduleEntities);
+				notificationOutboxDao.createAll(notificationOutboxEntities);
+				return null;
+			});
+			groupCount.incrementAndGet();
+			writeCount.addAndGet(group.size());
+			for (PendingWrite pendingWrite : group) {
+				pendingWrite.committed.complete(null);
+			}
+			return;
+		} catch (RuntimeException e) {
+			failedGroupCount.incrementAndGet();
+			String errorMessage = messageBundleResourceHelper
+					.lookupMessage("scheduler.activeschedule.groupcommit.failed", e.getMessage(), group.size());
+			logger.error(errorMessage, e);
+		}
+
+		for (PendingWrite pendingWrite : group) {
+			try {
+				writeOne(pendingWrite.deletedIds, pendingWrite.activeScheduleEntity,
+						pendingWrite.notificationOutboxEntity);
+				writeCount.incrementAndGet();
+				pendingWrite.committed.complete(null);
+			} catch (RuntimeException e) {
+				pendingWrite.committed.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Commits the writes already handed over, the jobs writing afterwards write on their own.
+	 */
+	@PreDestroy
+	void shutdown() throws InterruptedException {
+		if (groupCommitExecutor == null) {
+			return;
+		}
+		running = false;
+		groupCommitExecutor.shutdown();
+		groupCommitExecutor.awaitTermination(30, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		if (!groupCommitEnabled) {
+			return Collections.emptyList();
+		}
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Long>("scheduler.activeschedule.groupcommit.groups", groupCount.get()));
+		metrics.add(new Metric<Long>("scheduler.activeschedule.groupcommit.writes", writeCount.get()));
+		metrics.add(new Metric<Long>("scheduler.activeschedule.groupcommit.failed", failedGroupCount.get()));
+		return metrics;
+	}
+}
@@ -0,0 +1,270 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.AppId;
+import org.cloudfoundry.autoscaler.scheduler.util.ReplicaRoutingDataSource;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded in-memory cache of the schedules of the apps, keyed by the compact app id, in front of the queries for
+ * all the schedules of an app. The least recently used apps are evicted beyond the max size.
+ *
+ * The schedules of an app are loaded again from the database once they are older than the time to live,
+ * and right away after the schedules of the app were created or deleted. When the database cannot be
+ * read, the schedules cached up to the stale max time before are served instead.
+ *
+ * The cached schedules are not handed out, the callers get copies of them which they are free to change.
+ *
+ * The schedules are loaded from the replica of the database, except for the apps written on this scheduler
+ * within the replica lag max, which are loaded from the primary so that their writes are not missed.
+ */
+@Component
+public class AppSchedulesCache implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Value("${scheduler.cache.app.max.size:10000}")
+	private int maxSize;
+
+	@Value("${scheduler.cache.app.ttl.millisecond:30000}")
+	private long ttlMilliSecond;
+
+	@Value("${scheduler.cache.app.stale.max.millisecond:300000}")
+	private long staleMaxMilliSecond;
+
+	@Value("${scheduler.datasource.replica.lag.max.millisecond:5000}")
+	private long replicaLagMaxMilliSecond;
+
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@Autowired
+	private RecurringScheduleDao recurringScheduleDao;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private Map<AppId, AppSchedules> appSchedules;
+
+	// The apps written within the replica lag max with the time of their last write, oldest first
+	private Map<AppId, Long> writeTimes = new LinkedHashMap<>();
+
+	// Incremented by every invalidation, a load started before it is not cached
+	private long generation;
+
+	private long hitCount;
+
+	private long missCount;
+
+	private long evictionCount;
+
+	private long staleCount;
+
+	private long primaryLoadCount;
+
+	/**
+	 * The schedules of an app at the time they were loaded, the getters return copies of the schedules. The
+	 * cached schedules hold the compact app id once rather than the app id string in each schedule, the
+	 * copies get the string back.
+	 */
+	public static class AppSchedules {
+		private final AppId appId;
+		private final List<SpecificDateScheduleEntity> specificDateSchedules;
+		private final List<RecurringScheduleEntity> recurringSchedules;
+		private final long loadTime;
+
+		AppSchedules(AppId appId, List<SpecificDateScheduleEntity> specificDateSchedules,
+				List<RecurringScheduleEntity> recurringSchedules, long loadTime) {
+			this.appId = appId;
+			List<SpecificDateScheduleEntity> cachedSpecificDateSchedules = new ArrayList<>(
+					specificDateSchedules.size());
+			for (SpecificDateScheduleEntity specificDateScheduleEntity : specificDateSchedules) {
+				SpecificDateScheduleEntity cached = specificDateScheduleEntity.copy();
+				cached.setAppId(null);
+				cachedSpecificDateSchedules.add(cached);
+			}
+			List<RecurringScheduleEntity> cachedRecurringSchedules = new ArrayList<>(recurringSchedules.size());
+			for (RecurringScheduleEntity recurringScheduleEntity : recurringSchedules) {
+				RecurringScheduleEntity cached = recurringScheduleEntity.copy();
+				cached.setAppId(null);
+				cachedRecurringSchedules.add(cached);
+			}
+			this.specificDateSchedules = Collections.unmodifiableList(cachedSpecificDateSchedules);
+			this.recurringSchedules = Collections.unmodifiableList(cachedRecurringSchedules);
+			this.loadTime = loadTime;
+		}
+
+		public List<SpecificDateScheduleEntity> getSpecificDateSchedules() {
+			String appIdValue = appId.toString();
+			List<SpecificDateScheduleEntity> copies = new ArrayList<>(specificDateSchedules.size());
+			for (SpecificDateScheduleEntity specificDateScheduleEntity : specificDateSchedules) {
+				SpecificDateScheduleEntity copy = specificDateScheduleEntity.copy();
+				copy.setAppId(appIdValue);
+				copies.add(copy);
+			}
+			return copies;
+		}
+
+		public List<RecurringScheduleEntity> getRecurringSchedules() {
+			String appIdValue = appId.toString();
+			List<RecurringScheduleEntity> copies = new ArrayList<>(recurringSchedules.size());
+			for (RecurringScheduleEntity recurringScheduleEntity : recurringSchedules) {
+				RecurringScheduleEntity copy = recurringScheduleEntity.copy();
+				copy.setAppId(appIdValue);
+				copies.add(copy);
+			}
+			return copies;
+		}
+	}
+
+	@PostConstruct
+	void init() {
+		appSchedules = new LinkedHashMap<AppId, AppSchedules>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<AppId, AppSchedules> eldest) {
+				if (size() > maxSize) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Gets the schedules of the app, from the cache while they are fresh.
+	 *
+	 * @param appId
+	 * @return
+	 * @throws DatabaseValidationException - when the schedules could not be loaded and no cached schedules
+	 *             within the stale max time are left
+	 */
+	public AppSchedules getSchedules(String appId) {
+		AppId key = AppId.of(appId);
+		long now = System.currentTimeMillis();
+		AppSchedules cached;
+		long loadGeneration;
+		boolean loadFromPrimary;
+		synchronized (this) {
+			cached = appSchedules.get(key);
+			if (cached != null && now - cached.loadTime < ttlMilliSecond) {
+				hitCount++;
+				return cached;
+			}
+			missCount++;
+			loadGeneration = generation;
+			Long writeTime = writeTimes.get(key);
+			loadFromPrimary = writeTime != null && now - writeTime < replicaLagMaxMilliSecond;
+			if (loadFromPrimary) {
+				primaryLoadCount++;
+			}
+		}
+
+		AppSchedules loaded;
+		try {
+			if (loadFromPrimary) {
+				loaded = load(key, now);
+			} else {
+				loaded = ReplicaRoutingDataSource.readFromReplica(() -> load(key, now));
+			}
+		} catch (DatabaseValidationException dve) {
+			synchronized (this) {
+				if (cached != null && now - cached.loadTime < staleMaxMilliSecond
+						&& appSchedules.get(key) == cached) {
+					staleCount++;
+					String message = messageBundleResourceHelper.lookupMessage("scheduler.cache.stale.served",
+							appId, now - cached.loadTime, dve.getMessage());
+					logger.warn(message);
+					return cached;
+				}
+			}
+			throw dve;
+		}
+
+		synchronized (this) {
+			if (generation == loadGeneration) {
+				appSchedules.put(key, loaded);
+			}
+		}
+		return loaded;
+	}
+
+	private AppSchedules load(AppId appId, long loadTime) {
+		String appIdValue = appId.toString();
+		return new AppSchedules(appId, specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appIdValue),
+				recurringScheduleDao.findAllRecurringSchedulesByAppId(appIdValue), loadTime);
+	}
+
+	/**
+	 * Drops the cached schedules of the app. Within a transaction they are dropped again once it is
+	 * completed, so that a load reading the database before the commit is not served afterwards.
+	 *
+	 * @param appId
+	 */
+	public void invalidate(String appId) {
+		AppId key = AppId.of(appId);
+		remove(key);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					remove(key);
+				}
+			});
+		}
+	}
+
+	private synchronized void remove(AppId key) {
+		generation++;
+		appSchedules.remove(key);
+
+		long now = System.currentTimeMillis();
+		writeTimes.remove(key);
+		writeTimes.put(key, now);
+		Iterator<Long> iterator = writeTimes.values().iterator();
+		while (iterator.hasNext() && now - iterator.next() >= replicaLagMaxMilliSecond) {
+			iterator.remove();
+		}
+	}
+
+	public synchronized void clear() {
+		generation++;
+		appSchedules.clear();
+	}
+
+	@Override
+	public synchronized Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Integer>("scheduler.cache.app.size", appSchedules.size()));
+		metrics.add(new Metric<Long>("scheduler.cache.app.hits", hitCount));
+		metrics.add(new Metric<Long>("scheduler.cache.app.misses", missCount));
+		metrics.add(new Metric<Long>("scheduler.cache.app.evictions", evictionCount));
+		metrics.add(new Metric<Long>("scheduler.cache.app.stale", staleCount));
+		metrics.add(new Metric<Long>("scheduler.cache.app.loads.primary", primaryLoadCount));
+		return metrics;
+	}
+}
@@ -0,0 +1,139 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded in-memory cache of the schedules keyed by the schedule id, shared by the scaling jobs. The jobs
+ * only carry the schedule id and resolve the rest of the schedule from here at fire time. A schedule
+ * missing from the cache is loaded from the database. The least recently used schedules are evicted beyond
+ * the max size.
+ *
+ * The cache holds detached copies of the schedules. A schedule loaded while it is evicted is not cached,
+ * so that a deleted schedule does not come back.
+ */
+@Component
+public class ScheduleCache {
+
+	@Value("${scheduler.cache.schedule.max.size:10000}")
+	private int maxSize;
+
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@Autowired
+	private RecurringScheduleDao recurringScheduleDao;
+
+	private Map<Long, ScheduleEntity> schedules;
+
+	// Incremented by every eviction, a load started before it is not cached
+	private long generation;
+
+	@PostConstruct
+	void init() {
+		schedules = new LinkedHashMap<Long, ScheduleEntity>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, ScheduleEntity> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Gets the schedule from the cache, loads it from the database when it is not cached yet.
+	 *
+	 * @param scheduleId
+	 * @param scheduleType
+	 * @return the schedule, null if the schedule does not exist
+	 */
+	public ScheduleEntity getSchedule(Long scheduleId, ScheduleTypeEnum scheduleType) {
+		long loadGeneration;
+		synchronized (this) {
+			ScheduleEntity scheduleEntity = schedules.get(scheduleId);
+			if (scheduleEntity != null) {
+				return scheduleEntity;
+			}
+			loadGeneration = generation;
+		}
+
+		ScheduleEntity scheduleEntity;
+		if (scheduleType == ScheduleTypeEnum.SPECIFIC_DATE) {
+			scheduleEntity = specificDateScheduleDao.find(scheduleId);
+		} else {
+			scheduleEntity = recurringScheduleDao.find(scheduleId);
+		}
+		if (scheduleEntity == null) {
+			return null;
+		}
+
+		ScheduleEntity cached = copy(scheduleEntity);
+		synchronized (this) {
+			if (generation == loadGeneration) {
+				schedules.put(scheduleId, cached);
+			}
+		}
+		return cached;
+	}
+
+	public synchronized void putSchedules(Collection<? extends ScheduleEntity> scheduleEntities) {
+		for (ScheduleEntity scheduleEntity : scheduleEntities) {
+			schedules.put(scheduleEntity.getId(), copy(scheduleEntity));
+		}
+	}
+
+	/**
+	 * Evicts the schedule. Within a transaction it is evicted again once it is completed, so that a load
+	 * reading the database before the commit is not served afterwards.
+	 *
+	 * @param scheduleId
+	 */
+	public void evictSchedule(Long scheduleId) {
+		remove(scheduleId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					remove(scheduleId);
+				}
+			});
+		}
+	}
+
+	private synchronized void remove(Long scheduleId) {
+		generation++;
+		schedules.remove(scheduleId);
+	}
+
+	public synchronized void clear() {
+		generation++;
+		schedules.clear();
+	}
+
+	public synchronized int size() {
+		return schedules.size();
+	}
+
+	private ScheduleEntity copy(ScheduleEntity scheduleEntity) {
+		if (scheduleEntity instanceof SpecificDateScheduleEntity) {
+			return ((SpecificDateScheduleEntity) scheduleEntity).copy();
+		}
+		return ((RecurringScheduleEntity) scheduleEntity).copy();
+	}
+}
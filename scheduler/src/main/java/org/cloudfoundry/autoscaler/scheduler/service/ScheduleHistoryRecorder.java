@@ -0,0 +1,211 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.dao.ScheduleHistoryDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleHistoryEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.ReplicaRoutingDataSource;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the activations and deactivations of the active schedules in the schedule history, once the
+ * scaling engine answered their notification. The entries are queued and written in batches on the
+ * history thread at the flush interval, and right away once a batch is full, so recording never waits for
+ * the database. The entries recorded while the queue is full are dropped.
+ *
+ * The partitions of the days older than the retention are dropped on the history thread as well.
+ */
+@Component
+public class ScheduleHistoryRecorder implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Value("${scheduler.history.enabled:true}")
+	private boolean historyEnabled;
+
+	@Value("${scheduler.history.flush.interval.millisecond:1000}")
+	private long flushIntervalMilliSecond;
+
+	@Value("${scheduler.history.batch.size:500}")
+	private int batchSize;
+
+	@Value("${scheduler.history.queue.capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${scheduler.history.retention.days:30}")
+	private int retentionDays;
+
+	@Value("${scheduler.history.retention.interval.millisecond:3600000}")
+	private long retentionIntervalMilliSecond;
+
+	@Autowired
+	private ScheduleHistoryDao scheduleHistoryDao;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private BlockingQueue<ScheduleHistoryEntity> pendingEntries;
+
+	private ScheduledExecutorService historyExecutor;
+
+	private AtomicBoolean flushRequested = new AtomicBoolean();
+
+	private AtomicLong recordedCount = new AtomicLong();
+
+	private AtomicLong writtenCount = new AtomicLong();
+
+	private AtomicLong droppedCount = new AtomicLong();
+
+	private AtomicLong failedCount = new AtomicLong();
+
+	private long reportedDroppedCount;
+
+	@PostConstruct
+	void init() {
+		if (!historyEnabled) {
+			return;
+		}
+		pendingEntries = new ArrayBlockingQueue<>(queueCapacity);
+		historyExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(() -> ReplicaRoutingDataSource.useQuartzPool(runnable), "schedule-history");
+			thread.setDaemon(true);
+			return thread;
+		});
+		historyExecutor.scheduleWithFixedDelay(this::flush, flushIntervalMilliSecond, flushIntervalMilliSecond,
+				TimeUnit.MILLISECONDS);
+		if (retentionDays > 0) {
+			historyExecutor.scheduleWithFixedDelay(this::dropExpiredPartitions, flushIntervalMilliSecond,
+					retentionIntervalMilliSecond, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Records the transition of the active schedule with the answer of the scaling engine to its notification.
+	 *
+	 * @param activeScheduleEntity
+	 * @param scalingAction
+	 * @param transitionTime - the time of the transition
+	 * @param fireTime - the time the job fired, null when not known
+	 * @param acknowledged - whether the scaling engine acknowledged the notification
+	 * @param attempt - the attempt of the notification answered
+	 * @param roundTripMilliSecond - the round trip of the answered attempt
+	 */
+	public void record(ActiveScheduleEntity activeScheduleEntity, JobActionEnum scalingAction, Date transitionTime,
+			Date fireTime, boolean acknowledged, int attempt, long roundTripMilliSecond) {
+		if (!historyEnabled) {
+			return;
+		}
+		ScheduleHistoryEntity scheduleHistoryEntity = new ScheduleHistoryEntity(activeScheduleEntity, scalingAction,
+				transitionTime, fireTime);
+		scheduleHistoryEntity.setAcknowledged(acknowledged);
+		scheduleHistoryEntity.setAttempt(attempt);
+		scheduleHistoryEntity.setRoundTripMilliSecond(roundTripMilliSecond);
+
+		if (!pendingEntries.offer(scheduleHistoryEntity)) {
+			droppedCount.incrementAndGet();
+			return;
+		}
+		recordedCount.incrementAndGet();
+		if (pendingEntries.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+			try {
+				historyExecutor.execute(this::flush);
+			} catch (RejectedExecutionException ree) {
+				// Shutting down, the entries are written on shutdown
+				flushRequested.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Writes the queued entries in batches.
+	 */
+	void flush() {
+		flushRequested.set(false);
+		long dropped = droppedCount.get();
+		if (dropped > reportedDroppedCount) {
+			logger.warn(messageBundleResourceHelper.lookupMessage("scheduler.history.queue.full",
+					dropped - reportedDroppedCount, queueCapacity));
+			reportedDroppedCount = dropped;
+		}
+
+		List<ScheduleHistoryEntity> batch = new ArrayList<>();
+		while (pendingEntries.drainTo(batch, batchSize) > 0) {
+			try {
+				scheduleHistoryDao.createAll(batch);
+				writtenCount.addAndGet(batch.size());
+			} catch (DatabaseValidationException dve) {
+				failedCount.addAndGet(batch.size());
+				String errorMessage = messageBundleResourceHelper.lookupMessage("scheduler.history.write.failed",
+						dve.getMessage(), batch.size());
+				logger.error(errorMessage, dve);
+			}
+			batch.clear();
+		}
+	}
+
+	void dropExpiredPartitions() {
+		Date expiryTime = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+		try {
+			int droppedPartitionCount = scheduleHistoryDao.dropPartitionsBefore(expiryTime);
+			if (droppedPartitionCount > 0) {
+				logger.info(messageBundleResourceHelper.lookupMessage("scheduler.history.partitions.dropped",
+						droppedPartitionCount, retentionDays));
+			}
+		} catch (DatabaseValidationException dve) {
+			String errorMessage = messageBundleResourceHelper
+					.lookupMessage("scheduler.history.partitions.drop.failed", dve.getMessage());
+			logger.error(errorMessage, dve);
+		}
+	}
+
+	/**
+	 * Writes the entries still queued.
+	 */
+	@PreDestroy
+	void shutdown() throws InterruptedException {
+		if (historyExecutor == null) {
+			return;
+		}
+		historyExecutor.shutdown();
+		historyExecutor.awaitTermination(30, TimeUnit.SECONDS);
+		flush();
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		if (!historyEnabled) {
+			return Collections.emptyList();
+		}
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Integer>("scheduler.history.queue.size", pendingEntries.size()));
+		metrics.add(new Metric<Long>("scheduler.history.recorded", recordedCount.get()));
+		metrics.add(new Metric<Long>("scheduler.history.written", writtenCount.get()));
+		metrics.add(new Metric<Long>("scheduler.history.dropped", droppedCount.get()));
+		metrics.add(new Metric<Long>("scheduler.history.failed", failedCount.get()));
+		return metrics;
+	}
+}
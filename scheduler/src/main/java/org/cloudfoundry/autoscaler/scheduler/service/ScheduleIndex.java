@@ -0,0 +1,543 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.BitsetUserType;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.AppId;
+import org.cloudfoundry.autoscaler.scheduler.util.ReplicaRoutingDataSource;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Columnar in-memory index of the schedules of all the applications, to find the schedules active at an
+ * instant without going through the schedule entities. Each schedule takes one slot of the primitive
+ * arrays: the start and end minutes, the first and last days, the day bitsets and the instance counts, with
+ * the app id and the time zone interned to int handles. A deleted slot is filled with the last one.
+ *
+ * The schedules are loaded when the scheduler starts, before the reconciliation, and the schedules created
+ * and deleted on this scheduler are applied once their transaction is committed. Going through the slots
+ * active at an instant allocates nothing once the thread went through the time zones of the index once.
+ *
+ * The index is off by default: only the active count metric reads it, and it does not see the schedules
+ * created and deleted on the other schedulers.
+ */
+@Component
+public class ScheduleIndex implements SmartLifecycle, PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * The instance count of the slots without one.
+	 */
+	public static final int NO_INSTANCE_COUNT = -1;
+
+	private static final byte SPECIFIC_DATE = 0;
+
+	private static final byte RECURRING = 1;
+
+	private static final int MINUTES_PER_DAY = 24 * 60;
+
+	/**
+	 * Visits the schedules active at an instant.
+	 */
+	public interface ActiveScheduleVisitor {
+		/**
+		 * @param appId
+		 * @param scheduleId
+		 * @param scheduleType
+		 * @param instanceMinCount
+		 * @param instanceMaxCount
+		 * @param initialMinInstanceCount - NO_INSTANCE_COUNT when the schedule has none
+		 */
+		void visit(AppId appId, long scheduleId, ScheduleTypeEnum scheduleType, int instanceMinCount,
+				int instanceMaxCount, int initialMinInstanceCount);
+	}
+
+	@Value("${scheduler.index.enabled:false}")
+	private boolean indexEnabled;
+
+	@Value("${scheduler.index.initial.capacity:1024}")
+	private int initialCapacity;
+
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@Autowired
+	private RecurringScheduleDao recurringScheduleDao;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private int size;
+
+	private long[] scheduleIds = new long[0];
+
+	private int[] appHandles = new int[0];
+
+	private int[] timeZoneHandles = new int[0];
+
+	private byte[] kinds = new byte[0];
+
+	// Local epoch minutes of the specific date schedules, minutes of the day of the recurring schedules
+	private int[] startMinutes = new int[0];
+
+	private int[] endMinutes = new int[0];
+
+	// Local epoch days of the start and end dates of the recurring schedules, both inclusive
+	private int[] firstDays = new int[0];
+
+	private int[] lastDays = new int[0];
+
+	private int[] daysOfWeek = new int[0];
+
+	private int[] daysOfMonth = new int[0];
+
+	private int[] instanceMinCounts = new int[0];
+
+	private int[] instanceMaxCounts = new int[0];
+
+	private int[] initialMinInstanceCounts = new int[0];
+
+	private final Map<AppId, Integer> appHandlesByAppId = new HashMap<>();
+
+	private AppId[] appIds = new AppId[0];
+
+	private int[] appScheduleCounts = new int[0];
+
+	private int[] freeAppHandles = new int[0];
+
+	private int freeAppHandleCount;
+
+	private int appHandleCount;
+
+	private final Map<String, Integer> timeZoneHandlesById = new HashMap<>();
+
+	private volatile TimeZone[] timeZones = new TimeZone[0];
+
+	private final ThreadLocal<LocalTimes> localTimes = ThreadLocal.withInitial(LocalTimes::new);
+
+	private volatile boolean loaded;
+
+	private volatile boolean running;
+
+	/**
+	 * The wall clock of each time zone of the index at the instant of the last evaluation of the thread.
+	 */
+	private static class LocalTimes {
+		private int[] epochMinutes = new int[0];
+		private int[] epochDays = new int[0];
+		private int[] minutesOfDay = new int[0];
+		private int[] dayOfWeekBits = new int[0];
+		private int[] dayOfMonthBits = new int[0];
+
+		void compute(TimeZone[] timeZones, long time) {
+			if (epochMinutes.length < timeZones.length) {
+				epochMinutes = new int[timeZones.length];
+				epochDays = new int[timeZones.length];
+				minutesOfDay = new int[timeZones.length];
+				dayOfWeekBits = new int[timeZones.length];
+				dayOfMonthBits = new int[timeZones.length];
+			}
+			for (int i = 0; i < timeZones.length; i++) {
+				long localTime = time + timeZones[i].getOffset(time);
+				int epochMinute = (int) Math.floorDiv(localTime, 60000L);
+				int epochDay = Math.floorDiv(epochMinute, MINUTES_PER_DAY);
+				epochMinutes[i] = epochMinute;
+				epochDays[i] = epochDay;
+				minutesOfDay[i] = epochMinute - epochDay * MINUTES_PER_DAY;
+				// The epoch day 0 is a Thursday, the days of the week start on Monday
+				dayOfWeekBits[i] = 1 << Math.floorMod(epochDay + 3, 7);
+				dayOfMonthBits[i] = 1 << (dayOfMonth(epochDay) - 1);
+			}
+		}
+	}
+
+	/**
+	 * Loads all the schedules, from the read replica when enabled. The index stays empty when they cannot
+	 * be loaded.
+	 */
+	public void load() {
+		try {
+			List<SpecificDateScheduleEntity> specificDateSchedules = ReplicaRoutingDataSource
+					.readFromReplica(() -> specificDateScheduleDao.findAllSpecificDateSchedules());
+			List<RecurringScheduleEntity> recurringSchedules = ReplicaRoutingDataSource
+					.readFromReplica(() -> recurringScheduleDao.findAllRecurringSchedules());
+
+			lock.writeLock().lock();
+			try {
+				clear();
+				ensureCapacity(Math.max(initialCapacity, specificDateSchedules.size() + recurringSchedules.size()));
+				for (ScheduleEntity scheduleEntity : specificDateSchedules) {
+					add(scheduleEntity);
+				}
+				for (ScheduleEntity scheduleEntity : recurringSchedules) {
+					add(scheduleEntity);
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+			loaded = true;
+			logger.info(messageBundleResourceHelper.lookupMessage("scheduler.index.loaded", size, appHandlesByAppId.size()));
+		} catch (DatabaseValidationException dve) {
+			logger.error(messageBundleResourceHelper.lookupMessage("scheduler.index.load.failed", dve.getMessage()),
+					dve);
+		}
+	}
+
+	/**
+	 * Adds the created schedules, once the transaction is committed within a transaction.
+	 *
+	 * @param scheduleEntities - with their ids
+	 */
+	public void addSchedules(Collection<? extends ScheduleEntity> scheduleEntities) {
+		if (!indexEnabled) {
+			return;
+		}
+		afterCommit(() -> {
+			lock.writeLock().lock();
+			try {
+				ensureCapacity(size + scheduleEntities.size());
+				for (ScheduleEntity scheduleEntity : scheduleEntities) {
+					add(scheduleEntity);
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		});
+	}
+
+	/**
+	 * Removes the schedules of the app, once the transaction is committed within a transaction.
+	 *
+	 * @param appId
+	 */
+	public void removeSchedules(String appId) {
+		if (!indexEnabled) {
+			return;
+		}
+		afterCommit(() -> {
+			lock.writeLock().lock();
+			try {
+				Integer appHandle = appHandlesByAppId.get(AppId.of(appId));
+				if (appHandle == null) {
+					return;
+				}
+				for (int slot = size - 1; slot >= 0; slot--) {
+					if (appHandles[slot] == appHandle) {
+						remove(slot);
+					}
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		});
+	}
+
+	private void afterCommit(Runnable runnable) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					runnable.run();
+				}
+			});
+		} else {
+			runnable.run();
+		}
+	}
+
+	/**
+	 * Visits the schedules active at the time, in the time zone of each schedule. A specific date schedule
+	 * is active from its start date time up to its end date time, a recurring schedule from its start time up
+	 * to its end time on its days between its start and end dates.
+	 *
+	 * @param time - in milliseconds since the epoch
+	 * @param visitor
+	 * @return the number of schedules visited
+	 */
+	public int forEachActiveAt(long time, ActiveScheduleVisitor visitor) {
+		LocalTimes local = localTimes.get();
+		int activeCount = 0;
+		lock.readLock().lock();
+		try {
+			local.compute(timeZones, time);
+			for (int slot = 0; slot < size; slot++) {
+				if (isActive(slot, local)) {
+					activeCount++;
+					if (visitor != null) {
+						visitor.visit(appIds[appHandles[slot]], scheduleIds[slot],
+								kinds[slot] == SPECIFIC_DATE ? ScheduleTypeEnum.SPECIFIC_DATE
+										: ScheduleTypeEnum.RECURRING,
+								instanceMinCounts[slot], instanceMaxCounts[slot], initialMinInstanceCounts[slot]);
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return activeCount;
+	}
+
+	private boolean isActive(int slot, LocalTimes local) {
+		int timeZoneHandle = timeZoneHandles[slot];
+		if (kinds[slot] == SPECIFIC_DATE) {
+			int epochMinute = local.epochMinutes[timeZoneHandle];
+			return startMinutes[slot] <= epochMinute && epochMinute < endMinutes[slot];
+		}
+		int minuteOfDay = local.minutesOfDay[timeZoneHandle];
+		int epochDay = local.epochDays[timeZoneHandle];
+		return startMinutes[slot] <= minuteOfDay && minuteOfDay < endMinutes[slot] && firstDays[slot] <= epochDay
+				&& epochDay <= lastDays[slot] && ((daysOfWeek[slot] & local.dayOfWeekBits[timeZoneHandle]) != 0
+						|| (daysOfMonth[slot] & local.dayOfMonthBits[timeZoneHandle]) != 0);
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	private void add(ScheduleEntity scheduleEntity) {
+		int slot = size++;
+		scheduleIds[slot] = scheduleEntity.getId();
+		appHandles[slot] = internAppId(AppId.of(scheduleEntity.getAppId()));
+		timeZoneHandles[slot] = internTimeZone(scheduleEntity.getTimeZone());
+		instanceMinCounts[slot] = toInstanceCount(scheduleEntity.getInstanceMinCount());
+		instanceMaxCounts[slot] = toInstanceCount(scheduleEntity.getInstanceMaxCount());
+		initialMinInstanceCounts[slot] = toInstanceCount(scheduleEntity.getInitialMinInstanceCount());
+
+		if (scheduleEntity instanceof SpecificDateScheduleEntity) {
+			SpecificDateScheduleEntity specificDateScheduleEntity = (SpecificDateScheduleEntity) scheduleEntity;
+			kinds[slot] = SPECIFIC_DATE;
+			startMinutes[slot] = toEpochMinute(specificDateScheduleEntity.getStartDateTime());
+			endMinutes[slot] = toEpochMinute(specificDateScheduleEntity.getEndDateTime());
+			firstDays[slot] = Integer.MIN_VALUE;
+			lastDays[slot] = Integer.MAX_VALUE;
+			daysOfWeek[slot] = 0;
+			daysOfMonth[slot] = 0;
+		} else {
+			RecurringScheduleEntity recurringScheduleEntity = (RecurringScheduleEntity) scheduleEntity;
+			kinds[slot] = RECURRING;
+			startMinutes[slot] = Math.floorMod(toEpochMinute(recurringScheduleEntity.getStartTime()), MINUTES_PER_DAY);
+			endMinutes[slot] = Math.floorMod(toEpochMinute(recurringScheduleEntity.getEndTime()), MINUTES_PER_DAY);
+			firstDays[slot] = recurringScheduleEntity.getStartDate() == null ? Integer.MIN_VALUE
+					: Math.floorDiv(toEpochMinute(recurringScheduleEntity.getStartDate()), MINUTES_PER_DAY);
+			lastDays[slot] = recurringScheduleEntity.getEndDate() == null ? Integer.MAX_VALUE
+					: Math.floorDiv(toEpochMinute(recurringScheduleEntity.getEndDate()), MINUTES_PER_DAY);
+			daysOfWeek[slot] = toBitset(recurringScheduleEntity.getDaysOfWeek());
+			daysOfMonth[slot] = toBitset(recurringScheduleEntity.getDaysOfMonth());
+		}
+	}
+
+	private void remove(int slot) {
+		releaseAppHandle(appHandles[slot]);
+		int last = --size;
+		if (slot != last) {
+			scheduleIds[slot] = scheduleIds[last];
+			appHandles[slot] = appHandles[last];
+			timeZoneHandles[slot] = timeZoneHandles[last];
+			kinds[slot] = kinds[last];
+			startMinutes[slot] = startMinutes[last];
+			endMinutes[slot] = endMinutes[last];
+			firstDays[slot] = firstDays[last];
+			lastDays[slot] = lastDays[last];
+			daysOfWeek[slot] = daysOfWeek[last];
+			daysOfMonth[slot] = daysOfMonth[last];
+			instanceMinCounts[slot] = instanceMinCounts[last];
+			instanceMaxCounts[slot] = instanceMaxCounts[last];
+			initialMinInstanceCounts[slot] = initialMinInstanceCounts[last];
+		}
+	}
+
+	private void clear() {
+		size = 0;
+		appHandlesByAppId.clear();
+		Arrays.fill(appIds, null);
+		Arrays.fill(appScheduleCounts, 0);
+		appHandleCount = 0;
+		freeAppHandleCount = 0;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= scheduleIds.length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, scheduleIds.length * 2);
+		scheduleIds = Arrays.copyOf(scheduleIds, newCapacity);
+		appHandles = Arrays.copyOf(appHandles, newCapacity);
+		timeZoneHandles = Arrays.copyOf(timeZoneHandles, newCapacity);
+		kinds = Arrays.copyOf(kinds, newCapacity);
+		startMinutes = Arrays.copyOf(startMinutes, newCapacity);
+		endMinutes = Arrays.copyOf(endMinutes, newCapacity);
+		firstDays = Arrays.copyOf(firstDays, newCapacity);
+		lastDays = Arrays.copyOf(lastDays, newCapacity);
+		daysOfWeek = Arrays.copyOf(daysOfWeek, newCapacity);
+		daysOfMonth = Arrays.copyOf(daysOfMonth, newCapacity);
+		instanceMinCounts = Arrays.copyOf(instanceMinCounts, newCapacity);
+		instanceMaxCounts = Arrays.copyOf(instanceMaxCounts, newCapacity);
+		initialMinInstanceCounts = Arrays.copyOf(initialMinInstanceCounts, newCapacity);
+	}
+
+	private int internAppId(AppId appId) {
+		Integer appHandle = appHandlesByAppId.get(appId);
+		if (appHandle == null) {
+			if (freeAppHandleCount > 0) {
+				appHandle = freeAppHandles[--freeAppHandleCount];
+			} else {
+				appHandle = appHandleCount++;
+				if (appHandle == appIds.length) {
+					appIds = Arrays.copyOf(appIds, Math.max(16, appIds.length * 2));
+					appScheduleCounts = Arrays.copyOf(appScheduleCounts, appIds.length);
+				}
+			}
+			appIds[appHandle] = appId;
+			appHandlesByAppId.put(appId, appHandle);
+		}
+		appScheduleCounts[appHandle]++;
+		return appHandle;
+	}
+
+	private void releaseAppHandle(int appHandle) {
+		if (--appScheduleCounts[appHandle] > 0) {
+			return;
+		}
+		appHandlesByAppId.remove(appIds[appHandle]);
+		appIds[appHandle] = null;
+		if (freeAppHandleCount == freeAppHandles.length) {
+			freeAppHandles = Arrays.copyOf(freeAppHandles, Math.max(16, freeAppHandles.length * 2));
+		}
+		freeAppHandles[freeAppHandleCount++] = appHandle;
+	}
+
+	private int internTimeZone(String timeZoneId) {
+		Integer timeZoneHandle = timeZoneHandlesById.get(timeZoneId);
+		if (timeZoneHandle == null) {
+			timeZoneHandle = timeZones.length;
+			TimeZone[] newTimeZones = Arrays.copyOf(timeZones, timeZones.length + 1);
+			newTimeZones[timeZoneHandle] = TimeZone.getTimeZone(timeZoneId);
+			timeZones = newTimeZones;
+			timeZoneHandlesById.put(timeZoneId, timeZoneHandle);
+		}
+		return timeZoneHandle;
+	}
+
+	/**
+	 * The wall clock of the dates of the schedules is in the default time zone of the JVM.
+	 */
+	private static int toEpochMinute(Date date) {
+		LocalDateTime localDateTime = new Timestamp(date.getTime()).toLocalDateTime();
+		return (int) Math.floorDiv(localDateTime.toEpochSecond(ZoneOffset.UTC), 60L);
+	}
+
+	private static int toInstanceCount(Integer instanceCount) {
+		return instanceCount == null ? NO_INSTANCE_COUNT : instanceCount;
+	}
+
+	private static int toBitset(int[] days) {
+		return days == null ? 0 : BitsetUserType.toBitset(days);
+	}
+
+	/**
+	 * The day of the month of the epoch day in the proleptic Gregorian calendar, without going through the
+	 * date objects.
+	 */
+	static int dayOfMonth(long epochDay) {
+		long shiftedDay = epochDay + 719468;
+		long era = Math.floorDiv(shiftedDay, 146097);
+		long dayOfEra = shiftedDay - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthIndex = (5 * dayOfYear + 2) / 153;
+		return (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+	}
+
+	@Override
+	public void start() {
+		load();
+		running = true;
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Started right before the reconciliation.
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE - 2;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return indexEnabled;
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		if (!indexEnabled) {
+			return Collections.emptyList();
+		}
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			metrics.add(new Metric<Integer>("scheduler.index.size", size));
+			metrics.add(new Metric<Integer>("scheduler.index.apps", appHandlesByAppId.size()));
+			metrics.add(new Metric<Integer>("scheduler.index.capacity", scheduleIds.length));
+		} finally {
+			lock.readLock().unlock();
+		}
+		metrics.add(new Metric<Integer>("scheduler.index.active", forEachActiveAt(System.currentTimeMillis(), null)));
+		return metrics;
+	}
+}
@@ -8,6 +8,7 @@ import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.quartz.AppScalingScheduleEndJob;
 import org.cloudfoundry.autoscaler.scheduler.quartz.AppScalingScheduleStartJob;
+import org.cloudfoundry.autoscaler.scheduler.quartz.FireTimeCompensator;
 import org.cloudfoundry.autoscaler.scheduler.util.DateHelper;
 import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
 import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
@@ -36,6 +37,8 @@ class ScheduleJobManager {
 	private Scheduler scheduler;
 	@Autowired
 	private ValidationErrorResult validationErrorResult;
+	@Autowired
+	private FireTimeCompensator fireTimeCompensator;
 
 	/**
 	 * Creates simple job for specific date schedule for the application scaling using helper 
@@ -57,24 +60,14 @@ class ScheduleJobManager {
 		JobDetail endJobDetail = ScheduleJobHelper.buildJob(endJobKey, AppScalingScheduleEndJob.class);
 
 		// Set the data in JobDetail for informing the scaling decision maker that scaling job needs to be started
-		setupScalingScheduleJobData(startJobDetail, specificDateScheduleEntity, JobActionEnum.START);
+		setupScalingScheduleJobData(startJobDetail, specificDateScheduleEntity);
 		// Set the data in JobDetail for informing the scaling decision maker that scaling job needs to be ended.
-		setupScalingScheduleJobData(endJobDetail, specificDateScheduleEntity, JobActionEnum.END);
+		setupScalingScheduleJobData(endJobDetail, specificDateScheduleEntity);
 
 		// Build the trigger
-		TimeZone policyTimeZone = TimeZone.getTimeZone(specificDateScheduleEntity.getTimeZone());
-
-		Date triggerStartDateTime = DateHelper.getDateWithZoneOffset(specificDateScheduleEntity.getStartDateTime(),
-				policyTimeZone);
-		Date triggerEndDateTime = DateHelper.getDateWithZoneOffset(specificDateScheduleEntity.getEndDateTime(),
-				policyTimeZone);
-
-		TriggerKey startTriggerKey = ScheduleJobHelper.generateTriggerKey(scheduleId, JobActionEnum.START,
-				ScheduleTypeEnum.SPECIFIC_DATE);
-		TriggerKey endTriggerKey = ScheduleJobHelper.generateTriggerKey(scheduleId, JobActionEnum.END,
-				ScheduleTypeEnum.SPECIFIC_DATE);
-		Trigger jobStartTrigger = ScheduleJobHelper.buildTrigger(startTriggerKey, startJobKey, triggerStartDateTime);
-		Trigger jobEndTrigger = ScheduleJobHelper.buildTrigger(endTriggerKey, endJobKey, triggerEndDateTime);
+		Trigger jobStartTrigger = buildSimpleJobTrigger(specificDateScheduleEntity, JobActionEnum.START,
+				fireTimeCompensator.getStartAdvanceMilliSecond());
+		Trigger jobEndTrigger = buildSimpleJobTrigger(specificDateScheduleEntity, JobActionEnum.END);
 
 		// Schedule the job
 		try {
@@ -101,23 +94,14 @@ class ScheduleJobManager {
 		JobDetail jobEndDetail = ScheduleJobHelper.buildJob(endJobKey, AppScalingScheduleEndJob.class);
 
 		// Set the data in JobDetail for informing the scaling decision maker that scaling job needs to be started
-		setupScalingScheduleJobData(jobStartDetail, recurringScheduleEntity, JobActionEnum.START);
+		setupScalingScheduleJobData(jobStartDetail, recurringScheduleEntity);
 		// Set the data in JobDetail for informing the scaling decision maker that scaling job needs to be ended.
-		setupScalingScheduleJobData(jobEndDetail, recurringScheduleEntity, JobActionEnum.END);
+		setupScalingScheduleJobData(jobEndDetail, recurringScheduleEntity);
 
 		// Build the trigger
-		Date triggerStartTime = recurringScheduleEntity.getStartTime();
-		Date triggerEndTime = recurringScheduleEntity.getEndTime();
-
-		TriggerKey startTriggerKey = ScheduleJobHelper.generateTriggerKey(scheduleId, JobActionEnum.START,
-				ScheduleTypeEnum.RECURRING);
-		TriggerKey endTriggerKey = ScheduleJobHelper.generateTriggerKey(scheduleId, JobActionEnum.END,
-				ScheduleTypeEnum.RECURRING);
-
-		Trigger jobStartTrigger = ScheduleJobHelper.buildCronTrigger(startTriggerKey, jobStartDetail.getKey(),
-				recurringScheduleEntity, triggerStartTime);
-		Trigger jobEndTrigger = ScheduleJobHelper.buildCronTrigger(endTriggerKey, jobEndDetail.getKey(),
-				recurringScheduleEntity, triggerEndTime);
+		Trigger jobStartTrigger = buildCronJobTrigger(recurringScheduleEntity, JobActionEnum.START,
+				fireTimeCompensator.getStartAdvanceMilliSecond());
+		Trigger jobEndTrigger = buildCronJobTrigger(recurringScheduleEntity, JobActionEnum.END);
 
 		// Schedule the job
 		try {
@@ -133,32 +117,95 @@ class ScheduleJobManager {
 	}
 
 	/**
-	 * Sets the data in the JobDetail object
+	 * Builds the trigger of the specified scaling action for the specific date schedule.
+	 * 
+	 * @param specificDateScheduleEntity
+	 * @param jobAction
+	 * @return
+	 */
+	Trigger buildSimpleJobTrigger(SpecificDateScheduleEntity specificDateScheduleEntity, JobActionEnum jobAction) {
+		return buildSimpleJobTrigger(specificDateScheduleEntity, jobAction, 0);
+	}
+
+	/**
+	 * Builds the trigger of the specified scaling action for the specific date schedule, firing the
+	 * specified advance ahead of the schedule. The advance applied is kept in the data of the trigger.
+	 * 
+	 * @param specificDateScheduleEntity
+	 * @param jobAction
+	 * @param advanceMilliSecond
+	 * @return
+	 */
+	Trigger buildSimpleJobTrigger(SpecificDateScheduleEntity specificDateScheduleEntity, JobActionEnum jobAction,
+			long advanceMilliSecond) {
+		Long scheduleId = specificDateScheduleEntity.getId();
+		TimeZone policyTimeZone = TimeZone.getTimeZone(specificDateScheduleEntity.getTimeZone());
+
+		Date triggerDateTime = jobAction == JobActionEnum.START ? specificDateScheduleEntity.getStartDateTime()
+				: specificDateScheduleEntity.getEndDateTime();
+		triggerDateTime = DateHelper.getDateWithZoneOffset(triggerDateTime, policyTimeZone);
+
+		JobKey jobKey = ScheduleJobHelper.generateJobKey(scheduleId, jobAction, ScheduleTypeEnum.SPECIFIC_DATE);
+		TriggerKey triggerKey = ScheduleJobHelper.generateTriggerKey(scheduleId, jobAction,
+				ScheduleTypeEnum.SPECIFIC_DATE);
+
+		Trigger trigger = ScheduleJobHelper.buildTrigger(triggerKey, jobKey,
+				new Date(triggerDateTime.getTime() - advanceMilliSecond),
+				ScheduleJobHelper.getTriggerPriority(jobAction));
+		if (advanceMilliSecond > 0) {
+			trigger.getJobDataMap().put(ScheduleJobHelper.START_ADVANCE, advanceMilliSecond);
+		}
+		return trigger;
+	}
+
+	/**
+	 * Builds the trigger of the specified scaling action for the recurring schedule.
+	 * 
+	 * @param recurringScheduleEntity
+	 * @param jobAction
+	 * @return
+	 */
+	Trigger buildCronJobTrigger(RecurringScheduleEntity recurringScheduleEntity, JobActionEnum jobAction) {
+		return buildCronJobTrigger(recurringScheduleEntity, jobAction, 0);
+	}
+
+	/**
+	 * Builds the trigger of the specified scaling action for the recurring schedule, firing the specified
+	 * advance ahead of the schedule.
+	 * 
+	 * @param recurringScheduleEntity
+	 * @param jobAction
+	 * @param advanceMilliSecond
+	 * @return
+	 */
+	Trigger buildCronJobTrigger(RecurringScheduleEntity recurringScheduleEntity, JobActionEnum jobAction,
+			long advanceMilliSecond) {
+		Long scheduleId = recurringScheduleEntity.getId();
+
+		Date triggerTime = jobAction == JobActionEnum.START ? recurringScheduleEntity.getStartTime()
+				: recurringScheduleEntity.getEndTime();
+
+		JobKey jobKey = ScheduleJobHelper.generateJobKey(scheduleId, jobAction, ScheduleTypeEnum.RECURRING);
+		TriggerKey triggerKey = ScheduleJobHelper.generateTriggerKey(scheduleId, jobAction,
+				ScheduleTypeEnum.RECURRING);
+
+		return ScheduleJobHelper.buildCronTrigger(triggerKey, jobKey, recurringScheduleEntity, triggerTime,
+				advanceMilliSecond).getTriggerBuilder().withPriority(ScheduleJobHelper.getTriggerPriority(jobAction))
+				.build();
+	}
+
+	/**
+	 * Sets the data in the JobDetail object. Only the schedule id is stored, the scaling action is given
+	 * by the job class and the job key, and the rest of the schedule is resolved from the schedule cache
+	 * when the job fires.
 	 * 
 	 * @param jobDetail
 	 * @param scheduleEntity
-	 * @param jobAction 
 	 */
-	private void setupScalingScheduleJobData(JobDetail jobDetail, ScheduleEntity scheduleEntity,
-			JobActionEnum jobAction) {
+	private void setupScalingScheduleJobData(JobDetail jobDetail, ScheduleEntity scheduleEntity) {
 
 		JobDataMap jobDataMap = jobDetail.getJobDataMap();
-		jobDataMap.put(ScheduleJobHelper.APP_ID, scheduleEntity.getAppId());
 		jobDataMap.put(ScheduleJobHelper.SCHEDULE_ID, scheduleEntity.getId());
-		jobDataMap.put(ScheduleJobHelper.RescheduleCount.ACTIVE_SCHEDULE.name(), 1);
-		jobDataMap.put(ScheduleJobHelper.RescheduleCount.SCALING_ENGINE_NOTIFICATION.name(),1);
-		jobDataMap.put(ScheduleJobHelper.ACTIVE_SCHEDULE_TABLE_TASK_DONE, false);
-
-		// The minimum and maximum instance count need to be set when the
-		// scaling action has to be started.
-		if (jobAction == JobActionEnum.START) {
-			jobDataMap.put(ScheduleJobHelper.INSTANCE_MIN_COUNT, scheduleEntity.getInstanceMinCount());
-			jobDataMap.put(ScheduleJobHelper.INSTANCE_MAX_COUNT, scheduleEntity.getInstanceMaxCount());
-			jobDataMap.put(ScheduleJobHelper.INITIAL_MIN_INSTANCE_COUNT, scheduleEntity.getInitialMinInstanceCount());
-		} else {
-			jobDataMap.put(ScheduleJobHelper.INSTANCE_MIN_COUNT, scheduleEntity.getDefaultInstanceMinCount());
-			jobDataMap.put(ScheduleJobHelper.INSTANCE_MAX_COUNT, scheduleEntity.getDefaultInstanceMaxCount());
-		}
 	}
 
 	void deleteJob(String appId, Long scheduleId, ScheduleTypeEnum scheduleTypeEnum) {
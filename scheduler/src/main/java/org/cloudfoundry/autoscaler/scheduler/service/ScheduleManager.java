@@ -2,28 +2,35 @@ package org.cloudfoundry.autoscaler.scheduler.service;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.TimeZone;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
 import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.ScheduleHistoryDao;
 import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
 import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleHistoryEntity;
 import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.rest.model.ActiveSchedules;
 import org.cloudfoundry.autoscaler.scheduler.rest.model.ApplicationSchedules;
 import org.cloudfoundry.autoscaler.scheduler.rest.model.Schedules;
 import org.cloudfoundry.autoscaler.scheduler.util.DataValidationHelper;
 import org.cloudfoundry.autoscaler.scheduler.util.DateHelper;
 import org.cloudfoundry.autoscaler.scheduler.util.RecurringScheduleTime;
+import org.cloudfoundry.autoscaler.scheduler.util.ReplicaRoutingDataSource;
 import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
 import org.cloudfoundry.autoscaler.scheduler.util.SpecificDateScheduleDateTime;
 import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
 import org.cloudfoundry.autoscaler.scheduler.util.error.SchedulerInternalException;
 import org.cloudfoundry.autoscaler.scheduler.util.error.ValidationErrorResult;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -41,14 +48,25 @@ public class ScheduleManager {
     @Autowired
 	private ActiveScheduleDao activeScheduleDao;
 	@Autowired
+	private ScheduleHistoryDao scheduleHistoryDao;
+	@Autowired
 	private ScheduleJobManager scheduleJobManager;
 	@Autowired
+	private ScheduleCache scheduleCache;
+	@Autowired
+	private AppSchedulesCache appSchedulesCache;
+	@Autowired
+	private ScheduleIndex scheduleIndex;
+	@Autowired
 	private ValidationErrorResult validationErrorResult;
+	@Value("${scheduler.history.query.max.count:10000}")
+	private int historyQueryMaxCount;
 
 	private Logger logger = LogManager.getLogger(this.getClass());
 
 	/**
-	 * Calls dao and fetch all the schedules for the specified application id.
+	 * Fetches all the schedules for the specified application id, through the cache of the schedules of the
+	 * apps.
 	 *
 	 * @param appId
 	 * @return
@@ -63,12 +81,13 @@ public class ScheduleManager {
 		List<RecurringScheduleEntity> allRecurringScheduleEntitiesForApp;
 
 		try {
-			allSpecificDateScheduleEntitiesForApp = specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId);
+			AppSchedulesCache.AppSchedules appSchedules = appSchedulesCache.getSchedules(appId);
+			allSpecificDateScheduleEntitiesForApp = appSchedules.getSpecificDateSchedules();
 			if (!allSpecificDateScheduleEntitiesForApp.isEmpty()) {
 				schedules.setSpecificDate(allSpecificDateScheduleEntitiesForApp);
 			}
 
-			allRecurringScheduleEntitiesForApp = recurringScheduleDao.findAllRecurringSchedulesByAppId(appId);
+			allRecurringScheduleEntitiesForApp = appSchedules.getRecurringSchedules();
 			if (!allRecurringScheduleEntitiesForApp.isEmpty()) {
 				schedules.setRecurringSchedule(allRecurringScheduleEntitiesForApp);
 			}
@@ -83,6 +102,75 @@ public class ScheduleManager {
 		return applicationSchedules;
 	}
 
+	/**
+	 * Validates the time range and the max count of a schedule history query.
+	 *
+	 * @param startTime - in milliseconds since the epoch
+	 * @param endTime - in milliseconds since the epoch
+	 * @param maxCount - null for the max count of the queries
+	 */
+	public void validateScheduleHistoryQuery(Long startTime, Long endTime, Integer maxCount) {
+		if (startTime == null) {
+			validationErrorResult.addFieldError(null, "data.value.not.specified", "start_time");
+		}
+		if (endTime == null) {
+			validationErrorResult.addFieldError(null, "data.value.not.specified", "end_time");
+		}
+		if (startTime != null && endTime != null && endTime <= startTime) {
+			validationErrorResult.addFieldError(null, "data.time.range.invalid.start.after.end", "end_time", endTime,
+					"start_time", startTime);
+		}
+		if (maxCount != null && (maxCount < 1 || maxCount > historyQueryMaxCount)) {
+			validationErrorResult.addFieldError(null, "data.value.out.of.range", "max_count", maxCount, 1,
+					historyQueryMaxCount);
+		}
+	}
+
+	/**
+	 * Fetches the schedule history with a transition time in the range, from the read replica when enabled.
+	 *
+	 * @param appId - null for the history of all the apps
+	 * @param startTime - inclusive
+	 * @param endTime - exclusive
+	 * @param maxCount - null for the max count of the queries
+	 * @return
+	 */
+	public List<ScheduleHistoryEntity> getScheduleHistory(String appId, Date startTime, Date endTime,
+			Integer maxCount) {
+		int count = maxCount == null ? historyQueryMaxCount : maxCount;
+		try {
+			return ReplicaRoutingDataSource
+					.readFromReplica(() -> scheduleHistoryDao.findHistory(appId, startTime, endTime, count));
+		} catch (DatabaseValidationException dve) {
+			validationErrorResult.addErrorForDatabaseValidationException(dve, "database.error.get.history.failed",
+					"app_id=" + appId);
+			throw new SchedulerInternalException("Database error", dve);
+		}
+	}
+
+	/**
+	 * Fetches the schedules of all the applications active at the time, in the time zone of each schedule,
+	 * from the read replica when enabled.
+	 *
+	 * @param time
+	 * @return
+	 */
+	public ActiveSchedules getSchedulesActiveAt(Date time) {
+		ActiveSchedules activeSchedules = new ActiveSchedules();
+		activeSchedules.setTime(time.getTime());
+		try {
+			activeSchedules.setSpecificDate(ReplicaRoutingDataSource
+					.readFromReplica(() -> specificDateScheduleDao.findAllSpecificDateSchedulesActiveAt(time)));
+			activeSchedules.setRecurringSchedule(ReplicaRoutingDataSource
+					.readFromReplica(() -> recurringScheduleDao.findAllRecurringSchedulesActiveAt(time)));
+		} catch (DatabaseValidationException dve) {
+			validationErrorResult.addErrorForDatabaseValidationException(dve, "database.error.get.active.failed",
+					"time=" + time.getTime());
+			throw new SchedulerInternalException("Database error", dve);
+		}
+		return activeSchedules;
+	}
+
 	/**
 	 * This method calls the helper method to sets up the basic common information in the schedule entities.
 	 * @param appId
@@ -592,72 +680,84 @@ public class ScheduleManager {
 
 	/**
 	 * Calls private helper methods to persist the schedules in the database and
-	 * calls ScalingJobManager to create scaling action jobs.
+	 * calls ScalingJobManager to create scaling action jobs. The schedules of each
+	 * type are persisted together, in JDBC batches with a single flush.
 	 *
 	 * @param schedules
 	 */
 	@Transactional
 	public void createSchedules(Schedules schedules) {
 
+		// The cached schedules of each app are dropped once
+		Set<String> appIds = new HashSet<>();
 		List<SpecificDateScheduleEntity> specificDateSchedules = schedules.getSpecificDate();
 		if (specificDateSchedules != null) {
 			for (SpecificDateScheduleEntity specificDateScheduleEntity : specificDateSchedules) {
-				// Persist the schedule in database
-				SpecificDateScheduleEntity savedScheduleEntity = saveNewSpecificDateSchedule(
-						specificDateScheduleEntity);
-
-				// Ask ScalingJobManager to create scaling job
-				if (savedScheduleEntity != null) {
-					scheduleJobManager.createSimpleJob(savedScheduleEntity);
-				}
+				appIds.add(specificDateScheduleEntity.getAppId());
 			}
 		}
-
 		List<RecurringScheduleEntity> recurringSchedules = schedules.getRecurringSchedule();
 		if (recurringSchedules != null) {
 			for (RecurringScheduleEntity recurringScheduleEntity : recurringSchedules) {
-				// Persist the schedule in database
-				RecurringScheduleEntity savedScheduleEntity = saveNewRecurringSchedule(recurringScheduleEntity);
+				appIds.add(recurringScheduleEntity.getAppId());
+			}
+		}
+		for (String appId : appIds) {
+			appSchedulesCache.invalidate(appId);
+		}
 
-				// Ask ScalingJobManager to create scaling job
-				if (savedScheduleEntity != null) {
-					scheduleJobManager.createCronJob(savedScheduleEntity);
-				}
+		if (specificDateSchedules != null && !specificDateSchedules.isEmpty()) {
+			// Persist the schedules in database
+			List<SpecificDateScheduleEntity> savedScheduleEntities = saveNewSpecificDateSchedules(
+					specificDateSchedules);
+
+			// Ask ScalingJobManager to create scaling jobs
+			for (SpecificDateScheduleEntity savedScheduleEntity : savedScheduleEntities) {
+				scheduleJobManager.createSimpleJob(savedScheduleEntity);
+			}
+			scheduleIndex.addSchedules(savedScheduleEntities);
+		}
+
+		if (recurringSchedules != null && !recurringSchedules.isEmpty()) {
+			// Persist the schedules in database
+			List<RecurringScheduleEntity> savedScheduleEntities = saveNewRecurringSchedules(recurringSchedules);
+
+			// Ask ScalingJobManager to create scaling jobs
+			for (RecurringScheduleEntity savedScheduleEntity : savedScheduleEntities) {
+				scheduleJobManager.createCronJob(savedScheduleEntity);
 			}
+			scheduleIndex.addSchedules(savedScheduleEntities);
 		}
 	}
 
 	/**
-	 * Persist the schedule entity holding the application's specific date scheduling information.
+	 * Persist the schedule entities holding the application's specific date scheduling information.
 	 *
-	 * @param specificDateScheduleEntity
+	 * @param specificDateScheduleEntities
 	 * @return
 	 */
-	private SpecificDateScheduleEntity saveNewSpecificDateSchedule(
-			SpecificDateScheduleEntity specificDateScheduleEntity) {
-		SpecificDateScheduleEntity savedScheduleEntity;
+	private List<SpecificDateScheduleEntity> saveNewSpecificDateSchedules(
+			List<SpecificDateScheduleEntity> specificDateScheduleEntities) {
 		try {
-			savedScheduleEntity = specificDateScheduleDao.create(specificDateScheduleEntity);
+			return specificDateScheduleDao.createAll(specificDateScheduleEntities);
 
 		} catch (DatabaseValidationException dve) {
 
 			validationErrorResult.addErrorForDatabaseValidationException(dve, "database.error.create.failed",
-					"app_id=" + specificDateScheduleEntity.getAppId());
+					"app_id=" + specificDateScheduleEntities.get(0).getAppId());
 			throw new SchedulerInternalException("Database error", dve);
 		}
-		return savedScheduleEntity;
 	}
 
-	private RecurringScheduleEntity saveNewRecurringSchedule(RecurringScheduleEntity recurringScheduleEntity) {
-		RecurringScheduleEntity savedScheduleEntity;
+	private List<RecurringScheduleEntity> saveNewRecurringSchedules(
+			List<RecurringScheduleEntity> recurringScheduleEntities) {
 		try {
-			savedScheduleEntity = recurringScheduleDao.create(recurringScheduleEntity);
+			return recurringScheduleDao.createAll(recurringScheduleEntities);
 		} catch (DatabaseValidationException dve) {
 			validationErrorResult.addErrorForDatabaseValidationException(dve, "database.error.create.failed",
-					"app_id=" + recurringScheduleEntity.getAppId());
+					"app_id=" + recurringScheduleEntities.get(0).getAppId());
 			throw new SchedulerInternalException("Database error", dve);
 		}
-		return savedScheduleEntity;
 	}
 
 	/**
@@ -668,49 +768,51 @@ public class ScheduleManager {
 	 */
 	@Transactional
 	public void deleteSchedules(String appId) {
+		appSchedulesCache.invalidate(appId);
+		scheduleIndex.removeSchedules(appId);
 
 		// Get all the specific date schedules for the specifies application id and delete them.
 		List<SpecificDateScheduleEntity> specificDateSchedules = specificDateScheduleDao
 				.findAllSpecificDateSchedulesByAppId(appId);
+		// Delete the specific date schedules from database
+		deleteSpecificDateSchedules(appId, specificDateSchedules);
 		for (SpecificDateScheduleEntity specificDateScheduleEntity : specificDateSchedules) {
-			// Delete the specific date schedule from database
-			deleteSpecificDateSchedule(specificDateScheduleEntity);
-
 			// Ask ScalingJobManager to delete scaling job
 			scheduleJobManager.deleteJob(appId, specificDateScheduleEntity.getId(), ScheduleTypeEnum.SPECIFIC_DATE);
+			scheduleCache.evictSchedule(specificDateScheduleEntity.getId());
 		}
 
 		// Get all the recurring schedules for the specifies application id and delete them.
 		List<RecurringScheduleEntity> recurringSchedules = recurringScheduleDao.findAllRecurringSchedulesByAppId(appId);
+		// Delete the recurring date schedules from database
+		deleteRecurringSchedules(appId, recurringSchedules);
 		for (RecurringScheduleEntity recurringScheduleEntity : recurringSchedules) {
-			// Delete the recurring date schedule from database
-			deleteRecurringSchedule(recurringScheduleEntity);
-
 			// Ask ScalingJobManager to delete scaling job
 			scheduleJobManager.deleteJob(appId, recurringScheduleEntity.getId(), ScheduleTypeEnum.RECURRING);
+			scheduleCache.evictSchedule(recurringScheduleEntity.getId());
 		}
 
         // Delete all the active schedules for the application
         deleteActiveSchedules(appId);
     }
 
-	private void deleteSpecificDateSchedule(SpecificDateScheduleEntity specificDateScheduleEntity) {
+	private void deleteSpecificDateSchedules(String appId, List<SpecificDateScheduleEntity> specificDateSchedules) {
 		try {
 
-			specificDateScheduleDao.delete(specificDateScheduleEntity);
+			specificDateScheduleDao.deleteAll(specificDateSchedules);
 		} catch (DatabaseValidationException dve) {
 			validationErrorResult.addErrorForDatabaseValidationException(dve, "database.error.delete.failed",
-					"app_id=" + specificDateScheduleEntity.getAppId());
+					"app_id=" + appId);
 			throw new SchedulerInternalException("Database error", dve);
 		}
 	}
 
-	private void deleteRecurringSchedule(RecurringScheduleEntity recurringScheduleEntity) {
+	private void deleteRecurringSchedules(String appId, List<RecurringScheduleEntity> recurringSchedules) {
 		try {
-			recurringScheduleDao.delete(recurringScheduleEntity);
+			recurringScheduleDao.deleteAll(recurringSchedules);
 		} catch (DatabaseValidationException dve) {
 			validationErrorResult.addErrorForDatabaseValidationException(dve, "database.error.delete.failed",
-					"app_id=" + recurringScheduleEntity.getAppId());
+					"app_id=" + appId);
 			throw new SchedulerInternalException("Database error", dve);
 		}
 	}
@@ -0,0 +1,293 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.NotificationOutboxDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.scalingengine.NotificationOutboxDispatcher;
+import org.cloudfoundry.autoscaler.scheduler.scalingengine.ScalingEngineNotifier;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.quartz.CronTrigger;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reconciles the active schedules with the schedules when the scheduler starts. The schedule windows
+ * missed while the scheduler was down are worked out from the schedules in one pass: the active schedule
+ * table is corrected in bulk, the scaling engine is notified only about the active schedules that changed,
+ * and the overdue triggers of the schedules are advanced so that the missed firings are not replayed.
+ *
+ * With the outbox enabled, the notifications are written to the outbox in the same transaction, the ends
+ * before the starts. Otherwise they are submitted once the table is corrected, without waiting for the
+ * scaling engine, the start of an app waits for the end of the same app only.
+ *
+ * Runs before the quartz scheduler is started.
+ */
+@Service
+public class ScheduleReconciler implements SmartLifecycle {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Value("${scheduler.reconciliation.enabled:true}")
+	private boolean reconciliationEnabled;
+
+	@Autowired
+	private Scheduler scheduler;
+
+	@Autowired
+	private ScheduleJobManager scheduleJobManager;
+
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@Autowired
+	private RecurringScheduleDao recurringScheduleDao;
+
+	@Autowired
+	private ActiveScheduleDao activeScheduleDao;
+
+	@Autowired
+	private ScalingEngineNotifier scalingEngineNotifier;
+
+	@Autowired
+	private NotificationOutboxDao notificationOutboxDao;
+
+	@Autowired
+	private NotificationOutboxDispatcher notificationOutboxDispatcher;
+
+	@Autowired
+	private ScheduleCache scheduleCache;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private volatile boolean running = false;
+
+	/**
+	 * Reconciles the active schedules with the schedules at the current time. The table is corrected with
+	 * one batch of deletes followed by one batch of inserts in one transaction.
+	 */
+	public void reconcile() {
+		logger.info(messageBundleResourceHelper.lookupMessage("scheduler.reconciliation.start"));
+
+		Date now = new Date();
+		try {
+			Map<Long, ActiveScheduleEntity> expectedActiveSchedules = getExpectedActiveSchedules(now);
+
+			Map<Long, ActiveScheduleEntity> currentActiveSchedules = new LinkedHashMap<>();
+			for (ActiveScheduleEntity activeScheduleEntity : activeScheduleDao.findAllActiveSchedules()) {
+				currentActiveSchedules.put(activeScheduleEntity.getId(), activeScheduleEntity);
+			}
+
+			List<ActiveScheduleEntity> activeSchedulesToCreate = new ArrayList<>();
+			for (ActiveScheduleEntity activeScheduleEntity : expectedActiveSchedules.values()) {
+				if (!currentActiveSchedules.containsKey(activeScheduleEntity.getId())) {
+					activeSchedulesToCreate.add(activeScheduleEntity);
+				}
+			}
+
+			List<ActiveScheduleEntity> activeSchedulesToDelete = new ArrayList<>();
+			for (ActiveScheduleEntity activeScheduleEntity : currentActiveSchedules.values()) {
+				if (!expectedActiveSchedules.containsKey(activeScheduleEntity.getId())) {
+					activeSchedulesToDelete.add(activeScheduleEntity);
+				}
+			}
+
+			List<Long> idsToDelete = new ArrayList<>();
+			for (ActiveScheduleEntity activeScheduleEntity : activeSchedulesToDelete) {
+				idsToDelete.add(activeScheduleEntity.getId());
+			}
+			boolean outboxEnabled = notificationOutboxDispatcher.isOutboxEnabled();
+			new TransactionTemplate(transactionManager).execute(status -> {
+				activeScheduleDao.deleteActiveSchedules(idsToDelete);
+				activeScheduleDao.createActiveSchedules(activeSchedulesToCreate);
+				if (outboxEnabled) {
+					notificationOutboxDao
+							.createAll(getOutboxNotifications(activeSchedulesToDelete, activeSchedulesToCreate, now));
+				}
+				return null;
+			});
+
+			int advancedTriggerCount = advanceOverdueTriggers(now);
+
+			if (outboxEnabled) {
+				notificationOutboxDispatcher.wakeUp();
+			} else {
+				submitNotifications(activeSchedulesToDelete, activeSchedulesToCreate);
+			}
+
+			logger.info(messageBundleResourceHelper.lookupMessage("scheduler.reconciliation.completed",
+					activeSchedulesToCreate.size(), activeSchedulesToDelete.size(), advancedTriggerCount));
+		} catch (DatabaseValidationException | TransactionException | SchedulerException e) {
+			logger.error(messageBundleResourceHelper.lookupMessage("scheduler.reconciliation.failed", e.getMessage()),
+					e);
+		}
+	}
+
+	private List<NotificationOutboxEntity> getOutboxNotifications(List<ActiveScheduleEntity> endedActiveSchedules,
+			List<ActiveScheduleEntity> startedActiveSchedules, Date now) {
+		List<NotificationOutboxEntity> notificationOutboxEntities = new ArrayList<>();
+		for (ActiveScheduleEntity activeScheduleEntity : endedActiveSchedules) {
+			notificationOutboxEntities
+					.add(new NotificationOutboxEntity(activeScheduleEntity, JobActionEnum.END, now, null));
+		}
+		for (ActiveScheduleEntity activeScheduleEntity : startedActiveSchedules) {
+			notificationOutboxEntities
+					.add(new NotificationOutboxEntity(activeScheduleEntity, JobActionEnum.START, now, null));
+		}
+		return notificationOutboxEntities;
+	}
+
+	private void submitNotifications(List<ActiveScheduleEntity> endedActiveSchedules,
+			List<ActiveScheduleEntity> startedActiveSchedules) {
+		Map<String, CompletableFuture<Boolean>> ends = new HashMap<>();
+		for (ActiveScheduleEntity activeScheduleEntity : endedActiveSchedules) {
+			CompletableFuture<Boolean> end = scalingEngineNotifier.submitNotification(activeScheduleEntity,
+					JobActionEnum.END);
+			ends.merge(activeScheduleEntity.getAppId(), end, (first, second) -> CompletableFuture
+					.allOf(first, second).thenApply(ignored -> true));
+		}
+		for (ActiveScheduleEntity activeScheduleEntity : startedActiveSchedules) {
+			CompletableFuture<Boolean> end = ends.get(activeScheduleEntity.getAppId());
+			if (end == null) {
+				scalingEngineNotifier.submitNotification(activeScheduleEntity, JobActionEnum.START);
+			} else {
+				end.whenComplete((acknowledged, throwable) -> scalingEngineNotifier
+						.submitNotification(activeScheduleEntity, JobActionEnum.START));
+			}
+		}
+	}
+
+	private Map<Long, ActiveScheduleEntity> getExpectedActiveSchedules(Date now) {
+		Map<Long, ActiveScheduleEntity> expectedActiveSchedules = new LinkedHashMap<>();
+
+		// All the schedules are loaded anyway, use them to warm up the schedule cache for the jobs
+		List<SpecificDateScheduleEntity> specificDateSchedules = specificDateScheduleDao.findAllSpecificDateSchedules();
+		List<RecurringScheduleEntity> recurringSchedules = recurringScheduleDao.findAllRecurringSchedules();
+		scheduleCache.putSchedules(specificDateSchedules);
+		scheduleCache.putSchedules(recurringSchedules);
+
+		for (SpecificDateScheduleEntity specificDateScheduleEntity : specificDateSchedules) {
+			Trigger startTrigger = scheduleJobManager.buildSimpleJobTrigger(specificDateScheduleEntity,
+					JobActionEnum.START);
+			Trigger endTrigger = scheduleJobManager.buildSimpleJobTrigger(specificDateScheduleEntity,
+					JobActionEnum.END);
+			if (ScheduleJobHelper.isScheduleWindowOpen(startTrigger, endTrigger, now)) {
+				expectedActiveSchedules.put(specificDateScheduleEntity.getId(),
+						ScheduleJobHelper.setupActiveSchedule(specificDateScheduleEntity, JobActionEnum.START));
+			}
+		}
+
+		for (RecurringScheduleEntity recurringScheduleEntity : recurringSchedules) {
+			Trigger startTrigger = scheduleJobManager.buildCronJobTrigger(recurringScheduleEntity,
+					JobActionEnum.START);
+			Trigger endTrigger = scheduleJobManager.buildCronJobTrigger(recurringScheduleEntity, JobActionEnum.END);
+			if (ScheduleJobHelper.isScheduleWindowOpen(startTrigger, endTrigger, now)) {
+				expectedActiveSchedules.put(recurringScheduleEntity.getId(),
+						ScheduleJobHelper.setupActiveSchedule(recurringScheduleEntity, JobActionEnum.START));
+			}
+		}
+
+		return expectedActiveSchedules;
+	}
+
+	/**
+	 * The missed firings are covered by the reconciliation, so the overdue cron triggers are moved to their
+	 * next firing and the overdue one time triggers are removed, their jobs are durable and stay.
+	 */
+	private int advanceOverdueTriggers(Date now) throws SchedulerException {
+		int advancedTriggerCount = 0;
+		Set<TriggerKey> triggerKeys = new HashSet<>();
+		for (ScheduleTypeEnum scheduleType : ScheduleTypeEnum.values()) {
+			triggerKeys.addAll(
+					scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals(scheduleType.getScheduleIdentifier())));
+		}
+
+		for (TriggerKey triggerKey : triggerKeys) {
+			Trigger trigger = scheduler.getTrigger(triggerKey);
+			if (trigger == null || trigger.getNextFireTime() == null || trigger.getNextFireTime().after(now)) {
+				continue;
+			}
+
+			try {
+				if (trigger instanceof CronTrigger && trigger.getFireTimeAfter(now) != null) {
+					scheduler.rescheduleJob(triggerKey, trigger.getTriggerBuilder().startAt(now).build());
+				} else {
+					scheduler.unscheduleJob(triggerKey);
+				}
+				advancedTriggerCount++;
+			} catch (SchedulerException se) {
+				logger.error(messageBundleResourceHelper.lookupMessage("scheduler.reconciliation.trigger.failed",
+						triggerKey, se.getMessage()), se);
+			}
+		}
+		return advancedTriggerCount;
+	}
+
+	@Override
+	public void start() {
+		reconcile();
+		running = true;
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Started right before the quartz scheduler factory bean which uses the highest phase.
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE - 1;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return reconciliationEnabled;
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+}
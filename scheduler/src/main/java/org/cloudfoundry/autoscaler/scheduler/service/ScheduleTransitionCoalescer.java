@@ -0,0 +1,104 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.quartz.Trigger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Detects back to back transitions of an application, where one schedule ends at the same instant as
+ * another schedule of the same application starts. Such an end and start are coalesced into one replace
+ * of the active schedule done by the start job, the end job does nothing.
+ *
+ * Both jobs work the transition out from the schedules of the application cache, so they come to the same
+ * decision whichever of them fires first.
+ */
+@Component
+public class ScheduleTransitionCoalescer {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Autowired
+	private AppSchedulesCache appSchedulesCache;
+
+	@Autowired
+	private ScheduleJobManager scheduleJobManager;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	/**
+	 * Finds the other schedules of the application ending at the transition time, their active schedules
+	 * are replaced by the starting schedule.
+	 *
+	 * @param appId
+	 * @param scheduleId - the starting schedule
+	 * @param transitionTime
+	 * @return the ids of the ending schedules, empty if there is nothing to coalesce
+	 */
+	public List<Long> findEndingScheduleIds(String appId, Long scheduleId, Date transitionTime) {
+		return findTransitioningScheduleIds(appId, scheduleId, JobActionEnum.END, transitionTime);
+	}
+
+	/**
+	 * Checks whether another schedule of the application starts at the transition time and replaces the
+	 * active schedule of the ending schedule.
+	 *
+	 * @param appId
+	 * @param scheduleId - the ending schedule
+	 * @param transitionTime
+	 * @return
+	 */
+	public boolean isReplacedAt(String appId, Long scheduleId, Date transitionTime) {
+		return !findTransitioningScheduleIds(appId, scheduleId, JobActionEnum.START, transitionTime).isEmpty();
+	}
+
+	private List<Long> findTransitioningScheduleIds(String appId, Long scheduleId, JobActionEnum jobAction,
+			Date transitionTime) {
+		List<Long> scheduleIds = new ArrayList<>();
+		try {
+			AppSchedulesCache.AppSchedules appSchedules = appSchedulesCache.getSchedules(appId);
+			for (SpecificDateScheduleEntity specificDateScheduleEntity : appSchedules.getSpecificDateSchedules()) {
+				if (!specificDateScheduleEntity.getId().equals(scheduleId) && isFiringAt(
+						scheduleJobManager.buildSimpleJobTrigger(specificDateScheduleEntity, jobAction),
+						transitionTime)) {
+					scheduleIds.add(specificDateScheduleEntity.getId());
+				}
+			}
+
+			for (RecurringScheduleEntity recurringScheduleEntity : appSchedules.getRecurringSchedules()) {
+				if (recurringScheduleEntity.getId().equals(scheduleId)) {
+					continue;
+				}
+				Trigger trigger = scheduleJobManager.buildCronJobTrigger(recurringScheduleEntity, jobAction);
+				// Without a start date the trigger starts now, which is already past a late firing transition
+				if (recurringScheduleEntity.getStartDate() == null) {
+					trigger = trigger.getTriggerBuilder().startAt(transitionTime).build();
+				}
+				if (isFiringAt(trigger, transitionTime)) {
+					scheduleIds.add(recurringScheduleEntity.getId());
+				}
+			}
+		} catch (DatabaseValidationException dve) {
+			// Without the schedules the transition is not coalesced, the start and the end are done on their own
+			String errorMessage = messageBundleResourceHelper
+					.lookupMessage("database.error.get.transition.schedules.failed", dve.getMessage(), appId, scheduleId);
+			logger.error(errorMessage, dve);
+			scheduleIds.clear();
+		}
+		return scheduleIds;
+	}
+
+	private boolean isFiringAt(Trigger trigger, Date time) {
+		return time.equals(trigger.getFireTimeAfter(new Date(time.getTime() - 1)));
+	}
+}
@@ -0,0 +1,204 @@
+package org.cloudfoundry.autoscaler.scheduler.util;
+
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compact in-memory application id. The application ids are GUIDs, held as their two halves rather than
+ * as 36 character strings, and converted back to strings only for the REST API, the database and the
+ * logs. An application id which is not a lowercase GUID is held as its string.
+ *
+ * The application ids are interned: equal ids share the same instance while it is referenced. The interned
+ * ids are looked up in a concurrent map without locking, the map holds an equal copy of each of them and
+ * drops it once the interned id is collected.
+ */
+public final class AppId implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final int GUID_LENGTH = 36;
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private static final ConcurrentMap<AppId, InternedAppId> internedAppIds = new ConcurrentHashMap<>();
+
+	private static final ReferenceQueue<AppId> collectedAppIds = new ReferenceQueue<>();
+
+	private final long mostSignificantBits;
+
+	private final long leastSignificantBits;
+
+	// Only for the application ids which are not lowercase GUIDs
+	private final String value;
+
+	private static final class InternedAppId extends WeakReference<AppId> {
+		// An equal copy, so that the map does not keep the interned application id
+		private final AppId key;
+
+		InternedAppId(AppId appId) {
+			super(appId, collectedAppIds);
+			this.key = new AppId(appId.mostSignificantBits, appId.leastSignificantBits, appId.value);
+		}
+	}
+
+	private AppId(long mostSignificantBits, long leastSignificantBits, String value) {
+		this.mostSignificantBits = mostSignificantBits;
+		this.leastSignificantBits = leastSignificantBits;
+		this.value = value;
+	}
+
+	/**
+	 * Gets the interned application id of the string.
+	 *
+	 * @param appId
+	 * @return null for a null application id
+	 */
+	public static AppId of(String appId) {
+		if (appId == null) {
+			return null;
+		}
+		return intern(parse(appId));
+	}
+
+	/**
+	 * Gets the interned application id of the two halves of the GUID.
+	 */
+	public static AppId of(long mostSignificantBits, long leastSignificantBits) {
+		return intern(new AppId(mostSignificantBits, leastSignificantBits, null));
+	}
+
+	private static AppId intern(AppId appId) {
+		removeCollectedAppIds();
+		while (true) {
+			InternedAppId reference = internedAppIds.get(appId);
+			if (reference == null) {
+				reference = new InternedAppId(appId);
+				if (internedAppIds.putIfAbsent(reference.key, reference) == null) {
+					return appId;
+				}
+				continue;
+			}
+			AppId interned = reference.get();
+			if (interned != null) {
+				return interned;
+			}
+			// Collected but not removed yet
+			internedAppIds.remove(reference.key, reference);
+		}
+	}
+
+	private static void removeCollectedAppIds() {
+		Reference<? extends AppId> reference;
+		while ((reference = collectedAppIds.poll()) != null) {
+			InternedAppId interned = (InternedAppId) reference;
+			internedAppIds.remove(interned.key, interned);
+		}
+	}
+
+	private static AppId parse(String appId) {
+		if (appId.length() != GUID_LENGTH) {
+			return new AppId(0, 0, appId);
+		}
+		long mostSignificantBits = 0;
+		long leastSignificantBits = 0;
+		int digitCount = 0;
+		for (int i = 0; i < GUID_LENGTH; i++) {
+			char c = appId.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (c != '-') {
+					return new AppId(0, 0, appId);
+				}
+				continue;
+			}
+			int digit;
+			if (c >= '0' && c <= '9') {
+				digit = c - '0';
+			} else if (c >= 'a' && c <= 'f') {
+				digit = c - 'a' + 10;
+			} else {
+				return new AppId(0, 0, appId);
+			}
+			if (digitCount++ < 16) {
+				mostSignificantBits = mostSignificantBits << 4 | digit;
+			} else {
+				leastSignificantBits = leastSignificantBits << 4 | digit;
+			}
+		}
+		return new AppId(mostSignificantBits, leastSignificantBits, null);
+	}
+
+	/**
+	 * @return false for an application id held as its string
+	 */
+	public boolean isGuid() {
+		return value == null;
+	}
+
+	public long getMostSignificantBits() {
+		return mostSignificantBits;
+	}
+
+	public long getLeastSignificantBits() {
+		return leastSignificantBits;
+	}
+
+	@Override
+	public String toString() {
+		if (value != null) {
+			return value;
+		}
+		char[] chars = new char[GUID_LENGTH];
+		writeHex(chars, 0, mostSignificantBits >>> 32, 8);
+		chars[8] = '-';
+		writeHex(chars, 9, mostSignificantBits >>> 16, 4);
+		chars[13] = '-';
+		writeHex(chars, 14, mostSignificantBits, 4);
+		chars[18] = '-';
+		writeHex(chars, 19, leastSignificantBits >>> 48, 4);
+		chars[23] = '-';
+		writeHex(chars, 24, leastSignificantBits, 12);
+		return new String(chars);
+	}
+
+	private static void writeHex(char[] chars, int offset, long bits, int digitCount) {
+		for (int i = digitCount - 1; i >= 0; i--) {
+			chars[offset + i] = HEX_DIGITS[(int) (bits & 0xf)];
+			bits >>>= 4;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		if (value != null) {
+			return value.hashCode();
+		}
+		long hilo = mostSignificantBits ^ leastSignificantBits;
+		return ((int) (hilo >> 32)) ^ (int) hilo;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof AppId)) {
+			return false;
+		}
+		AppId other = (AppId) obj;
+		if (value != null || other.value != null) {
+			return value != null && value.equals(other.value);
+		}
+		return mostSignificantBits == other.mostSignificantBits
+				&& leastSignificantBits == other.leastSignificantBits;
+	}
+
+	/**
+	 * The deserialized application ids are interned too.
+	 */
+	private Object readResolve() {
+		return intern(this);
+	}
+}
@@ -1,8 +1,13 @@
 package org.cloudfoundry.autoscaler.scheduler.util;
 
 import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 /**
@@ -664,4 +669,21 @@ public class DateHelper {
 		}
 	}
 
+	/**
+	 * Groups the supported time zones by their wall clock at the instant, the zones with the same offset at
+	 * the instant share a group.
+	 *
+	 * @param instant
+	 * @return the supported time zones by their local date time at the instant
+	 */
+	public static Map<LocalDateTime, List<String>> getSupportedTimezonesByLocalDateTime(Date instant) {
+		Map<LocalDateTime, List<String>> timeZonesByLocalDateTime = new LinkedHashMap<>();
+		for (String timeZoneId : supportedTimezones) {
+			LocalDateTime localDateTime = LocalDateTime.ofInstant(instant.toInstant(),
+					TimeZone.getTimeZone(timeZoneId).toZoneId());
+			timeZonesByLocalDateTime.computeIfAbsent(localDateTime, key -> new ArrayList<>()).add(timeZoneId);
+		}
+		return timeZonesByLocalDateTime;
+	}
+
 }
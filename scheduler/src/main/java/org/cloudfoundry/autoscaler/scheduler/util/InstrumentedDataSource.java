@@ -0,0 +1,80 @@
+package org.cloudfoundry.autoscaler.scheduler.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.quartz.LatencyHistogram;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Connection pool that records how long the callers wait for a connection and how often the pool runs
+ * out of connections. The active connections are already reported by the datasource metrics of spring
+ * boot, under the same pool name.
+ */
+public class InstrumentedDataSource extends BasicDataSource implements PublicMetrics {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private String poolName;
+
+	private LatencyHistogram waitHistogram = new LatencyHistogram();
+
+	private AtomicInteger waitingCount = new AtomicInteger();
+
+	private AtomicLong exhaustedCount = new AtomicLong();
+
+	/**
+	 * @param poolName - the name of the pool in the metrics and the logs
+	 */
+	public void setPoolName(String poolName) {
+		this.poolName = poolName;
+	}
+
+	public String getPoolName() {
+		return poolName;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		waitingCount.incrementAndGet();
+		long startTime = System.currentTimeMillis();
+		try {
+			return super.getConnection();
+		} catch (SQLException e) {
+			if (e.getCause() instanceof NoSuchElementException) {
+				exhaustedCount.incrementAndGet();
+				logger.warn(messageBundleResourceHelper.lookupMessage("database.pool.exhausted", poolName,
+						getMaxWait(), getMaxActive(), e.getMessage()));
+			}
+			throw e;
+		} finally {
+			waitingCount.decrementAndGet();
+			waitHistogram.record(System.currentTimeMillis() - startTime);
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<>();
+		String prefix = "datasource." + poolName;
+		metrics.add(new Metric<Integer>(prefix + ".idle", getNumIdle()));
+		metrics.add(new Metric<Integer>(prefix + ".max.active", getMaxActive()));
+		metrics.add(new Metric<Integer>(prefix + ".waiting", waitingCount.get()));
+		metrics.add(new Metric<Long>(prefix + ".exhausted", exhaustedCount.get()));
+		waitHistogram.addMetrics(prefix + ".wait", metrics);
+		return metrics;
+	}
+}
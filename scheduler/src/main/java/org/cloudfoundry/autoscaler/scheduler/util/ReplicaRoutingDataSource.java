@@ -0,0 +1,87 @@
+package org.cloudfoundry.autoscaler.scheduler.util;
+
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes the connections of the read-only queries to the replica of the scheduler database, the
+ * connections of the scheduling jobs to the pool of the quartz job store, and all the others to the
+ * primary. Only the queries run within readFromReplica are read-only, and they still use the primary within
+ * a read-write transaction or while the replica is not enabled. The jobs and the background writers run
+ * within useQuartzPool, so that they do not take the connections of the REST requests.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+	public enum Target {
+		PRIMARY, REPLICA, QUARTZ
+	}
+
+	private static final ThreadLocal<Boolean> replicaReads = new ThreadLocal<>();
+
+	private static final ThreadLocal<Boolean> quartzPool = new ThreadLocal<>();
+
+	private boolean replicaEnabled;
+
+	public void setReplicaEnabled(boolean replicaEnabled) {
+		this.replicaEnabled = replicaEnabled;
+	}
+
+	public boolean isReplicaEnabled() {
+		return replicaEnabled;
+	}
+
+	/**
+	 * Runs the read-only queries of the reads on the replica.
+	 *
+	 * @param reads
+	 * @return the result of the reads
+	 */
+	public static <T> T readFromReplica(Supplier<T> reads) {
+		Boolean previous = replicaReads.get();
+		replicaReads.set(Boolean.TRUE);
+		try {
+			return reads.get();
+		} finally {
+			if (previous == null) {
+				replicaReads.remove();
+			} else {
+				replicaReads.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * Runs the work of the scheduling jobs on the pool of the quartz job store, which is on the primary
+	 * database as well.
+	 *
+	 * @param work
+	 */
+	public static void useQuartzPool(Runnable work) {
+		Boolean previous = quartzPool.get();
+		quartzPool.set(Boolean.TRUE);
+		try {
+			work.run();
+		} finally {
+			if (previous == null) {
+				quartzPool.remove();
+			} else {
+				quartzPool.set(previous);
+			}
+		}
+	}
+
+	@Override
+	protected Target determineCurrentLookupKey() {
+		if (replicaEnabled && Boolean.TRUE.equals(replicaReads.get())
+				&& (!TransactionSynchronizationManager.isActualTransactionActive()
+						|| TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+			return Target.REPLICA;
+		}
+		if (Boolean.TRUE.equals(quartzPool.get())) {
+			return Target.QUARTZ;
+		}
+		return Target.PRIMARY;
+	}
+}
@@ -9,6 +9,7 @@ import java.util.TimeZone;
 
 import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.Job;
 import org.quartz.JobBuilder;
@@ -27,38 +28,67 @@ import org.quartz.TriggerKey;
 public class ScheduleJobHelper {
 
 	public enum RescheduleCount {
-		ACTIVE_SCHEDULE, SCALING_ENGINE_NOTIFICATION
+		ACTIVE_SCHEDULE
 	};
 
 	public static final String APP_ID = "appId";
+	public static final String APP_ID_MOST_SIGNIFICANT_BITS = "appIdMostSignificantBits";
+	public static final String APP_ID_LEAST_SIGNIFICANT_BITS = "appIdLeastSignificantBits";
 	public static final String SCHEDULE_ID = "scheduleId";
 	public static final String INITIAL_MIN_INSTANCE_COUNT = "initialMinInstanceCount";
 	public static final String INSTANCE_MIN_COUNT = "instanceMinCount";
 	public static final String INSTANCE_MAX_COUNT = "instanceMaxCount";
 	public static final String ACTIVE_SCHEDULE_TABLE_TASK_DONE = "activeScheduleTableTask";
+	public static final String TRANSITION_TIME = "transitionTime";
+	public static final String START_ADVANCE = "startAdvance";
+	public static final String COALESCED_END = "coalescedEnd";
+
+	// The triggers due at the same time are fired in the order of their priorities
+	public static final int START_TRIGGER_PRIORITY = Trigger.DEFAULT_PRIORITY + 2;
+	public static final int END_TRIGGER_PRIORITY = Trigger.DEFAULT_PRIORITY;
+	public static final int RETRY_TRIGGER_PRIORITY = Trigger.DEFAULT_PRIORITY - 2;
 
 	public static JobKey generateJobKey(Long id, JobActionEnum jobActionEnum, ScheduleTypeEnum scheduleTypeEnum) {
 		String name = id + jobActionEnum.getJobIdSuffix();
 		return new JobKey(name, scheduleTypeEnum.getScheduleIdentifier());
 	}
 
+	/**
+	 * Builds a durable job, which quartz fires again after a crash of the scheduler during its execution.
+	 */
 	public static JobDetail buildJob(JobKey jobKey, Class<? extends Job> classType) {
 
-		JobBuilder jobBuilder = JobBuilder.newJob(classType).withIdentity(jobKey).storeDurably();
+		JobBuilder jobBuilder = JobBuilder.newJob(classType).withIdentity(jobKey).storeDurably().requestRecovery();
 		return jobBuilder.build();
 	}
 
+	public static int getTriggerPriority(JobActionEnum jobActionEnum) {
+		return jobActionEnum == JobActionEnum.START ? START_TRIGGER_PRIORITY : END_TRIGGER_PRIORITY;
+	}
+
 	public static TriggerKey generateTriggerKey(Long id, JobActionEnum jobActionEnum,
 			ScheduleTypeEnum scheduleTypeEnum) {
 		String name = id + jobActionEnum.getJobIdSuffix();
 		return new TriggerKey(name, scheduleTypeEnum.getScheduleIdentifier());
 	}
 
+	/**
+	 * Builds a one time trigger. A misfired trigger fires once as soon as possible, for a START job 
+	 * the job itself skips the scaling action when the schedule window has already passed.
+	 */
 	public static Trigger buildTrigger(TriggerKey triggerKey, JobKey jobKey, Date triggerDate) {
+		return buildTrigger(triggerKey, jobKey, triggerDate, Trigger.DEFAULT_PRIORITY);
+	}
 
-		TriggerBuilder<Trigger> trigger = TriggerBuilder.newTrigger().withIdentity(triggerKey);
+	/**
+	 * Builds a one time trigger with the priority.
+	 */
+	public static Trigger buildTrigger(TriggerKey triggerKey, JobKey jobKey, Date triggerDate, int priority) {
 
-		trigger.withSchedule(SimpleScheduleBuilder.simpleSchedule()).startAt(triggerDate);
+		TriggerBuilder<Trigger> trigger = TriggerBuilder.newTrigger().withIdentity(triggerKey).withPriority(priority);
+
+		trigger.withSchedule(SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+				.startAt(triggerDate);
 
 		if (jobKey != null) {
 			trigger.forJob(jobKey);
@@ -67,14 +97,44 @@ public class ScheduleJobHelper {
 		return trigger.build();
 	}
 
+	/**
+	 * Builds the cron trigger of a recurring schedule. Missed firings are never replayed one by one, 
+	 * a misfired trigger fires once and then proceeds with its schedule. For a START job the job 
+	 * itself skips the scaling action when the schedule window has already passed.
+	 */
 	public static Trigger buildCronTrigger(TriggerKey triggerKey, JobKey jobKey, RecurringScheduleEntity scheduleEntity,
 			Date scheduleTime) {
+		return buildCronTrigger(triggerKey, jobKey, scheduleEntity, scheduleTime, 0);
+	}
+
+	/**
+	 * Builds the cron trigger of a recurring schedule firing the specified advance ahead of the schedule
+	 * time. The advance is dropped when it would move the firing to the previous day, the days of the
+	 * schedule would no longer match. The advance applied is kept in the data of the trigger.
+	 */
+	public static Trigger buildCronTrigger(TriggerKey triggerKey, JobKey jobKey, RecurringScheduleEntity scheduleEntity,
+			Date scheduleTime, long advanceMilliSecond) {
 		TriggerBuilder<Trigger> trigger = TriggerBuilder.newTrigger().withIdentity(triggerKey);
 		TimeZone timeZone = TimeZone.getTimeZone(scheduleEntity.getTimeZone());
 
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(scheduleTime);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		int dayOfYear = calendar.get(Calendar.DAY_OF_YEAR);
+		calendar.add(Calendar.MILLISECOND, (int) -advanceMilliSecond);
+		if (calendar.get(Calendar.DAY_OF_YEAR) != dayOfYear) {
+			calendar.add(Calendar.MILLISECOND, (int) advanceMilliSecond);
+			advanceMilliSecond = 0;
+		}
+
 		trigger.withSchedule(
-				CronScheduleBuilder.cronSchedule(convertRecurringScheduleToCronExpression(scheduleTime, scheduleEntity))
-						.inTimeZone(timeZone));
+				CronScheduleBuilder.cronSchedule(convertRecurringScheduleToCronExpression(calendar, scheduleEntity))
+						.inTimeZone(timeZone).withMisfireHandlingInstructionFireAndProceed());
+
+		if (advanceMilliSecond > 0) {
+			trigger.usingJobData(START_ADVANCE, advanceMilliSecond);
+		}
 
 		if (scheduleEntity.getStartDate() != null) {
 			trigger.startAt(scheduleEntity.getStartDate());
@@ -91,18 +151,16 @@ public class ScheduleJobHelper {
 		return trigger.build();
 	}
 
-	private static String convertRecurringScheduleToCronExpression(Date scheduleTime,
+	private static String convertRecurringScheduleToCronExpression(Calendar calendar,
 			RecurringScheduleEntity recurringScheduleEntity) {
-		Calendar calendar = Calendar.getInstance();
-		calendar.setTime(scheduleTime);
-
+		int sec = calendar.get(Calendar.SECOND);
 		int min = calendar.get(Calendar.MINUTE);
 		int hour = calendar.get(Calendar.HOUR_OF_DAY);
 
 		String dayOfWeek = convertArrayToDayOfWeekString(recurringScheduleEntity.getDaysOfWeek());
 		String dayOfMonth = convertArrayToDayOfMonthString(recurringScheduleEntity.getDaysOfMonth());
 
-		return String.format("00 %02d %02d %s * %s *", min, hour, dayOfMonth, dayOfWeek);
+		return String.format("%02d %02d %02d %s * %s *", sec, min, hour, dayOfMonth, dayOfWeek);
 	}
 
 	private static String convertArrayToDayOfWeekString(int[] dayOfWeek) {
@@ -131,11 +189,57 @@ public class ScheduleJobHelper {
 		return cronExpression;
 	}
 
+	/**
+	 * Tells whether the window between the start trigger and the end trigger of a schedule covers 
+	 * the specified instant. The window is open when the next firing of the end trigger comes before 
+	 * the next firing of the start trigger. Only the fire time calculation of the triggers is used, 
+	 * so the triggers do not need to be stored in the scheduler.
+	 *
+	 * @param startTrigger - the start trigger, null if it has already fired for good
+	 * @param endTrigger - the end trigger, null if it has already fired for good
+	 * @param instant
+	 * @return
+	 */
+	public static boolean isScheduleWindowOpen(Trigger startTrigger, Trigger endTrigger, Date instant) {
+		Date nextEndTime = endTrigger == null ? null : endTrigger.getFireTimeAfter(instant);
+		if (nextEndTime == null) {
+			return false;
+		}
+
+		Date nextStartTime = startTrigger == null ? null : startTrigger.getFireTimeAfter(instant);
+		return nextStartTime == null || nextEndTime.before(nextStartTime);
+	}
+
+	/**
+	 * Puts the app id in the job data as the two halves of its GUID, an app id which is not a GUID is put
+	 * as its string.
+	 */
+	public static void putAppId(JobDataMap jobDataMap, String appId) {
+		AppId compactAppId = AppId.of(appId);
+		if (compactAppId.isGuid()) {
+			jobDataMap.put(APP_ID_MOST_SIGNIFICANT_BITS, compactAppId.getMostSignificantBits());
+			jobDataMap.put(APP_ID_LEAST_SIGNIFICANT_BITS, compactAppId.getLeastSignificantBits());
+		} else {
+			jobDataMap.put(APP_ID, appId);
+		}
+	}
+
+	/**
+	 * Gets the app id of the job data, the jobs created before the app id was compacted hold its string.
+	 */
+	public static String getAppId(JobDataMap jobDataMap) {
+		if (jobDataMap.containsKey(APP_ID_MOST_SIGNIFICANT_BITS)) {
+			return AppId.of(jobDataMap.getLongValue(APP_ID_MOST_SIGNIFICANT_BITS),
+					jobDataMap.getLongValue(APP_ID_LEAST_SIGNIFICANT_BITS)).toString();
+		}
+		return jobDataMap.getString(APP_ID);
+	}
+
 	public static ActiveScheduleEntity setupActiveSchedule(JobDataMap jobDataMap) {
 
 		ActiveScheduleEntity activeScheduleEntity = new ActiveScheduleEntity();
 
-		activeScheduleEntity.setAppId(jobDataMap.getString(APP_ID));
+		activeScheduleEntity.setAppId(getAppId(jobDataMap));
 		activeScheduleEntity.setId(jobDataMap.getLongValue(SCHEDULE_ID));
 		activeScheduleEntity.setInstanceMinCount(jobDataMap.getIntValue(INSTANCE_MIN_COUNT));
 		activeScheduleEntity.setInstanceMaxCount(jobDataMap.getIntValue(INSTANCE_MAX_COUNT));
@@ -146,4 +250,26 @@ public class ScheduleJobHelper {
 		return activeScheduleEntity;
 	}
 
+	/**
+	 * Builds the active schedule the specified scaling action of the schedule sends to the scaling engine.
+	 */
+	public static ActiveScheduleEntity setupActiveSchedule(ScheduleEntity scheduleEntity, JobActionEnum jobAction) {
+
+		ActiveScheduleEntity activeScheduleEntity = new ActiveScheduleEntity();
+
+		activeScheduleEntity.setAppId(scheduleEntity.getAppId());
+		activeScheduleEntity.setId(scheduleEntity.getId());
+
+		if (jobAction == JobActionEnum.START) {
+			activeScheduleEntity.setInstanceMinCount(scheduleEntity.getInstanceMinCount());
+			activeScheduleEntity.setInstanceMaxCount(scheduleEntity.getInstanceMaxCount());
+			activeScheduleEntity.setInitialMinInstanceCount(scheduleEntity.getInitialMinInstanceCount());
+		} else {
+			activeScheduleEntity.setInstanceMinCount(scheduleEntity.getDefaultInstanceMinCount());
+			activeScheduleEntity.setInstanceMaxCount(scheduleEntity.getDefaultInstanceMaxCount());
+		}
+
+		return activeScheduleEntity;
+	}
+
 }
@@ -38,4 +38,13 @@ public enum ScheduleTypeEnum {
 		throw new IllegalArgumentException("No such a Enum:" + str);
 	}
 
+	public static ScheduleTypeEnum getEnumByScheduleIdentifier(String scheduleIdentifier) {
+		for (ScheduleTypeEnum value : values()) {
+			if (value.getScheduleIdentifier().equals(scheduleIdentifier)) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("No such a Enum:" + scheduleIdentifier);
+	}
+
 }
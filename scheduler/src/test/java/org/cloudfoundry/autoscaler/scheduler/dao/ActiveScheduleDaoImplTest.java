@@ -4,6 +4,9 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import javax.sql.DataSource;
 import javax.transaction.Transactional;
 
@@ -131,6 +134,61 @@ public class ActiveScheduleDaoImplTest extends TestConfiguration {
 
 	}
 
+	@Test
+	public void testReplaceActiveSchedules() {
+		Long replacedActiveScheduleId = 2L;
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		Long scheduleId = 3L;
+		ActiveScheduleEntity activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId, scheduleId,
+				JobActionEnum.START);
+
+		activeScheduleDao.replaceActiveSchedules(Arrays.asList(replacedActiveScheduleId), activeScheduleEntity);
+
+		assertThat("It should have no replaced active schedule",
+				getActiveSchedulesCountByScheduleId(replacedActiveScheduleId), is(0L));
+		assertThat("Both active schedules should be equal", activeScheduleDao.find(scheduleId),
+				is(activeScheduleEntity));
+		assertThat("It should be 2", getActiveSchedulesCount(), is(2L));
+	}
+
+	@Test
+	public void testCreateActiveSchedule_overwrites_existing() {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		Long scheduleId = 1L;
+		ActiveScheduleEntity activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId, scheduleId,
+				JobActionEnum.START);
+
+		activeScheduleDao.create(activeScheduleEntity);
+		activeScheduleDao.create(activeScheduleEntity);
+
+		assertThat("Both active schedules should be equal", activeScheduleDao.find(scheduleId),
+				is(activeScheduleEntity));
+		assertThat("It should be 2", getActiveSchedulesCount(), is(2L));
+	}
+
+	@Test
+	public void testWriteActiveSchedules() {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		ActiveScheduleEntity overwrittenActiveScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId,
+				2L, JobActionEnum.START);
+		ActiveScheduleEntity createdActiveScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId, 3L,
+				JobActionEnum.START);
+
+		activeScheduleDao.writeActiveSchedules(Arrays.asList(1L),
+				Arrays.asList(overwrittenActiveScheduleEntity, createdActiveScheduleEntity));
+
+		assertThat("It should have no deleted active schedule", getActiveSchedulesCountByScheduleId(1L), is(0L));
+		assertThat("Both active schedules should be equal", activeScheduleDao.find(2L),
+				is(overwrittenActiveScheduleEntity));
+		assertThat("Both active schedules should be equal", activeScheduleDao.find(3L),
+				is(createdActiveScheduleEntity));
+		assertThat("It should be 2", getActiveSchedulesCount(), is(2L));
+
+		activeScheduleDao.writeActiveSchedules(Arrays.asList(2L, 3L), Collections.emptyList());
+
+		assertThat("It should be 0", getActiveSchedulesCount(), is(0L));
+	}
+
 	private void insertActiveSchedule(String appId, Long scheduleId, int instanceMinCount, int instanceMaxCount,
 			int initialMinInstanceCount) {
 		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import java.sql.SQLException;
+import java.util.Arrays;
 
 import javax.sql.DataSource;
 
@@ -20,6 +21,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -28,7 +30,7 @@ public class ActiveScheduleDaoImpl_FailureTest extends TestConfiguration {
 	@Autowired
 	private ActiveScheduleDao activeScheduleDao;
 
-	@SpyBean
+	@SpyBean(name = "dataSource")
 	private DataSource dataSource;
 
 	@Autowired
@@ -36,6 +38,9 @@ public class ActiveScheduleDaoImpl_FailureTest extends TestConfiguration {
 
 	@Before
 	public void before() throws SQLException, InterruptedException {
+		// The datasource is referenced while it is created, so the dao holds another spy than the injected one
+		dataSource = ((ActiveScheduleDaoImpl) AopTestUtils.getUltimateTargetObject(activeScheduleDao))
+				.getDataSource();
 		Mockito.reset(dataSource);
 		Mockito.when(dataSource.getConnection()).thenThrow(new SQLException("test exception"));
 
@@ -74,4 +79,15 @@ public class ActiveScheduleDaoImpl_FailureTest extends TestConfiguration {
 		}
 	}
 
+	@Test
+	public void testReplaceActiveSchedules_throw_DatabaseValidationException() {
+		try {
+			activeScheduleDao.replaceActiveSchedules(Arrays.asList(1L), new ActiveScheduleEntity());
+
+			fail("Should fail");
+		} catch (DatabaseValidationException dve) {
+			assertThat(dve.getMessage(), is("Replace active schedules failed"));
+		}
+	}
+
 }
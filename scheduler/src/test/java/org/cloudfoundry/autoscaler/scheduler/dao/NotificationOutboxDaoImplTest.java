@@ -0,0 +1,110 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.Transactional;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class NotificationOutboxDaoImplTest extends TestConfiguration {
+
+	@Autowired
+	private NotificationOutboxDao notificationOutboxDao;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	@Before
+	public void before() {
+		testDataCleanupHelper.cleanupData();
+	}
+
+	@Test
+	public void testCreateAndFindDueNotifications() {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		Date transitionTime = new Date();
+		notificationOutboxDao.create(new NotificationOutboxEntity(
+				TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L, JobActionEnum.START), JobActionEnum.START,
+				transitionTime, transitionTime));
+		notificationOutboxDao.create(new NotificationOutboxEntity(
+				TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L, JobActionEnum.END), JobActionEnum.END,
+				transitionTime, null));
+
+		List<NotificationOutboxEntity> notifications = notificationOutboxDao.findDueNotifications(nowPlusSeconds(1),
+				10);
+
+		assertThat(notifications.size(), is(2));
+		NotificationOutboxEntity startNotification = notifications.get(0);
+		assertThat(startNotification.getAppId(), is(appId));
+		assertThat(startNotification.getScheduleId(), is(1L));
+		assertThat(startNotification.getScalingAction(), is(JobActionEnum.START));
+		assertThat(startNotification.getAttempt(), is(1));
+		assertThat(startNotification.getTransitionTime().getTime(), is(transitionTime.getTime()));
+		assertThat(startNotification.getScheduledFireTime().getTime(), is(transitionTime.getTime()));
+		assertThat(notifications.get(1).getScalingAction(), is(JobActionEnum.END));
+		assertThat(notifications.get(1).getScheduledFireTime() == null, is(true));
+		assertThat(notificationOutboxDao.count(), is(2));
+	}
+
+	@Test
+	public void testFindDueNotifications_holds_back_app_waiting_for_retry() {
+		String[] appIds = TestDataSetupHelper.generateAppIds(2);
+		for (String appId : appIds) {
+			for (JobActionEnum scalingAction : JobActionEnum.values()) {
+				notificationOutboxDao.create(new NotificationOutboxEntity(
+						TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L, scalingAction), scalingAction,
+						new Date(), null));
+			}
+		}
+		List<NotificationOutboxEntity> notifications = notificationOutboxDao.findDueNotifications(nowPlusSeconds(1),
+				10);
+		assertThat(notifications.size(), is(4));
+
+		// The START notification of the first app waits for its retry, its END notification waits behind it
+		notificationOutboxDao.reschedule(notifications.get(0).getId(), 2, nowPlusSeconds(60));
+
+		List<NotificationOutboxEntity> dueNotifications = notificationOutboxDao
+				.findDueNotifications(nowPlusSeconds(1), 10);
+		assertThat(dueNotifications.size(), is(2));
+		assertThat(dueNotifications.get(0).getAppId(), is(appIds[1]));
+		assertThat(dueNotifications.get(1).getAppId(), is(appIds[1]));
+
+		dueNotifications = notificationOutboxDao.findDueNotifications(nowPlusSeconds(120), 10);
+		assertThat(dueNotifications.size(), is(4));
+		assertThat(dueNotifications.get(0).getAttempt(), is(2));
+	}
+
+	@Test
+	public void testDeleteNotification() {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		notificationOutboxDao.create(new NotificationOutboxEntity(
+				TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L, JobActionEnum.START), JobActionEnum.START,
+				new Date(), null));
+		Long id = notificationOutboxDao.findDueNotifications(nowPlusSeconds(1), 10).get(0).getId();
+
+		assertThat(notificationOutboxDao.delete(id), is(1));
+		assertThat(notificationOutboxDao.count(), is(0));
+	}
+
+	private Date nowPlusSeconds(long seconds) {
+		return new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds));
+	}
+}
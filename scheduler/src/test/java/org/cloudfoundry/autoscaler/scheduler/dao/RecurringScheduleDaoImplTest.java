@@ -1,13 +1,19 @@
 package org.cloudfoundry.autoscaler.scheduler.dao;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import java.sql.SQLException;
 import java.sql.Time;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.sql.DataSource;
 import javax.transaction.Transactional;
@@ -84,11 +90,11 @@ public class RecurringScheduleDaoImplTest extends TestConfiguration {
 
 		RecurringScheduleEntity savedEntity = recurringScheduleDao.create(recurringScheduleEntity);
 
-		Long currentSequenceSchedulerId = testDataCleanupHelper.getCurrentSequenceSchedulerId();
-		recurringScheduleEntity.setId(currentSequenceSchedulerId);
-
 		assertThat("It should have one recurring schedule", getRecurringSchedulesCountByAppId(appId), is(1L));
 		assertThat("Both recurring schedules should be equal", savedEntity, is(recurringScheduleEntity));
+		assertThat("The id should be allocated", savedEntity.getId(), notNullValue());
+		assertThat("Both recurring schedules should be equal", recurringScheduleDao.find(savedEntity.getId()),
+				is(recurringScheduleEntity));
 	}
 
 	@Test
@@ -145,6 +151,29 @@ public class RecurringScheduleDaoImplTest extends TestConfiguration {
 		}
 	}
 
+	@Test
+	public void testFindAllRecurringSchedulesActiveAt() {
+		// Wednesday the 1st, 18:30 in Asia/Shanghai
+		Date time = Date.from(Instant.parse("2017-03-01T10:30:00Z"));
+		insertRecurringSchedule("appIdActive", "GMT", 1, 5, 2, 7, 0, Time.valueOf("10:00:00"),
+				Time.valueOf("11:00:00"), null, null, new int[] { 3 }, null);
+		insertRecurringSchedule("appIdActiveTimeZone", "Asia/Shanghai", 1, 5, 2, 7, 0, Time.valueOf("18:00:00"),
+				Time.valueOf("19:00:00"), java.sql.Date.valueOf("2017-03-01"), java.sql.Date.valueOf("2017-03-01"),
+				null, new int[] { 1, 15 });
+		insertRecurringSchedule("appIdOtherDay", "GMT", 1, 5, 2, 7, 0, Time.valueOf("10:00:00"),
+				Time.valueOf("11:00:00"), null, null, new int[] { 2, 4 }, new int[] { 2 });
+		insertRecurringSchedule("appIdEnded", "GMT", 1, 5, 2, 7, 0, Time.valueOf("09:00:00"),
+				Time.valueOf("10:30:00"), null, null, new int[] { 3 }, null);
+		insertRecurringSchedule("appIdEndDate", "GMT", 1, 5, 2, 7, 0, Time.valueOf("10:00:00"),
+				Time.valueOf("11:00:00"), null, java.sql.Date.valueOf("2017-02-28"), new int[] { 3 }, null);
+
+		Set<String> appIds = recurringScheduleDao.findAllRecurringSchedulesActiveAt(time).stream()
+				.map(RecurringScheduleEntity::getAppId).collect(Collectors.toSet());
+
+		// appId1 is active on the Wednesdays all day long, appId3 starts today
+		assertThat(appIds, is(new HashSet<>(Arrays.asList("appId1", "appIdActive", "appIdActiveTimeZone"))));
+	}
+
 	private void insertRecurringSchedule(String appId, String timezone, int defaultInstanceMinCount,
 			int defaultInstanceMaxCount, int instanceMinCount, int instanceMaxCount, int initialMinInstanceCount,
 			Time startTime, Time endTime, Date startDate, Date endDate, int[] daysOfWeek, int[] daysOfMonth) {
@@ -0,0 +1,180 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares the JPA and the JDBC implementations of the schedule DAOs on the policy sized batches the
+ * scheduler reads and writes: creating the schedules of an app, reading them back and deleting them.
+ *
+ * Not run with the tests, run it with: mvn test -Dtest=ScheduleDaoBenchmark [-Dbenchmark.iterations=200]
+ * [-Dbenchmark.schedules=20], the number of schedules of each type per app. Add -Pembedded to run it on the
+ * embedded in-memory database instead of postgres.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScheduleDaoBenchmark extends TestConfiguration {
+	private Logger logger = LogManager.getLogger(this.getClass());
+
+	private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 200);
+
+	private static final int SCHEDULES = Integer.getInteger("benchmark.schedules", 20);
+
+	private static final int WARMUP_ITERATIONS = 50;
+
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleJpaDao;
+
+	@Autowired
+	private RecurringScheduleDao recurringScheduleJpaDao;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	private SpecificDateScheduleDao specificDateScheduleJdbcDao;
+
+	private RecurringScheduleDao recurringScheduleJdbcDao;
+
+	private TransactionTemplate transactionTemplate;
+
+	@Before
+	public void before() {
+		testDataCleanupHelper.cleanupData();
+		specificDateScheduleJdbcDao = applicationContext.getAutowireCapableBeanFactory()
+				.createBean(SpecificDateScheduleJdbcDaoImpl.class);
+		recurringScheduleJdbcDao = applicationContext.getAutowireCapableBeanFactory()
+				.createBean(RecurringScheduleJdbcDaoImpl.class);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@After
+	public void after() {
+		testDataCleanupHelper.cleanupData();
+	}
+
+	@Test
+	public void benchmarkScheduleDaos() {
+		run("jpa", specificDateScheduleJpaDao, recurringScheduleJpaDao, WARMUP_ITERATIONS);
+		run("jdbc", specificDateScheduleJdbcDao, recurringScheduleJdbcDao, WARMUP_ITERATIONS);
+
+		long[] jpaNanos = run("jpa", specificDateScheduleJpaDao, recurringScheduleJpaDao, ITERATIONS);
+		long[] jdbcNanos = run("jdbc", specificDateScheduleJdbcDao, recurringScheduleJdbcDao, ITERATIONS);
+
+		logger.info(String.format("%d iterations of %d schedules per app, microseconds per app", ITERATIONS,
+				SCHEDULES * 2));
+		logger.info(String.format("%-6s %10s %10s %10s", "", "create", "find", "delete"));
+		log("jpa", jpaNanos);
+		log("jdbc", jdbcNanos);
+	}
+
+	/**
+	 * @return the nanoseconds spent creating, finding and deleting the schedules
+	 */
+	private long[] run(String name, SpecificDateScheduleDao specificDateScheduleDao,
+			RecurringScheduleDao recurringScheduleDao, int iterations) {
+		long[] nanos = new long[3];
+		for (int i = 0; i < iterations; i++) {
+			String appId = name + "-" + i;
+			List<SpecificDateScheduleEntity> specificDateSchedules = new ArrayList<>();
+			List<RecurringScheduleEntity> recurringSchedules = new ArrayList<>();
+			for (int j = 0; j < SCHEDULES; j++) {
+				specificDateSchedules.add(generateSpecificDateSchedule(appId, j));
+				recurringSchedules.add(generateRecurringSchedule(appId, j));
+			}
+
+			long startTime = System.nanoTime();
+			transactionTemplate.execute(status -> {
+				specificDateScheduleDao.createAll(specificDateSchedules);
+				return recurringScheduleDao.createAll(recurringSchedules);
+			});
+			nanos[0] += System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			List<SpecificDateScheduleEntity> foundSpecificDateSchedules = specificDateScheduleDao
+					.findAllSpecificDateSchedulesByAppId(appId);
+			List<RecurringScheduleEntity> foundRecurringSchedules = recurringScheduleDao
+					.findAllRecurringSchedulesByAppId(appId);
+			nanos[1] += System.nanoTime() - startTime;
+			assertThat(foundSpecificDateSchedules.size() + foundRecurringSchedules.size(), is(SCHEDULES * 2));
+
+			startTime = System.nanoTime();
+			transactionTemplate.execute(status -> {
+				specificDateScheduleDao.deleteAll(
+						specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId));
+				recurringScheduleDao.deleteAll(recurringScheduleDao.findAllRecurringSchedulesByAppId(appId));
+				return null;
+			});
+			nanos[2] += System.nanoTime() - startTime;
+		}
+		return nanos;
+	}
+
+	private SpecificDateScheduleEntity generateSpecificDateSchedule(String appId, int index) {
+		SpecificDateScheduleEntity specificDateScheduleEntity = new SpecificDateScheduleEntity();
+		setScheduleFields(specificDateScheduleEntity, appId);
+		specificDateScheduleEntity.setStartDateTime(TestDataSetupHelper.addDaysToNow(index * 2 + 1));
+		specificDateScheduleEntity.setEndDateTime(TestDataSetupHelper.addDaysToNow(index * 2 + 2));
+		return specificDateScheduleEntity;
+	}
+
+	private RecurringScheduleEntity generateRecurringSchedule(String appId, int index) {
+		RecurringScheduleEntity recurringScheduleEntity = new RecurringScheduleEntity();
+		setScheduleFields(recurringScheduleEntity, appId);
+		recurringScheduleEntity.setStartTime(Time.valueOf("01:00:00"));
+		recurringScheduleEntity.setEndTime(Time.valueOf("02:00:00"));
+		if (index % 2 == 0) {
+			recurringScheduleEntity.setDaysOfWeek(new int[] { index % 7 + 1 });
+		} else {
+			recurringScheduleEntity.setDaysOfMonth(new int[] { index % 31 + 1 });
+		}
+		return recurringScheduleEntity;
+	}
+
+	private void setScheduleFields(ScheduleEntity scheduleEntity, String appId) {
+		scheduleEntity.setAppId(appId);
+		scheduleEntity.setTimeZone(TestDataSetupHelper.getTimeZone());
+		scheduleEntity.setDefaultInstanceMinCount(1);
+		scheduleEntity.setDefaultInstanceMaxCount(5);
+		scheduleEntity.setInstanceMinCount(2);
+		scheduleEntity.setInstanceMaxCount(10);
+	}
+
+	private void log(String name, long[] nanos) {
+		logger.info(String.format("%-6s %10d %10d %10d", name, perIteration(nanos[0]), perIteration(nanos[1]),
+				perIteration(nanos[2])));
+	}
+
+	private long perIteration(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos) / ITERATIONS;
+	}
+}
@@ -0,0 +1,155 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import javax.sql.DataSource;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleHistoryEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScheduleHistoryDaoImplTest extends TestConfiguration {
+
+	@Autowired
+	private ScheduleHistoryDao scheduleHistoryDao;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	@Autowired
+	private Environment environment;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Before
+	public void before() {
+		// The history partitions are postgres table inheritance
+		Assume.assumeFalse(environment.acceptsProfiles("embedded"));
+		testDataCleanupHelper.cleanupData();
+	}
+
+	@After
+	public void after() throws Exception {
+		// The partitions of the past days used here
+		if (!environment.acceptsProfiles("embedded")) {
+			scheduleHistoryDao.dropPartitionsBefore(parse("2000-01-05 00:00"));
+		}
+	}
+
+	@Test
+	public void testCreateAndFindHistory() throws Exception {
+		String[] appIds = TestDataSetupHelper.generateAppIds(2);
+		ScheduleHistoryEntity start = history(appIds[0], 1L, JobActionEnum.START, "2000-01-01 23:59");
+		ScheduleHistoryEntity end = history(appIds[0], 1L, JobActionEnum.END, "2000-01-02 00:00");
+		ScheduleHistoryEntity otherStart = history(appIds[1], 2L, JobActionEnum.START, "2000-01-02 08:00");
+		scheduleHistoryDao.createAll(Arrays.asList(otherStart, end, start));
+
+		List<ScheduleHistoryEntity> history = scheduleHistoryDao.findHistory(appIds[0], parse("2000-01-01 00:00"),
+				parse("2000-01-03 00:00"), 10);
+		assertThat(history.size(), is(2));
+		assertThat(history.get(0).getScalingAction(), is(JobActionEnum.START));
+		assertThat(history.get(0).getTransitionTime().getTime(), is(start.getTransitionTime().getTime()));
+		assertThat(history.get(0).getFireLagMilliSecond(), is(1500L));
+		assertThat(history.get(0).getFireTime().getTime(), is(start.getFireTime().getTime()));
+		assertThat(history.get(0).isAcknowledged(), is(true));
+		assertThat(history.get(0).getAttempt(), is(1));
+		assertThat(history.get(0).getRoundTripMilliSecond(), is(20L));
+		assertThat(history.get(0).getInstanceMinCount(), is(2));
+		assertThat(history.get(0).getInitialMinInstanceCount(), is((Integer) null));
+		assertThat(history.get(1).getScalingAction(), is(JobActionEnum.END));
+
+		history = scheduleHistoryDao.findHistory(null, parse("2000-01-01 00:00"), parse("2000-01-03 00:00"), 10);
+		assertThat(history.size(), is(3));
+		assertThat(history.get(2).getAppId(), is(appIds[1]));
+
+		// The end time is exclusive
+		history = scheduleHistoryDao.findHistory(null, parse("2000-01-01 00:00"), parse("2000-01-02 00:00"), 10);
+		assertThat(history.size(), is(1));
+
+		history = scheduleHistoryDao.findHistory(null, parse("2000-01-01 00:00"), parse("2000-01-03 00:00"), 2);
+		assertThat(history.size(), is(2));
+	}
+
+	@Test
+	public void testDropPartitionsBefore() throws Exception {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		scheduleHistoryDao.createAll(Arrays.asList(history(appId, 1L, JobActionEnum.START, "2000-01-03 10:00"),
+				history(appId, 1L, JobActionEnum.END, "2000-01-04 10:00")));
+
+		assertThat(scheduleHistoryDao.dropPartitionsBefore(parse("2000-01-04 12:00")),
+				greaterThanOrEqualTo(1));
+
+		List<ScheduleHistoryEntity> history = scheduleHistoryDao.findHistory(appId, parse("2000-01-01 00:00"),
+				parse("2000-01-05 00:00"), 10);
+		assertThat(history.size(), is(1));
+		assertThat(history.get(0).getScalingAction(), is(JobActionEnum.END));
+
+		// The dropped partition is created again
+		scheduleHistoryDao.createAll(Arrays.asList(history(appId, 1L, JobActionEnum.START, "2000-01-03 10:00")));
+		history = scheduleHistoryDao.findHistory(appId, parse("2000-01-01 00:00"), parse("2000-01-05 00:00"), 10);
+		assertThat(history.size(), is(2));
+	}
+
+	@Test
+	public void testPartitionDays_in_utc() throws Exception {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		TimeZone defaultTimeZone = TimeZone.getDefault();
+		// The local day of the transition is already the next day
+		TimeZone.setDefault(TimeZone.getTimeZone("Pacific/Kiritimati"));
+		try {
+			scheduleHistoryDao.createAll(
+					Arrays.asList(history(appId, 1L, JobActionEnum.START, "2000-01-03 23:30")));
+
+			assertThat(new JdbcTemplate(dataSource).queryForObject(
+					"SELECT COUNT(*) FROM app_scaling_schedule_history_20000103 WHERE app_id=?", Integer.class, appId),
+					is(1));
+			List<ScheduleHistoryEntity> history = scheduleHistoryDao.findHistory(appId,
+					parse("2000-01-03 23:30"), parse("2000-01-03 23:31"), 10);
+			assertThat(history.size(), is(1));
+			assertThat(history.get(0).getTransitionTime().getTime(), is(parse("2000-01-03 23:30").getTime()));
+		} finally {
+			TimeZone.setDefault(defaultTimeZone);
+		}
+	}
+
+	private ScheduleHistoryEntity history(String appId, Long scheduleId, JobActionEnum scalingAction,
+			String transitionTime) throws Exception {
+		Date time = parse(transitionTime);
+		ScheduleHistoryEntity scheduleHistoryEntity = new ScheduleHistoryEntity(
+				TestDataSetupHelper.generateActiveScheduleEntity(appId, scheduleId, scalingAction), scalingAction,
+				time, new Date(time.getTime() + 1500));
+		scheduleHistoryEntity.setAcknowledged(true);
+		scheduleHistoryEntity.setAttempt(1);
+		scheduleHistoryEntity.setRoundTripMilliSecond(20L);
+		return scheduleHistoryEntity;
+	}
+
+	private Date parse(String time) throws Exception {
+		SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+		simpleDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return simpleDateFormat.parse(time);
+	}
+}
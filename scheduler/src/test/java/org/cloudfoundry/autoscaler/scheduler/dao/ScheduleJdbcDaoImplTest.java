@@ -0,0 +1,189 @@
+package org.cloudfoundry.autoscaler.scheduler.dao;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.transaction.Transactional;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.RecurringScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.SpecificDateScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = "scheduler.dao.implementation=jdbc")
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+@Transactional
+public class ScheduleJdbcDaoImplTest extends TestConfiguration {
+
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@Autowired
+	private RecurringScheduleDao recurringScheduleDao;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	@Before
+	public void before() {
+		testDataCleanupHelper.cleanupData();
+	}
+
+	@Test
+	public void testJdbcImplementationIsUsed() {
+		assertThat(AopTestUtils.getUltimateTargetObject(specificDateScheduleDao),
+				instanceOf(SpecificDateScheduleJdbcDaoImpl.class));
+		assertThat(AopTestUtils.getUltimateTargetObject(recurringScheduleDao),
+				instanceOf(RecurringScheduleJdbcDaoImpl.class));
+	}
+
+	@Test
+	public void testCreateAndFindSpecificDateSchedules() {
+		String appId = "appId1";
+		List<SpecificDateScheduleEntity> specificDateScheduleEntities = TestDataSetupHelper
+				.generateSpecificDateScheduleEntities(appId, 3);
+
+		specificDateScheduleDao.createAll(specificDateScheduleEntities);
+
+		assertDistinctIds(specificDateScheduleEntities);
+		for (SpecificDateScheduleEntity specificDateScheduleEntity : specificDateScheduleEntities) {
+			assertEquals(specificDateScheduleEntity, specificDateScheduleDao.find(specificDateScheduleEntity.getId()));
+		}
+		List<SpecificDateScheduleEntity> foundEntities = specificDateScheduleDao
+				.findAllSpecificDateSchedulesByAppId(appId);
+		assertThat("It should have three specific date schedules", foundEntities.size(), is(3));
+		assertThat("It should have three specific date schedules",
+				specificDateScheduleDao.findAllSpecificDateSchedules().size(), is(3));
+	}
+
+	@Test
+	public void testCreateAndFindRecurringSchedules() {
+		String appId = "appId1";
+		List<RecurringScheduleEntity> recurringScheduleEntities = new RecurringScheduleEntitiesBuilder(1, 1)
+				.setAppId(appId).setTimeZone(TestDataSetupHelper.getTimeZone()).setDefaultInstanceMinCount(1)
+				.setDefaultInstanceMaxCount(5).setStartTime(0, Time.valueOf("01:00:00"))
+				.setEndTime(0, Time.valueOf("23:00:00")).setDayOfMonth(0, new int[] { 1 })
+				.setStartDate(1, Date.valueOf("2016-10-10")).setDayOfWeek(1, new int[] { 1, 3, 7 }).build();
+
+		recurringScheduleDao.createAll(recurringScheduleEntities);
+
+		assertDistinctIds(recurringScheduleEntities);
+		for (RecurringScheduleEntity recurringScheduleEntity : recurringScheduleEntities) {
+			RecurringScheduleEntity foundEntity = recurringScheduleDao.find(recurringScheduleEntity.getId());
+			assertEquals(recurringScheduleEntity, foundEntity);
+		}
+		assertThat("The single day should be read back",
+				recurringScheduleDao.find(recurringScheduleEntities.get(0).getId()).getDaysOfMonth(),
+				is(new int[] { 1 }));
+		assertThat("It should have two recurring schedules",
+				recurringScheduleDao.findAllRecurringSchedulesByAppId(appId).size(), is(2));
+	}
+
+	@Test
+	public void testUpdateSchedule() {
+		SpecificDateScheduleEntity specificDateScheduleEntity = specificDateScheduleDao
+				.create(TestDataSetupHelper.generateSpecificDateScheduleEntities("appId1", 1).get(0));
+
+		specificDateScheduleEntity.setInstanceMaxCount(specificDateScheduleEntity.getInstanceMaxCount() + 1);
+		specificDateScheduleDao.update(specificDateScheduleEntity);
+
+		assertEquals(specificDateScheduleEntity, specificDateScheduleDao.find(specificDateScheduleEntity.getId()));
+	}
+
+	@Test
+	public void testDeleteAllSchedules() {
+		String appId = "appId1";
+		List<SpecificDateScheduleEntity> specificDateScheduleEntities = specificDateScheduleDao
+				.createAll(TestDataSetupHelper.generateSpecificDateScheduleEntities(appId, 3));
+		specificDateScheduleDao.createAll(TestDataSetupHelper.generateSpecificDateScheduleEntities("appId2", 1));
+
+		specificDateScheduleDao.deleteAll(specificDateScheduleEntities.subList(0, 2));
+
+		assertThat("It should have one specific date schedule",
+				specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId).size(), is(1));
+		assertThat("The other app should keep its schedule",
+				specificDateScheduleDao.findAllSpecificDateSchedulesByAppId("appId2").size(), is(1));
+		assertThat(specificDateScheduleDao.find(specificDateScheduleEntities.get(0).getId()), nullValue());
+	}
+
+	@Test
+	public void testCreateSchedule_throw_Exception() {
+		SpecificDateScheduleEntity specificDateScheduleEntity = TestDataSetupHelper
+				.generateSpecificDateScheduleEntities("appId1", 1).get(0);
+		specificDateScheduleEntity.setTimeZone(null);
+		try {
+			specificDateScheduleDao.create(specificDateScheduleEntity);
+			fail("Should fail");
+		} catch (DatabaseValidationException dve) {
+			assertThat(dve.getMessage(), is("Create failed"));
+		}
+	}
+
+	@Test
+	public void testFindAllSchedulesActiveAt() {
+		// Wednesday the 1st, 18:30 in Asia/Shanghai
+		java.util.Date time = java.util.Date.from(Instant.parse("2017-03-01T10:30:00Z"));
+		specificDateScheduleDao.createAll(new SpecificDateScheduleEntitiesBuilder(2).setAppid("appId1")
+				.setTimeZone("Asia/Shanghai").setDefaultInstanceMinCount(1).setDefaultInstanceMaxCount(5)
+				.setStartDateTime(0, Timestamp.valueOf("2017-03-01 18:00:00"))
+				.setEndDateTime(0, Timestamp.valueOf("2017-03-01 19:00:00"))
+				.setStartDateTime(1, Timestamp.valueOf("2017-03-01 10:00:00"))
+				.setEndDateTime(1, Timestamp.valueOf("2017-03-01 11:00:00")).build());
+		List<RecurringScheduleEntity> recurringScheduleEntities = recurringScheduleDao
+				.createAll(new RecurringScheduleEntitiesBuilder(1, 1).setAppId("appId2").setTimeZone("GMT")
+						.setDefaultInstanceMinCount(1).setDefaultInstanceMaxCount(5)
+						.setStartTime(0, Time.valueOf("10:00:00")).setEndTime(0, Time.valueOf("11:00:00"))
+						.setDayOfMonth(0, new int[] { 2 }).setStartTime(1, Time.valueOf("10:00:00"))
+						.setEndTime(1, Time.valueOf("11:00:00")).setDayOfWeek(1, new int[] { 3 }).build());
+
+		List<SpecificDateScheduleEntity> activeSpecificDateSchedules = specificDateScheduleDao
+				.findAllSpecificDateSchedulesActiveAt(time);
+		assertThat(activeSpecificDateSchedules.size(), is(1));
+		assertThat(activeSpecificDateSchedules.get(0).getStartDateTime().getTime(),
+				is(Timestamp.valueOf("2017-03-01 18:00:00").getTime()));
+
+		List<RecurringScheduleEntity> activeRecurringSchedules = recurringScheduleDao
+				.findAllRecurringSchedulesActiveAt(time);
+		assertThat(activeRecurringSchedules.size(), is(1));
+		assertThat(activeRecurringSchedules.get(0).getId(), is(recurringScheduleEntities.get(1).getId()));
+	}
+
+	private void assertDistinctIds(List<? extends ScheduleEntity> scheduleEntities) {
+		Set<Long> ids = new HashSet<>();
+		for (ScheduleEntity scheduleEntity : scheduleEntities) {
+			ids.add(scheduleEntity.getId());
+		}
+		assertThat("The ids should be distinct: " + Arrays.toString(ids.toArray()), ids.size(),
+				is(scheduleEntities.size()));
+	}
+}
@@ -1,11 +1,20 @@
 package org.cloudfoundry.autoscaler.scheduler.dao;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.sql.DataSource;
 import javax.transaction.Transactional;
@@ -82,11 +91,27 @@ public class SpecificDateScheduleDaoImplTest extends TestConfiguration {
 
 		SpecificDateScheduleEntity savedEntity = specificDateScheduleDao.create(specificDateScheduleEntity);
 
-		Long currentSequenceSchedulerId = testDataCleanupHelper.getCurrentSequenceSchedulerId();
-		specificDateScheduleEntity.setId(currentSequenceSchedulerId);
-
 		assertThat("It should have one specific date schedule", getRecurringSchedulesCountByAppId(appId), is(1L));
 		assertThat("Both recurring schedules should be equal", savedEntity, is(specificDateScheduleEntity));
+		assertThat("The id should be allocated", savedEntity.getId(), notNullValue());
+		assertThat("Both recurring schedules should be equal", specificDateScheduleDao.find(savedEntity.getId()),
+				is(specificDateScheduleEntity));
+	}
+
+	@Test
+	public void testCreateAllSpecificDateSchedules() {
+		String appId = "appId2";
+		List<SpecificDateScheduleEntity> specificDateScheduleEntities = TestDataSetupHelper
+				.generateSpecificDateScheduleEntities(appId, 3);
+
+		List<SpecificDateScheduleEntity> savedEntities = specificDateScheduleDao.createAll(specificDateScheduleEntities);
+
+		assertThat("It should have three specific date schedules", getRecurringSchedulesCountByAppId(appId), is(3L));
+		Set<Long> ids = new HashSet<>();
+		for (SpecificDateScheduleEntity savedEntity : savedEntities) {
+			ids.add(savedEntity.getId());
+		}
+		assertThat("The ids should be distinct", ids.size(), is(3));
 	}
 
 	@Test
@@ -134,6 +159,16 @@ public class SpecificDateScheduleDaoImplTest extends TestConfiguration {
 		}
 	}
 
+	@Test
+	public void testCreateAllSchedules_throw_Exception() {
+		try {
+			specificDateScheduleDao.createAll(Collections.singletonList(null));
+			fail("Should fail");
+		} catch (DatabaseValidationException dve) {
+			assertThat(dve.getMessage(), is("Create failed"));
+		}
+	}
+
 	@Test
 	public void testDeleteSchedule_throw_Exception() {
 		try {
@@ -144,6 +179,32 @@ public class SpecificDateScheduleDaoImplTest extends TestConfiguration {
 		}
 	}
 
+	@Test
+	public void testFindAllSpecificDateSchedulesActiveAt() {
+		// 18:30 in Asia/Shanghai
+		Date time = Date.from(Instant.parse("2017-03-01T10:30:00Z"));
+		insertSpecificDateSchedule("appIdActive", "GMT", 1, 5, 2, 7, 0, localDateTime("2017-03-01T10:00"),
+				localDateTime("2017-03-01T11:00"));
+		insertSpecificDateSchedule("appIdActiveStart", "GMT", 1, 5, 2, 7, 0, localDateTime("2017-03-01T10:30"),
+				localDateTime("2017-03-01T11:00"));
+		insertSpecificDateSchedule("appIdActiveTimeZone", "Asia/Shanghai", 1, 5, 2, 7, 0,
+				localDateTime("2017-03-01T18:00"), localDateTime("2017-03-01T19:00"));
+		insertSpecificDateSchedule("appIdEnded", "GMT", 1, 5, 2, 7, 0, localDateTime("2017-03-01T10:00"),
+				localDateTime("2017-03-01T10:30"));
+		insertSpecificDateSchedule("appIdOtherTimeZone", "Asia/Shanghai", 1, 5, 2, 7, 0,
+				localDateTime("2017-03-01T10:00"), localDateTime("2017-03-01T11:00"));
+
+		Set<String> appIds = specificDateScheduleDao.findAllSpecificDateSchedulesActiveAt(time).stream()
+				.map(SpecificDateScheduleEntity::getAppId).collect(Collectors.toSet());
+
+		assertThat(appIds,
+				is(new HashSet<>(Arrays.asList("appIdActive", "appIdActiveStart", "appIdActiveTimeZone"))));
+	}
+
+	private Date localDateTime(String localDateTime) {
+		return Timestamp.valueOf(LocalDateTime.parse(localDateTime));
+	}
+
 	private void insertSpecificDateSchedule(String appId, String timezone, int defaultInstanceMinCount,
 			int defaultInstanceMaxCount, int instanceMinCount, int instanceMaxCount, int initialMinInstanceCount,
 			Date startDateTime, Date endDateTime) {
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.eq;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -18,10 +19,15 @@ import org.apache.logging.log4j.core.config.Configuration;
 import org.apache.logging.log4j.core.config.LoggerConfig;
 import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
 import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.scalingengine.ScalingEngineNotifier;
+import org.cloudfoundry.autoscaler.scheduler.service.ScheduleCache;
+import org.cloudfoundry.autoscaler.scheduler.service.ScheduleTransitionCoalescer;
 import org.cloudfoundry.autoscaler.scheduler.util.EmbeddedTomcatUtil;
 import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
 import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
 import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.SpecificDateScheduleEntitiesBuilder;
 import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
 import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
 import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
@@ -52,8 +58,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.HttpEntity;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.AsyncRestTemplate;
 import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -75,11 +81,26 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 	private ActiveScheduleDao activeScheduleDao;
 
 	@SpyBean
-	private RestTemplate restTemplate;
+	private AsyncRestTemplate asyncRestTemplate;
+
+	@SpyBean
+	private ScheduleTransitionCoalescer scheduleTransitionCoalescer;
 
 	@Autowired
 	private TestDataCleanupHelper testDataCleanupHelper;
 
+	@Autowired
+	private ScheduleCache scheduleCache;
+
+	@Autowired
+	private ScalingEngineNotifier scalingEngineNotifier;
+
+	@Autowired
+	private ScheduleTimingMetrics scheduleTimingMetrics;
+
+	@Autowired
+	private AppTransitionSequencer appTransitionSequencer;
+
 	@Value("${autoscaler.scalingengine.url}")
 	private String scalingEngineUrl;
 
@@ -101,6 +122,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 	public void before() throws SchedulerException {
 		MockitoAnnotations.initMocks(this);
 		testDataCleanupHelper.cleanupData(scheduler);
+		scheduleCache.clear();
 
 		Mockito.reset(mockAppender);
 
@@ -131,7 +153,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		assertNotNull(activeScheduleDao);
 		assertNotNull(activeScheduleEntityArgumentCaptor);
@@ -146,6 +168,36 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 	}
 
+	@Test
+	public void testNotifyStartOfActiveScheduleToScalingEngine_with_scheduleId_only_in_jobData() throws Exception {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		SpecificDateScheduleEntity specificDateScheduleEntity = new SpecificDateScheduleEntitiesBuilder(1)
+				.setAppid(appId).setScheduleId().setDefaultInstanceMinCount(1).setDefaultInstanceMaxCount(5).build()
+				.get(0);
+		Long scheduleId = specificDateScheduleEntity.getId();
+		scheduleCache.putSchedules(Arrays.asList(specificDateScheduleEntity));
+
+		// Build the job with only the schedule id in the job data
+		JobInformation jobInformation = new JobInformation<>(AppScalingScheduleStartJob.class);
+		jobInformation.getJobDetail().getJobDataMap().put(ScheduleJobHelper.SCHEDULE_ID, scheduleId);
+
+		embeddedTomcatUtil.setup(appId, scheduleId, 200, null);
+
+		TestJobListener testJobListener = new TestJobListener(1);
+		scheduler.getListenerManager().addJobListener(testJobListener);
+		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
+		waitForJobToFinish(testJobListener);
+
+		ActiveScheduleEntity expectedActiveScheduleEntity = ScheduleJobHelper
+				.setupActiveSchedule(specificDateScheduleEntity, JobActionEnum.START);
+		Mockito.verify(activeScheduleDao, Mockito.times(1)).create(expectedActiveScheduleEntity);
+		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
+
+		String expectedMessage = messageBundleResourceHelper
+				.lookupMessage("scalingengine.notification.activeschedule.start", appId, scheduleId, JobActionEnum.START);
+		assertThat(logCaptor.getValue().getMessage().getFormattedMessage(), is(expectedMessage));
+	}
+
 	@Test
 	public void testNotifyEndOfActiveScheduleToScalingEngine() throws Exception {
 		// Build the job
@@ -157,13 +209,17 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 		Long scheduleId = activeScheduleEntity.getId();
 
 		embeddedTomcatUtil.setup(appId, scheduleId, 204, null);
+		long queueWaitCount = scheduleTimingMetrics
+				.getHistogram(JobActionEnum.END, ScheduleTimingMetrics.Timing.QUEUE_WAIT).getCount();
 
 		TestJobListener testJobListener = new TestJobListener(1);
 		scheduler.getListenerManager().addJobListener(testJobListener);
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		Mockito.verify(activeScheduleDao, Mockito.times(1)).delete(activeScheduleEntity.getId());
+		assertThat(scheduleTimingMetrics.getHistogram(JobActionEnum.END, ScheduleTimingMetrics.Timing.QUEUE_WAIT)
+				.getCount(), is(queueWaitCount + 1));
 		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
 
 		String expectedMessage = messageBundleResourceHelper.lookupMessage("scalingengine.notification.activeschedule.remove", appId,
@@ -173,6 +229,63 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 	}
 
+	@Test
+	public void testCoalescedEnd_when_activeSchedule_replaced() throws Exception {
+		JobInformation jobInformation = new JobInformation<>(AppScalingScheduleEndJob.class);
+		JobDataMap jobDataMap = setupJobData(jobInformation.getJobDetail(), JobActionEnum.END);
+
+		ActiveScheduleEntity activeScheduleEntity = ScheduleJobHelper.setupActiveSchedule(jobDataMap);
+		String appId = activeScheduleEntity.getAppId();
+		Long scheduleId = activeScheduleEntity.getId();
+
+		Mockito.doReturn(true).when(scheduleTransitionCoalescer).isReplacedAt(eq(appId), eq(scheduleId),
+				Mockito.any(Date.class));
+
+		// The first firing and the check
+		TestJobListener testJobListener = new TestJobListener(2);
+		scheduler.getListenerManager().addJobListener(testJobListener);
+		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
+		waitForJobToFinish(testJobListener);
+
+		Mockito.verify(activeScheduleDao, Mockito.times(1)).find(scheduleId);
+		Mockito.verify(activeScheduleDao, Mockito.never()).delete(scheduleId);
+		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
+		String unexpectedMessage = messageBundleResourceHelper.lookupMessage("scalingengine.notification.activeschedule.remove",
+				appId, scheduleId, JobActionEnum.END);
+		AssertLogHasMessageCount(Level.INFO, unexpectedMessage, 0);
+	}
+
+	@Test
+	public void testCoalescedEnd_when_activeSchedule_not_replaced() throws Exception {
+		JobInformation jobInformation = new JobInformation<>(AppScalingScheduleEndJob.class);
+		JobDataMap jobDataMap = setupJobData(jobInformation.getJobDetail(), JobActionEnum.END);
+
+		ActiveScheduleEntity activeScheduleEntity = ScheduleJobHelper.setupActiveSchedule(jobDataMap);
+		String appId = activeScheduleEntity.getAppId();
+		Long scheduleId = activeScheduleEntity.getId();
+
+		embeddedTomcatUtil.setup(appId, scheduleId, 204, null);
+
+		// The start replacing the active schedule did not happen
+		Mockito.doReturn(true).when(scheduleTransitionCoalescer).isReplacedAt(eq(appId), eq(scheduleId),
+				Mockito.any(Date.class));
+		Mockito.doReturn(activeScheduleEntity).when(activeScheduleDao).find(scheduleId);
+
+		TestJobListener testJobListener = new TestJobListener(2);
+		scheduler.getListenerManager().addJobListener(testJobListener);
+		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
+		waitForJobToFinish(testJobListener);
+
+		Mockito.verify(activeScheduleDao, Mockito.times(1)).delete(scheduleId);
+		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
+		String expectedMessage = messageBundleResourceHelper.lookupMessage("scheduler.job.end.not.replaced",
+				jobInformation.getJobDetail().getKey(), appId, scheduleId);
+		AssertLogHasMessageCount(Level.WARN, expectedMessage, 1);
+		expectedMessage = messageBundleResourceHelper.lookupMessage("scalingengine.notification.activeschedule.remove",
+				appId, scheduleId, JobActionEnum.END);
+		AssertLogHasMessageCount(Level.INFO, expectedMessage, 1);
+	}
+
 	@Test
 	public void testCreateActiveSchedules_throw_DatabaseValidationException() throws Exception {
 		setLogLevel(Level.ERROR);
@@ -197,7 +310,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		Mockito.verify(activeScheduleDao, Mockito.times(expectedNumOfTimesJobRescheduled)).create(activeScheduleEntity);
 
@@ -234,7 +347,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		Mockito.verify(activeScheduleDao, Mockito.times(expectedNumOfTimesJobRescheduled)).delete(scheduleId);
 		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
@@ -270,7 +383,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		// 5 times because in case of failure quartz will reschedule job which will call create again
 		Mockito.verify(activeScheduleDao, Mockito.times(expectedNumOfTimesJobRescheduled)).create(activeScheduleEntity);
@@ -308,7 +421,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		Mockito.verify(activeScheduleDao, Mockito.times(expectedNumOfTimesJobRescheduled)).delete(scheduleId);
 		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
@@ -341,7 +454,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		Mockito.verify(activeScheduleDao, Mockito.times(1)).create(activeScheduleEntity);
 
@@ -374,7 +487,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		Mockito.verify(activeScheduleDao, Mockito.times(1)).delete(scheduleId);
 
@@ -404,7 +517,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		Mockito.verify(activeScheduleDao, Mockito.times(1)).create(activeScheduleEntity);
 		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
@@ -434,7 +547,7 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
 
 		Mockito.verify(activeScheduleDao, Mockito.times(1)).delete(scheduleId);
 		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
@@ -459,15 +572,20 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 		Long scheduleId = activeScheduleEntity.getId();
 
 		HttpEntity<ActiveScheduleEntity> requestEntity = new HttpEntity<>(activeScheduleEntity);
-		Mockito.doThrow(new ResourceAccessException("test exception")).when(restTemplate)
+		Mockito.doThrow(new ResourceAccessException("test exception")).when(asyncRestTemplate)
 				.put(eq(scalingEngineUrl + "/v1/apps/" + appId + "/active_schedules/" + scheduleId), eq(requestEntity));
 
-		TestJobListener testJobListener = new TestJobListener(2);
+		TestJobListener testJobListener = new TestJobListener(1);
 		scheduler.getListenerManager().addJobListener(testJobListener);
 
 		scheduler.scheduleJob(jobInformation.getJobDetail(), jobInformation.getTrigger());
 
-		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		waitForJobToFinish(testJobListener);
+
+		// The notification is retried in memory, the job is not fired again
+		Mockito.verify(asyncRestTemplate, Mockito.timeout(TimeUnit.SECONDS.toMillis(10)).times(2))
+				.put(eq(scalingEngineUrl + "/v1/apps/" + appId + "/active_schedules/" + scheduleId), eq(requestEntity));
+		Thread.sleep(500);
 
 		Mockito.verify(activeScheduleDao, Mockito.times(1)).create(activeScheduleEntity);
 		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
@@ -476,9 +594,8 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 
 		AssertLogHasMessageCount(Level.ERROR, expectedMessage, 2);
 
-		expectedMessage = messageBundleResourceHelper.lookupMessage("scheduler.job.reschedule.failed.max.reached",
-				jobInformation.getTrigger().getKey(), appId, scheduleId, 2,
-				ScheduleJobHelper.RescheduleCount.SCALING_ENGINE_NOTIFICATION.name());
+		expectedMessage = messageBundleResourceHelper.lookupMessage("scalingengine.notification.retry.max.reached", 2,
+				appId, scheduleId, JobActionEnum.START);
 
 		assertThat("Log level should be ERROR", logCaptor.getValue().getLevel(), is(Level.ERROR));
 		assertThat(logCaptor.getValue().getMessage().getFormattedMessage(), is(expectedMessage));
@@ -497,6 +614,16 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 		assertThat("Log should have message", messageCount, is(expectedCount));
 	}
 
+	private void waitForJobToFinish(TestJobListener testJobListener) throws InterruptedException {
+		testJobListener.waitForJobToFinish(TimeUnit.MINUTES.toMillis(1));
+		// The job does not wait for its transition, nor for the scaling engine
+		long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+		while ((appTransitionSequencer.getPendingTransitionCount() > 0
+				|| scalingEngineNotifier.getInFlightNotificationCount() > 0) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
 	private void setLogLevel(Level level) {
 		LoggerContext ctx = (LoggerContext) LogManager.getContext(false);
 		Configuration config = ctx.getConfiguration();
@@ -521,7 +648,6 @@ public class AppScalingScheduleJobTest extends TestConfiguration {
 		jobDataMap.put(ScheduleJobHelper.INSTANCE_MIN_COUNT, 2);
 		jobDataMap.put(ScheduleJobHelper.INSTANCE_MAX_COUNT, 4);
 		jobDataMap.put(ScheduleJobHelper.RescheduleCount.ACTIVE_SCHEDULE.name(), 1);
-		jobDataMap.put(ScheduleJobHelper.RescheduleCount.SCALING_ENGINE_NOTIFICATION.name(), 1);
 		jobDataMap.put(ScheduleJobHelper.ACTIVE_SCHEDULE_TABLE_TASK_DONE, false);
 
 		return jobDataMap;
@@ -0,0 +1,233 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.quartz.JobKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AppTransitionSequencerTest extends TestConfiguration {
+
+	private static final JobKey JOB_KEY = new JobKey("1_start", "Specific_Date");
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private JobExecutionLanes jobExecutionLanes;
+
+	private AppTransitionSequencer appTransitionSequencer;
+
+	private List<String> applied = Collections.synchronizedList(new ArrayList<>());
+
+	private List<String> requeued = Collections.synchronizedList(new ArrayList<>());
+
+	@Before
+	public void before() {
+		jobExecutionLanes = new JobExecutionLanes();
+		for (String lane : new String[] { "start", "end", "retry" }) {
+			ReflectionTestUtils.setField(jobExecutionLanes, lane + "ThreadCount", 2);
+			ReflectionTestUtils.setField(jobExecutionLanes, lane + "QueueCapacity", 10);
+		}
+		ReflectionTestUtils.setField(jobExecutionLanes, "messageBundleResourceHelper", messageBundleResourceHelper);
+		jobExecutionLanes.init();
+
+		appTransitionSequencer = new AppTransitionSequencer();
+		ReflectionTestUtils.setField(appTransitionSequencer, "retentionMilliSecond", 3600000L);
+		ReflectionTestUtils.setField(appTransitionSequencer, "jobExecutionLanes", jobExecutionLanes);
+		ReflectionTestUtils.setField(appTransitionSequencer, "messageBundleResourceHelper",
+				messageBundleResourceHelper);
+	}
+
+	@After
+	public void after() throws InterruptedException {
+		appTransitionSequencer.shutdown();
+	}
+
+	@Test
+	public void testTransitions_of_app_applied_one_at_a_time_in_transition_order() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		submit("app", 1L, 100, () -> await(release));
+		waitForApplying();
+
+		// The transitions are queued without waiting for their turn
+		submit("app", 2L, 300, null);
+		submit("app", 3L, 200, null);
+		assertThat(getMetrics().get("scheduler.transition.waited"), is(2L));
+		assertThat(applied, contains("app:100"));
+
+		release.countDown();
+		assertThat(awaitIdle(), is(true));
+		assertThat(applied, contains("app:100", "app:200", "app:300"));
+	}
+
+	@Test
+	public void testNext_transition_of_app_applied_in_its_own_lane() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		submit(JobExecutionLanes.Lane.END, "app", 1L, 100, () -> await(release));
+		waitForApplying();
+
+		List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+		submit(JobExecutionLanes.Lane.START, "app", 2L, 200, () -> threadNames.add(Thread.currentThread().getName()));
+
+		release.countDown();
+		assertThat(awaitIdle(), is(true));
+		assertThat(applied, contains("app:100", "app:200"));
+		assertThat(threadNames.get(0).startsWith("scalingenginejob-start-"), is(true));
+	}
+
+	@Test
+	public void testTransition_older_than_applied_transition_of_schedule_cancelled() throws Exception {
+		submit("app", 1L, 200, null);
+		assertThat(awaitIdle(), is(true));
+		// The retry of the start fires after the end was applied
+		submit("app", 1L, 100, null);
+		assertThat(awaitIdle(), is(true));
+
+		assertThat(applied, contains("app:200"));
+		assertThat(getMetrics().get("scheduler.transition.cancelled"), is(1L));
+	}
+
+	@Test
+	public void testTransition_older_than_applied_transition_of_other_schedule_applied() throws Exception {
+		submit("app", 1L, 200, null);
+		assertThat(awaitIdle(), is(true));
+		// The retry of the start of another schedule of the app
+		submit("app", 2L, 100, null);
+		assertThat(awaitIdle(), is(true));
+
+		assertThat(applied, contains("app:200", "app:100"));
+		assertThat(getMetrics().get("scheduler.transition.cancelled"), is(0L));
+	}
+
+	@Test
+	public void testWaiting_transition_cancelled_when_superseded() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		submit("app", 1L, 300, () -> await(release));
+		waitForApplying();
+
+		// The retry of the start arrives while the end is applied
+		submit("app", 1L, 100, null);
+
+		release.countDown();
+		assertThat(awaitIdle(), is(true));
+		assertThat(applied, contains("app:300"));
+		assertThat(getMetrics().get("scheduler.transition.cancelled"), is(1L));
+	}
+
+	@Test
+	public void testTransitions_of_different_apps_applied_in_parallel() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		submit("app1", 1L, 100, () -> await(release));
+		waitForApplying();
+
+		CountDownLatch otherAppApplied = new CountDownLatch(1);
+		submit("app2", 2L, 100, otherAppApplied::countDown);
+
+		assertThat(otherAppApplied.await(5, TimeUnit.SECONDS), is(true));
+		release.countDown();
+		assertThat(awaitIdle(), is(true));
+	}
+
+	@Test
+	public void testQueued_transitions_requeued_on_shutdown() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		submit("app", 1L, 100, () -> await(release));
+		waitForApplying();
+		submit("app", 2L, 200, null);
+
+		Thread shutdown = new Thread(() -> {
+			try {
+				appTransitionSequencer.shutdown();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		shutdown.start();
+		Thread.sleep(100);
+		release.countDown();
+		shutdown.join(TimeUnit.SECONDS.toMillis(5));
+
+		assertThat(applied, contains("app:100"));
+		assertThat(requeued, contains("app:200"));
+		assertThat(appTransitionSequencer.getPendingTransitionCount(), is(0));
+	}
+
+	@Test
+	public void testPrune_forgets_idle_apps() throws Exception {
+		submit("app", 1L, 200, null);
+		assertThat(awaitIdle(), is(true));
+		appTransitionSequencer.prune();
+		assertThat(appTransitionSequencer.getAppCount(), is(1));
+
+		ReflectionTestUtils.setField(appTransitionSequencer, "retentionMilliSecond", -1L);
+		appTransitionSequencer.prune();
+		assertThat(appTransitionSequencer.getAppCount(), is(0));
+	}
+
+	private void submit(String appId, Long scheduleId, long transitionTime, Runnable work) {
+		submit(JobExecutionLanes.Lane.START, appId, scheduleId, transitionTime, work);
+	}
+
+	private void submit(JobExecutionLanes.Lane lane, String appId, Long scheduleId, long transitionTime,
+			Runnable work) {
+		String transition = appId + ":" + transitionTime;
+		appTransitionSequencer.execute(lane, appId, scheduleId, JOB_KEY, transitionTime, () -> {
+			applied.add(transition);
+			if (work != null) {
+				work.run();
+			}
+		}, () -> requeued.add(transition));
+	}
+
+	private boolean awaitIdle() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+		while (appTransitionSequencer.getPendingTransitionCount() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		return appTransitionSequencer.getPendingTransitionCount() == 0;
+	}
+
+	private void waitForApplying() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+		while (applied.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private Map<String, Number> getMetrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : appTransitionSequencer.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+
+	private void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
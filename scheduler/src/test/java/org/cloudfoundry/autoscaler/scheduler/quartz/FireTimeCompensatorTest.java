@@ -0,0 +1,102 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class FireTimeCompensatorTest extends TestConfiguration {
+
+	@Autowired
+	private FireTimeCompensator fireTimeCompensator;
+
+	@Before
+	public void before() {
+		fireTimeCompensator.clear();
+		ReflectionTestUtils.setField(fireTimeCompensator, "maxAdvanceMilliSecond", 5000L);
+	}
+
+	@After
+	public void after() {
+		fireTimeCompensator.clear();
+		ReflectionTestUtils.setField(fireTimeCompensator, "maxAdvanceMilliSecond", 0L);
+	}
+
+	@Test
+	public void testNoAdvance_until_enough_latencies() {
+		for (int i = 0; i < 19; i++) {
+			fireTimeCompensator.recordLatency(1500);
+		}
+		assertThat(fireTimeCompensator.getStartAdvanceMilliSecond(), is(0L));
+
+		fireTimeCompensator.recordLatency(1500);
+		assertThat(fireTimeCompensator.getStartAdvanceMilliSecond(), is(2000L));
+	}
+
+	@Test
+	public void testAdvance_is_percentile_rounded_up_to_seconds() {
+		// 95 latencies of 200 ms and 5 of 2500 ms, the 95th percentile is 200 ms
+		for (int i = 0; i < 95; i++) {
+			fireTimeCompensator.recordLatency(200);
+		}
+		for (int i = 0; i < 5; i++) {
+			fireTimeCompensator.recordLatency(2500);
+		}
+		assertThat(fireTimeCompensator.getStartAdvanceMilliSecond(), is(1000L));
+
+		fireTimeCompensator.recordLatency(2500);
+		assertThat(fireTimeCompensator.getStartAdvanceMilliSecond(), is(3000L));
+	}
+
+	@Test
+	public void testAdvance_is_capped() {
+		for (int i = 0; i < 50; i++) {
+			fireTimeCompensator.recordLatency(30000);
+		}
+		assertThat(fireTimeCompensator.getStartAdvanceMilliSecond(), is(5000L));
+
+		ReflectionTestUtils.setField(fireTimeCompensator, "maxAdvanceMilliSecond", 0L);
+		assertThat(fireTimeCompensator.getStartAdvanceMilliSecond(), is(0L));
+	}
+
+	@Test
+	public void testAdvanceUpdate_due_beyond_threshold() {
+		for (int i = 0; i < 19; i++) {
+			fireTimeCompensator.recordLatency(2500);
+		}
+		// Kept until enough latencies are recorded
+		assertThat(fireTimeCompensator.isAdvanceUpdateDue(1000), is(false));
+
+		fireTimeCompensator.recordLatency(2500);
+		assertThat(fireTimeCompensator.getStartAdvanceMilliSecond(), is(3000L));
+		assertThat(fireTimeCompensator.isAdvanceUpdateDue(2000), is(false));
+		assertThat(fireTimeCompensator.isAdvanceUpdateDue(4000), is(false));
+		assertThat(fireTimeCompensator.isAdvanceUpdateDue(1000), is(true));
+		assertThat(fireTimeCompensator.isAdvanceUpdateDue(0), is(true));
+
+		ReflectionTestUtils.setField(fireTimeCompensator, "maxAdvanceMilliSecond", 0L);
+		assertThat(fireTimeCompensator.isAdvanceUpdateDue(1000), is(true));
+		assertThat(fireTimeCompensator.isAdvanceUpdateDue(0), is(false));
+	}
+
+	@Test
+	public void testOldest_latencies_are_dropped() {
+		for (int i = 0; i < 200; i++) {
+			fireTimeCompensator.recordLatency(4000);
+		}
+		for (int i = 0; i < 200; i++) {
+			fireTimeCompensator.recordLatency(100);
+		}
+		assertThat(fireTimeCompensator.getStartAdvanceMilliSecond(), is(1000L));
+	}
+}
@@ -0,0 +1,138 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class JobExecutionLanesTest extends TestConfiguration {
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private JobExecutionLanes jobExecutionLanes;
+
+	@Before
+	public void before() {
+		jobExecutionLanes = new JobExecutionLanes();
+		for (String lane : new String[] { "start", "end", "retry" }) {
+			ReflectionTestUtils.setField(jobExecutionLanes, lane + "ThreadCount", 1);
+			ReflectionTestUtils.setField(jobExecutionLanes, lane + "QueueCapacity", 1);
+		}
+		ReflectionTestUtils.setField(jobExecutionLanes, "messageBundleResourceHelper", messageBundleResourceHelper);
+		jobExecutionLanes.init();
+	}
+
+	@After
+	public void after() throws InterruptedException {
+		jobExecutionLanes.shutdown();
+	}
+
+	@Test
+	public void testStartLane_is_not_held_up_by_busy_end_lane() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		jobExecutionLanes.execute(JobExecutionLanes.Lane.END, () -> await(release));
+		jobExecutionLanes.execute(JobExecutionLanes.Lane.RETRY, () -> await(release));
+
+		CountDownLatch started = new CountDownLatch(1);
+		jobExecutionLanes.execute(JobExecutionLanes.Lane.START, started::countDown);
+
+		assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(jobExecutionLanes.awaitIdle(100), is(false));
+
+		release.countDown();
+		assertThat(jobExecutionLanes.awaitIdle(TimeUnit.SECONDS.toMillis(5)), is(true));
+	}
+
+	@Test
+	public void testSaturated_lane_parks_job_until_it_has_room() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		// One job runs, one is queued, the third one is parked
+		jobExecutionLanes.execute(JobExecutionLanes.Lane.END, () -> await(release));
+		jobExecutionLanes.execute(JobExecutionLanes.Lane.END, () -> await(release));
+
+		Thread callingThread = Thread.currentThread();
+		Thread[] runningThread = new Thread[1];
+		CountDownLatch parkedRan = new CountDownLatch(1);
+		assertThat(jobExecutionLanes.execute(JobExecutionLanes.Lane.END, () -> {
+			runningThread[0] = Thread.currentThread();
+			parkedRan.countDown();
+		}), is(true));
+
+		assertThat(parkedRan.getCount(), is(1L));
+		assertThat(jobExecutionLanes.getSaturatedCount(JobExecutionLanes.Lane.END), is(1L));
+		assertThat(jobExecutionLanes.getSaturatedCount(JobExecutionLanes.Lane.START), is(0L));
+
+		Map<String, Number> metrics = getMetrics();
+		assertThat(metrics.get("scheduler.lane.end.saturated"), is(1L));
+		assertThat(metrics.get("scheduler.lane.end.submitted"), is(3L));
+		assertThat(metrics.get("scheduler.lane.end.queue.size"), is(1));
+		assertThat(metrics.get("scheduler.lane.end.queue.remaining"), is(0));
+		assertThat(metrics.get("scheduler.lane.end.parked"), is(1));
+
+		release.countDown();
+		assertThat(parkedRan.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(runningThread[0] == callingThread, is(false));
+		assertThat(jobExecutionLanes.awaitIdle(TimeUnit.SECONDS.toMillis(5)), is(true));
+		assertThat(getMetrics().get("scheduler.lane.end.completed"), is(3L));
+		assertThat(getMetrics().get("scheduler.lane.end.parked"), is(0));
+	}
+
+	@Test
+	public void testParked_job_dropped_on_shutdown() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		jobExecutionLanes.execute(JobExecutionLanes.Lane.RETRY, () -> await(release));
+		jobExecutionLanes.execute(JobExecutionLanes.Lane.RETRY, () -> await(release));
+		CountDownLatch parkedRan = new CountDownLatch(1);
+		jobExecutionLanes.execute(JobExecutionLanes.Lane.RETRY, parkedRan::countDown);
+
+		Thread shutdown = new Thread(() -> {
+			try {
+				jobExecutionLanes.shutdown();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		shutdown.start();
+		Thread.sleep(100);
+		release.countDown();
+		shutdown.join(TimeUnit.SECONDS.toMillis(5));
+
+		assertThat(parkedRan.getCount(), is(1L));
+		assertThat(getMetrics().get("scheduler.lane.retry.parked"), is(0));
+		assertThat(jobExecutionLanes.execute(JobExecutionLanes.Lane.START, parkedRan::countDown), is(false));
+	}
+
+	private Map<String, Number> getMetrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : jobExecutionLanes.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+
+	private void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
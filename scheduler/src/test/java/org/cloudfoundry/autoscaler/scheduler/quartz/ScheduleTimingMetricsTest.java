@@ -0,0 +1,104 @@
+package org.cloudfoundry.autoscaler.scheduler.quartz;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScheduleTimingMetricsTest extends TestConfiguration {
+
+	@Autowired
+	private ScheduleTimingMetrics scheduleTimingMetrics;
+
+	@Test
+	public void testLatencyHistogram_percentiles() {
+		LatencyHistogram latencyHistogram = new LatencyHistogram();
+		assertThat(latencyHistogram.getPercentile(95), is(0L));
+
+		for (int i = 0; i < 90; i++) {
+			latencyHistogram.record(40);
+		}
+		for (int i = 0; i < 10; i++) {
+			latencyHistogram.record(2000);
+		}
+		latencyHistogram.record(-5);
+
+		assertThat(latencyHistogram.getCount(), is(101L));
+		assertThat(latencyHistogram.getPercentile(50), is(50L));
+		assertThat(latencyHistogram.getPercentile(95), is(2000L));
+
+		latencyHistogram.record(120000);
+		assertThat(latencyHistogram.getPercentile(100), is(120000L));
+	}
+
+	@Test
+	public void testFireLag_recorded_for_scaling_jobs_only() {
+		long startCount = getCount("scheduler.job.start.fire.lag");
+		long endCount = getCount("scheduler.job.end.fire.lag");
+
+		scheduleTimingMetrics.triggerFired(null, mockJobExecutionContext(AppScalingScheduleStartJob.class, 1500));
+		scheduleTimingMetrics.triggerFired(null, mockJobExecutionContext(ScalingEngineNotificationRetryJob.class, 10));
+
+		assertThat(getCount("scheduler.job.start.fire.lag"), is(startCount + 1));
+		assertThat(getCount("scheduler.job.end.fire.lag"), is(endCount));
+		assertThat(scheduleTimingMetrics.getHistogram(JobActionEnum.START, ScheduleTimingMetrics.Timing.FIRE_LAG)
+				.getPercentile(100) >= 1500, is(true));
+	}
+
+	@Test
+	public void testMetrics_per_action_and_timing() {
+		long count = getCount("scheduler.job.end.scalingengine.roundtrip");
+
+		scheduleTimingMetrics.record(JobActionEnum.END, ScheduleTimingMetrics.Timing.SCALING_ENGINE_ROUND_TRIP, 30);
+
+		Map<String, Number> metrics = getMetrics();
+		assertThat(metrics.get("scheduler.job.end.scalingengine.roundtrip.count"), is(count + 1));
+		for (String timing : new String[] { "fire.lag", "queue.wait", "database.write", "scalingengine.roundtrip", "delivery" }) {
+			assertThat(metrics.containsKey("scheduler.job.start." + timing + ".p95"), is(true));
+			assertThat(metrics.containsKey("scheduler.job.end." + timing + ".le.1000"), is(true));
+		}
+	}
+
+	private JobExecutionContext mockJobExecutionContext(Class<? extends Job> jobClass, long lag) {
+		JobDetail jobDetail = Mockito.mock(JobDetail.class);
+		Mockito.when(jobDetail.getKey()).thenReturn(new JobKey("test"));
+		Mockito.doReturn(jobClass).when(jobDetail).getJobClass();
+
+		long now = System.currentTimeMillis();
+		JobExecutionContext jobExecutionContext = Mockito.mock(JobExecutionContext.class);
+		Mockito.when(jobExecutionContext.getJobDetail()).thenReturn(jobDetail);
+		Mockito.when(jobExecutionContext.getScheduledFireTime()).thenReturn(new Date(now - lag));
+		Mockito.when(jobExecutionContext.getFireTime()).thenReturn(new Date(now));
+		return jobExecutionContext;
+	}
+
+	private long getCount(String prefix) {
+		return getMetrics().get(prefix + ".count").longValue();
+	}
+
+	private Map<String, Number> getMetrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : scheduleTimingMetrics.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+}
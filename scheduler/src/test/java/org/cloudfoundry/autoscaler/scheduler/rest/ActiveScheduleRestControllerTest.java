@@ -0,0 +1,101 @@
+package org.cloudfoundry.autoscaler.scheduler.rest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.util.RecurringScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.SpecificDateScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ActiveScheduleRestControllerTest extends TestConfiguration {
+
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@Autowired
+	private RecurringScheduleDao recurringScheduleDao;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private WebApplicationContext wac;
+	private MockMvc mockMvc;
+
+	@Before
+	public void before() throws Exception {
+		testDataCleanupHelper.cleanupData();
+
+		mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+	}
+
+	@Test
+	public void testGetSchedulesActiveAt() throws Exception {
+		// Wednesday the 1st, 18:30 in Asia/Shanghai
+		long time = Instant.parse("2017-03-01T10:30:00Z").toEpochMilli();
+		new TransactionTemplate(transactionManager).execute(status -> {
+			specificDateScheduleDao.createAll(new SpecificDateScheduleEntitiesBuilder(2).setAppid("appId1")
+					.setTimeZone("Asia/Shanghai").setDefaultInstanceMinCount(1).setDefaultInstanceMaxCount(5)
+					.setInstanceMinCount(0, 3).setInstanceMaxCount(0, 8)
+					.setStartDateTime(0, Timestamp.valueOf("2017-03-01 18:00:00"))
+					.setEndDateTime(0, Timestamp.valueOf("2017-03-01 19:00:00"))
+					.setStartDateTime(1, Timestamp.valueOf("2017-03-02 18:00:00"))
+					.setEndDateTime(1, Timestamp.valueOf("2017-03-02 19:00:00")).build());
+			return recurringScheduleDao.createAll(new RecurringScheduleEntitiesBuilder(0, 1).setAppId("appId2")
+					.setTimeZone("GMT").setDefaultInstanceMinCount(1).setDefaultInstanceMaxCount(5)
+					.setStartTime(0, Time.valueOf("10:00:00")).setEndTime(0, Time.valueOf("11:00:00"))
+					.setDayOfWeek(0, new int[] { 3 }).build());
+		});
+
+		mockMvc.perform(get("/v2/active/schedules").param("time", String.valueOf(time))
+				.accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.time").value(time))
+				.andExpect(jsonPath("$.specific_date", Matchers.hasSize(1)))
+				.andExpect(jsonPath("$.specific_date[0].app_id").value("appId1"))
+				.andExpect(jsonPath("$.specific_date[0].timezone").value("Asia/Shanghai"))
+				.andExpect(jsonPath("$.specific_date[0].instance_min_count").value(3))
+				.andExpect(jsonPath("$.specific_date[0].instance_max_count").value(8))
+				.andExpect(jsonPath("$.recurring_schedule", Matchers.hasSize(1)))
+				.andExpect(jsonPath("$.recurring_schedule[0].app_id").value("appId2"));
+
+		mockMvc.perform(get("/v2/active/schedules").param("time", String.valueOf(time + 3600000))
+				.accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.specific_date", Matchers.hasSize(0)))
+				.andExpect(jsonPath("$.recurring_schedule", Matchers.hasSize(0)));
+	}
+
+	@Test
+	public void testGetSchedulesActiveAt_now() throws Exception {
+		long now = System.currentTimeMillis();
+
+		mockMvc.perform(get("/v2/active/schedules").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.time", Matchers.greaterThanOrEqualTo(now)))
+				.andExpect(jsonPath("$.specific_date", Matchers.hasSize(0)));
+	}
+}
@@ -0,0 +1,108 @@
+package org.cloudfoundry.autoscaler.scheduler.rest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.ScheduleHistoryDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleHistoryEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.hamcrest.Matchers;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScheduleHistoryRestControllerTest extends TestConfiguration {
+
+	@Autowired
+	private ScheduleHistoryDao scheduleHistoryDao;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	@Autowired
+	private Environment environment;
+
+	@Autowired
+	private WebApplicationContext wac;
+	private MockMvc mockMvc;
+
+	@Before
+	public void before() throws Exception {
+		// The history partitions are postgres table inheritance
+		Assume.assumeFalse(environment.acceptsProfiles("embedded"));
+		testDataCleanupHelper.cleanupData();
+
+		mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+	}
+
+	@Test
+	public void testGetScheduleHistory() throws Exception {
+		String[] appIds = TestDataSetupHelper.generateAppIds(2);
+		long now = System.currentTimeMillis();
+		scheduleHistoryDao.createAll(Arrays.asList(history(appIds[0], JobActionEnum.START, now),
+				history(appIds[1], JobActionEnum.START, now + 1), history(appIds[0], JobActionEnum.END, now + 2)));
+
+		mockMvc.perform(get("/v2/history/schedules").param("app_id", appIds[0])
+				.param("start_time", String.valueOf(now)).param("end_time", String.valueOf(now + 3))
+				.accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", Matchers.hasSize(2)))
+				.andExpect(jsonPath("$[0].app_id").value(appIds[0]))
+				.andExpect(jsonPath("$[0].action").value("START"))
+				.andExpect(jsonPath("$[0].transition_time").value(now))
+				.andExpect(jsonPath("$[0].fire_lag_millisecond").value(100))
+				.andExpect(jsonPath("$[0].acknowledged").value(true))
+				.andExpect(jsonPath("$[1].action").value("END"));
+
+		mockMvc.perform(get("/v2/history/schedules").param("start_time", String.valueOf(now))
+				.param("end_time", String.valueOf(now + 3)).param("max_count", "2")
+				.accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", Matchers.hasSize(2)))
+				.andExpect(jsonPath("$[1].app_id").value(appIds[1]));
+	}
+
+	@Test
+	public void testGetScheduleHistory_with_invalid_query() throws Exception {
+		mockMvc.perform(get("/v2/history/schedules").param("end_time", "1000").param("max_count", "0")
+				.accept(MediaType.APPLICATION_JSON)).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$", Matchers.containsInAnyOrder(
+						messageBundleResourceHelper.lookupMessage("data.value.not.specified", "start_time"),
+						messageBundleResourceHelper.lookupMessage("data.value.out.of.range", "max_count", 0, 1,
+								10000))));
+
+		mockMvc.perform(get("/v2/history/schedules").param("start_time", "2000").param("end_time", "1000")
+				.accept(MediaType.APPLICATION_JSON)).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$[0]").value(messageBundleResourceHelper.lookupMessage(
+						"data.time.range.invalid.start.after.end", "end_time", 1000, "start_time", 2000)));
+	}
+
+	private ScheduleHistoryEntity history(String appId, JobActionEnum scalingAction, long transitionTime) {
+		ScheduleHistoryEntity scheduleHistoryEntity = new ScheduleHistoryEntity(
+				TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L, scalingAction), scalingAction,
+				new Date(transitionTime), new Date(transitionTime + 100));
+		scheduleHistoryEntity.setAcknowledged(true);
+		scheduleHistoryEntity.setAttempt(1);
+		return scheduleHistoryEntity;
+	}
+}
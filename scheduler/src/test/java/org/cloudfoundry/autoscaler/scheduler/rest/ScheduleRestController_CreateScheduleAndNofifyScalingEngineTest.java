@@ -16,6 +16,7 @@ import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.LoggerContext;
 import org.apache.logging.log4j.core.config.Configuration;
 import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
 import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
 import org.cloudfoundry.autoscaler.scheduler.rest.model.ApplicationSchedules;
@@ -77,6 +78,9 @@ public class ScheduleRestController_CreateScheduleAndNofifyScalingEngineTest ext
 	@Autowired
 	private TestDataCleanupHelper testDataCleanupHelper;
 
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
 	@Value("${autoscaler.scalingengine.url}")
 	private String scalingEngineUrl;
 
@@ -123,23 +127,17 @@ public class ScheduleRestController_CreateScheduleAndNofifyScalingEngineTest ext
 		specificDateScheduleEntity.setStartDateTime(startTime);
 		specificDateScheduleEntity.setEndDateTime(endTime);
 
-		Long currentSequenceSchedulerId = testDataCleanupHelper.getCurrentSequenceSchedulerId() + 1;
-
 		ActiveScheduleEntity startActiveScheduleEntity = new ActiveScheduleEntity();
 		startActiveScheduleEntity.setAppId(appId);
-		startActiveScheduleEntity.setId(currentSequenceSchedulerId);
 		startActiveScheduleEntity.setInstanceMinCount(specificDateScheduleEntity.getInstanceMinCount());
 		startActiveScheduleEntity.setInstanceMaxCount(specificDateScheduleEntity.getInstanceMaxCount());
 		startActiveScheduleEntity.setInitialMinInstanceCount(specificDateScheduleEntity.getInitialMinInstanceCount());
 
 		ActiveScheduleEntity endActiveScheduleEntity = new ActiveScheduleEntity();
 		endActiveScheduleEntity.setAppId(appId);
-		endActiveScheduleEntity.setId(currentSequenceSchedulerId);
 		endActiveScheduleEntity.setInstanceMinCount(applicationSchedules.getInstanceMinCount());
 		endActiveScheduleEntity.setInstanceMaxCount(applicationSchedules.getInstanceMaxCount());
 
-		embeddedTomcatUtil.setup(appId, currentSequenceSchedulerId, 200, null);
-
 		ObjectMapper mapper = new ObjectMapper();
 		String content = mapper.writeValueAsString(applicationSchedules);
 		ResultActions resultActions = mockMvc.perform(put(getCreateSchedulerPath(appId))
@@ -147,26 +145,43 @@ public class ScheduleRestController_CreateScheduleAndNofifyScalingEngineTest ext
 
 		resultActions.andExpect(status().isOk());
 
-		// Assert START Job successful message
-		Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+		// The schedule id is allocated by the id generator, the jobs fire a minute later
+		Long scheduleId = specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId).get(0).getId();
+		startActiveScheduleEntity.setId(scheduleId);
+		endActiveScheduleEntity.setId(scheduleId);
+		embeddedTomcatUtil.setup(appId, scheduleId, 200, null);
 
-		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
+		// Assert START Job successful message
 		String expectedMessage = messageBundleResourceHelper.lookupMessage("scalingengine.notification.activeschedule.start",
 				startActiveScheduleEntity.getAppId(), startActiveScheduleEntity.getId(), JobActionEnum.START);
-
-		assertThat("Log level should be INFO", logCaptor.getValue().getLevel(), is(Level.INFO));
-		assertThat(logCaptor.getValue().getMessage().getFormattedMessage(), is(expectedMessage));
+		waitForLogMessage(Level.INFO, expectedMessage, startTime);
 
 		// Assert END Job successful message
-		Thread.sleep(TimeUnit.MINUTES.toMillis(1));
-
-		Mockito.verify(mockAppender, Mockito.atLeastOnce()).append(logCaptor.capture());
 		expectedMessage = messageBundleResourceHelper.lookupMessage("scalingengine.notification.activeschedule.remove",
 				endActiveScheduleEntity.getAppId(), endActiveScheduleEntity.getId(), JobActionEnum.END);
+		waitForLogMessage(Level.INFO, expectedMessage, endTime);
 
-		assertThat("Log level should be INFO", logCaptor.getValue().getLevel(), is(Level.INFO));
-		assertThat(logCaptor.getValue().getMessage().getFormattedMessage(), is(expectedMessage));
+	}
+
+	/**
+	 * Waits for the message to be logged by the job firing at the fire time, and fails once it is overdue.
+	 */
+	private void waitForLogMessage(Level level, String expectedMessage, Date fireTime) throws InterruptedException {
+		long deadline = fireTime.getTime() + TimeUnit.SECONDS.toMillis(30);
+		while (!isLogged(level, expectedMessage)) {
+			assertThat("Log should have message: " + expectedMessage, System.currentTimeMillis() < deadline, is(true));
+			Thread.sleep(100);
+		}
+	}
 
+	private boolean isLogged(Level level, String expectedMessage) {
+		Mockito.verify(mockAppender, Mockito.atLeast(0)).append(logCaptor.capture());
+		for (LogEvent logEvent : logCaptor.getAllValues()) {
+			if (logEvent.getLevel() == level && logEvent.getMessage().getFormattedMessage().equals(expectedMessage)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	private String getCreateSchedulerPath(String appId) {
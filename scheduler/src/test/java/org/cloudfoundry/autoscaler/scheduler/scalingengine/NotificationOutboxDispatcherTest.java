@@ -0,0 +1,214 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.NotificationOutboxDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+import org.cloudfoundry.autoscaler.scheduler.quartz.AppScalingScheduleStartJob;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = { "autoscaler.scalingengine.notification.outbox.enabled=true",
+		"autoscaler.scalingengine.notification.outbox.poll.interval.millisecond=100" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class NotificationOutboxDispatcherTest extends TestConfiguration {
+
+	@Autowired
+	private NotificationOutboxDispatcher notificationOutboxDispatcher;
+
+	@Autowired
+	private ScalingEngineNotifier scalingEngineNotifier;
+
+	@SpyBean
+	private NotificationOutboxDao notificationOutboxDao;
+
+	@Autowired
+	private ActiveScheduleDao activeScheduleDao;
+
+	@MockBean
+	private ScalingEngineClient scalingEngineClient;
+
+	@Autowired
+	private Scheduler scheduler;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	private ActiveScheduleEntity activeScheduleEntity;
+
+	@Before
+	public void before() throws SchedulerException {
+		testDataCleanupHelper.cleanupData(scheduler);
+		Mockito.reset(scalingEngineClient, notificationOutboxDao);
+
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L, JobActionEnum.START);
+	}
+
+	@Test
+	public void testNotifications_sent_in_order_and_removed() throws Exception {
+		addNotification(JobActionEnum.START);
+		addNotification(JobActionEnum.END);
+
+		notificationOutboxDispatcher.wakeUp();
+
+		Mockito.verify(scalingEngineClient, Mockito.timeout(TimeUnit.SECONDS.toMillis(5)))
+				.notifyActiveSchedule(activeScheduleEntity, JobActionEnum.END);
+		InOrder inOrder = Mockito.inOrder(scalingEngineClient);
+		inOrder.verify(scalingEngineClient).notifyActiveSchedule(activeScheduleEntity, JobActionEnum.START);
+		inOrder.verify(scalingEngineClient).notifyActiveSchedule(activeScheduleEntity, JobActionEnum.END);
+		waitForOutboxToEmpty();
+	}
+
+	@Test
+	public void testFailed_notification_retried_before_later_notifications_of_app() throws Exception {
+		Mockito.doThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)).doNothing()
+				.when(scalingEngineClient).notifyActiveSchedule(activeScheduleEntity, JobActionEnum.START);
+		addNotification(JobActionEnum.START);
+		addNotification(JobActionEnum.END);
+
+		notificationOutboxDispatcher.wakeUp();
+
+		Mockito.verify(scalingEngineClient, Mockito.timeout(TimeUnit.SECONDS.toMillis(5)))
+				.notifyActiveSchedule(activeScheduleEntity, JobActionEnum.END);
+		InOrder inOrder = Mockito.inOrder(scalingEngineClient);
+		inOrder.verify(scalingEngineClient, Mockito.times(2)).notifyActiveSchedule(activeScheduleEntity,
+				JobActionEnum.START);
+		inOrder.verify(scalingEngineClient).notifyActiveSchedule(activeScheduleEntity, JobActionEnum.END);
+		Mockito.verify(spiedNotificationOutboxDao()).reschedule(Mockito.anyLong(), Mockito.eq(2), Mockito.any(Date.class));
+		waitForOutboxToEmpty();
+	}
+
+	@Test
+	public void testRejected_notification_removed_without_retry() throws Exception {
+		Mockito.doThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST)).when(scalingEngineClient)
+				.notifyActiveSchedule(activeScheduleEntity, JobActionEnum.START);
+		addNotification(JobActionEnum.START);
+		addNotification(JobActionEnum.END);
+
+		notificationOutboxDispatcher.wakeUp();
+
+		Mockito.verify(scalingEngineClient, Mockito.timeout(TimeUnit.SECONDS.toMillis(5)))
+				.notifyActiveSchedule(activeScheduleEntity, JobActionEnum.END);
+		Mockito.verify(scalingEngineClient, Mockito.times(1)).notifyActiveSchedule(activeScheduleEntity,
+				JobActionEnum.START);
+		waitForOutboxToEmpty();
+	}
+
+	@Test
+	public void testStart_job_writes_notification_with_active_schedule() throws Exception {
+		scheduleStartJob();
+
+		Mockito.verify(scalingEngineClient, Mockito.timeout(TimeUnit.SECONDS.toMillis(10)))
+				.notifyActiveSchedule(activeScheduleEntity, JobActionEnum.START);
+		assertThat(activeScheduleDao.find(activeScheduleEntity.getId()), is(activeScheduleEntity));
+		waitForOutboxToEmpty();
+	}
+
+	@Test
+	public void testStart_job_writes_nothing_when_notification_write_fails() throws Exception {
+		Mockito.doThrow(new DatabaseValidationException("test exception")).when(spiedNotificationOutboxDao())
+				.create(Mockito.any(NotificationOutboxEntity.class));
+
+		scheduleStartJob();
+
+		Mockito.verify(spiedNotificationOutboxDao(), Mockito.timeout(TimeUnit.SECONDS.toMillis(10)))
+				.create(Mockito.any(NotificationOutboxEntity.class));
+		Thread.sleep(500);
+		// The active schedule is rolled back with the notification
+		assertThat(activeScheduleDao.find(activeScheduleEntity.getId()), nullValue());
+		Mockito.verify(scalingEngineClient, Mockito.never()).notifyActiveSchedule(activeScheduleEntity,
+				JobActionEnum.START);
+	}
+
+	@Test
+	public void testNotifier_hands_failed_notification_over_to_outbox() throws Exception {
+		CompletableFuture<Void> response = new CompletableFuture<>();
+		response.completeExceptionally(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.START))
+				.thenReturn(response);
+
+		assertThat(scalingEngineNotifier.submitNotification(activeScheduleEntity, JobActionEnum.START).join(),
+				is(false));
+		assertThat(scalingEngineNotifier.getPendingRetryCount(), is(0));
+		assertThat(scalingEngineNotifier.getParkedNotificationCount(), is(0));
+
+		// The second attempt is sent by the dispatcher
+		Mockito.verify(scalingEngineClient, Mockito.timeout(TimeUnit.SECONDS.toMillis(5)).times(1))
+				.notifyActiveSchedule(activeScheduleEntity, JobActionEnum.START);
+		waitForOutboxToEmpty();
+	}
+
+	// Argument matchers only work on the spy itself, not on the repository proxy around it
+	private NotificationOutboxDao spiedNotificationOutboxDao() {
+		return AopTestUtils.getUltimateTargetObject(notificationOutboxDao);
+	}
+
+	private void addNotification(JobActionEnum scalingAction) {
+		notificationOutboxDao.create(
+				new NotificationOutboxEntity(activeScheduleEntity, scalingAction, new Date(), new Date()));
+	}
+
+	private void scheduleStartJob() throws SchedulerException {
+		String group = ScheduleTypeEnum.SPECIFIC_DATE.getScheduleIdentifier();
+		JobKey jobKey = new JobKey(activeScheduleEntity.getId() + JobActionEnum.START.getJobIdSuffix(), group);
+		JobDetail jobDetail = JobBuilder.newJob(AppScalingScheduleStartJob.class).withIdentity(jobKey)
+				.storeDurably().build();
+		JobDataMap jobDataMap = jobDetail.getJobDataMap();
+		jobDataMap.put(ScheduleJobHelper.APP_ID, activeScheduleEntity.getAppId());
+		jobDataMap.put(ScheduleJobHelper.SCHEDULE_ID, activeScheduleEntity.getId());
+		jobDataMap.put(ScheduleJobHelper.INSTANCE_MIN_COUNT, activeScheduleEntity.getInstanceMinCount());
+		jobDataMap.put(ScheduleJobHelper.INSTANCE_MAX_COUNT, activeScheduleEntity.getInstanceMaxCount());
+
+		Date triggerTime = new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(1));
+		scheduler.scheduleJob(jobDetail,
+				ScheduleJobHelper.buildTrigger(new TriggerKey(jobKey.getName(), group), jobKey, triggerTime));
+	}
+
+	private void waitForOutboxToEmpty() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+		while (notificationOutboxDao.count() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertThat(notificationOutboxDao.count(), is(0));
+	}
+}
@@ -0,0 +1,114 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScalingEngineCircuitBreakerTest extends TestConfiguration {
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private ScalingEngineCircuitBreaker circuitBreaker;
+
+	@Before
+	public void before() {
+		circuitBreaker = new ScalingEngineCircuitBreaker();
+		ReflectionTestUtils.setField(circuitBreaker, "enabled", true);
+		ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 3);
+		ReflectionTestUtils.setField(circuitBreaker, "openDurationMilliSecond", 200L);
+		ReflectionTestUtils.setField(circuitBreaker, "halfOpenTrialCount", 2);
+		ReflectionTestUtils.setField(circuitBreaker, "messageBundleResourceHelper", messageBundleResourceHelper);
+	}
+
+	@Test
+	public void testOpens_after_consecutive_failures_and_closes_after_trials() throws Exception {
+		circuitBreaker.onResult(new ResourceAccessException("connection refused"));
+		circuitBreaker.onResult(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+		assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.CLOSED));
+		circuitBreaker.onResult(new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+		assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.OPEN));
+		assertThat(circuitBreaker.tryAcquirePermission(), is(false));
+
+		Thread.sleep(300);
+		assertThat(circuitBreaker.tryAcquirePermission(), is(true));
+		assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.HALF_OPEN));
+		assertThat(circuitBreaker.tryAcquirePermission(), is(true));
+		// Both trials are handed out
+		assertThat(circuitBreaker.tryAcquirePermission(), is(false));
+
+		circuitBreaker.onResult(null);
+		assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.HALF_OPEN));
+		circuitBreaker.onResult(null);
+		assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.CLOSED));
+		assertThat(circuitBreaker.tryAcquirePermission(), is(true));
+	}
+
+	@Test
+	public void testFailed_trial_opens_again() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			circuitBreaker.onResult(new ResourceAccessException("connection refused"));
+		}
+		Thread.sleep(300);
+		assertThat(circuitBreaker.tryAcquirePermission(), is(true));
+		circuitBreaker.onResult(new ResourceAccessException("connection refused"));
+
+		assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.OPEN));
+		assertThat(circuitBreaker.tryAcquirePermission(), is(false));
+
+		Map<String, Number> metrics = getMetrics();
+		assertThat(metrics.get("scalingengine.circuitbreaker.state"), is(1));
+		assertThat(metrics.get("scalingengine.circuitbreaker.open"), is(1));
+		assertThat(metrics.get("scalingengine.circuitbreaker.opened"), is(2L));
+		assertThat(metrics.get("scalingengine.circuitbreaker.rejected"), is(1L));
+	}
+
+	@Test
+	public void testClient_errors_do_not_count_as_failures() {
+		circuitBreaker.onResult(new ResourceAccessException("connection refused"));
+		circuitBreaker.onResult(new ResourceAccessException("connection refused"));
+		circuitBreaker.onResult(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+		circuitBreaker.onResult(new ResourceAccessException("connection refused"));
+
+		assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.CLOSED));
+		assertThat(getMetrics().get("scalingengine.circuitbreaker.consecutive.failures"), is(1));
+	}
+
+	@Test
+	public void testDisabled_always_lets_notifications_through() {
+		ReflectionTestUtils.setField(circuitBreaker, "enabled", false);
+		for (int i = 0; i < 5; i++) {
+			circuitBreaker.onResult(new ResourceAccessException("connection refused"));
+		}
+
+		assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.CLOSED));
+		assertThat(circuitBreaker.tryAcquirePermission(), is(true));
+	}
+
+	private Map<String, Number> getMetrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : circuitBreaker.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+}
@@ -0,0 +1,166 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScalingEngineHttpClientTest extends TestConfiguration {
+
+	private static final String TEST_CERTS_DIR = "../test-certs/";
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private HttpServer httpServer;
+
+	private Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+	private ScalingEngineHttpClient scalingEngineHttpClient;
+
+	@Before
+	public void before() throws IOException {
+		httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		httpServer.createContext("/ok", exchange -> respond(exchange));
+		httpServer.createContext("/slow", exchange -> {
+			try {
+				Thread.sleep(2000);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange);
+		});
+		httpServer.start();
+
+		scalingEngineHttpClient = new ScalingEngineHttpClient();
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "connectTimeoutMilliSecond", 1000);
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "readTimeoutMilliSecond", 300);
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "poolWaitTimeoutMilliSecond", 1000);
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "maxTotalConnections", 10);
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "maxConnectionsPerRoute", 5);
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "keepAliveMilliSecond", 60000L);
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "certFile", "");
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "keyFile", "");
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "caCertFile", "");
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "tlsSessionTimeoutSecond", 3600);
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "messageBundleResourceHelper",
+				messageBundleResourceHelper);
+		scalingEngineHttpClient.init();
+	}
+
+	@After
+	public void after() throws IOException {
+		scalingEngineHttpClient.close();
+		httpServer.stop(0);
+	}
+
+	@Test
+	public void testConnection_is_reused_and_pool_metrics_per_route() {
+		RestTemplate restTemplate = new RestTemplate(
+				new HttpComponentsClientHttpRequestFactory(scalingEngineHttpClient.getHttpClient()));
+		for (int i = 0; i < 3; i++) {
+			assertThat(restTemplate.getForObject(getUrl("/ok"), String.class), is("ok"));
+		}
+
+		assertThat(clientPorts.size(), is(1));
+
+		String route = "scalingengine.http.pool.route.localhost:" + httpServer.getAddress().getPort();
+		Map<String, Number> metrics = getMetrics();
+		assertThat(metrics.get(route + ".leased"), is(0));
+		assertThat(metrics.get(route + ".available"), is(1));
+		assertThat(metrics.get(route + ".max"), is(5));
+		assertThat(metrics.get("scalingengine.http.pool.max"), is(10));
+	}
+
+	@Test
+	public void testRead_times_out() {
+		RestTemplate restTemplate = new RestTemplate(
+				new HttpComponentsClientHttpRequestFactory(scalingEngineHttpClient.getHttpClient()));
+		long startTime = System.currentTimeMillis();
+		try {
+			restTemplate.getForObject(getUrl("/slow"), String.class);
+			fail("Expected the read to time out");
+		} catch (ResourceAccessException rae) {
+			assertThat(System.currentTimeMillis() - startTime, lessThan(1500L));
+		}
+	}
+
+	@Test
+	public void testLoad_test_certs() throws Exception {
+		KeyStore keyStore = PemFiles.loadKeyStore(TEST_CERTS_DIR + "scalingengine.crt",
+				TEST_CERTS_DIR + "scalingengine.key", new char[0]);
+		assertThat(keyStore.isKeyEntry("key"), is(true));
+		assertNotNull(keyStore.getKey("key", new char[0]));
+
+		KeyStore trustStore = PemFiles.loadTrustStore(TEST_CERTS_DIR + "autoscaler-ca.crt");
+		assertThat(trustStore.size(), is(1));
+
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "certFile", TEST_CERTS_DIR + "scalingengine.crt");
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "keyFile", TEST_CERTS_DIR + "scalingengine.key");
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "caCertFile", TEST_CERTS_DIR + "autoscaler-ca.crt");
+		assertThat(scalingEngineHttpClient.isTlsConfigured(), is(true));
+		assertThat(scalingEngineHttpClient.buildSslContext().getClientSessionContext().getSessionTimeout(),
+				is(3600));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuildSslContext_fails_on_missing_files() {
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "certFile", TEST_CERTS_DIR + "missing.crt");
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "keyFile", TEST_CERTS_DIR + "missing.key");
+		ReflectionTestUtils.setField(scalingEngineHttpClient, "caCertFile", TEST_CERTS_DIR + "autoscaler-ca.crt");
+		scalingEngineHttpClient.buildSslContext();
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+		clientPorts.add(exchange.getRemoteAddress().getPort());
+		byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(body);
+		}
+	}
+
+	private String getUrl(String path) {
+		return "http://localhost:" + httpServer.getAddress().getPort() + path;
+	}
+
+	private Map<String, Number> getMetrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : scalingEngineHttpClient.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+}
@@ -0,0 +1,135 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScalingEngineLoadBalancerTest extends TestConfiguration {
+
+	private static final String URL_A = "http://scalingengine-a:8080";
+
+	private static final String URL_B = "http://scalingengine-b:8080";
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private ScalingEngineLoadBalancer loadBalancer;
+
+	@Before
+	public void before() {
+		loadBalancer = new ScalingEngineLoadBalancer();
+		ReflectionTestUtils.setField(loadBalancer, "scalingEngineUrls", new String[] { URL_A, " " + URL_B });
+		ReflectionTestUtils.setField(loadBalancer, "failureThreshold", 2);
+		ReflectionTestUtils.setField(loadBalancer, "unhealthyDurationMilliSecond", 200L);
+		ReflectionTestUtils.setField(loadBalancer, "messageBundleResourceHelper", messageBundleResourceHelper);
+		loadBalancer.init();
+	}
+
+	@Test
+	public void testRequests_go_to_endpoint_with_least_outstanding_requests() {
+		ScalingEngineLoadBalancer.Endpoint first = loadBalancer.acquire();
+		ScalingEngineLoadBalancer.Endpoint second = loadBalancer.acquire();
+		assertThat(second.getUrl(), not(first.getUrl()));
+
+		loadBalancer.release(second, null);
+		// The first endpoint still has its request outstanding
+		assertThat(loadBalancer.acquire().getUrl(), is(second.getUrl()));
+		assertThat(loadBalancer.acquire().getUrl(), is(second.getUrl()));
+	}
+
+	@Test
+	public void testUnhealthy_endpoint_skipped_until_unhealthy_duration_passed() throws Exception {
+		ScalingEngineLoadBalancer.Endpoint endpointA = loadBalancer.getEndpoints().get(0);
+		loadBalancer.release(acquire(URL_A), new ResourceAccessException("connection refused"));
+		// A client error does not tell the endpoint is unhealthy
+		loadBalancer.release(acquire(URL_A), new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+		loadBalancer.release(acquire(URL_A), new ResourceAccessException("connection refused"));
+		assertThat(endpointA.isHealthy(System.currentTimeMillis()), is(true));
+		loadBalancer.release(acquire(URL_A), new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+		assertThat(endpointA.isHealthy(System.currentTimeMillis()), is(false));
+
+		for (int i = 0; i < 4; i++) {
+			ScalingEngineLoadBalancer.Endpoint endpoint = loadBalancer.acquire();
+			assertThat(endpoint.getUrl(), is(URL_B));
+			loadBalancer.release(endpoint, null);
+		}
+		assertThat(getMetrics().get("scalingengine.endpoint.healthy"), is(1));
+		assertThat(getMetrics().get("scalingengine.endpoint.0.healthy"), is(0));
+
+		Thread.sleep(300);
+		assertThat(endpointA.isHealthy(System.currentTimeMillis()), is(true));
+		// A failure right after the unhealthy duration makes it unhealthy again
+		loadBalancer.release(acquire(URL_A), new ResourceAccessException("connection refused"));
+		assertThat(endpointA.isHealthy(System.currentTimeMillis()), is(false));
+	}
+
+	@Test
+	public void testEndpoint_turning_healthy_first_used_when_none_healthy() throws Exception {
+		for (int i = 0; i < 2; i++) {
+			loadBalancer.release(acquire(URL_A), new ResourceAccessException("connection refused"));
+		}
+		Thread.sleep(50);
+		for (int i = 0; i < 2; i++) {
+			loadBalancer.release(acquire(URL_B), new ResourceAccessException("connection refused"));
+		}
+
+		ScalingEngineLoadBalancer.Endpoint endpoint = loadBalancer.acquire();
+		assertThat(endpoint.getUrl(), is(URL_A));
+		loadBalancer.release(endpoint, null);
+		assertThat(endpoint.isHealthy(System.currentTimeMillis()), is(true));
+	}
+
+	private ScalingEngineLoadBalancer.Endpoint acquire(String url) {
+		for (int i = 0; i < 10; i++) {
+			ScalingEngineLoadBalancer.Endpoint endpoint = loadBalancer.acquire();
+			if (endpoint.getUrl().equals(url)) {
+				return endpoint;
+			}
+			loadBalancer.release(endpoint, null);
+		}
+		throw new AssertionError("Endpoint not acquired: " + url);
+	}
+
+	@Test
+	public void testMetrics_per_endpoint_sharing_host_and_port() {
+		ReflectionTestUtils.setField(loadBalancer, "scalingEngineUrls",
+				new String[] { "http://scalingengine:8080/a", "http://scalingengine:8080/b" });
+		loadBalancer.init();
+
+		ScalingEngineLoadBalancer.Endpoint endpoint = loadBalancer.acquire();
+		loadBalancer.release(endpoint, null);
+
+		Map<String, Object> metrics = getMetrics();
+		assertThat(metrics.get("scalingengine.endpoint.0.requests"), is(endpoint.getUrl().endsWith("/a") ? 1L : 0L));
+		assertThat(metrics.get("scalingengine.endpoint.1.requests"), is(endpoint.getUrl().endsWith("/b") ? 1L : 0L));
+		assertThat(metrics.get("scalingengine.endpoint.total"), is(2));
+	}
+
+	private Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		for (Metric<?> metric : loadBalancer.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+}
@@ -0,0 +1,177 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.EmbeddedTomcatUtil;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScalingEngineNotificationBatcherTest extends TestConfiguration {
+
+	@Autowired
+	private ScalingEngineClient scalingEngineClient;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	private static EmbeddedTomcatUtil embeddedTomcatUtil;
+
+	private ScalingEngineNotificationBatcher batcher;
+
+	@BeforeClass
+	public static void beforeClass() {
+		embeddedTomcatUtil = new EmbeddedTomcatUtil();
+		embeddedTomcatUtil.start();
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		embeddedTomcatUtil.stop();
+	}
+
+	@Before
+	public void before() {
+		embeddedTomcatUtil.resetBulk();
+	}
+
+	@After
+	public void after() {
+		batcher.shutdown();
+	}
+
+	@Test
+	public void testNotifications_within_window_sent_in_one_bulk_request() throws Exception {
+		setupBatcher(100, 300);
+		List<ActiveScheduleEntity> activeSchedules = setupActiveSchedules(5, 200);
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (ActiveScheduleEntity activeScheduleEntity : activeSchedules) {
+			futures.add(batcher.submit(activeScheduleEntity, JobActionEnum.START));
+		}
+		for (CompletableFuture<Void> future : futures) {
+			assertThat(future.get(5, TimeUnit.SECONDS), nullValue());
+		}
+
+		List<List<ActiveScheduleNotification>> bulkRequests = embeddedTomcatUtil.getBulkRequests();
+		assertThat(bulkRequests.size(), is(1));
+		assertThat(bulkRequests.get(0).size(), is(5));
+		ActiveScheduleNotification notification = bulkRequests.get(0).get(0);
+		assertThat(notification.getAppId(), is(activeSchedules.get(0).getAppId()));
+		assertThat(notification.getAction(), is(ActiveScheduleNotification.ACTION_START));
+		assertThat(notification.getActiveSchedule().getInstanceMaxCount(),
+				is(activeSchedules.get(0).getInstanceMaxCount()));
+	}
+
+	@Test
+	public void testFull_batch_sent_before_window_passes() throws Exception {
+		setupBatcher(2, TimeUnit.MINUTES.toMillis(1));
+		List<ActiveScheduleEntity> activeSchedules = setupActiveSchedules(4, 204);
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (ActiveScheduleEntity activeScheduleEntity : activeSchedules) {
+			futures.add(batcher.submit(activeScheduleEntity, JobActionEnum.END));
+		}
+		for (CompletableFuture<Void> future : futures) {
+			assertThat(future.get(5, TimeUnit.SECONDS), nullValue());
+		}
+
+		List<List<ActiveScheduleNotification>> bulkRequests = embeddedTomcatUtil.getBulkRequests();
+		assertThat(bulkRequests.size(), is(2));
+		assertThat(bulkRequests.get(1).get(0).getAction(), is(ActiveScheduleNotification.ACTION_END));
+		assertThat(bulkRequests.get(1).get(0).getActiveSchedule(), nullValue());
+	}
+
+	@Test
+	public void testItem_results_handed_back_to_each_notification() throws Exception {
+		setupBatcher(3, TimeUnit.MINUTES.toMillis(1));
+		ActiveScheduleEntity succeeded = setupActiveSchedules(1, 200).get(0);
+		ActiveScheduleEntity unavailable = setupActiveSchedules(1, 503).get(0);
+		ActiveScheduleEntity rejected = setupActiveSchedules(1, 400).get(0);
+
+		CompletableFuture<Void> succeededFuture = batcher.submit(succeeded, JobActionEnum.START);
+		CompletableFuture<Void> unavailableFuture = batcher.submit(unavailable, JobActionEnum.START);
+		CompletableFuture<Void> rejectedFuture = batcher.submit(rejected, JobActionEnum.START);
+
+		assertThat(succeededFuture.get(5, TimeUnit.SECONDS), nullValue());
+		assertStatus(unavailableFuture, HttpServerErrorException.class, HttpStatus.SERVICE_UNAVAILABLE);
+		assertStatus(rejectedFuture, HttpClientErrorException.class, HttpStatus.BAD_REQUEST);
+		assertThat(embeddedTomcatUtil.getBulkRequests().size(), is(1));
+	}
+
+	@Test
+	public void testBulk_request_failure_fails_every_notification() throws Exception {
+		setupBatcher(2, TimeUnit.MINUTES.toMillis(1));
+		embeddedTomcatUtil.setupBulk(503);
+		List<ActiveScheduleEntity> activeSchedules = setupActiveSchedules(2, 200);
+
+		CompletableFuture<Void> future = batcher.submit(activeSchedules.get(0), JobActionEnum.START);
+		try {
+			batcher.notifyActiveSchedule(activeSchedules.get(1), JobActionEnum.START);
+			fail("Expected the bulk request to fail");
+		} catch (HttpServerErrorException hsee) {
+			assertThat(hsee.getStatusCode(), is(HttpStatus.SERVICE_UNAVAILABLE));
+		}
+		assertStatus(future, HttpServerErrorException.class, HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	private void setupBatcher(int maxBatchSize, long batchWindowMilliSecond) {
+		batcher = new ScalingEngineNotificationBatcher();
+		ReflectionTestUtils.setField(batcher, "batchEnabled", true);
+		ReflectionTestUtils.setField(batcher, "maxBatchSize", maxBatchSize);
+		ReflectionTestUtils.setField(batcher, "batchWindowMilliSecond", batchWindowMilliSecond);
+		ReflectionTestUtils.setField(batcher, "scalingEngineClient", scalingEngineClient);
+		ReflectionTestUtils.setField(batcher, "messageBundleResourceHelper", messageBundleResourceHelper);
+		batcher.init();
+	}
+
+	private List<ActiveScheduleEntity> setupActiveSchedules(int count, int statusCode) throws Exception {
+		List<ActiveScheduleEntity> activeSchedules = new ArrayList<>();
+		for (String appId : TestDataSetupHelper.generateAppIds(count)) {
+			ActiveScheduleEntity activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L,
+					JobActionEnum.START);
+			embeddedTomcatUtil.setup(appId, 1L, statusCode, null);
+			activeSchedules.add(activeScheduleEntity);
+		}
+		return activeSchedules;
+	}
+
+	private void assertStatus(CompletableFuture<Void> future, Class<?> exceptionClass, HttpStatus status)
+			throws Exception {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected the notification to fail");
+		} catch (ExecutionException ee) {
+			assertThat(ee.getCause(), instanceOf(exceptionClass));
+			assertThat(((HttpStatusCodeException) ee.getCause()).getStatusCode(), is(status));
+		}
+	}
+}
@@ -0,0 +1,351 @@
+package org.cloudfoundry.autoscaler.scheduler.scalingengine;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.quartz.ScalingEngineNotificationRetryJob;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.error.MessageBundleResourceHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScalingEngineNotifierTest extends TestConfiguration {
+
+	@Autowired
+	private ScalingEngineNotifier scalingEngineNotifier;
+
+	@MockBean
+	private ScalingEngineClient scalingEngineClient;
+
+	@Autowired
+	private Scheduler scheduler;
+
+	@Autowired
+	private ScalingEngineNotificationBatcher scalingEngineNotificationBatcher;
+
+	@Autowired
+	private MessageBundleResourceHelper messageBundleResourceHelper;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	private ActiveScheduleEntity activeScheduleEntity;
+
+	@Before
+	public void before() throws SchedulerException {
+		testDataCleanupHelper.cleanupData(scheduler);
+		Mockito.reset(scalingEngineClient);
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(Mockito.any(), Mockito.any()))
+				.thenReturn(CompletableFuture.completedFuture(null));
+
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L, JobActionEnum.START);
+	}
+
+	@Test
+	public void testNotifyScalingEngine_retries_after_Retry_After_when_service_unavailable() throws Exception {
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.START))
+				.thenReturn(failed(serverError(HttpStatus.SERVICE_UNAVAILABLE, "1")), succeeded());
+
+		scalingEngineNotifier.notifyScalingEngine(activeScheduleEntity, JobActionEnum.START);
+
+		// The Retry-After of one second takes precedence over the 100 ms backoff of the tests
+		Thread.sleep(500);
+		Mockito.verify(scalingEngineClient, Mockito.times(1)).notifyActiveScheduleAsync(activeScheduleEntity,
+				JobActionEnum.START);
+		Mockito.verify(scalingEngineClient, Mockito.timeout(TimeUnit.SECONDS.toMillis(5)).times(2))
+				.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.START);
+	}
+
+	@Test
+	public void testNotifyScalingEngine_retries_when_too_many_requests() throws Exception {
+		HttpClientErrorException tooManyRequests = new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS);
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.END))
+				.thenReturn(failed(tooManyRequests), succeeded());
+
+		scalingEngineNotifier.notifyScalingEngine(activeScheduleEntity, JobActionEnum.END);
+
+		Mockito.verify(scalingEngineClient, Mockito.timeout(TimeUnit.SECONDS.toMillis(5)).times(2))
+				.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.END);
+	}
+
+	@Test
+	public void testNotifyScalingEngine_does_not_retry_client_error() throws Exception {
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.START))
+				.thenReturn(failed(new HttpClientErrorException(HttpStatus.BAD_REQUEST)));
+
+		scalingEngineNotifier.notifyScalingEngine(activeScheduleEntity, JobActionEnum.START);
+
+		Thread.sleep(500);
+		Mockito.verify(scalingEngineClient, Mockito.times(1)).notifyActiveScheduleAsync(activeScheduleEntity,
+				JobActionEnum.START);
+	}
+
+	@Test
+	public void testSubmitNotification_does_not_wait_for_scaling_engine() throws Exception {
+		CompletableFuture<Void> response = new CompletableFuture<>();
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.START))
+				.thenReturn(response);
+
+		CompletableFuture<Boolean> acknowledged = scalingEngineNotifier.submitNotification(activeScheduleEntity,
+				JobActionEnum.START);
+
+		assertThat(acknowledged.isDone(), is(false));
+		assertThat(scalingEngineNotifier.getInFlightNotificationCount(), is(1));
+
+		response.complete(null);
+		assertThat(acknowledged.get(5, TimeUnit.SECONDS), is(true));
+		assertThat(scalingEngineNotifier.getInFlightNotificationCount(), is(0));
+	}
+
+	@Test
+	public void testSubmitNotification_parked_while_max_inflight_reached() throws Exception {
+		ScalingEngineNotifier notifier = newNotifier(new ScalingEngineCircuitBreaker());
+		ReflectionTestUtils.setField(notifier, "inFlightPermits", new Semaphore(1));
+		CompletableFuture<Void> response = new CompletableFuture<>();
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.START))
+				.thenReturn(response);
+
+		try {
+			CompletableFuture<Boolean> acknowledged = notifier.submitNotification(activeScheduleEntity,
+					JobActionEnum.START);
+
+			// Parked rather than sent on the calling thread
+			assertThat(notifier.submitNotification(activeScheduleEntity, JobActionEnum.END).get(5, TimeUnit.SECONDS),
+					is(false));
+			assertThat(notifier.getParkedNotificationCount(), is(1));
+			Mockito.verify(scalingEngineClient, Mockito.never()).notifyActiveScheduleAsync(activeScheduleEntity,
+					JobActionEnum.END);
+
+			// Sent once the notification in flight is answered
+			response.complete(null);
+			assertThat(acknowledged.get(5, TimeUnit.SECONDS), is(true));
+			Mockito.verify(scalingEngineClient, Mockito.timeout(TimeUnit.SECONDS.toMillis(5)).times(1))
+					.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.END);
+			assertThat(notifier.getParkedNotificationCount(), is(0));
+		} finally {
+			notifier.shutdown();
+		}
+	}
+
+	@Test
+	public void testSubmitNotification_completes_after_failure_is_handled() throws Exception {
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.END))
+				.thenReturn(failed(new HttpClientErrorException(HttpStatus.BAD_REQUEST)));
+
+		assertThat(scalingEngineNotifier.submitNotification(activeScheduleEntity, JobActionEnum.END).get(5,
+				TimeUnit.SECONDS), is(false));
+		assertThat(scalingEngineNotifier.getPendingRetryCount(), is(0));
+	}
+
+	@Test
+	public void testGetBackoffDelay() {
+		// initial interval 100 ms, max interval 1000 ms
+		assertThat(scalingEngineNotifier.getBackoffDelay(1), allOf(greaterThanOrEqualTo(50L), lessThanOrEqualTo(100L)));
+		assertThat(scalingEngineNotifier.getBackoffDelay(3),
+				allOf(greaterThanOrEqualTo(200L), lessThanOrEqualTo(400L)));
+		assertThat(scalingEngineNotifier.getBackoffDelay(40),
+				allOf(greaterThanOrEqualTo(500L), lessThanOrEqualTo(1000L)));
+	}
+
+	@Test
+	public void testGetRetryAfterMilliSecond() {
+		ScalingEngineNotifier notifier = newNotifier(new ScalingEngineCircuitBreaker());
+		ReflectionTestUtils.setField(notifier, "maxRetryIntervalMilliSecond", 60000L);
+		try {
+			assertThat(notifier.getRetryAfterMilliSecond(serverError(HttpStatus.SERVICE_UNAVAILABLE, "3")),
+					is(3000L));
+			assertThat(notifier.getRetryAfterMilliSecond(serverError(HttpStatus.SERVICE_UNAVAILABLE, null)),
+					is(-1L));
+			assertThat(notifier.getRetryAfterMilliSecond(serverError(HttpStatus.SERVICE_UNAVAILABLE, "invalid")),
+					is(-1L));
+
+			assertThat(notifier.getRetryAfterMilliSecond(retryAfterDate(TimeUnit.SECONDS.toMillis(30))),
+					allOf(greaterThanOrEqualTo(28000L), lessThanOrEqualTo(30000L)));
+		} finally {
+			notifier.shutdown();
+		}
+	}
+
+	@Test
+	public void testGetRetryAfterMilliSecond_capped_by_max_retry_interval() {
+		// The max retry interval of the tests is one second
+		assertThat(scalingEngineNotifier.getRetryAfterMilliSecond(serverError(HttpStatus.SERVICE_UNAVAILABLE, "3600")),
+				is(1000L));
+		assertThat(scalingEngineNotifier
+				.getRetryAfterMilliSecond(serverError(HttpStatus.SERVICE_UNAVAILABLE, String.valueOf(Long.MAX_VALUE))),
+				is(1000L));
+		assertThat(scalingEngineNotifier.getRetryAfterMilliSecond(retryAfterDate(TimeUnit.DAYS.toMillis(365))),
+				is(1000L));
+	}
+
+	private HttpServerErrorException retryAfterDate(long delayMilliSecond) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setDate(HttpHeaders.RETRY_AFTER, System.currentTimeMillis() + delayMilliSecond);
+		return new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE, "unavailable", headers, null,
+				StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testShutdown_persists_pending_retries() throws Exception {
+		ScalingEngineNotifier notifier = newNotifier(new ScalingEngineCircuitBreaker());
+
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.START))
+				.thenReturn(failed(serverError(HttpStatus.SERVICE_UNAVAILABLE, "3600")));
+
+		notifier.notifyScalingEngine(activeScheduleEntity, JobActionEnum.START);
+		assertThat(notifier.getPendingRetryCount(), is(1));
+
+		notifier.shutdown();
+
+		assertThat(notifier.getPendingRetryCount(), is(0));
+		Set<JobKey> jobKeys = scheduler
+				.getJobKeys(GroupMatcher.jobGroupEquals(ScalingEngineNotificationRetryJob.JOB_GROUP));
+		assertThat(jobKeys.size(), is(1));
+	}
+
+	@Test
+	public void testNotifications_parked_while_circuit_breaker_open_and_drained_in_order() throws Exception {
+		ScalingEngineCircuitBreaker circuitBreaker = new ScalingEngineCircuitBreaker();
+		ReflectionTestUtils.setField(circuitBreaker, "enabled", true);
+		ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 1);
+		ReflectionTestUtils.setField(circuitBreaker, "openDurationMilliSecond", 500L);
+		ReflectionTestUtils.setField(circuitBreaker, "halfOpenTrialCount", 1);
+		ReflectionTestUtils.setField(circuitBreaker, "messageBundleResourceHelper", messageBundleResourceHelper);
+		ScalingEngineNotifier notifier = newNotifier(circuitBreaker);
+
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.START))
+				.thenReturn(failed(new ResourceAccessException("connection refused")), succeeded());
+
+		try {
+			assertThat(notifier.notifyScalingEngine(activeScheduleEntity, JobActionEnum.START), is(false));
+			assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.OPEN));
+
+			// The retry of the START notification is parked after its backoff
+			long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+			while (notifier.getParkedNotificationCount() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertThat(notifier.getParkedNotificationCount(), is(1));
+
+			// Parked without being sent while the breaker is open
+			assertThat(notifier.notifyScalingEngine(activeScheduleEntity, JobActionEnum.END), is(false));
+			Mockito.verify(scalingEngineClient, Mockito.never()).notifyActiveScheduleAsync(activeScheduleEntity,
+					JobActionEnum.END);
+
+			Mockito.verify(scalingEngineClient, Mockito.timeout(TimeUnit.SECONDS.toMillis(5)).times(1))
+					.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.END);
+			assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.CLOSED));
+			assertThat(notifier.getParkedNotificationCount(), is(0));
+
+			// The START notification was parked first, it is sent first
+			InOrder inOrder = Mockito.inOrder(scalingEngineClient);
+			inOrder.verify(scalingEngineClient, Mockito.times(2)).notifyActiveScheduleAsync(activeScheduleEntity,
+					JobActionEnum.START);
+			inOrder.verify(scalingEngineClient).notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.END);
+		} finally {
+			notifier.shutdown();
+		}
+	}
+
+	@Test
+	public void testParkedNotifications_drained_at_once_after_circuit_breaker_closes() throws Exception {
+		ScalingEngineCircuitBreaker circuitBreaker = new ScalingEngineCircuitBreaker();
+		ReflectionTestUtils.setField(circuitBreaker, "enabled", true);
+		ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 1);
+		ReflectionTestUtils.setField(circuitBreaker, "openDurationMilliSecond", 200L);
+		ReflectionTestUtils.setField(circuitBreaker, "halfOpenTrialCount", 1);
+		ReflectionTestUtils.setField(circuitBreaker, "messageBundleResourceHelper", messageBundleResourceHelper);
+		// One parked notification per second
+		ScalingEngineNotifier notifier = newNotifier(circuitBreaker, 1);
+
+		try {
+			circuitBreaker.onFailure();
+			assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.OPEN));
+			for (int i = 0; i < 5; i++) {
+				assertThat(notifier.notifyScalingEngine(activeScheduleEntity, JobActionEnum.START), is(false));
+			}
+			assertThat(notifier.getParkedNotificationCount(), is(5));
+
+			// The first one is the trial of the half open breaker, the other ones follow once it is closed,
+			// rather than one per second
+			Mockito.verify(scalingEngineClient, Mockito.timeout(2500).times(5))
+					.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.START);
+			assertThat(circuitBreaker.getState(), is(ScalingEngineCircuitBreaker.State.CLOSED));
+			assertThat(notifier.getParkedNotificationCount(), is(0));
+		} finally {
+			notifier.shutdown();
+		}
+	}
+
+	private ScalingEngineNotifier newNotifier(ScalingEngineCircuitBreaker circuitBreaker) {
+		return newNotifier(circuitBreaker, 20);
+	}
+
+	private ScalingEngineNotifier newNotifier(ScalingEngineCircuitBreaker circuitBreaker, int drainRatePerSecond) {
+		ScalingEngineNotifier notifier = new ScalingEngineNotifier();
+		ReflectionTestUtils.setField(notifier, "maxNotificationAttempts", 3);
+		ReflectionTestUtils.setField(notifier, "initialRetryIntervalMilliSecond", 100L);
+		ReflectionTestUtils.setField(notifier, "maxRetryIntervalMilliSecond", 1000L);
+		ReflectionTestUtils.setField(notifier, "maxInFlightNotifications", 10);
+		ReflectionTestUtils.setField(notifier, "maxParkedNotifications", 10);
+		ReflectionTestUtils.setField(notifier, "drainRatePerSecond", drainRatePerSecond);
+		ReflectionTestUtils.setField(notifier, "scalingEngineClient", scalingEngineClient);
+		ReflectionTestUtils.setField(notifier, "scalingEngineNotificationBatcher", scalingEngineNotificationBatcher);
+		ReflectionTestUtils.setField(notifier, "scheduler", scheduler);
+		ReflectionTestUtils.setField(notifier, "scalingEngineCircuitBreaker", circuitBreaker);
+		ReflectionTestUtils.setField(notifier, "messageBundleResourceHelper", messageBundleResourceHelper);
+		notifier.init();
+		return notifier;
+	}
+
+	private CompletableFuture<Void> succeeded() {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	private CompletableFuture<Void> failed(Throwable throwable) {
+		CompletableFuture<Void> response = new CompletableFuture<>();
+		response.completeExceptionally(throwable);
+		return response;
+	}
+
+	private HttpServerErrorException serverError(HttpStatus status, String retryAfter) {
+		HttpHeaders headers = new HttpHeaders();
+		if (retryAfter != null) {
+			headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+		}
+		return new HttpServerErrorException(status, status.getReasonPhrase(), headers, null, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,267 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.NotificationOutboxDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.NotificationOutboxEntity;
+import org.cloudfoundry.autoscaler.scheduler.quartz.AppScalingScheduleStartJob;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = { "scheduler.activeschedule.groupcommit.enabled=true",
+		"scheduler.activeschedule.groupcommit.window.millisecond=50" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class ActiveScheduleWriterTest extends TestConfiguration {
+
+	@Autowired
+	private ActiveScheduleWriter activeScheduleWriter;
+
+	@Autowired
+	private ActiveScheduleDao activeScheduleDao;
+
+	@Autowired
+	private NotificationOutboxDao notificationOutboxDao;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	@Autowired
+	private Scheduler scheduler;
+
+	private ExecutorService executorService;
+
+	@Before
+	public void before() throws SchedulerException {
+		testDataCleanupHelper.cleanupData(scheduler);
+		executorService = Executors.newFixedThreadPool(10);
+	}
+
+	@After
+	public void after() throws SchedulerException {
+		executorService.shutdownNow();
+		testDataCleanupHelper.cleanupData(scheduler);
+	}
+
+	@Test
+	public void testConcurrentWrites_are_committed_in_groups() throws Exception {
+		Map<String, Number> metrics = getMetrics();
+		String[] appIds = TestDataSetupHelper.generateAppIds(10);
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < appIds.length; i++) {
+			ActiveScheduleEntity activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appIds[i],
+					(long) i + 1, JobActionEnum.START);
+			futures.add(executorService.submit(() -> activeScheduleWriter.write(Collections.emptyList(),
+					activeScheduleEntity, notification(activeScheduleEntity, JobActionEnum.START))));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+
+		for (int i = 0; i < appIds.length; i++) {
+			assertThat(activeScheduleDao.find((long) i + 1).getAppId(), is(appIds[i]));
+		}
+		assertThat(notificationOutboxDao.count(), is(10));
+		assertThat(getMetrics().get("scheduler.activeschedule.groupcommit.writes").longValue(),
+				is(metrics.get("scheduler.activeschedule.groupcommit.writes").longValue() + 10));
+		assertThat(getMetrics().get("scheduler.activeschedule.groupcommit.groups").longValue(),
+				lessThan(metrics.get("scheduler.activeschedule.groupcommit.groups").longValue() + 10));
+	}
+
+	@Test
+	public void testWrite_retried_start_and_end() {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		ActiveScheduleEntity activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L,
+				JobActionEnum.START);
+
+		activeScheduleWriter.write(Collections.emptyList(), activeScheduleEntity, null);
+		activeScheduleWriter.write(Collections.emptyList(), activeScheduleEntity, null);
+		assertThat(activeScheduleDao.find(1L), is(activeScheduleEntity));
+
+		activeScheduleWriter.write(Collections.singletonList(1L), null, null);
+		assertThat(activeScheduleDao.find(1L), nullValue());
+	}
+
+	@Test
+	public void testFailedGroup_is_written_one_by_one() throws Exception {
+		Map<String, Number> metrics = getMetrics();
+		String[] appIds = TestDataSetupHelper.generateAppIds(2);
+		ActiveScheduleEntity activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appIds[0], 1L,
+				JobActionEnum.START);
+		ActiveScheduleEntity invalidActiveScheduleEntity = TestDataSetupHelper
+				.generateActiveScheduleEntity(appIds[1], 2L, JobActionEnum.START);
+		invalidActiveScheduleEntity.setInstanceMinCount(null);
+
+		Future<?> future = executorService.submit(() -> activeScheduleWriter.write(Collections.emptyList(),
+				activeScheduleEntity, notification(activeScheduleEntity, JobActionEnum.START)));
+		Future<?> invalidFuture = executorService.submit(() -> activeScheduleWriter.write(Collections.emptyList(),
+				invalidActiveScheduleEntity, notification(invalidActiveScheduleEntity, JobActionEnum.START)));
+
+		future.get();
+		try {
+			invalidFuture.get();
+			fail("Should fail");
+		} catch (Exception e) {
+			assertThat(e.getCause() instanceof DatabaseValidationException, is(true));
+		}
+
+		assertThat(activeScheduleDao.find(1L), is(activeScheduleEntity));
+		assertThat(activeScheduleDao.find(2L), nullValue());
+		assertThat("Only the notification of the written active schedule is left", notificationOutboxDao.count(),
+				is(1));
+		assertThat(getMetrics().get("scheduler.activeschedule.groupcommit.failed").longValue(),
+				is(metrics.get("scheduler.activeschedule.groupcommit.failed").longValue() + 1));
+	}
+
+	@Test
+	public void testGroupCommit_keeps_running_after_error() throws Exception {
+		String[] appIds = TestDataSetupHelper.generateAppIds(2);
+		ActiveScheduleEntity activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appIds[0], 1L,
+				JobActionEnum.START);
+		NotificationOutboxDao failingNotificationOutboxDao = Mockito.mock(NotificationOutboxDao.class);
+		Mockito.doThrow(new AssertionError("test error")).when(failingNotificationOutboxDao).createAll(Mockito.any());
+		Mockito.doThrow(new AssertionError("test error")).when(failingNotificationOutboxDao).create(Mockito.any());
+
+		ReflectionTestUtils.setField(activeScheduleWriter, "notificationOutboxDao", failingNotificationOutboxDao);
+		try {
+			activeScheduleWriter.write(Collections.emptyList(), activeScheduleEntity,
+					notification(activeScheduleEntity, JobActionEnum.START));
+			fail("Should fail");
+		} catch (DatabaseValidationException dve) {
+			assertThat(dve.getCause() instanceof AssertionError, is(true));
+		} finally {
+			ReflectionTestUtils.setField(activeScheduleWriter, "notificationOutboxDao", notificationOutboxDao);
+		}
+		assertThat(activeScheduleDao.find(1L), nullValue());
+
+		Map<String, Number> metrics = getMetrics();
+		ActiveScheduleEntity nextActiveScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appIds[1],
+				2L, JobActionEnum.START);
+		activeScheduleWriter.write(Collections.emptyList(), nextActiveScheduleEntity,
+				notification(nextActiveScheduleEntity, JobActionEnum.START));
+
+		assertThat(activeScheduleDao.find(2L), is(nextActiveScheduleEntity));
+		assertThat("Written by the group commit", getMetrics().get("scheduler.activeschedule.groupcommit.groups")
+				.longValue(), is(metrics.get("scheduler.activeschedule.groupcommit.groups").longValue() + 1));
+	}
+
+	@Test
+	public void testWrite_waits_for_timeout_at_most() throws Exception {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		ActiveScheduleEntity activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L,
+				JobActionEnum.START);
+		CountDownLatch release = new CountDownLatch(1);
+		NotificationOutboxDao blockingNotificationOutboxDao = Mockito.mock(NotificationOutboxDao.class);
+		Mockito.doAnswer(invocation -> release.await(10, TimeUnit.SECONDS)).when(blockingNotificationOutboxDao)
+				.createAll(Mockito.any());
+
+		ReflectionTestUtils.setField(activeScheduleWriter, "notificationOutboxDao", blockingNotificationOutboxDao);
+		ReflectionTestUtils.setField(activeScheduleWriter, "timeoutMilliSecond", 200L);
+		long startTime = System.currentTimeMillis();
+		try {
+			activeScheduleWriter.write(Collections.emptyList(), activeScheduleEntity,
+					notification(activeScheduleEntity, JobActionEnum.START));
+			fail("Should fail");
+		} catch (DatabaseValidationException dve) {
+			assertThat(dve.getCause() instanceof TimeoutException, is(true));
+		} finally {
+			release.countDown();
+			ReflectionTestUtils.setField(activeScheduleWriter, "notificationOutboxDao", notificationOutboxDao);
+			ReflectionTestUtils.setField(activeScheduleWriter, "timeoutMilliSecond", 30000L);
+		}
+
+		assertThat(System.currentTimeMillis() - startTime, lessThan(TimeUnit.SECONDS.toMillis(5)));
+	}
+
+	@Test
+	public void testStartJobs_write_with_group_commit() throws Exception {
+		Map<String, Number> metrics = getMetrics();
+		String[] appIds = TestDataSetupHelper.generateAppIds(5);
+
+		Date triggerTime = new Date();
+		for (int i = 0; i < appIds.length; i++) {
+			JobKey jobKey = ScheduleJobHelper.generateJobKey((long) i + 1, JobActionEnum.START,
+					ScheduleTypeEnum.SPECIFIC_DATE);
+			JobDetail jobDetail = ScheduleJobHelper.buildJob(jobKey, AppScalingScheduleStartJob.class);
+			JobDataMap jobDataMap = jobDetail.getJobDataMap();
+			jobDataMap.put(ScheduleJobHelper.APP_ID, appIds[i]);
+			jobDataMap.put(ScheduleJobHelper.SCHEDULE_ID, (long) i + 1);
+			jobDataMap.put(ScheduleJobHelper.INITIAL_MIN_INSTANCE_COUNT, 1);
+			jobDataMap.put(ScheduleJobHelper.INSTANCE_MIN_COUNT, 2);
+			jobDataMap.put(ScheduleJobHelper.INSTANCE_MAX_COUNT, 4);
+			TriggerKey triggerKey = ScheduleJobHelper.generateTriggerKey((long) i + 1, JobActionEnum.START,
+					ScheduleTypeEnum.SPECIFIC_DATE);
+			scheduler.scheduleJob(jobDetail, ScheduleJobHelper.buildTrigger(triggerKey, jobKey, triggerTime));
+		}
+
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+		for (int i = 0; i < appIds.length; i++) {
+			while (activeScheduleDao.find((long) i + 1) == null) {
+				assertThat("The start job should write its active schedule", System.currentTimeMillis() < deadline,
+						is(true));
+				Thread.sleep(100);
+			}
+			assertThat(activeScheduleDao.find((long) i + 1).getAppId(), is(appIds[i]));
+		}
+		assertThat(getMetrics().get("scheduler.activeschedule.groupcommit.writes").longValue(),
+				is(metrics.get("scheduler.activeschedule.groupcommit.writes").longValue() + appIds.length));
+	}
+
+	private NotificationOutboxEntity notification(ActiveScheduleEntity activeScheduleEntity,
+			JobActionEnum scalingAction) {
+		return new NotificationOutboxEntity(activeScheduleEntity, scalingAction, new Date(), new Date());
+	}
+
+	private Map<String, Number> getMetrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : activeScheduleWriter.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+}
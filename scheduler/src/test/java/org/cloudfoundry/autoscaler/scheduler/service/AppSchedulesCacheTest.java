@@ -0,0 +1,180 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.rest.model.Schedules;
+import org.cloudfoundry.autoscaler.scheduler.util.SpecificDateScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = { "scheduler.cache.app.max.size=2", "scheduler.cache.app.ttl.millisecond=200",
+		"scheduler.cache.app.stale.max.millisecond=1000" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class AppSchedulesCacheTest extends TestConfiguration {
+
+	@SpyBean
+	private AppSchedulesCache appSchedulesCache;
+
+	@Autowired
+	private ScheduleManager scheduleManager;
+
+	@MockBean
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@MockBean
+	private RecurringScheduleDao recurringScheduleDao;
+
+	@MockBean
+	private ScheduleJobManager scheduleJobManager;
+
+	private String appId;
+
+	private List<SpecificDateScheduleEntity> specificDateScheduleEntities;
+
+	@Before
+	public void before() {
+		appSchedulesCache.clear();
+		Mockito.reset(appSchedulesCache);
+		Mockito.reset(specificDateScheduleDao);
+		Mockito.reset(recurringScheduleDao);
+
+		appId = TestDataSetupHelper.generateAppIds(1)[0];
+		specificDateScheduleEntities = new SpecificDateScheduleEntitiesBuilder(2).setAppid(appId).setScheduleId()
+				.build();
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId))
+				.thenReturn(specificDateScheduleEntities);
+		Mockito.when(recurringScheduleDao.findAllRecurringSchedulesByAppId(appId)).thenReturn(new ArrayList<>());
+	}
+
+	@Test
+	public void testSchedules_served_from_cache_until_expired() throws Exception {
+		Map<String, Number> metrics = getMetrics();
+
+		assertThat(appSchedulesCache.getSchedules(appId).getSpecificDateSchedules(), is(specificDateScheduleEntities));
+		assertThat(appSchedulesCache.getSchedules(appId).getSpecificDateSchedules(), is(specificDateScheduleEntities));
+		Mockito.verify(specificDateScheduleDao, Mockito.times(1)).findAllSpecificDateSchedulesByAppId(appId);
+		assertThat(getMetrics().get("scheduler.cache.app.hits"), is(metrics.get("scheduler.cache.app.hits").longValue() + 1));
+		assertThat(getMetrics().get("scheduler.cache.app.misses"),
+				is(metrics.get("scheduler.cache.app.misses").longValue() + 1));
+
+		Thread.sleep(300);
+		appSchedulesCache.getSchedules(appId);
+		Mockito.verify(specificDateScheduleDao, Mockito.times(2)).findAllSpecificDateSchedulesByAppId(appId);
+	}
+
+	@Test
+	public void testCreateSchedules_and_deleteSchedules_invalidate_app() {
+		scheduleManager.getAllSchedules(appId);
+
+		Schedules schedules = new Schedules();
+		schedules.setSpecificDate(specificDateScheduleEntities);
+		scheduleManager.createSchedules(schedules);
+		// Once for the two schedules of the app
+		Mockito.verify(appSchedulesCache, Mockito.times(1)).invalidate(appId);
+		scheduleManager.getAllSchedules(appId);
+		Mockito.verify(recurringScheduleDao, Mockito.times(2)).findAllRecurringSchedulesByAppId(appId);
+
+		scheduleManager.deleteSchedules(appId);
+		scheduleManager.getAllSchedules(appId);
+		// The deletion reads the schedules from the database as well
+		Mockito.verify(recurringScheduleDao, Mockito.times(4)).findAllRecurringSchedulesByAppId(appId);
+	}
+
+	@Test
+	public void testCached_schedules_not_changed_by_callers() {
+		SpecificDateScheduleEntity specificDateScheduleEntity = appSchedulesCache.getSchedules(appId)
+				.getSpecificDateSchedules().get(0);
+		specificDateScheduleEntity.setInstanceMinCount(specificDateScheduleEntity.getInstanceMinCount() + 1);
+		specificDateScheduleEntity.getStartDateTime().setTime(0);
+
+		assertThat(appSchedulesCache.getSchedules(appId).getSpecificDateSchedules(), is(specificDateScheduleEntities));
+		Mockito.verify(specificDateScheduleDao, Mockito.times(1)).findAllSpecificDateSchedulesByAppId(appId);
+		// The cache holds copies without the app id string, the loaded schedules keep theirs
+		assertThat(specificDateScheduleEntities.get(0).getAppId(), is(appId));
+	}
+
+	@Test
+	public void testStale_schedules_served_while_database_unavailable() throws Exception {
+		appSchedulesCache.getSchedules(appId);
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId))
+				.thenThrow(new DatabaseValidationException("test exception"));
+		long staleCount = getMetrics().get("scheduler.cache.app.stale").longValue();
+
+		Thread.sleep(300);
+		assertThat(appSchedulesCache.getSchedules(appId).getSpecificDateSchedules(), is(specificDateScheduleEntities));
+		assertThat(getMetrics().get("scheduler.cache.app.stale"), is(staleCount + 1));
+
+		Thread.sleep(1000);
+		try {
+			appSchedulesCache.getSchedules(appId);
+			fail("Should fail");
+		} catch (DatabaseValidationException dve) {
+			assertThat(dve.getMessage(), is("test exception"));
+		}
+	}
+
+	@Test
+	public void testInvalidated_schedules_not_served_stale() {
+		appSchedulesCache.getSchedules(appId);
+		appSchedulesCache.invalidate(appId);
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId))
+				.thenThrow(new DatabaseValidationException("test exception"));
+
+		try {
+			appSchedulesCache.getSchedules(appId);
+			fail("Should fail");
+		} catch (DatabaseValidationException dve) {
+			assertThat(dve.getMessage(), is("test exception"));
+		}
+	}
+
+	@Test
+	public void testLeast_recently_used_app_evicted_beyond_max_size() {
+		String[] appIds = TestDataSetupHelper.generateAppIds(2);
+		long evictionCount = getMetrics().get("scheduler.cache.app.evictions").longValue();
+
+		appSchedulesCache.getSchedules(appId);
+		appSchedulesCache.getSchedules(appIds[0]);
+		appSchedulesCache.getSchedules(appId);
+		appSchedulesCache.getSchedules(appIds[1]);
+
+		assertThat(getMetrics().get("scheduler.cache.app.size"), is(2));
+		assertThat(getMetrics().get("scheduler.cache.app.evictions"), is(evictionCount + 1));
+		appSchedulesCache.getSchedules(appId);
+		Mockito.verify(specificDateScheduleDao, Mockito.times(1)).findAllSpecificDateSchedulesByAppId(appId);
+	}
+
+	private Map<String, Number> getMetrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : appSchedulesCache.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+}
@@ -0,0 +1,92 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.SpecificDateScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = "scheduler.cache.schedule.max.size=2")
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class ScheduleCacheTest extends TestConfiguration {
+
+	@Autowired
+	private ScheduleCache scheduleCache;
+
+	@MockBean
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@MockBean
+	private RecurringScheduleDao recurringScheduleDao;
+
+	private List<SpecificDateScheduleEntity> specificDateScheduleEntities;
+
+	@Before
+	public void before() {
+		scheduleCache.clear();
+		Mockito.reset(specificDateScheduleDao);
+
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		specificDateScheduleEntities = new SpecificDateScheduleEntitiesBuilder(3).setAppid(appId).setScheduleId()
+				.build();
+		for (SpecificDateScheduleEntity specificDateScheduleEntity : specificDateScheduleEntities) {
+			Mockito.when(specificDateScheduleDao.find(specificDateScheduleEntity.getId()))
+					.thenReturn(specificDateScheduleEntity);
+		}
+	}
+
+	@Test
+	public void testSchedules_cached_up_to_max_size() {
+		for (SpecificDateScheduleEntity specificDateScheduleEntity : specificDateScheduleEntities) {
+			SpecificDateScheduleEntity cached = (SpecificDateScheduleEntity) scheduleCache
+					.getSchedule(specificDateScheduleEntity.getId(), ScheduleTypeEnum.SPECIFIC_DATE);
+			assertThat(cached, is(specificDateScheduleEntity));
+			assertThat("The cache holds a copy", cached, not(sameInstance(specificDateScheduleEntity)));
+		}
+		assertThat(scheduleCache.size(), is(2));
+
+		// The least recently used schedule was evicted
+		Long firstId = specificDateScheduleEntities.get(0).getId();
+		scheduleCache.getSchedule(firstId, ScheduleTypeEnum.SPECIFIC_DATE);
+		Mockito.verify(specificDateScheduleDao, Mockito.times(2)).find(firstId);
+	}
+
+	@Test
+	public void testSchedule_loaded_while_evicted_is_not_cached() {
+		Long scheduleId = specificDateScheduleEntities.get(0).getId();
+		// The schedule is deleted while it is being loaded
+		Mockito.when(specificDateScheduleDao.find(scheduleId)).thenAnswer(invocation -> {
+			scheduleCache.evictSchedule(scheduleId);
+			return specificDateScheduleEntities.get(0);
+		});
+
+		scheduleCache.getSchedule(scheduleId, ScheduleTypeEnum.SPECIFIC_DATE);
+		assertThat(scheduleCache.size(), is(0));
+
+		Mockito.when(specificDateScheduleDao.find(scheduleId)).thenReturn(null);
+		assertThat(scheduleCache.getSchedule(scheduleId, ScheduleTypeEnum.SPECIFIC_DATE), nullValue());
+	}
+}
@@ -0,0 +1,134 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.ScheduleHistoryDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleHistoryEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = { "scheduler.history.enabled=true",
+		"scheduler.history.flush.interval.millisecond=600000", "scheduler.history.batch.size=3",
+		"scheduler.history.queue.capacity=5" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class ScheduleHistoryRecorderTest extends TestConfiguration {
+
+	@Autowired
+	private ScheduleHistoryRecorder scheduleHistoryRecorder;
+
+	@Autowired
+	private ScheduleHistoryDao scheduleHistoryDao;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	@Autowired
+	private Environment environment;
+
+	private String appId;
+
+	@Before
+	public void before() {
+		// The history partitions are postgres table inheritance
+		Assume.assumeFalse(environment.acceptsProfiles("embedded"));
+		testDataCleanupHelper.cleanupData();
+		appId = TestDataSetupHelper.generateAppIds(1)[0];
+	}
+
+	@After
+	public void after() {
+		ReflectionTestUtils.setField(scheduleHistoryRecorder, "batchSize", 3);
+	}
+
+	@Test
+	public void testRecordedEntries_are_written_on_flush() {
+		Map<String, Number> metrics = getMetrics();
+		Date transitionTime = new Date();
+		record(JobActionEnum.START, transitionTime, new Date(transitionTime.getTime() + 100), true);
+		record(JobActionEnum.END, new Date(transitionTime.getTime() + 1), null, false);
+
+		assertThat("Written at the flush interval", findHistory().size(), is(0));
+		scheduleHistoryRecorder.flush();
+
+		List<ScheduleHistoryEntity> history = findHistory();
+		assertThat(history.size(), is(2));
+		assertThat(history.get(0).getScalingAction(), is(JobActionEnum.START));
+		assertThat(history.get(0).getFireLagMilliSecond(), is(100L));
+		assertThat(history.get(0).isAcknowledged(), is(true));
+		assertThat(history.get(1).getFireTime(), is((Date) null));
+		assertThat(history.get(1).getFireLagMilliSecond(), is((Long) null));
+		assertThat(history.get(1).isAcknowledged(), is(false));
+		assertThat(getMetrics().get("scheduler.history.written").longValue(),
+				is(metrics.get("scheduler.history.written").longValue() + 2));
+	}
+
+	@Test
+	public void testFullBatch_is_written_right_away() throws Exception {
+		Date transitionTime = new Date();
+		for (int i = 0; i < 3; i++) {
+			record(JobActionEnum.START, new Date(transitionTime.getTime() + i), transitionTime, true);
+		}
+
+		for (int i = 0; i < 50 && findHistory().size() < 3; i++) {
+			Thread.sleep(100);
+		}
+		assertThat(findHistory().size(), is(3));
+	}
+
+	@Test
+	public void testEntries_are_dropped_when_queue_is_full() {
+		ReflectionTestUtils.setField(scheduleHistoryRecorder, "batchSize", 100);
+		Map<String, Number> metrics = getMetrics();
+		Date transitionTime = new Date();
+		for (int i = 0; i < 7; i++) {
+			record(JobActionEnum.START, new Date(transitionTime.getTime() + i), transitionTime, true);
+		}
+		scheduleHistoryRecorder.flush();
+
+		assertThat(findHistory().size(), is(5));
+		assertThat(getMetrics().get("scheduler.history.dropped").longValue(),
+				is(metrics.get("scheduler.history.dropped").longValue() + 2));
+	}
+
+	private void record(JobActionEnum scalingAction, Date transitionTime, Date fireTime, boolean acknowledged) {
+		scheduleHistoryRecorder.record(TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L, scalingAction),
+				scalingAction, transitionTime, fireTime, acknowledged, 1, 10);
+	}
+
+	private List<ScheduleHistoryEntity> findHistory() {
+		long now = System.currentTimeMillis();
+		return scheduleHistoryDao.findHistory(appId, new Date(now - 60000), new Date(now + 60000), 100);
+	}
+
+	private Map<String, Number> getMetrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : scheduleHistoryRecorder.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+}
@@ -0,0 +1,187 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.ScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.RecurringScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.SpecificDateScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = { "scheduler.index.enabled=true", "scheduler.index.initial.capacity=2" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class ScheduleIndexTest extends TestConfiguration {
+
+	// Wednesday the 1st, 18:30 in Asia/Shanghai
+	private static final long TIME = Instant.parse("2017-03-01T10:30:00Z").toEpochMilli();
+
+	@Autowired
+	private ScheduleIndex scheduleIndex;
+
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@Autowired
+	private RecurringScheduleDao recurringScheduleDao;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Before
+	public void before() {
+		testDataCleanupHelper.cleanupData();
+		scheduleIndex.load();
+	}
+
+	@Test
+	public void testLoad() {
+		new TransactionTemplate(transactionManager).execute(status -> {
+			specificDateScheduleDao.createAll(specificDateSchedules("appId1"));
+			return recurringScheduleDao.createAll(recurringSchedules("appId2"));
+		});
+		assertThat(findActiveAt(TIME), is(empty()));
+
+		scheduleIndex.load();
+
+		assertThat(scheduleIndex.isLoaded(), is(true));
+		assertThat(scheduleIndex.size(), is(4));
+		assertThat(findActiveAt(TIME), containsInAnyOrder("appId1 SPECIFIC_DATE 3 8 -1", "appId2 RECURRING 5 6 -1"));
+		assertThat(findActiveAt(TIME + 3600000), is(empty()));
+	}
+
+	@Test
+	public void testAddAndRemoveSchedules() {
+		List<SpecificDateScheduleEntity> specificDateSchedules = withIds(specificDateSchedules("appId1"), 1);
+		List<RecurringScheduleEntity> recurringSchedules = withIds(recurringSchedules("appId2"), 10);
+		scheduleIndex.addSchedules(specificDateSchedules);
+		scheduleIndex.addSchedules(recurringSchedules);
+		assertThat(findActiveAt(TIME), containsInAnyOrder("appId1 SPECIFIC_DATE 3 8 -1", "appId2 RECURRING 5 6 -1"));
+
+		scheduleIndex.removeSchedules("appId1");
+
+		assertThat(scheduleIndex.size(), is(2));
+		assertThat(findActiveAt(TIME), contains("appId2 RECURRING 5 6 -1"));
+		Map<String, Number> metrics = getMetrics();
+		assertThat(metrics.get("scheduler.index.size").intValue(), is(2));
+		assertThat(metrics.get("scheduler.index.apps").intValue(), is(1));
+
+		// The handle of the removed app is used again
+		scheduleIndex.addSchedules(withIds(specificDateSchedules("appId3"), 20));
+		assertThat(findActiveAt(TIME), containsInAnyOrder("appId3 SPECIFIC_DATE 3 8 -1", "appId2 RECURRING 5 6 -1"));
+		assertThat(getMetrics().get("scheduler.index.apps").intValue(), is(2));
+	}
+
+	@Test
+	public void testRecurringSchedule_with_days_and_dates() {
+		List<RecurringScheduleEntity> recurringSchedules = withIds(new RecurringScheduleEntitiesBuilder(1, 1)
+				.setAppId("appId1").setTimeZone("America/New_York").setDefaultInstanceMinCount(1)
+				.setDefaultInstanceMaxCount(5).setStartTime(0, Time.valueOf("05:00:00"))
+				.setEndTime(0, Time.valueOf("06:00:00")).setDayOfMonth(0, new int[] { 1 })
+				.setStartTime(1, Time.valueOf("05:00:00")).setEndTime(1, Time.valueOf("06:00:00"))
+				.setDayOfWeek(1, new int[] { 3 }).build(), 1);
+		recurringSchedules.get(1).setStartDate(Timestamp.valueOf("2017-03-02 00:00:00"));
+		recurringSchedules.get(1).setInitialMinInstanceCount(2);
+		scheduleIndex.addSchedules(recurringSchedules);
+
+		// 05:30 in New York on Wednesday the 1st, before the start date of the second schedule
+		assertThat(findActiveAt(TIME), contains("appId1 RECURRING 5 6 -1"));
+		// Wednesday the 8th
+		assertThat(findActiveAt(TIME + 7 * 86400000L), contains("appId1 RECURRING 5 6 2"));
+	}
+
+	@Test
+	public void testRolledBackSchedules_are_not_added() {
+		new TransactionTemplate(transactionManager).execute(status -> {
+			scheduleIndex.addSchedules(withIds(specificDateSchedules("appId1"), 1));
+			status.setRollbackOnly();
+			return null;
+		});
+
+		assertThat(scheduleIndex.size(), is(0));
+	}
+
+	@Test
+	public void testDayOfMonth() {
+		for (long epochDay = LocalDate.of(1900, 1, 1).toEpochDay(); epochDay < LocalDate.of(2200, 1, 1)
+				.toEpochDay(); epochDay++) {
+			assertThat(ScheduleIndex.dayOfMonth(epochDay), is(LocalDate.ofEpochDay(epochDay).getDayOfMonth()));
+		}
+	}
+
+	private List<SpecificDateScheduleEntity> specificDateSchedules(String appId) {
+		return new SpecificDateScheduleEntitiesBuilder(2).setAppid(appId).setTimeZone("Asia/Shanghai")
+				.setDefaultInstanceMinCount(1).setDefaultInstanceMaxCount(5).setInstanceMinCount(0, 3)
+				.setInstanceMaxCount(0, 8).setStartDateTime(0, Timestamp.valueOf("2017-03-01 18:00:00"))
+				.setEndDateTime(0, Timestamp.valueOf("2017-03-01 19:00:00"))
+				.setStartDateTime(1, Timestamp.valueOf("2017-03-02 18:00:00"))
+				.setEndDateTime(1, Timestamp.valueOf("2017-03-02 19:00:00")).build();
+	}
+
+	private List<RecurringScheduleEntity> recurringSchedules(String appId) {
+		return new RecurringScheduleEntitiesBuilder(0, 2).setAppId(appId).setTimeZone("GMT")
+				.setDefaultInstanceMinCount(1).setDefaultInstanceMaxCount(5).setStartTime(0, Time.valueOf("10:00:00"))
+				.setEndTime(0, Time.valueOf("11:00:00")).setDayOfWeek(0, new int[] { 3 })
+				.setStartTime(1, Time.valueOf("10:00:00")).setEndTime(1, Time.valueOf("11:00:00"))
+				.setDayOfWeek(1, new int[] { 4 }).build();
+	}
+
+	private <T extends ScheduleEntity> List<T> withIds(List<T> scheduleEntities, long firstId) {
+		for (T scheduleEntity : scheduleEntities) {
+			scheduleEntity.setId(firstId++);
+		}
+		return scheduleEntities;
+	}
+
+	private List<String> findActiveAt(long time) {
+		List<String> activeSchedules = new ArrayList<>();
+		int activeCount = scheduleIndex.forEachActiveAt(time,
+				(appId, scheduleId, scheduleType, instanceMinCount, instanceMaxCount,
+						initialMinInstanceCount) -> activeSchedules.add(appId.toString() + " " + scheduleType.name() + " "
+								+ instanceMinCount + " " + instanceMaxCount + " " + initialMinInstanceCount));
+		assertThat(activeCount, is(activeSchedules.size()));
+		return activeSchedules;
+	}
+
+	private Map<String, Number> getMetrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : scheduleIndex.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+
+}
@@ -241,6 +241,46 @@ public class ScheduleJobManagerTest extends TestConfiguration {
 				startJobKey, endJobKey, startTriggerKey, endTriggerKey);
 	}
 
+	@Test
+	public void testBuildSimpleJobTrigger_with_start_advance() throws Exception {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		Date startDateTime = new Date();
+		SpecificDateScheduleEntity specificDateScheduleEntity = new SpecificDateScheduleEntitiesBuilder(1)
+				.setAppid(appId).setTimeZone(TimeZone.getDefault().getID()).setScheduleId()
+				.setStartDateTime(0, startDateTime).setEndDateTime(0, new Date()).build().get(0);
+
+		Trigger trigger = scheduleJobManager.buildSimpleJobTrigger(specificDateScheduleEntity, JobActionEnum.START,
+				3000);
+
+		assertThat(trigger.getStartTime(), is(new Date(startDateTime.getTime() - 3000)));
+		assertThat(trigger.getJobDataMap().getLong(ScheduleJobHelper.START_ADVANCE), is(3000L));
+	}
+
+	@Test
+	public void testBuildCronJobTrigger_with_start_advance() throws Exception {
+		RecurringScheduleEntity recurringScheduleEntity = createRecurringScheduleWithDaysOfWeek("GMT", "22:10:00",
+				"23:20:00", new int[] { 2, 4, 6 });
+
+		CronTrigger trigger = (CronTrigger) scheduleJobManager.buildCronJobTrigger(recurringScheduleEntity,
+				JobActionEnum.START, 3000);
+
+		assertThat(trigger.getCronExpression(), is("57 09 22 ? * TUE,THU,SAT *"));
+		assertThat(trigger.getJobDataMap().getLong(ScheduleJobHelper.START_ADVANCE), is(3000L));
+	}
+
+	@Test
+	public void testBuildCronJobTrigger_with_start_advance_before_midnight() throws Exception {
+		RecurringScheduleEntity recurringScheduleEntity = createRecurringScheduleWithDaysOfWeek("GMT", "00:00:00",
+				"08:00:00", new int[] { 2, 4, 6 });
+
+		// The advance would move the firing to the days before, it is dropped
+		CronTrigger trigger = (CronTrigger) scheduleJobManager.buildCronJobTrigger(recurringScheduleEntity,
+				JobActionEnum.START, 3000);
+
+		assertThat(trigger.getCronExpression(), is("00 00 00 ? * TUE,THU,SAT *"));
+		assertThat(trigger.getJobDataMap().containsKey(ScheduleJobHelper.START_ADVANCE), is(false));
+	}
+
 	@Test
 	public void testDeleteSimpleJobs() throws Exception {
 		String appId = "appId";
@@ -431,32 +471,24 @@ public class ScheduleJobManagerTest extends TestConfiguration {
 
 	private void assertCreatedJobs(Map<JobKey, JobDetail> scheduleIdJobDetailMap, ScheduleEntity scheduleEntity,
 			ScheduleTypeEnum scheduleType) throws SchedulerException {
-		String appId = scheduleEntity.getAppId();
 		Long scheduleId = scheduleEntity.getId();
 
 		JobKey startJobKey = ScheduleJobHelper.generateJobKey(scheduleId, JobActionEnum.START, scheduleType);
 		JobKey endJobKey = ScheduleJobHelper.generateJobKey(scheduleId, JobActionEnum.END, scheduleType);
 
-		int instMinCount = scheduleEntity.getInstanceMinCount();
-		int instMaxCount = scheduleEntity.getInstanceMaxCount();
-
 		JobDetail jobDetail = scheduleIdJobDetailMap.get(startJobKey);
-		assertJobDetails(appId, scheduleId, instMinCount, instMaxCount, JobActionEnum.START, jobDetail);
+		assertJobDetails(scheduleId, jobDetail);
 
-		instMinCount = scheduleEntity.getDefaultInstanceMinCount();
-		instMaxCount = scheduleEntity.getDefaultInstanceMaxCount();
 		jobDetail = scheduleIdJobDetailMap.get(endJobKey);
-		assertJobDetails(appId, scheduleId, instMinCount, instMaxCount, JobActionEnum.END, jobDetail);
+		assertJobDetails(scheduleId, jobDetail);
 	}
 
-	private void assertJobDetails(String expectedAppId, Long expectedScheduleId, int expectedInstanceMinCount,
-			int expectedInstanceMaxCount, JobActionEnum expectedJobAction, JobDetail expectedJobDetail) {
+	private void assertJobDetails(Long expectedScheduleId, JobDetail expectedJobDetail) {
 		assertNotNull("Expected existing jobDetail", expectedJobDetail);
 		JobDataMap jobDataMap = expectedJobDetail.getJobDataMap();
-		assertEquals(expectedAppId, jobDataMap.get(ScheduleJobHelper.APP_ID));
+		// Only the schedule id is kept in the job data, the rest is resolved from the schedule cache
+		assertEquals(1, jobDataMap.size());
 		assertEquals(expectedScheduleId, jobDataMap.get(ScheduleJobHelper.SCHEDULE_ID));
-		assertEquals(expectedInstanceMinCount, jobDataMap.get(ScheduleJobHelper.INSTANCE_MIN_COUNT));
-		assertEquals(expectedInstanceMaxCount, jobDataMap.get(ScheduleJobHelper.INSTANCE_MAX_COUNT));
 	}
 
 }
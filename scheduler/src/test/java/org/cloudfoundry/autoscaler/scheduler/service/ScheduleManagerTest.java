@@ -8,6 +8,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.Matchers.eq;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
@@ -119,7 +120,9 @@ public class ScheduleManagerTest extends TestConfiguration {
 
 		SpecificDateScheduleEntity specificDateScheduleEntity = new SpecificDateScheduleEntitiesBuilder(1)
 				.setAppid(appId).setScheduleId().build().get(0);
-		Mockito.when(specificDateScheduleDao.create(Mockito.anyObject())).thenReturn(specificDateScheduleEntity);
+		Mockito.when(specificDateScheduleDao.createAll(Mockito.anyObject()))
+				.thenAnswer(invocation -> Collections.nCopies(((List<?>) invocation.getArguments()[0]).size(),
+						specificDateScheduleEntity));
 
 		scheduleManager.createSchedules(schedules);
 
@@ -137,7 +140,9 @@ public class ScheduleManagerTest extends TestConfiguration {
 
 		RecurringScheduleEntity recurringScheduleEntity = new RecurringScheduleEntitiesBuilder(1, 0).setAppId(appId)
 				.setScheduleId().build().get(0);
-		Mockito.when(recurringScheduleDao.create(Mockito.anyObject())).thenReturn(recurringScheduleEntity);
+		Mockito.when(recurringScheduleDao.createAll(Mockito.anyObject()))
+				.thenAnswer(invocation -> Collections.nCopies(((List<?>) invocation.getArguments()[0]).size(),
+						recurringScheduleEntity));
 
 		scheduleManager.createSchedules(schedules);
 
@@ -156,7 +161,9 @@ public class ScheduleManagerTest extends TestConfiguration {
 
 		RecurringScheduleEntity recurringScheduleEntity = new RecurringScheduleEntitiesBuilder(1, 0).setAppId(appId)
 				.setScheduleId().build().get(0);
-		Mockito.when(recurringScheduleDao.create(Mockito.anyObject())).thenReturn(recurringScheduleEntity);
+		Mockito.when(recurringScheduleDao.createAll(Mockito.anyObject()))
+				.thenAnswer(invocation -> Collections.nCopies(((List<?>) invocation.getArguments()[0]).size(),
+						recurringScheduleEntity));
 
 		scheduleManager.createSchedules(schedules);
 
@@ -178,8 +185,12 @@ public class ScheduleManagerTest extends TestConfiguration {
 				.setAppid(appId).setScheduleId().build().get(0);
 		RecurringScheduleEntity recurringScheduleEntity = new RecurringScheduleEntitiesBuilder(1, 0).setAppId(appId)
 				.setScheduleId().build().get(0);
-		Mockito.when(specificDateScheduleDao.create(Mockito.anyObject())).thenReturn(specificDateScheduleEntity);
-		Mockito.when(recurringScheduleDao.create(Mockito.anyObject())).thenReturn(recurringScheduleEntity);
+		Mockito.when(specificDateScheduleDao.createAll(Mockito.anyObject()))
+				.thenAnswer(invocation -> Collections.nCopies(((List<?>) invocation.getArguments()[0]).size(),
+						specificDateScheduleEntity));
+		Mockito.when(recurringScheduleDao.createAll(Mockito.anyObject()))
+				.thenAnswer(invocation -> Collections.nCopies(((List<?>) invocation.getArguments()[0]).size(),
+						recurringScheduleEntity));
 
 		scheduleManager.createSchedules(schedules);
 
@@ -192,7 +203,7 @@ public class ScheduleManagerTest extends TestConfiguration {
 		String appId = TestDataSetupHelper.generateAppIds(1)[0];
 		Schedules schedules = TestDataSetupHelper.generateSchedulesWithEntitiesOnly(appId, 1, 0, 0);
 
-		Mockito.when(specificDateScheduleDao.create(Mockito.anyObject()))
+		Mockito.when(specificDateScheduleDao.createAll(Mockito.anyObject()))
 				.thenThrow(new DatabaseValidationException("test exception"));
 
 		try {
@@ -215,7 +226,7 @@ public class ScheduleManagerTest extends TestConfiguration {
 		String appId = TestDataSetupHelper.generateAppIds(1)[0];
 		Schedules schedules = TestDataSetupHelper.generateSchedulesWithEntitiesOnly(appId, 0, 1, 0);
 
-		Mockito.when(recurringScheduleDao.create(Mockito.anyObject()))
+		Mockito.when(recurringScheduleDao.createAll(Mockito.anyObject()))
 				.thenThrow(new DatabaseValidationException("test exception"));
 
 		try {
@@ -283,13 +294,13 @@ public class ScheduleManagerTest extends TestConfiguration {
 
 		scheduleManager.deleteSchedules(appId);
 
+		Mockito.verify(specificDateScheduleDao, Mockito.times(1)).deleteAll(specificDateScheduleEntities);
 		for (SpecificDateScheduleEntity specificDateScheduleEntity : specificDateScheduleEntities) {
-			Mockito.verify(specificDateScheduleDao, Mockito.times(1)).delete(specificDateScheduleEntity);
 			Mockito.verify(scheduleJobManager, Mockito.times(1)).deleteJob(specificDateScheduleEntity.getAppId(),
 					specificDateScheduleEntity.getId(), ScheduleTypeEnum.SPECIFIC_DATE);
 		}
+		Mockito.verify(recurringScheduleDao, Mockito.times(1)).deleteAll(recurringScheduleEntities);
 		for (RecurringScheduleEntity recurringScheduleEntity : recurringScheduleEntities) {
-			Mockito.verify(recurringScheduleDao, Mockito.times(1)).delete(recurringScheduleEntity);
 			Mockito.verify(scheduleJobManager, Mockito.times(1)).deleteJob(recurringScheduleEntity.getAppId(),
 					recurringScheduleEntity.getId(), ScheduleTypeEnum.RECURRING);
 		}
@@ -337,7 +348,7 @@ public class ScheduleManagerTest extends TestConfiguration {
 				.thenReturn(recurringScheduleEntities);
 
 		Mockito.doThrow(new DatabaseValidationException("test exception")).when(specificDateScheduleDao)
-				.delete(Mockito.anyObject());
+				.deleteAll(Mockito.anyObject());
 
 		try {
 			scheduleManager.deleteSchedules(appId);
@@ -372,7 +383,7 @@ public class ScheduleManagerTest extends TestConfiguration {
 				.thenReturn(recurringScheduleEntities);
 
 		Mockito.doThrow(new DatabaseValidationException("test exception")).when(recurringScheduleDao)
-				.delete(Mockito.anyObject());
+				.deleteAll(Mockito.anyObject());
 
 		try {
 			scheduleManager.deleteSchedules(appId);
@@ -427,16 +438,12 @@ public class ScheduleManagerTest extends TestConfiguration {
 			RecurringScheduleEntity recurringScheduleEntity, int noOfSpecificDateSchedules,
 			int noOfDOMRecurringSchedules, int noOfDOWRecurringSchedules) {
 
-		if (schedules.getSpecificDate() != null) {
-			for (SpecificDateScheduleEntity foundSpecificDateScheduleEntity : schedules.getSpecificDate()) {
-				Mockito.verify(specificDateScheduleDao, Mockito.times(1)).create(foundSpecificDateScheduleEntity);
-			}
+		if (schedules.getSpecificDate() != null && !schedules.getSpecificDate().isEmpty()) {
+			Mockito.verify(specificDateScheduleDao, Mockito.times(1)).createAll(schedules.getSpecificDate());
 		}
 
-		if (schedules.getRecurringSchedule() != null) {
-			for (RecurringScheduleEntity foundRecurringScheduleEntity : schedules.getRecurringSchedule()) {
-				Mockito.verify(recurringScheduleDao, Mockito.times(1)).create(foundRecurringScheduleEntity);
-			}
+		if (schedules.getRecurringSchedule() != null && !schedules.getRecurringSchedule().isEmpty()) {
+			Mockito.verify(recurringScheduleDao, Mockito.times(1)).createAll(schedules.getRecurringSchedule());
 		}
 
 		Mockito.verify(scheduleJobManager, Mockito.times(noOfSpecificDateSchedules))
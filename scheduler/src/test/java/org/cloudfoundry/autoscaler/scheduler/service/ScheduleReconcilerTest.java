@@ -0,0 +1,244 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.ActiveScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.ActiveScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.scalingengine.ScalingEngineClient;
+import org.cloudfoundry.autoscaler.scheduler.util.JobActionEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleJobHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.ScheduleTypeEnum;
+import org.cloudfoundry.autoscaler.scheduler.util.SpecificDateScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataCleanupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScheduleReconcilerTest extends TestConfiguration {
+
+	private static final long HOUR = 60 * 60 * 1000L;
+
+	@Autowired
+	private ScheduleReconciler scheduleReconciler;
+
+	@Autowired
+	private Scheduler scheduler;
+
+	@MockBean
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@MockBean
+	private RecurringScheduleDao recurringScheduleDao;
+
+	@MockBean
+	private ActiveScheduleDao activeScheduleDao;
+
+	@MockBean
+	private ScalingEngineClient scalingEngineClient;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	private String appId = TestDataSetupHelper.generateAppIds(1)[0];
+
+	@Before
+	public void before() throws SchedulerException {
+		testDataCleanupHelper.cleanupData(scheduler);
+
+		Mockito.reset(specificDateScheduleDao, recurringScheduleDao, activeScheduleDao, scalingEngineClient);
+		Mockito.when(recurringScheduleDao.findAllRecurringSchedules()).thenReturn(new ArrayList<>());
+		Mockito.when(scalingEngineClient.notifyActiveScheduleAsync(Mockito.any(), Mockito.any()))
+				.thenReturn(CompletableFuture.completedFuture(null));
+	}
+
+	@Test
+	public void testReconcile_activates_schedule_started_during_downtime() {
+		long now = System.currentTimeMillis();
+		SpecificDateScheduleEntity specificDateScheduleEntity = generateSpecificDateSchedule(1L, now - HOUR,
+				now + HOUR);
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedules())
+				.thenReturn(Arrays.asList(specificDateScheduleEntity));
+		Mockito.when(activeScheduleDao.findAllActiveSchedules()).thenReturn(new ArrayList<>());
+
+		scheduleReconciler.reconcile();
+
+		List<ActiveScheduleEntity> created = captureCreatedActiveSchedules();
+		assertThat(created.size(), is(1));
+		assertThat(created.get(0).getId(), is(1L));
+		assertThat(created.get(0).getInstanceMinCount(), is(specificDateScheduleEntity.getInstanceMinCount()));
+		assertThat(captureDeletedActiveScheduleIds(), is(Collections.emptyList()));
+
+		Mockito.verify(scalingEngineClient, Mockito.timeout(5000).times(1)).notifyActiveScheduleAsync(created.get(0),
+				JobActionEnum.START);
+		Mockito.verifyNoMoreInteractions(scalingEngineClient);
+	}
+
+	@Test
+	public void testReconcile_deactivates_schedule_ended_during_downtime() {
+		long now = System.currentTimeMillis();
+		SpecificDateScheduleEntity specificDateScheduleEntity = generateSpecificDateSchedule(1L, now - 2 * HOUR,
+				now - HOUR);
+		ActiveScheduleEntity activeScheduleEntity = TestDataSetupHelper.generateActiveScheduleEntity(appId, 1L,
+				JobActionEnum.START);
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedules())
+				.thenReturn(Arrays.asList(specificDateScheduleEntity));
+		Mockito.when(activeScheduleDao.findAllActiveSchedules()).thenReturn(Arrays.asList(activeScheduleEntity));
+
+		scheduleReconciler.reconcile();
+
+		assertThat(captureCreatedActiveSchedules(), is(Collections.emptyList()));
+		assertThat(captureDeletedActiveScheduleIds(), is(Arrays.asList(1L)));
+
+		Mockito.verify(scalingEngineClient, Mockito.timeout(5000).times(1))
+				.notifyActiveScheduleAsync(activeScheduleEntity, JobActionEnum.END);
+		Mockito.verifyNoMoreInteractions(scalingEngineClient);
+	}
+
+	@Test
+	public void testReconcile_leaves_future_and_already_active_schedules() {
+		long now = System.currentTimeMillis();
+		SpecificDateScheduleEntity activeSchedule = generateSpecificDateSchedule(1L, now - HOUR, now + HOUR);
+		SpecificDateScheduleEntity futureSchedule = generateSpecificDateSchedule(2L, now + HOUR, now + 2 * HOUR);
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedules())
+				.thenReturn(Arrays.asList(activeSchedule, futureSchedule));
+		Mockito.when(activeScheduleDao.findAllActiveSchedules()).thenReturn(
+				Arrays.asList(ScheduleJobHelper.setupActiveSchedule(activeSchedule, JobActionEnum.START)));
+
+		scheduleReconciler.reconcile();
+
+		assertThat(captureCreatedActiveSchedules(), is(Collections.emptyList()));
+		assertThat(captureDeletedActiveScheduleIds(), is(Collections.emptyList()));
+		Mockito.verifyZeroInteractions(scalingEngineClient);
+	}
+
+	@Test
+	public void testReconcile_corrects_table_in_one_transaction_and_notifies_end_before_start()
+			throws Exception {
+		long now = System.currentTimeMillis();
+		SpecificDateScheduleEntity endedSchedule = generateSpecificDateSchedule(1L, now - 2 * HOUR, now - HOUR);
+		SpecificDateScheduleEntity startedSchedule = generateSpecificDateSchedule(2L, now - HOUR, now + HOUR);
+		ActiveScheduleEntity endedActiveSchedule = ScheduleJobHelper.setupActiveSchedule(endedSchedule,
+				JobActionEnum.START);
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedules())
+				.thenReturn(Arrays.asList(endedSchedule, startedSchedule));
+		Mockito.when(activeScheduleDao.findAllActiveSchedules()).thenReturn(Arrays.asList(endedActiveSchedule));
+
+		List<Boolean> transactions = new ArrayList<>();
+		Mockito.doAnswer(invocation -> transactions.add(TransactionSynchronizationManager.isActualTransactionActive()))
+				.when(activeScheduleDao).deleteActiveSchedules(Mockito.any());
+		Mockito.doAnswer(invocation -> transactions.add(TransactionSynchronizationManager.isActualTransactionActive()))
+				.when(activeScheduleDao).createActiveSchedules(Mockito.any());
+
+		List<JobActionEnum> notifications = Collections.synchronizedList(new ArrayList<>());
+		Mockito.doAnswer(invocation -> {
+			JobActionEnum scalingAction = (JobActionEnum) invocation.getArguments()[1];
+			if (scalingAction == JobActionEnum.START) {
+				notifications.add(scalingAction);
+				return CompletableFuture.completedFuture(null);
+			}
+			// The start of the app waits for the answer to its end
+			return CompletableFuture.runAsync(() -> {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				notifications.add(scalingAction);
+			});
+		}).when(scalingEngineClient).notifyActiveScheduleAsync(Mockito.any(), Mockito.any());
+
+		scheduleReconciler.reconcile();
+
+		assertThat("Deleted and created within the transaction", transactions, is(Arrays.asList(true, true)));
+
+		Mockito.verify(scalingEngineClient, Mockito.timeout(5000).times(2)).notifyActiveScheduleAsync(Mockito.any(),
+				Mockito.any());
+		assertThat(notifications, is(Arrays.asList(JobActionEnum.END, JobActionEnum.START)));
+	}
+
+	@Test
+	public void testReconcile_advances_overdue_triggers() throws SchedulerException {
+		long now = System.currentTimeMillis();
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedules()).thenReturn(new ArrayList<>());
+		Mockito.when(activeScheduleDao.findAllActiveSchedules()).thenReturn(new ArrayList<>());
+
+		JobKey jobKey = ScheduleJobHelper.generateJobKey(1L, JobActionEnum.END, ScheduleTypeEnum.SPECIFIC_DATE);
+		TriggerKey triggerKey = ScheduleJobHelper.generateTriggerKey(1L, JobActionEnum.END,
+				ScheduleTypeEnum.SPECIFIC_DATE);
+		JobDetail jobDetail = ScheduleJobHelper.buildJob(jobKey, NoOpJob.class);
+		Trigger trigger = ScheduleJobHelper.buildTrigger(triggerKey, jobKey, new Date(now - HOUR));
+
+		// Keep the overdue trigger from firing, as it happens before the scheduler starts
+		scheduler.standby();
+		try {
+			scheduler.scheduleJob(jobDetail, trigger);
+
+			scheduleReconciler.reconcile();
+
+			assertThat(scheduler.checkExists(triggerKey), is(false));
+			assertThat(scheduler.checkExists(jobKey), is(true));
+		} finally {
+			scheduler.start();
+		}
+	}
+
+	private SpecificDateScheduleEntity generateSpecificDateSchedule(Long scheduleId, long startTime, long endTime) {
+		SpecificDateScheduleEntity specificDateScheduleEntity = new SpecificDateScheduleEntitiesBuilder(1)
+				.setAppid(appId).setTimeZone(TimeZone.getDefault().getID()).setDefaultInstanceMinCount(1)
+				.setDefaultInstanceMaxCount(5).setStartDateTime(0, new Date(startTime))
+				.setEndDateTime(0, new Date(endTime)).build().get(0);
+		specificDateScheduleEntity.setId(scheduleId);
+		return specificDateScheduleEntity;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<ActiveScheduleEntity> captureCreatedActiveSchedules() {
+		ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(activeScheduleDao, Mockito.times(1)).createActiveSchedules(captor.capture());
+		return captor.getValue();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Long> captureDeletedActiveScheduleIds() {
+		ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(activeScheduleDao, Mockito.times(1)).deleteActiveSchedules(captor.capture());
+		return captor.getValue();
+	}
+
+	public static class NoOpJob implements Job {
+		@Override
+		public void execute(JobExecutionContext context) {
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package org.cloudfoundry.autoscaler.scheduler.service;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.RecurringScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.entity.RecurringScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.entity.SpecificDateScheduleEntity;
+import org.cloudfoundry.autoscaler.scheduler.util.RecurringScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.SpecificDateScheduleEntitiesBuilder;
+import org.cloudfoundry.autoscaler.scheduler.util.TestConfiguration;
+import org.cloudfoundry.autoscaler.scheduler.util.TestDataSetupHelper;
+import org.cloudfoundry.autoscaler.scheduler.util.error.DatabaseValidationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ScheduleTransitionCoalescerTest extends TestConfiguration {
+
+	private static final long HOUR = 60 * 60 * 1000L;
+
+	@Autowired
+	private ScheduleTransitionCoalescer scheduleTransitionCoalescer;
+
+	@Autowired
+	private AppSchedulesCache appSchedulesCache;
+
+	@MockBean
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@MockBean
+	private RecurringScheduleDao recurringScheduleDao;
+
+	private String appId = TestDataSetupHelper.generateAppIds(1)[0];
+
+	private Date transitionTime;
+
+	@Before
+	public void before() {
+		Mockito.reset(specificDateScheduleDao);
+		Mockito.reset(recurringScheduleDao);
+		appSchedulesCache.clear();
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId)).thenReturn(new ArrayList<>());
+		Mockito.when(recurringScheduleDao.findAllRecurringSchedulesByAppId(appId)).thenReturn(new ArrayList<>());
+
+		Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.DAY_OF_MONTH, 1);
+		calendar.set(Calendar.HOUR_OF_DAY, 10);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		transitionTime = calendar.getTime();
+	}
+
+	@Test
+	public void testSpecificDateSchedules_back_to_back() {
+		// Schedule 1 ends when schedule 2 starts, schedule 3 ends an hour later
+		List<SpecificDateScheduleEntity> specificDateSchedules = new SpecificDateScheduleEntitiesBuilder(3)
+				.setAppid(appId).setTimeZone(TimeZone.getDefault().getID()).setScheduleId()
+				.setStartDateTime(0, new Date(transitionTime.getTime() - HOUR)).setEndDateTime(0, transitionTime)
+				.setStartDateTime(1, transitionTime).setEndDateTime(1, new Date(transitionTime.getTime() + HOUR))
+				.setStartDateTime(2, new Date(transitionTime.getTime() - HOUR))
+				.setEndDateTime(2, new Date(transitionTime.getTime() + HOUR)).build();
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId))
+				.thenReturn(specificDateSchedules);
+
+		Long endingScheduleId = specificDateSchedules.get(0).getId();
+		Long startingScheduleId = specificDateSchedules.get(1).getId();
+		Long otherScheduleId = specificDateSchedules.get(2).getId();
+
+		assertThat(scheduleTransitionCoalescer.findEndingScheduleIds(appId, startingScheduleId, transitionTime),
+				is(Arrays.asList(endingScheduleId)));
+		assertThat(scheduleTransitionCoalescer.isReplacedAt(appId, endingScheduleId, transitionTime), is(true));
+
+		assertThat(scheduleTransitionCoalescer.isReplacedAt(appId, otherScheduleId,
+				new Date(transitionTime.getTime() + HOUR)), is(false));
+		assertThat(scheduleTransitionCoalescer.findEndingScheduleIds(appId, endingScheduleId,
+				new Date(transitionTime.getTime() - HOUR)), empty());
+
+		// The schedules of the app are read once for all the transitions
+		Mockito.verify(specificDateScheduleDao, Mockito.times(1)).findAllSpecificDateSchedulesByAppId(appId);
+		Mockito.verify(recurringScheduleDao, Mockito.times(1)).findAllRecurringSchedulesByAppId(appId);
+	}
+
+	@Test
+	public void testRecurringSchedule_starting_when_specificDateSchedule_ends() {
+		List<SpecificDateScheduleEntity> specificDateSchedules = new SpecificDateScheduleEntitiesBuilder(1)
+				.setAppid(appId).setTimeZone(TimeZone.getDefault().getID()).setScheduleId()
+				.setStartDateTime(0, new Date(transitionTime.getTime() - HOUR)).setEndDateTime(0, transitionTime)
+				.build();
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId))
+				.thenReturn(specificDateSchedules);
+
+		// Every day from 10:00 to 11:00, without a start date
+		List<RecurringScheduleEntity> recurringSchedules = new RecurringScheduleEntitiesBuilder(0, 1).setAppId(appId)
+				.setTimeZone(TimeZone.getDefault().getID()).setDayOfWeek(0, new int[] { 1, 2, 3, 4, 5, 6, 7 })
+				.setStartTime(0, Time.valueOf("10:00:00")).setEndTime(0, Time.valueOf("11:00:00")).setStartDate(0, null)
+				.setEndDate(0, null).build();
+		recurringSchedules.get(0).setId(10L);
+		Mockito.when(recurringScheduleDao.findAllRecurringSchedulesByAppId(appId)).thenReturn(recurringSchedules);
+
+		Long specificDateScheduleId = specificDateSchedules.get(0).getId();
+		assertThat(scheduleTransitionCoalescer.findEndingScheduleIds(appId, 10L, transitionTime),
+				is(Arrays.asList(specificDateScheduleId)));
+		assertThat(scheduleTransitionCoalescer.isReplacedAt(appId, specificDateScheduleId, transitionTime), is(true));
+	}
+
+	@Test
+	public void testNotCoalesced_when_schedules_cannot_be_read() {
+		Mockito.when(specificDateScheduleDao.findAllSpecificDateSchedulesByAppId(appId))
+				.thenThrow(new DatabaseValidationException("test exception"));
+
+		assertThat(scheduleTransitionCoalescer.findEndingScheduleIds(appId, 1L, transitionTime), empty());
+		assertThat(scheduleTransitionCoalescer.isReplacedAt(appId, 1L, transitionTime), is(false));
+	}
+}
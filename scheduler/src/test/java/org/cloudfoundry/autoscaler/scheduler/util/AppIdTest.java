@@ -0,0 +1,100 @@
+package org.cloudfoundry.autoscaler.scheduler.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.quartz.JobDataMap;
+
+public class AppIdTest {
+
+	@Test
+	public void testGuidAppId() {
+		UUID uuid = UUID.randomUUID();
+		AppId appId = AppId.of(uuid.toString());
+
+		assertThat(appId.isGuid(), is(true));
+		assertThat(appId.getMostSignificantBits(), is(uuid.getMostSignificantBits()));
+		assertThat(appId.getLeastSignificantBits(), is(uuid.getLeastSignificantBits()));
+		assertThat(appId.toString(), is(uuid.toString()));
+		assertThat(AppId.of(new String(uuid.toString())), sameInstance(appId));
+		assertThat(AppId.of(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()), sameInstance(appId));
+	}
+
+	@Test
+	public void testOtherAppIds_are_held_as_strings() {
+		String upperCaseGuid = UUID.randomUUID().toString().toUpperCase();
+		for (String value : new String[] { "appId1", upperCaseGuid, "00000000x0000-0000-0000-000000000000",
+				"0000000g-0000-0000-0000-000000000000" }) {
+			AppId appId = AppId.of(value);
+			assertThat(appId.isGuid(), is(false));
+			assertThat(appId.toString(), is(value));
+			assertThat(AppId.of(new String(value)), sameInstance(appId));
+		}
+		assertThat(AppId.of(upperCaseGuid), not(AppId.of(upperCaseGuid.toLowerCase())));
+		assertThat(AppId.of((String) null), is(nullValue()));
+	}
+
+	@Test
+	public void testDeserializedAppId_is_interned() throws Exception {
+		AppId appId = AppId.of(UUID.randomUUID().toString());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(appId);
+		}
+
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertThat(in.readObject(), sameInstance(appId));
+		}
+	}
+
+	@Test
+	public void testConcurrentAppIds_are_interned_once() throws Exception {
+		String guid = UUID.randomUUID().toString();
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<AppId>> futures = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				futures.add(executorService.submit(() -> AppId.of(new String(guid))));
+			}
+			AppId appId = AppId.of(guid);
+			for (Future<AppId> future : futures) {
+				assertThat(future.get(), sameInstance(appId));
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testJobDataAppId() {
+		String guid = UUID.randomUUID().toString();
+		JobDataMap jobDataMap = new JobDataMap();
+		ScheduleJobHelper.putAppId(jobDataMap, guid);
+		assertThat(jobDataMap.containsKey(ScheduleJobHelper.APP_ID), is(false));
+		assertThat(ScheduleJobHelper.getAppId(jobDataMap), is(guid));
+
+		jobDataMap = new JobDataMap();
+		ScheduleJobHelper.putAppId(jobDataMap, "appId1");
+		assertThat(ScheduleJobHelper.getAppId(jobDataMap), is("appId1"));
+
+		// Job data written before the app id was compacted
+		jobDataMap = new JobDataMap();
+		jobDataMap.put(ScheduleJobHelper.APP_ID, guid);
+		assertThat(ScheduleJobHelper.getAppId(jobDataMap), is(guid));
+	}
+}
@@ -2,6 +2,11 @@ package org.cloudfoundry.autoscaler.scheduler.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -12,10 +17,15 @@ import org.apache.catalina.Context;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.cloudfoundry.autoscaler.scheduler.scalingengine.ActiveScheduleNotification;
+import org.cloudfoundry.autoscaler.scheduler.scalingengine.ActiveScheduleNotificationResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class EmbeddedTomcatUtil {
 	File applicationDir;
 	Context appContext;
+	ScalingEngineBulkMock scalingEngineBulkMock = new ScalingEngineBulkMock();
 
 	public EmbeddedTomcatUtil() {
 		File baseDir = new File("tomcat");
@@ -36,6 +46,8 @@ public class EmbeddedTomcatUtil {
 		try {
 			tomcat.start();
 			appContext = tomcat.addWebapp("/", applicationDir.getAbsolutePath());
+			Tomcat.addServlet(appContext, "bulk", scalingEngineBulkMock);
+			appContext.addServletMapping("/v1/active_schedules/bulk", "bulk");
 		} catch (LifecycleException e) {
 			throw new RuntimeException(e);
 		} catch (ServletException e) {
@@ -62,7 +74,65 @@ public class EmbeddedTomcatUtil {
 		String url = "/v1/apps/" + appId + "/active_schedules/" + scheduleId;
 		Tomcat.addServlet(appContext, appId, new ScalingEngineMock(statusCode, message));
 		appContext.addServletMapping(url, appId);
+		scalingEngineBulkMock.itemResponses.put(appId + "/" + scheduleId, new Object[] { statusCode, message });
+	}
+
+	/**
+	 * Sets the status of the whole bulk request, 200 answers each notification as set up for its schedule.
+	 */
+	public void setupBulk(int statusCode) {
+		scalingEngineBulkMock.returnStatus = statusCode;
+	}
+
+	/**
+	 * @return the notifications of each bulk request received
+	 */
+	public List<List<ActiveScheduleNotification>> getBulkRequests() {
+		return new ArrayList<>(scalingEngineBulkMock.bulkRequests);
+	}
+
+	public void resetBulk() {
+		scalingEngineBulkMock.returnStatus = 200;
+		scalingEngineBulkMock.bulkRequests.clear();
+	}
 
+	/**
+	 * Stand-in for the bulk endpoint of the scaling engine, each notification gets the status set up for
+	 * its schedule, 404 when none.
+	 */
+	static class ScalingEngineBulkMock extends HttpServlet {
+		private ObjectMapper objectMapper = new ObjectMapper();
+		private Map<String, Object[]> itemResponses = new ConcurrentHashMap<>();
+		private List<List<ActiveScheduleNotification>> bulkRequests = new CopyOnWriteArrayList<>();
+		private volatile int returnStatus = 200;
+
+		@Override
+		protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+			List<ActiveScheduleNotification> notifications = new ArrayList<>();
+			for (ActiveScheduleNotification notification : objectMapper.readValue(request.getInputStream(),
+					ActiveScheduleNotification[].class)) {
+				notifications.add(notification);
+			}
+			bulkRequests.add(notifications);
+
+			response.setStatus(returnStatus);
+			if (returnStatus != 200) {
+				return;
+			}
+
+			List<ActiveScheduleNotificationResult> results = new ArrayList<>();
+			for (ActiveScheduleNotification notification : notifications) {
+				Object[] itemResponse = itemResponses.get(notification.getAppId() + "/" + notification.getScheduleId());
+				ActiveScheduleNotificationResult result = new ActiveScheduleNotificationResult();
+				result.setAppId(notification.getAppId());
+				result.setScheduleId(notification.getScheduleId());
+				result.setStatus(itemResponse == null ? 404 : (Integer) itemResponse[0]);
+				result.setMessage(itemResponse == null ? null : (String) itemResponse[1]);
+				results.add(result);
+			}
+			response.setContentType("application/json");
+			objectMapper.writeValue(response.getWriter(), results);
+		}
 	}
 
 	static class ScalingEngineMock extends HttpServlet {
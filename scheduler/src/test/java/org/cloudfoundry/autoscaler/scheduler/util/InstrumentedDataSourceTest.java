@@ -0,0 +1,166 @@
+package org.cloudfoundry.autoscaler.scheduler.util;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.cloudfoundry.autoscaler.scheduler.quartz.AppScalingScheduleStartJob;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.MetricsEndpoint;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class InstrumentedDataSourceTest extends TestConfiguration {
+
+	@Autowired
+	@Qualifier("primaryDataSource")
+	private InstrumentedDataSource primaryDataSource;
+
+	@Autowired
+	@Qualifier("quartzDataSource")
+	private InstrumentedDataSource quartzDataSource;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private Scheduler scheduler;
+
+	@Autowired
+	private MetricsEndpoint metricsEndpoint;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Value("${spring.datasource.url}")
+	private String url;
+
+	@Value("${spring.datasource.username}")
+	private String username;
+
+	@Value("${spring.datasource.password}")
+	private String password;
+
+	@Test
+	public void testQuartzHasItsOwnPool() throws Exception {
+		assertThat(quartzDataSource, not(sameInstance(primaryDataSource)));
+		assertThat(primaryDataSource.getPoolName(), is("primary"));
+
+		// The jobs are written in the transactions of the schedules, the scheduler threads use the quartz pool
+		SchedulerFactoryBean schedulerFactoryBean = applicationContext.getBean("&quartzScheduler",
+				SchedulerFactoryBean.class);
+		assertThat(ReflectionTestUtils.getField(schedulerFactoryBean, "dataSource"), sameInstance(dataSource));
+		assertThat(ReflectionTestUtils.getField(schedulerFactoryBean, "nonTransactionalDataSource"),
+				sameInstance(quartzDataSource));
+		assertThat(ReflectionTestUtils.getField(schedulerFactoryBean, "transactionManager"),
+				sameInstance(transactionManager));
+	}
+
+	@Test
+	public void testJobs_use_quartz_pool() {
+		long quartzWaitCount = getMetric(quartzDataSource, "datasource.quartz.wait.count");
+		long primaryWaitCount = getMetric(primaryDataSource, "datasource.primary.wait.count");
+
+		ReplicaRoutingDataSource
+				.useQuartzPool(() -> new JdbcTemplate(dataSource).queryForObject("SELECT 1", Integer.class));
+
+		assertThat(getMetric(quartzDataSource, "datasource.quartz.wait.count"), greaterThan(quartzWaitCount));
+		assertThat(getMetric(primaryDataSource, "datasource.primary.wait.count"), is(primaryWaitCount));
+	}
+
+	@Test
+	public void testJobs_rolled_back_with_schedules() throws Exception {
+		JobDetail jobDetail = JobBuilder.newJob(AppScalingScheduleStartJob.class).withIdentity("rolledBack", "test")
+				.storeDurably().build();
+
+		new TransactionTemplate(transactionManager).execute(status -> {
+			try {
+				scheduler.addJob(jobDetail, true);
+			} catch (SchedulerException se) {
+				throw new IllegalStateException(se);
+			}
+			status.setRollbackOnly();
+			return null;
+		});
+
+		assertThat(scheduler.checkExists(jobDetail.getKey()), is(false));
+	}
+
+	@Test
+	public void testPoolMetrics() throws Exception {
+		Map<String, Object> metrics = metricsEndpoint.invoke();
+
+		for (String pool : new String[] { "primary", "quartz" }) {
+			for (String metric : new String[] { "active", "usage", "idle", "max.active", "waiting", "exhausted",
+					"wait.count", "wait.p99" }) {
+				assertThat("datasource." + pool + "." + metric, metrics.containsKey("datasource." + pool + "." + metric),
+						is(true));
+			}
+		}
+	}
+
+	@Test
+	public void testExhaustedPool() throws SQLException {
+		InstrumentedDataSource instrumentedDataSource = applicationContext.getAutowireCapableBeanFactory()
+				.createBean(InstrumentedDataSource.class);
+		instrumentedDataSource.setPoolName("test");
+		instrumentedDataSource.setUrl(url);
+		instrumentedDataSource.setUsername(username);
+		instrumentedDataSource.setPassword(password);
+		instrumentedDataSource.setMaxActive(1);
+		instrumentedDataSource.setMaxWait(100);
+
+		try (Connection connection = instrumentedDataSource.getConnection()) {
+			try {
+				instrumentedDataSource.getConnection();
+				fail("Should fail");
+			} catch (SQLException e) {
+				// expected, the only connection is in use
+			}
+		} finally {
+			instrumentedDataSource.close();
+		}
+
+		assertThat(getMetric(instrumentedDataSource, "datasource.test.exhausted"), is(1L));
+		assertThat(getMetric(instrumentedDataSource, "datasource.test.wait.count"), is(2L));
+		assertThat(getMetric(instrumentedDataSource, "datasource.test.wait.max"), greaterThan(50L));
+	}
+
+	private long getMetric(InstrumentedDataSource instrumentedDataSource, String name) {
+		for (Metric<?> metric : instrumentedDataSource.metrics()) {
+			if (metric.getName().equals(name)) {
+				return metric.getValue().longValue();
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+}
@@ -0,0 +1,155 @@
+package org.cloudfoundry.autoscaler.scheduler.util;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.cloudfoundry.autoscaler.scheduler.dao.SpecificDateScheduleDao;
+import org.cloudfoundry.autoscaler.scheduler.service.AppSchedulesCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The replica is the scheduler database itself here, reached through the pool of the replica.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = { "scheduler.datasource.replica.enabled=true",
+		"scheduler.datasource.replica.lag.max.millisecond=500" })
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class ReplicaRoutingDataSourceTest extends TestConfiguration {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	@Qualifier("primaryDataSource")
+	private InstrumentedDataSource primaryDataSource;
+
+	@Autowired
+	@Qualifier("replicaDataSource")
+	private InstrumentedDataSource replicaDataSource;
+
+	@Autowired
+	private AppSchedulesCache appSchedulesCache;
+
+	@Autowired
+	private SpecificDateScheduleDao specificDateScheduleDao;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private TestDataCleanupHelper testDataCleanupHelper;
+
+	private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+	@Before
+	public void before() {
+		testDataCleanupHelper.cleanupData();
+		appSchedulesCache.clear();
+		replicaRoutingDataSource = (ReplicaRoutingDataSource) dataSource;
+	}
+
+	@After
+	public void after() {
+		replicaRoutingDataSource.setReplicaEnabled(true);
+	}
+
+	@Test
+	public void testOnlyReadOnlyQueriesUseReplica() {
+		assertThat(replicaRoutingDataSource.determineCurrentLookupKey(), is(ReplicaRoutingDataSource.Target.PRIMARY));
+		assertThat(ReplicaRoutingDataSource.readFromReplica(replicaRoutingDataSource::determineCurrentLookupKey),
+				is(ReplicaRoutingDataSource.Target.REPLICA));
+
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		assertThat(ReplicaRoutingDataSource.readFromReplica(
+				() -> transactionTemplate.execute(status -> replicaRoutingDataSource.determineCurrentLookupKey())),
+				is(ReplicaRoutingDataSource.Target.PRIMARY));
+		transactionTemplate.setReadOnly(true);
+		assertThat(ReplicaRoutingDataSource.readFromReplica(
+				() -> transactionTemplate.execute(status -> replicaRoutingDataSource.determineCurrentLookupKey())),
+				is(ReplicaRoutingDataSource.Target.REPLICA));
+
+		replicaRoutingDataSource.setReplicaEnabled(false);
+		assertThat(ReplicaRoutingDataSource.readFromReplica(replicaRoutingDataSource::determineCurrentLookupKey),
+				is(ReplicaRoutingDataSource.Target.PRIMARY));
+	}
+
+	@Test
+	public void testJobsUseQuartzPool_except_for_replica_reads() {
+		List<ReplicaRoutingDataSource.Target> targets = new ArrayList<>();
+		ReplicaRoutingDataSource.useQuartzPool(() -> {
+			targets.add(replicaRoutingDataSource.determineCurrentLookupKey());
+			targets.add(ReplicaRoutingDataSource.readFromReplica(replicaRoutingDataSource::determineCurrentLookupKey));
+		});
+
+		assertThat(targets, contains(ReplicaRoutingDataSource.Target.QUARTZ, ReplicaRoutingDataSource.Target.REPLICA));
+		assertThat(replicaRoutingDataSource.determineCurrentLookupKey(), is(ReplicaRoutingDataSource.Target.PRIMARY));
+	}
+
+	@Test
+	public void testAppSchedulesAreLoadedFromReplica() {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		new TransactionTemplate(transactionManager).execute(status -> specificDateScheduleDao
+				.createAll(TestDataSetupHelper.generateSpecificDateScheduleEntities(appId, 2)));
+
+		long replicaWaitCount = getWaitCount(replicaDataSource);
+		long primaryWaitCount = getWaitCount(primaryDataSource);
+
+		assertThat(appSchedulesCache.getSchedules(appId).getSpecificDateSchedules().size(), is(2));
+
+		assertThat(getWaitCount(replicaDataSource), greaterThan(replicaWaitCount));
+		assertThat(getWaitCount(primaryDataSource), is(primaryWaitCount));
+	}
+
+	@Test
+	public void testAppSchedulesAreLoadedFromPrimary_within_replica_lag_after_write() throws Exception {
+		String appId = TestDataSetupHelper.generateAppIds(1)[0];
+		new TransactionTemplate(transactionManager).execute(status -> specificDateScheduleDao
+				.createAll(TestDataSetupHelper.generateSpecificDateScheduleEntities(appId, 2)));
+		appSchedulesCache.invalidate(appId);
+
+		long replicaWaitCount = getWaitCount(replicaDataSource);
+		long primaryWaitCount = getWaitCount(primaryDataSource);
+
+		assertThat(appSchedulesCache.getSchedules(appId).getSpecificDateSchedules().size(), is(2));
+
+		assertThat(getWaitCount(replicaDataSource), is(replicaWaitCount));
+		assertThat(getWaitCount(primaryDataSource), greaterThan(primaryWaitCount));
+
+		Thread.sleep(600);
+		appSchedulesCache.clear();
+		appSchedulesCache.getSchedules(appId);
+
+		assertThat(getWaitCount(replicaDataSource), greaterThan(replicaWaitCount));
+	}
+
+	private long getWaitCount(InstrumentedDataSource instrumentedDataSource) {
+		String name = "datasource." + instrumentedDataSource.getPoolName() + ".wait.count";
+		for (Metric<?> metric : instrumentedDataSource.metrics()) {
+			if (metric.getName().equals(name)) {
+				return metric.getValue().longValue();
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+}
@@ -2,8 +2,19 @@ package org.cloudfoundry.autoscaler.scheduler.util;
 
 import org.springframework.test.context.TestPropertySource;
 
+/**
+ * The test contexts are cached and their quartz schedulers keep running, each context has a scheduler name
+ * of its own so that it does not fire the triggers of the other contexts.
+ */
 @TestPropertySource(properties = { "scalingenginejob.reschedule.interval.millisecond=100",
 		"scalingenginejob.reschedule.maxcount=5", "autoscaler.scalingengine.url=http://localhost:8090",
-		"scalingengine.notification.reschedule.maxcount=2" })
+		"scalingengine.notification.reschedule.maxcount=2",
+		"scalingengine.notification.retry.initial.interval.millisecond=100",
+		"scalingengine.notification.retry.max.interval.millisecond=1000", "scheduler.reconciliation.enabled=false",
+		"scalingenginejob.start.advance.max.millisecond=0",
+		"autoscaler.scalingengine.circuitbreaker.enabled=false",
+		"scheduler.activeschedule.groupcommit.enabled=false", "scheduler.history.enabled=false",
+		"autoscaler.scalingengine.notification.outbox.enabled=false",
+		"scheduler.quartz.scheduler.name=quartzScheduler-${random.uuid}" })
 public class TestConfiguration {
 }
@@ -5,6 +5,7 @@ import java.util.Set;
 
 import javax.sql.DataSource;
 
+import org.cloudfoundry.autoscaler.scheduler.service.AppSchedulesCache;
 import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
@@ -19,14 +20,22 @@ public class TestDataCleanupHelper {
 	@Autowired
 	private DataSource dataSource;
 
+	@Autowired
+	private AppSchedulesCache appSchedulesCache;
 
 	public void cleanupData(){
+		appSchedulesCache.clear();
+		removeAllScheduleHistory();
+		removeAllNotifications();
 		removeAllActiveSchedules();
 		removeAllSpecificDateSchedules();
 		removeAllRecurringSchedules();
 	}
 
 	public void cleanupData(Scheduler scheduler) throws SchedulerException {
+		appSchedulesCache.clear();
+		removeAllScheduleHistory();
+		removeAllNotifications();
 		removeAllActiveSchedules();
 		removeAllSpecificDateSchedules();
 		removeAllRecurringSchedules();
@@ -39,6 +48,18 @@ public class TestDataCleanupHelper {
 		return jdbcTemplate.queryForObject("SELECT last_value from schedule_id_sequence;", Long.class);
 	}
 
+	private void removeAllScheduleHistory(){
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+		jdbcTemplate.update("DELETE FROM app_scaling_schedule_history;");
+	}
+
+	private void removeAllNotifications(){
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+		jdbcTemplate.update("DELETE FROM app_scaling_notification_outbox;");
+	}
+
 	private void removeAllActiveSchedules(){
 		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
 